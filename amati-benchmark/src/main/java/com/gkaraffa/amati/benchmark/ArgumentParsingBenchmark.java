@@ -0,0 +1,40 @@
+package com.gkaraffa.amati.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.gkaraffa.amati.control.Arguments;
+import com.gkaraffa.amati.control.MainController;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ArgumentParsingBenchmark {
+  @Param({"KEY", "SCALE", "GUITAR"})
+  public String type;
+
+  @Param({"C", "F#", "Bb"})
+  public String key;
+
+  @Param({"TXT", "CSV"})
+  public String format;
+
+  @Benchmark
+  public Arguments parseArguments() {
+    return MainController.parseArguments(new String[] {"--type", type, "--key", key, "--scale",
+        "Dorian", "--format", format});
+  }
+}
@@ -0,0 +1,257 @@
+package com.gkaraffa.amati.benchmark;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/*
+ * Compares two JMH JSON result files (-rf json) benchmark by benchmark and exits with status 1
+ * when any primary score, or the normalized allocation rate recorded by -prof gc, regresses by
+ * more than the threshold percentage.
+ *
+ * usage: BaselineComparator <baseline.json> <current.json> [threshold percent, default 10]
+ */
+public class BaselineComparator {
+  private static final String ALLOCATION_METRIC = "gc.alloc.rate.norm";
+
+  public static void main(String[] args) throws IOException {
+    if (args.length < 2) {
+      System.err.println("usage: BaselineComparator <baseline.json> <current.json> [threshold%]");
+      System.exit(2);
+    }
+
+    double threshold = (args.length > 2) ? Double.parseDouble(args[2]) : 10.0;
+    Map<String, Result> baseline = readResults(args[0]);
+    Map<String, Result> current = readResults(args[1]);
+    int regressionCount = 0;
+
+    for (Map.Entry<String, Result> entry : current.entrySet()) {
+      Result baselineResult = baseline.get(entry.getKey());
+      Result currentResult = entry.getValue();
+
+      if (baselineResult == null) {
+        System.out.println(String.format("NEW        %s  %.3f %s", entry.getKey(),
+            currentResult.score, currentResult.unit));
+        continue;
+      }
+
+      double scoreChange = percentChange(baselineResult.score, currentResult.score);
+      boolean scoreRegressed = currentResult.higherIsBetter ? (scoreChange < -threshold)
+          : (scoreChange > threshold);
+      double allocationChange =
+          percentChange(baselineResult.allocation, currentResult.allocation);
+      boolean allocationRegressed = allocationChange > threshold;
+
+      if (scoreRegressed || allocationRegressed) {
+        regressionCount++;
+      }
+
+      System.out.println(String.format("%-10s %s  %.3f -> %.3f %s (%+.1f%%), alloc %+.1f%%",
+          (scoreRegressed || allocationRegressed) ? "REGRESSED" : "ok", entry.getKey(),
+          baselineResult.score, currentResult.score, currentResult.unit, scoreChange,
+          allocationChange));
+    }
+
+    System.out.println(regressionCount + " regression(s) beyond " + threshold + "%");
+    System.exit((regressionCount == 0) ? 0 : 1);
+  }
+
+  private static double percentChange(double before, double after) {
+    if (Double.isNaN(before) || Double.isNaN(after) || (before == 0)) {
+      return 0.0;
+    }
+
+    return ((after - before) / before) * 100.0;
+  }
+
+  private static double toDouble(Object value) {
+    if (value instanceof Number) {
+      return ((Number) value).doubleValue();
+    }
+
+    return Double.parseDouble(String.valueOf(value));
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Map<String, Result> readResults(String fileName) throws IOException {
+    String json = new String(Files.readAllBytes(Paths.get(fileName)), StandardCharsets.UTF_8);
+    List<Object> runs = (List<Object>) new JsonParser(json).parseValue();
+    Map<String, Result> results = new TreeMap<>();
+
+    for (Object runObject : runs) {
+      Map<String, Object> run = (Map<String, Object>) runObject;
+      Map<String, Object> primaryMetric = (Map<String, Object>) run.get("primaryMetric");
+      Map<String, Object> secondaryMetrics = (Map<String, Object>) run.get("secondaryMetrics");
+      Map<String, Object> params = (Map<String, Object>) run.get("params");
+      Result result = new Result();
+
+      result.score = toDouble(primaryMetric.get("score"));
+      result.unit = (String) primaryMetric.get("scoreUnit");
+      result.higherIsBetter = "thrpt".equals(run.get("mode"));
+      result.allocation = Double.NaN;
+      if (secondaryMetrics != null) {
+        for (Map.Entry<String, Object> metric : secondaryMetrics.entrySet()) {
+          if (metric.getKey().endsWith(ALLOCATION_METRIC)) {
+            Object score = ((Map<String, Object>) metric.getValue()).get("score");
+            result.allocation = toDouble(score);
+          }
+        }
+      }
+
+      String name = run.get("benchmark") + ":" + run.get("mode");
+      results.put((params == null) ? name : name + new TreeMap<>(params), result);
+    }
+
+    return results;
+  }
+
+  static class Result {
+    double score;
+    double allocation;
+    String unit;
+    boolean higherIsBetter;
+  }
+
+  static class JsonParser {
+    private final String text;
+    private int position = 0;
+
+    JsonParser(String text) {
+      this.text = text;
+    }
+
+    Object parseValue() {
+      this.skipWhitespace();
+      char c = text.charAt(position);
+
+      switch (c) {
+        case '{':
+          return this.parseObject();
+        case '[':
+          return this.parseArray();
+        case '"':
+          return this.parseString();
+        case 't':
+          position += 4;
+          return Boolean.TRUE;
+        case 'f':
+          position += 5;
+          return Boolean.FALSE;
+        case 'n':
+          position += 4;
+          return null;
+        default:
+          return this.parseNumber();
+      }
+    }
+
+    private Map<String, Object> parseObject() {
+      Map<String, Object> object = new LinkedHashMap<>();
+      position++;
+      this.skipWhitespace();
+
+      if (text.charAt(position) == '}') {
+        position++;
+        return object;
+      }
+
+      while (true) {
+        this.skipWhitespace();
+        String name = this.parseString();
+        this.skipWhitespace();
+        this.expect(':');
+        object.put(name, this.parseValue());
+        this.skipWhitespace();
+
+        if (text.charAt(position++) == '}') {
+          return object;
+        }
+      }
+    }
+
+    private List<Object> parseArray() {
+      List<Object> array = new ArrayList<>();
+      position++;
+      this.skipWhitespace();
+
+      if (text.charAt(position) == ']') {
+        position++;
+        return array;
+      }
+
+      while (true) {
+        array.add(this.parseValue());
+        this.skipWhitespace();
+
+        if (text.charAt(position++) == ']') {
+          return array;
+        }
+      }
+    }
+
+    private String parseString() {
+      StringBuilder builder = new StringBuilder();
+      this.expect('"');
+
+      while (text.charAt(position) != '"') {
+        char c = text.charAt(position++);
+
+        if (c == '\\') {
+          char escaped = text.charAt(position++);
+          switch (escaped) {
+            case 'n':
+              builder.append('\n');
+              break;
+            case 't':
+              builder.append('\t');
+              break;
+            case 'u':
+              builder.append((char) Integer.parseInt(text.substring(position, position + 4), 16));
+              position += 4;
+              break;
+            default:
+              builder.append(escaped);
+              break;
+          }
+        }
+        else {
+          builder.append(c);
+        }
+      }
+      position++;
+
+      return builder.toString();
+    }
+
+    private Object parseNumber() {
+      int start = position;
+
+      while ((position < text.length()) && ("+-0123456789.eE".indexOf(text.charAt(position)) >= 0
+          || Character.isLetter(text.charAt(position)))) {
+        position++;
+      }
+
+      String number = text.substring(start, position);
+      return number.equals("NaN") ? Double.NaN : Double.parseDouble(number);
+    }
+
+    private void expect(char expected) {
+      if (text.charAt(position) != expected) {
+        throw new IllegalArgumentException("Expected '" + expected + "' at " + position);
+      }
+      position++;
+    }
+
+    private void skipWhitespace() {
+      while ((position < text.length()) && Character.isWhitespace(text.charAt(position))) {
+        position++;
+      }
+    }
+  }
+}
@@ -0,0 +1,69 @@
+package com.gkaraffa.amati.benchmark;
+
+import java.io.OutputStream;
+
+import com.gkaraffa.cremona.helper.ChordHelper;
+import com.gkaraffa.cremona.helper.ScaleHelper;
+import com.gkaraffa.cremona.theoretical.Tone;
+import com.gkaraffa.guarneri.view.ViewFactory;
+import com.gkaraffa.guarneri.view.ViewQuery;
+import com.gkaraffa.guarneri.view.ViewQueryBuilder;
+import com.gkaraffa.guarneri.view.analytic.key.ParallelModeAnalyticViewFactory;
+import com.gkaraffa.guarneri.view.analytic.scale.IntervalAnalyticViewFactory;
+import com.gkaraffa.guarneri.view.analytic.scale.RomanNumeralAnalyticViewFactory;
+import com.gkaraffa.guarneri.view.analytic.scale.StepPatternAnalyticFactory;
+import com.gkaraffa.guarneri.view.instrument.GuitarViewFactory;
+
+final class BenchmarkQueries {
+  private BenchmarkQueries() {}
+
+  static ViewFactory createViewFactory(String analytic) {
+    switch (analytic) {
+      case "PARALLEL_MODE":
+        return new ParallelModeAnalyticViewFactory();
+      case "ROMAN_NUMERAL":
+        return new RomanNumeralAnalyticViewFactory();
+      case "INTERVAL":
+        return new IntervalAnalyticViewFactory();
+      case "STEP_PATTERN":
+        return new StepPatternAnalyticFactory();
+      case "GUITAR":
+        return new GuitarViewFactory();
+      default:
+        throw new IllegalArgumentException("Unknown analytic: " + analytic);
+    }
+  }
+
+  static ViewQuery createViewQuery(String analytic, String key, String scale) {
+    ViewQueryBuilder vQB = new ViewQueryBuilder();
+
+    switch (analytic) {
+      case "PARALLEL_MODE":
+        vQB.insertCriteria("Key", Tone.stringToTone(key.trim().toUpperCase()));
+        break;
+      case "GUITAR":
+        vQB.insertCriteria("ToneGroupObject", ScaleHelper.getInstance().getScale(key, scale));
+        break;
+      default:
+        vQB.insertCriteria("Scale", ScaleHelper.getInstance().getScale(key, scale));
+        break;
+    }
+
+    return vQB.compileViewQuery();
+  }
+
+  static ViewQuery createChordViewQuery(String key, String chord) {
+    ViewQueryBuilder vQB = new ViewQueryBuilder();
+    vQB.insertCriteria("ToneGroupObject", ChordHelper.getInstance().getChord(key, chord));
+
+    return vQB.compileViewQuery();
+  }
+
+  static class NullOutputStream extends OutputStream {
+    @Override
+    public void write(int b) {}
+
+    @Override
+    public void write(byte[] b, int off, int len) {}
+  }
+}
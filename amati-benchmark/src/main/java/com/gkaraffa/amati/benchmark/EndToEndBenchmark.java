@@ -0,0 +1,75 @@
+package com.gkaraffa.amati.benchmark;
+
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.gkaraffa.amati.control.Arguments;
+import com.gkaraffa.amati.control.MainController;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EndToEndBenchmark {
+  @Param({"KEY", "SCALE", "GUITAR_SCALE", "GUITAR_CHORD"})
+  public String query;
+
+  @Param({"C", "F#", "Bb"})
+  public String key;
+
+  @Param({"TXT", "CSV"})
+  public String format;
+
+  private final MainController mainController = new MainController();
+  private PrintStream originalOut;
+  private Arguments arguments;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    originalOut = System.out;
+    System.setOut(new PrintStream(new BenchmarkQueries.NullOutputStream()));
+    arguments = MainController.parseArguments(this.queryArguments());
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    System.setOut(originalOut);
+  }
+
+  private String[] queryArguments() {
+    switch (query) {
+      case "KEY":
+        return new String[] {"--type", "KEY", "--key", key, "--format", format};
+      case "SCALE":
+        return new String[] {"--type", "SCALE", "--key", key, "--scale", "Dorian", "--format",
+            format};
+      case "GUITAR_SCALE":
+        return new String[] {"--type", "GUITAR", "--key", key, "--scale", "Dorian", "--format",
+            format};
+      default:
+        return new String[] {"--type", "GUITAR", "--key", key, "--chord", "Minor Seventh",
+            "--format", format};
+    }
+  }
+
+  @Benchmark
+  public void run() {
+    mainController.run(arguments);
+  }
+}
@@ -0,0 +1,46 @@
+package com.gkaraffa.amati.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.gkaraffa.cremona.helper.ChordHelper;
+import com.gkaraffa.cremona.helper.ScaleHelper;
+import com.gkaraffa.cremona.theoretical.chord.Chord;
+import com.gkaraffa.cremona.theoretical.scale.Scale;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ModelBenchmark {
+  @Param({"C", "F#", "Bb"})
+  public String key;
+
+  @Param({"Ionian", "Dorian", "Harmonic Minor"})
+  public String scale;
+
+  @Param({"Major", "Minor Seventh"})
+  public String chord;
+
+  @Benchmark
+  public Scale getScale() {
+    return ScaleHelper.getInstance().getScale(key, scale);
+  }
+
+  @Benchmark
+  public Chord getChord() {
+    return ChordHelper.getInstance().getChord(key, chord);
+  }
+}
@@ -0,0 +1,68 @@
+package com.gkaraffa.amati.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.gkaraffa.amati.control.MainController;
+import com.gkaraffa.amati.control.OutputFormat;
+import com.gkaraffa.guarneri.outputform.CSVOutputFormFactory;
+import com.gkaraffa.guarneri.outputform.OutputForm;
+import com.gkaraffa.guarneri.outputform.OutputFormFactory;
+import com.gkaraffa.guarneri.outputform.TabularTextOutputFormFactory;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class OutputBenchmark {
+  @Param({"ROMAN_NUMERAL", "GUITAR"})
+  public String analytic;
+
+  @Param({"TXT", "CSV"})
+  public String format;
+
+  private final MainController mainController = new MainController();
+  private final List<OutputForm> views = new ArrayList<>();
+  private OutputFormat outputFormat;
+  private File outputFile;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    OutputFormFactory outputFormFactory =
+        format.equals("CSV") ? new CSVOutputFormFactory() : new TabularTextOutputFormFactory();
+
+    outputFormat = OutputFormat.getOutputFormat(format);
+    outputFile = File.createTempFile("amati-benchmark", "." + outputFormat.getFileExtension());
+    views.add(outputFormFactory.renderView(BenchmarkQueries.createViewFactory(analytic)
+        .createView(BenchmarkQueries.createViewQuery(analytic, "C", "Ionian"))));
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    outputFile.delete();
+  }
+
+  @Benchmark
+  public void writeOutputToFile() {
+    mainController.createOutput(outputFile.getPath(), outputFormat, views);
+  }
+}
@@ -0,0 +1,60 @@
+package com.gkaraffa.amati.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.gkaraffa.guarneri.outputform.CSVOutputFormFactory;
+import com.gkaraffa.guarneri.outputform.OutputForm;
+import com.gkaraffa.guarneri.outputform.OutputFormFactory;
+import com.gkaraffa.guarneri.outputform.TabularTextOutputFormFactory;
+import com.gkaraffa.guarneri.view.ViewTable;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RenderBenchmark {
+  @Param({"PARALLEL_MODE", "ROMAN_NUMERAL", "GUITAR"})
+  public String analytic;
+
+  @Param({"C", "Bb"})
+  public String key;
+
+  @Param({"TXT", "CSV"})
+  public String format;
+
+  private OutputFormFactory outputFormFactory;
+  private ViewTable viewTable;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    outputFormFactory =
+        format.equals("CSV") ? new CSVOutputFormFactory() : new TabularTextOutputFormFactory();
+    viewTable = BenchmarkQueries.createViewFactory(analytic)
+        .createView(BenchmarkQueries.createViewQuery(analytic, key, "Ionian"));
+  }
+
+  @Benchmark
+  public OutputForm renderView() {
+    return outputFormFactory.renderView(viewTable);
+  }
+
+  @Benchmark
+  public byte[] renderViewToBytes() {
+    return outputFormFactory.renderView(viewTable).getByteArray();
+  }
+}
@@ -0,0 +1,56 @@
+package com.gkaraffa.amati.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.gkaraffa.guarneri.view.ViewFactory;
+import com.gkaraffa.guarneri.view.ViewQuery;
+import com.gkaraffa.guarneri.view.ViewTable;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ViewFactoryBenchmark {
+  @Param({"PARALLEL_MODE", "ROMAN_NUMERAL", "INTERVAL", "STEP_PATTERN", "GUITAR"})
+  public String analytic;
+
+  @Param({"C", "F#", "Bb"})
+  public String key;
+
+  @Param({"Ionian", "Dorian", "Harmonic Minor"})
+  public String scale;
+
+  private ViewFactory viewFactory;
+  private ViewQuery viewQuery;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    viewFactory = BenchmarkQueries.createViewFactory(analytic);
+    viewQuery = BenchmarkQueries.createViewQuery(analytic, key, scale);
+  }
+
+  @Benchmark
+  public ViewTable createView() {
+    return viewFactory.createView(viewQuery);
+  }
+
+  @Benchmark
+  public ViewTable createViewWithNewFactory() {
+    return BenchmarkQueries.createViewFactory(analytic).createView(viewQuery);
+  }
+}
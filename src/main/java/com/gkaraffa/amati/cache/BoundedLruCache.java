@@ -0,0 +1,95 @@
+package com.gkaraffa.amati.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToLongFunction;
+
+public class BoundedLruCache<K, V> {
+  private final int maxEntries;
+  private final long maxBytes;
+  private final ToLongFunction<V> weigher;
+  private final LinkedHashMap<K, WeightedValue<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+  private final AtomicLong hitCount = new AtomicLong();
+  private final AtomicLong missCount = new AtomicLong();
+  private final AtomicLong evictionCount = new AtomicLong();
+  private long byteCount = 0;
+
+  public BoundedLruCache(int maxEntries, long maxBytes, ToLongFunction<V> weigher)
+      throws IllegalArgumentException {
+    if (maxEntries < 1) {
+      throw new IllegalArgumentException("Cache must hold at least one entry.");
+    }
+    if (maxBytes < 1) {
+      throw new IllegalArgumentException("Cache byte limit must be positive.");
+    }
+
+    this.maxEntries = maxEntries;
+    this.maxBytes = maxBytes;
+    this.weigher = weigher;
+  }
+
+  public V get(K key) {
+    WeightedValue<V> weightedValue;
+
+    synchronized (entries) {
+      weightedValue = entries.get(key);
+    }
+
+    if (weightedValue == null) {
+      missCount.incrementAndGet();
+      return null;
+    }
+
+    hitCount.incrementAndGet();
+    return weightedValue.value;
+  }
+
+  public void put(K key, V value) {
+    long weight = weigher.applyAsLong(value);
+    if (weight > maxBytes) {
+      return;
+    }
+
+    synchronized (entries) {
+      WeightedValue<V> previous = entries.put(key, new WeightedValue<>(value, weight));
+      if (previous != null) {
+        byteCount -= previous.weight;
+      }
+      byteCount += weight;
+
+      Iterator<Map.Entry<K, WeightedValue<V>>> iterator = entries.entrySet().iterator();
+      while (((entries.size() > maxEntries) || (byteCount > maxBytes)) && iterator.hasNext()) {
+        WeightedValue<V> eldest = iterator.next().getValue();
+        iterator.remove();
+        byteCount -= eldest.weight;
+        evictionCount.incrementAndGet();
+      }
+    }
+  }
+
+  public void clear() {
+    synchronized (entries) {
+      entries.clear();
+      byteCount = 0;
+    }
+  }
+
+  public CacheStatistics getStatistics() {
+    synchronized (entries) {
+      return new CacheStatistics(hitCount.get(), missCount.get(), evictionCount.get(),
+          entries.size(), byteCount);
+    }
+  }
+
+  private static class WeightedValue<V> {
+    final V value;
+    final long weight;
+
+    WeightedValue(V value, long weight) {
+      this.value = value;
+      this.weight = weight;
+    }
+  }
+}
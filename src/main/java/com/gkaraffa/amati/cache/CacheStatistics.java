@@ -0,0 +1,51 @@
+package com.gkaraffa.amati.cache;
+
+public class CacheStatistics {
+  private final long hitCount;
+  private final long missCount;
+  private final long evictionCount;
+  private final int entryCount;
+  private final long byteCount;
+
+  public CacheStatistics(long hitCount, long missCount, long evictionCount, int entryCount,
+      long byteCount) {
+    this.hitCount = hitCount;
+    this.missCount = missCount;
+    this.evictionCount = evictionCount;
+    this.entryCount = entryCount;
+    this.byteCount = byteCount;
+  }
+
+  public long getHitCount() {
+    return hitCount;
+  }
+
+  public long getMissCount() {
+    return missCount;
+  }
+
+  public long getEvictionCount() {
+    return evictionCount;
+  }
+
+  public int getEntryCount() {
+    return entryCount;
+  }
+
+  public long getByteCount() {
+    return byteCount;
+  }
+
+  public double getHitRatio() {
+    long requestCount = hitCount + missCount;
+
+    return (requestCount == 0) ? 0.0 : (double) hitCount / requestCount;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("Cache: %d hits, %d misses (%.1f%% hit), %d evictions, %d entries,"
+        + " %d bytes", hitCount, missCount, getHitRatio() * 100.0, evictionCount, entryCount,
+        byteCount);
+  }
+}
@@ -0,0 +1,45 @@
+package com.gkaraffa.amati.catalog;
+
+import java.nio.charset.StandardCharsets;
+
+/*
+ * Catalog file layout, all values big-endian:
+ *
+ * header     magic, version, entry count, slot count, directory offset, data offset
+ * directory  slot count slots of (key hash, key offset, key length, payload length,
+ *            payload offset), open addressed on the key hash, hash 0 marks an empty slot
+ * data       UTF-8 keys and CatalogPayload-encoded tables, referenced by absolute file offset
+ */
+final class CatalogFormat {
+  static final int MAGIC = 0x414D4354;
+  static final int VERSION = 2;
+  static final int HEADER_SIZE = 32;
+  static final int SLOT_SIZE = 32;
+
+  private CatalogFormat() {}
+
+  static int slotCountFor(int entryCount) {
+    int slotCount = 2;
+
+    while (slotCount < (entryCount * 2)) {
+      slotCount <<= 1;
+    }
+
+    return slotCount;
+  }
+
+  static byte[] encodeKey(String key) {
+    return key.getBytes(StandardCharsets.UTF_8);
+  }
+
+  static long hash(byte[] keyBytes) {
+    long hash = 0xcbf29ce484222325L;
+
+    for (byte keyByte : keyBytes) {
+      hash ^= (keyByte & 0xff);
+      hash *= 0x100000001b3L;
+    }
+
+    return (hash == 0) ? 1 : hash;
+  }
+}
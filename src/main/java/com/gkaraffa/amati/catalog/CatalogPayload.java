@@ -0,0 +1,114 @@
+package com.gkaraffa.amati.catalog;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.gkaraffa.amati.output.BinaryOutputForm;
+import com.gkaraffa.guarneri.outputform.OutputForm;
+
+/*
+ * A catalog payload keeps a query's tables apart so an answer can go through the same sinks as a
+ * live query: table count, then per table a kind byte, the rendered bytes and, for text tables,
+ * the console text, since console output is the form's text rather than its bytes.
+ */
+public final class CatalogPayload {
+  private static final byte TEXT_TABLE = 0;
+  private static final byte BINARY_TABLE = 1;
+
+  private CatalogPayload() {}
+
+  public static byte[] encode(List<OutputForm> views) {
+    ByteArrayOutputStream payload = new ByteArrayOutputStream();
+
+    try (DataOutputStream out = new DataOutputStream(payload)) {
+      out.writeInt(views.size());
+      for (OutputForm view : views) {
+        boolean binary = view instanceof BinaryOutputForm;
+        byte[] bytes = view.getByteArray();
+
+        out.writeByte(binary ? BINARY_TABLE : TEXT_TABLE);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+        if (!binary) {
+          byte[] text = view.toString().getBytes(StandardCharsets.UTF_8);
+          out.writeInt(text.length);
+          out.write(text);
+        }
+      }
+    }
+    catch (IOException iOE) {
+      throw new UncheckedIOException(iOE);
+    }
+
+    return payload.toByteArray();
+  }
+
+  public static List<OutputForm> decode(ByteBuffer payload) throws IllegalArgumentException {
+    try {
+      int tableCount = payload.getInt();
+      if ((tableCount < 0) || (tableCount > payload.remaining())) {
+        throw new IllegalArgumentException("Corrupt catalog payload.");
+      }
+
+      List<OutputForm> views = new ArrayList<>(tableCount);
+      for (int table = 0; table < tableCount; table++) {
+        byte kind = payload.get();
+        byte[] bytes = readBlock(payload);
+
+        if (kind == BINARY_TABLE) {
+          views.add(new BinaryOutputForm(bytes));
+        }
+        else if (kind == TEXT_TABLE) {
+          views.add(new StoredTextForm(bytes,
+              new String(readBlock(payload), StandardCharsets.UTF_8)));
+        }
+        else {
+          throw new IllegalArgumentException("Corrupt catalog payload.");
+        }
+      }
+
+      return views;
+    }
+    catch (BufferUnderflowException bUE) {
+      throw new IllegalArgumentException("Corrupt catalog payload.", bUE);
+    }
+  }
+
+  private static byte[] readBlock(ByteBuffer payload) throws IllegalArgumentException {
+    int length = payload.getInt();
+    if ((length < 0) || (length > payload.remaining())) {
+      throw new IllegalArgumentException("Corrupt catalog payload.");
+    }
+
+    byte[] block = new byte[length];
+    payload.get(block);
+    return block;
+  }
+
+  static class StoredTextForm implements OutputForm {
+    private final byte[] bytes;
+    private final String text;
+
+    StoredTextForm(byte[] bytes, String text) {
+      this.bytes = bytes;
+      this.text = text;
+    }
+
+    @Override
+    public byte[] getByteArray() {
+      return this.bytes;
+    }
+
+    @Override
+    public String toString() {
+      return this.text;
+    }
+  }
+}
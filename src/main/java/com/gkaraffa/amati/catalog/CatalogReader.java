@@ -0,0 +1,98 @@
+package com.gkaraffa.amati.catalog;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+public class CatalogReader implements Closeable {
+  private final FileChannel fileChannel;
+  private final MappedByteBuffer mappedBuffer;
+  private final int entryCount;
+  private final int slotCount;
+  private final int directoryOffset;
+
+  public CatalogReader(Path path) throws IOException, IllegalArgumentException {
+    this.fileChannel = FileChannel.open(path, StandardOpenOption.READ);
+
+    try {
+      if (fileChannel.size() > Integer.MAX_VALUE) {
+        throw new IllegalArgumentException("Catalog file exceeds 2 GB.");
+      }
+
+      this.mappedBuffer = fileChannel.map(FileChannel.MapMode.READ_ONLY, 0, fileChannel.size());
+      if ((mappedBuffer.limit() < CatalogFormat.HEADER_SIZE)
+          || (mappedBuffer.getInt(0) != CatalogFormat.MAGIC)) {
+        throw new IllegalArgumentException("Not an Amati catalog file.");
+      }
+      if (mappedBuffer.getInt(4) != CatalogFormat.VERSION) {
+        throw new IllegalArgumentException("Unsupported catalog version.");
+      }
+
+      this.entryCount = mappedBuffer.getInt(8);
+      this.slotCount = mappedBuffer.getInt(12);
+      this.directoryOffset = (int) mappedBuffer.getLong(16);
+    }
+    catch (IOException | RuntimeException e) {
+      fileChannel.close();
+      throw e;
+    }
+  }
+
+  public int getEntryCount() {
+    return entryCount;
+  }
+
+  public ByteBuffer lookup(String key) {
+    byte[] keyBytes = CatalogFormat.encodeKey(key);
+    long keyHash = CatalogFormat.hash(keyBytes);
+    int mask = slotCount - 1;
+    int slot = (int) (keyHash & mask);
+
+    for (int probe = 0; probe < slotCount; probe++) {
+      int slotOffset = directoryOffset + (slot * CatalogFormat.SLOT_SIZE);
+      long slotHash = mappedBuffer.getLong(slotOffset);
+
+      if (slotHash == 0) {
+        return null;
+      }
+      if ((slotHash == keyHash) && this.keyMatches(slotOffset, keyBytes)) {
+        int payloadLength = mappedBuffer.getInt(slotOffset + 20);
+        int payloadOffset = (int) mappedBuffer.getLong(slotOffset + 24);
+        ByteBuffer payload = mappedBuffer.asReadOnlyBuffer();
+        payload.position(payloadOffset);
+        payload.limit(payloadOffset + payloadLength);
+
+        return payload.slice();
+      }
+
+      slot = (slot + 1) & mask;
+    }
+
+    return null;
+  }
+
+  private boolean keyMatches(int slotOffset, byte[] keyBytes) {
+    int keyLength = mappedBuffer.getInt(slotOffset + 16);
+    if (keyLength != keyBytes.length) {
+      return false;
+    }
+
+    int keyOffset = (int) mappedBuffer.getLong(slotOffset + 8);
+    for (int i = 0; i < keyLength; i++) {
+      if (mappedBuffer.get(keyOffset + i) != keyBytes[i]) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  @Override
+  public void close() throws IOException {
+    fileChannel.close();
+  }
+}
@@ -0,0 +1,152 @@
+package com.gkaraffa.amati.catalog;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/*
+ * Entries are written to a hidden sibling of the catalog file, which only becomes the catalog
+ * when commit writes the header and directory and renames it into place. Closing without a
+ * commit, as a failed build does, deletes the sibling and leaves any previous catalog untouched.
+ */
+public class CatalogWriter implements Closeable {
+  private final Path path;
+  private final Path tempPath;
+  private final FileChannel fileChannel;
+  private final int maxEntryCount;
+  private final int slotCount;
+  private final ByteBuffer directory;
+  private final long dataOffset;
+  private long position;
+  private int entryCount = 0;
+  private boolean committed = false;
+
+  public CatalogWriter(Path path, int maxEntryCount) throws IOException {
+    this.path = path;
+    this.tempPath = path.resolveSibling("." + path.getFileName() + ".tmp");
+    this.fileChannel = FileChannel.open(tempPath, StandardOpenOption.CREATE,
+        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    this.maxEntryCount = maxEntryCount;
+    this.slotCount = CatalogFormat.slotCountFor(maxEntryCount);
+    this.directory = ByteBuffer.allocate(slotCount * CatalogFormat.SLOT_SIZE);
+    this.dataOffset = CatalogFormat.HEADER_SIZE + ((long) slotCount * CatalogFormat.SLOT_SIZE);
+    this.position = dataOffset;
+  }
+
+  public void append(String key, byte[] payload) throws IOException, IllegalArgumentException {
+    if (entryCount >= maxEntryCount) {
+      throw new IllegalArgumentException("Catalog entry limit exceeded.");
+    }
+
+    byte[] keyBytes = CatalogFormat.encodeKey(key);
+    long keyHash = CatalogFormat.hash(keyBytes);
+    int slot = this.findFreeSlot(keyHash, keyBytes);
+    long keyOffset = position;
+
+    position += this.writeFully(ByteBuffer.wrap(keyBytes), position);
+    long payloadOffset = position;
+    position += this.writeFully(ByteBuffer.wrap(payload), position);
+
+    int slotOffset = slot * CatalogFormat.SLOT_SIZE;
+    directory.putLong(slotOffset, keyHash);
+    directory.putLong(slotOffset + 8, keyOffset);
+    directory.putInt(slotOffset + 16, keyBytes.length);
+    directory.putInt(slotOffset + 20, payload.length);
+    directory.putLong(slotOffset + 24, payloadOffset);
+    entryCount++;
+  }
+
+  public int getEntryCount() {
+    return entryCount;
+  }
+
+  private int findFreeSlot(long keyHash, byte[] keyBytes) throws IOException {
+    int mask = slotCount - 1;
+    int slot = (int) (keyHash & mask);
+
+    while (directory.getLong(slot * CatalogFormat.SLOT_SIZE) != 0) {
+      if (directory.getLong(slot * CatalogFormat.SLOT_SIZE) == keyHash
+          && this.keyMatches(slot, keyBytes)) {
+        throw new IllegalArgumentException(
+            "Duplicate catalog key: " + new String(keyBytes, StandardCharsets.UTF_8));
+      }
+      slot = (slot + 1) & mask;
+    }
+
+    return slot;
+  }
+
+  private boolean keyMatches(int slot, byte[] keyBytes) throws IOException {
+    int slotOffset = slot * CatalogFormat.SLOT_SIZE;
+    int keyLength = directory.getInt(slotOffset + 16);
+    if (keyLength != keyBytes.length) {
+      return false;
+    }
+
+    ByteBuffer existingKey = ByteBuffer.allocate(keyLength);
+    long keyOffset = directory.getLong(slotOffset + 8);
+    while (existingKey.hasRemaining()) {
+      fileChannel.read(existingKey, keyOffset + existingKey.position());
+    }
+    existingKey.flip();
+
+    return existingKey.equals(ByteBuffer.wrap(keyBytes));
+  }
+
+  private int writeFully(ByteBuffer buffer, long offset) throws IOException {
+    int length = buffer.remaining();
+
+    while (buffer.hasRemaining()) {
+      fileChannel.write(buffer, offset + (length - buffer.remaining()));
+    }
+
+    return length;
+  }
+
+  public void commit() throws IOException {
+    ByteBuffer header = ByteBuffer.allocate(CatalogFormat.HEADER_SIZE);
+    header.putInt(CatalogFormat.MAGIC);
+    header.putInt(CatalogFormat.VERSION);
+    header.putInt(entryCount);
+    header.putInt(slotCount);
+    header.putLong(CatalogFormat.HEADER_SIZE);
+    header.putLong(dataOffset);
+    header.flip();
+
+    this.writeFully(header, 0);
+    directory.clear();
+    this.writeFully(directory, CatalogFormat.HEADER_SIZE);
+    fileChannel.force(true);
+    fileChannel.close();
+
+    try {
+      Files.move(tempPath, path, StandardCopyOption.ATOMIC_MOVE,
+          StandardCopyOption.REPLACE_EXISTING);
+    }
+    catch (AtomicMoveNotSupportedException aMNSE) {
+      Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING);
+    }
+    committed = true;
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (committed) {
+      return;
+    }
+
+    try {
+      fileChannel.close();
+    }
+    finally {
+      Files.deleteIfExists(tempPath);
+    }
+  }
+}
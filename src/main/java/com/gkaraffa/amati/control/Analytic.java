@@ -0,0 +1,30 @@
+package com.gkaraffa.amati.control;
+
+public enum Analytic {
+  PARALLEL_MODE(false, null),
+  ROMAN_NUMERAL(true, "RomanNumeralAnalytic cannot be rendered for this scale"),
+  INTERVAL(true, "IntervalAnalytic view cannot be rendered for this scale"),
+  STEP_PATTERN(false, null),
+  GUITAR(false, null),
+  FRETBOARD(false, null),
+  VOICING(false, null),
+  VOICELEAD(false, null),
+  CONTAINS(false, null),
+  MATRIX(false, null);
+
+  private final boolean diatonicOnly;
+  private final String unsupportedMessage;
+
+  Analytic(boolean diatonicOnly, String unsupportedMessage) {
+    this.diatonicOnly = diatonicOnly;
+    this.unsupportedMessage = unsupportedMessage;
+  }
+
+  public boolean isDiatonicOnly() {
+    return this.diatonicOnly;
+  }
+
+  public String getUnsupportedMessage() {
+    return this.unsupportedMessage;
+  }
+}
@@ -0,0 +1,30 @@
+package com.gkaraffa.amati.control;
+
+import com.gkaraffa.guarneri.outputform.OutputForm;
+import com.gkaraffa.guarneri.view.ViewTable;
+
+public class AnalyticCacheEntry {
+  private static final long ENTRY_OVERHEAD = 256;
+
+  private final ViewTable viewTable;
+  private final OutputForm outputForm;
+  private final long byteCount;
+
+  public AnalyticCacheEntry(ViewTable viewTable, OutputForm outputForm) {
+    this.viewTable = viewTable;
+    this.outputForm = outputForm;
+    this.byteCount = ENTRY_OVERHEAD + (2L * outputForm.getByteArray().length);
+  }
+
+  public ViewTable getViewTable() {
+    return viewTable;
+  }
+
+  public OutputForm getOutputForm() {
+    return outputForm;
+  }
+
+  public long getByteCount() {
+    return byteCount;
+  }
+}
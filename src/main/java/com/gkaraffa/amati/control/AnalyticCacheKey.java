@@ -0,0 +1,59 @@
+package com.gkaraffa.amati.control;
+
+import java.util.Objects;
+
+public class AnalyticCacheKey {
+  private final String typeRequest;
+  private final String keyRequest;
+  private final String subjectRequest;
+  private final Analytic analytic;
+  private final OutputFormat outputFormat;
+
+  public AnalyticCacheKey(String typeRequest, String keyRequest, String subjectRequest,
+      Analytic analytic, OutputFormat outputFormat) {
+    this.typeRequest = normalize(typeRequest);
+    this.keyRequest = normalize(keyRequest);
+    this.subjectRequest = normalize(subjectRequest);
+    this.analytic = analytic;
+    this.outputFormat = outputFormat;
+  }
+
+  /*
+   * Callers pass canonical names from CanonicalNames, so spelling variants and aliases already
+   * agree; only whitespace is folded here. Case is kept because names cremona knows but the
+   * canonical tables do not, such as m7 and M7, differ only in case.
+   */
+  public static String normalize(String text) {
+    if (text == null) {
+      return "";
+    }
+
+    return text.trim().replaceAll("\\s+", " ");
+  }
+
+  @Override
+  public boolean equals(Object object) {
+    if (this == object) {
+      return true;
+    }
+    if (!(object instanceof AnalyticCacheKey)) {
+      return false;
+    }
+
+    AnalyticCacheKey other = (AnalyticCacheKey) object;
+    return typeRequest.equals(other.typeRequest) && keyRequest.equals(other.keyRequest)
+        && subjectRequest.equals(other.subjectRequest) && (analytic == other.analytic)
+        && (outputFormat == other.outputFormat);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(typeRequest, keyRequest, subjectRequest, analytic, outputFormat);
+  }
+
+  @Override
+  public String toString() {
+    return typeRequest + "/" + keyRequest + "/" + subjectRequest + "/" + analytic + "/"
+        + outputFormat;
+  }
+}
@@ -0,0 +1,108 @@
+package com.gkaraffa.amati.control;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.gkaraffa.amati.fretboard.FretboardViewFactory;
+import com.gkaraffa.amati.fretboard.VoiceLeadingViewFactory;
+import com.gkaraffa.amati.fretboard.VoicingViewFactory;
+import com.gkaraffa.amati.index.PitchClassSetViewFactory;
+import com.gkaraffa.amati.matrix.MatrixViewFactory;
+import com.gkaraffa.cremona.theoretical.scale.DiatonicScale;
+import com.gkaraffa.guarneri.view.ViewFactory;
+import com.gkaraffa.guarneri.view.ViewQuery;
+import com.gkaraffa.guarneri.view.ViewTable;
+import com.gkaraffa.guarneri.view.analytic.key.ParallelModeAnalyticViewFactory;
+import com.gkaraffa.guarneri.view.analytic.scale.IntervalAnalyticViewFactory;
+import com.gkaraffa.guarneri.view.analytic.scale.RomanNumeralAnalyticViewFactory;
+import com.gkaraffa.guarneri.view.analytic.scale.StepPatternAnalyticFactory;
+import com.gkaraffa.guarneri.view.instrument.GuitarViewFactory;
+
+/*
+ * No factory is loaded or instantiated until its analytic is first requested: each is constructed
+ * in its own case of createViewFactory, and a class is only loaded when its constructor first
+ * runs. Each factory is created once, on its analytic's own map entry, so concurrent queries for
+ * different analytics never wait on each other.
+ */
+public class AnalyticRegistry {
+  private static final AnalyticRegistry INSTANCE = new AnalyticRegistry();
+
+  private final ConcurrentMap<Analytic, ViewFactory> viewFactories = new ConcurrentHashMap<>();
+  private final Map<String, List<Analytic>> typeAnalytics = new HashMap<>();
+
+  private AnalyticRegistry() {
+    typeAnalytics.put("KEY", Collections.singletonList(Analytic.PARALLEL_MODE));
+    typeAnalytics.put("SCALE", Collections.unmodifiableList(
+        Arrays.asList(Analytic.ROMAN_NUMERAL, Analytic.INTERVAL, Analytic.STEP_PATTERN)));
+    typeAnalytics.put("GUITAR", Collections.singletonList(Analytic.GUITAR));
+    typeAnalytics.put("FRETBOARD", Collections.singletonList(Analytic.FRETBOARD));
+    typeAnalytics.put("VOICING", Collections.singletonList(Analytic.VOICING));
+    typeAnalytics.put("VOICELEAD", Collections.singletonList(Analytic.VOICELEAD));
+    typeAnalytics.put("MATRIX", Collections.singletonList(Analytic.MATRIX));
+    typeAnalytics.put("CONTAINS", Collections.singletonList(Analytic.CONTAINS));
+  }
+
+  public static AnalyticRegistry getInstance() {
+    return INSTANCE;
+  }
+
+  public List<Analytic> getAnalytics(String typeRequest) throws IllegalArgumentException {
+    List<Analytic> analytics = typeAnalytics.get(typeRequest);
+    if (analytics == null) {
+      throw new IllegalArgumentException("Unexpected run type.");
+    }
+
+    return analytics;
+  }
+
+  public ViewFactory getViewFactory(Analytic analytic) {
+    ViewFactory viewFactory = viewFactories.get(analytic);
+
+    if (viewFactory == null) {
+      viewFactory = viewFactories.computeIfAbsent(analytic, this::createViewFactory);
+    }
+
+    return viewFactory;
+  }
+
+  private ViewFactory createViewFactory(Analytic analytic) {
+    switch (analytic) {
+      case PARALLEL_MODE:
+        return new ParallelModeAnalyticViewFactory();
+      case ROMAN_NUMERAL:
+        return new RomanNumeralAnalyticViewFactory();
+      case INTERVAL:
+        return new IntervalAnalyticViewFactory();
+      case STEP_PATTERN:
+        return new StepPatternAnalyticFactory();
+      case GUITAR:
+        return new GuitarViewFactory();
+      case FRETBOARD:
+        return new FretboardViewFactory();
+      case VOICING:
+        return new VoicingViewFactory();
+      case VOICELEAD:
+        return new VoiceLeadingViewFactory();
+      case CONTAINS:
+        return new PitchClassSetViewFactory();
+      case MATRIX:
+        return new MatrixViewFactory();
+      default:
+        throw new IllegalStateException("No view factory for " + analytic + ".");
+    }
+  }
+
+  public ViewTable createView(Analytic analytic, ViewQuery viewQuery)
+      throws IllegalArgumentException {
+    if (analytic.isDiatonicOnly() && !(viewQuery.getCriteria("Scale") instanceof DiatonicScale)) {
+      throw new IllegalArgumentException(analytic.getUnsupportedMessage());
+    }
+
+    return this.getViewFactory(analytic).createView(viewQuery);
+  }
+}
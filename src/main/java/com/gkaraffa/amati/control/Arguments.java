@@ -1,6 +1,9 @@
 package com.gkaraffa.amati.control;
 
 import com.beust.jcommander.Parameter;
+import com.gkaraffa.amati.detect.KeyDetector;
+import com.gkaraffa.amati.fretboard.VoiceLeadingViewFactory;
+import com.gkaraffa.amati.fretboard.VoicingConstraints;
 
 public class Arguments {
   @Parameter(names = {"--help", "-h"})
@@ -10,13 +13,49 @@ public class Arguments {
   private String typeRequest;
 
   @Parameter(names = {"--key", "-k"})
-  private String keyRequest = "null";
+  private String keyRequest;
 
   @Parameter(names = {"--scale", "-s"})
-  private String scaleRequest = "null";
+  private String scaleRequest;
 
   @Parameter(names = {"--chord", "-c"})
-  private String chordRequest = "null";
+  private String chordRequest;
+
+  @Parameter(names = {"--tuning"})
+  private String tuningRequest;
+
+  @Parameter(names = {"--frets"})
+  private Integer fretsRequest;
+
+  @Parameter(names = {"--limit"})
+  private int limitRequest = VoicingConstraints.DEFAULT_LIMIT;
+
+  @Parameter(names = {"--span"})
+  private int spanRequest = VoicingConstraints.DEFAULT_SPAN;
+
+  @Parameter(names = {"--rootInBass"})
+  private boolean rootInBassRequest = false;
+
+  @Parameter(names = {"--tones"})
+  private String tonesRequest;
+
+  @Parameter(names = {"--progression"})
+  private String progressionRequest;
+
+  @Parameter(names = {"--paths"})
+  private int pathsRequest = VoiceLeadingViewFactory.DEFAULT_PATHS;
+
+  @Parameter(names = {"--input"})
+  private String inputFileName;
+
+  @Parameter(names = {"--window"})
+  private int windowRequest = KeyDetector.DEFAULT_WINDOW;
+
+  @Parameter(names = {"--hop"})
+  private int hopRequest = KeyDetector.DEFAULT_HOP;
+
+  @Parameter(names = {"--top"})
+  private int topRequest = KeyDetector.DEFAULT_TOP;
 
   @Parameter(names = {"--format", "-f"})
   private String formatRequest = "text";
@@ -24,6 +63,66 @@ public class Arguments {
   @Parameter(names = {"--output", "-o"})
   private String outputFileName;
 
+  @Parameter(names = {"--batch", "-b"})
+  private String batchRequest;
+
+  @Parameter(names = {"--gzip"})
+  private boolean gzipRequest = false;
+
+  @Parameter(names = {"--outputDir", "-d"})
+  private String outputDirectoryName;
+
+  @Parameter(names = {"--watch"})
+  private String watchManifest;
+
+  @Parameter(names = {"--serve"})
+  private Integer servePort;
+
+  @Parameter(names = {"--loadtest"})
+  private boolean loadTestRequest = false;
+
+  @Parameter(names = {"--duration"})
+  private int durationSeconds = 0;
+
+  @Parameter(names = {"--requests"})
+  private long requestCount = 0;
+
+  @Parameter(names = {"--warmup"})
+  private int warmupSeconds = 0;
+
+  @Parameter(names = {"--seed"})
+  private long seed = 1;
+
+  @Parameter(names = {"--buildCatalog"})
+  private String buildCatalogFileName;
+
+  @Parameter(names = {"--catalog"})
+  private String catalogFileName;
+
+  @Parameter(names = {"--workers"})
+  private int workerCount = 0;
+
+  @Parameter(names = {"--worker"}, hidden = true)
+  private boolean workerRequest = false;
+
+  @Parameter(names = {"--threads"})
+  private int threadCount = Runtime.getRuntime().availableProcessors();
+
+  @Parameter(names = {"--cacheEntries"})
+  private int cacheEntries = 1024;
+
+  @Parameter(names = {"--cacheBytes"})
+  private long cacheBytes = 64L * 1024 * 1024;
+
+  @Parameter(names = {"--interactive", "-i"})
+  private boolean interactiveRequest = false;
+
+  @Parameter(names = {"--metrics"})
+  private boolean metricsRequest = false;
+
+  @Parameter(names = {"--metricsFile"})
+  private String metricsFileName;
+
   public boolean getHelpRequest() {
     return helpRequest;
   }
@@ -44,6 +143,54 @@ public class Arguments {
     return chordRequest;
   }
 
+  public String getTuningRequest() {
+    return tuningRequest;
+  }
+
+  public Integer getFretsRequest() {
+    return fretsRequest;
+  }
+
+  public int getLimitRequest() {
+    return limitRequest;
+  }
+
+  public int getSpanRequest() {
+    return spanRequest;
+  }
+
+  public boolean getRootInBassRequest() {
+    return rootInBassRequest;
+  }
+
+  public String getTonesRequest() {
+    return tonesRequest;
+  }
+
+  public String getProgressionRequest() {
+    return progressionRequest;
+  }
+
+  public int getPathsRequest() {
+    return pathsRequest;
+  }
+
+  public String getInputFileName() {
+    return inputFileName;
+  }
+
+  public int getWindowRequest() {
+    return windowRequest;
+  }
+
+  public int getHopRequest() {
+    return hopRequest;
+  }
+
+  public int getTopRequest() {
+    return topRequest;
+  }
+
   public String getFormatRequest() {
     return formatRequest;
   }
@@ -52,4 +199,84 @@ public class Arguments {
     return outputFileName;
   }
 
+  public String getBatchRequest() {
+    return batchRequest;
+  }
+
+  public boolean getGzipRequest() {
+    return gzipRequest;
+  }
+
+  public String getOutputDirectoryName() {
+    return outputDirectoryName;
+  }
+
+  public String getWatchManifest() {
+    return watchManifest;
+  }
+
+  public Integer getServePort() {
+    return servePort;
+  }
+
+  public boolean getLoadTestRequest() {
+    return loadTestRequest;
+  }
+
+  public int getDurationSeconds() {
+    return durationSeconds;
+  }
+
+  public long getRequestCount() {
+    return requestCount;
+  }
+
+  public int getWarmupSeconds() {
+    return warmupSeconds;
+  }
+
+  public long getSeed() {
+    return seed;
+  }
+
+  public String getBuildCatalogFileName() {
+    return buildCatalogFileName;
+  }
+
+  public String getCatalogFileName() {
+    return catalogFileName;
+  }
+
+  public int getWorkerCount() {
+    return workerCount;
+  }
+
+  public boolean getWorkerRequest() {
+    return workerRequest;
+  }
+
+  public int getThreadCount() {
+    return threadCount;
+  }
+
+  public int getCacheEntries() {
+    return cacheEntries;
+  }
+
+  public long getCacheBytes() {
+    return cacheBytes;
+  }
+
+  public boolean getInteractiveRequest() {
+    return interactiveRequest;
+  }
+
+  public boolean getMetricsRequest() {
+    return metricsRequest;
+  }
+
+  public String getMetricsFileName() {
+    return metricsFileName;
+  }
+
 }
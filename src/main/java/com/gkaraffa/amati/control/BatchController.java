@@ -0,0 +1,368 @@
+package com.gkaraffa.amati.control;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.gkaraffa.amati.metrics.StageMetrics;
+import com.gkaraffa.amati.output.OutputSink;
+import com.gkaraffa.amati.output.OutputSinks;
+import com.gkaraffa.amati.output.SinkStatistics;
+import com.gkaraffa.amati.output.SpreadsheetWriter;
+import com.gkaraffa.guarneri.outputform.OutputForm;
+
+public class BatchController {
+  private static final int PENDING_PER_THREAD = 4;
+
+  private final MainController mainController;
+
+  public BatchController(MainController mainController) {
+    this.mainController = mainController;
+  }
+
+  public void run(Arguments arguments) throws IllegalArgumentException {
+    int threadCount = this.validateThreadCount(arguments.getThreadCount());
+    File outputDirectory = this.validateOutputDirectory(arguments.getOutputDirectoryName());
+    String outputFileName = arguments.getOutputFileName();
+    OutputFormat batchFormat = OutputFormat.getOutputFormat(arguments.getFormatRequest());
+    if (batchFormat.isSpreadsheet() && (outputDirectory == null)
+        && ((outputFileName == null) || (outputFileName.trim().equals("")))) {
+      throw new IllegalArgumentException("External file must be specified for given format.");
+    }
+    if (batchFormat.isSpreadsheet() && (outputDirectory == null) && arguments.getGzipRequest()) {
+      throw new IllegalArgumentException("Spreadsheet formats cannot be gzip compressed.");
+    }
+
+    ExecutorService executorService = Executors.newFixedThreadPool(threadCount);
+    BatchSummary batchSummary = new BatchSummary();
+    SinkStatistics sinkStatistics = null;
+    this.mainController.setAnalyticCache(MainController.createAnalyticCache(arguments));
+
+    try (BufferedReader reader = this.openBatchReader(arguments.getBatchRequest());
+        FileOutputStream fileOutputStream =
+            this.openSpreadsheetOutput(outputFileName, outputDirectory, batchFormat);
+        SpreadsheetWriter spreadsheetWriter = this.openSpreadsheetWriter(fileOutputStream,
+            batchFormat);
+        OutputSink outputSink = (spreadsheetWriter != null) ? null
+            : OutputSinks.openAsync(outputFileName, arguments.getOutputDirectoryName(),
+                arguments.getGzipRequest(), this.mainController.getChannelOutputWriter())) {
+      BatchOutput batchOutput = new BatchOutput(spreadsheetWriter, outputSink, outputDirectory);
+      Deque<Future<BatchResult>> pending = new ArrayDeque<>();
+      int maxPending = threadCount * PENDING_PER_THREAD;
+      int lineNumber = 0;
+      String line;
+      sinkStatistics = (outputSink == null) ? null : outputSink.getStatistics();
+
+      while ((line = reader.readLine()) != null) {
+        lineNumber++;
+        String trimmedLine = line.trim();
+        if (trimmedLine.isEmpty() || trimmedLine.startsWith("#")) {
+          continue;
+        }
+
+        pending.add(executorService.submit(
+            new BatchTask(lineNumber, trimmedLine, arguments.getFormatRequest())));
+        if (pending.size() >= maxPending) {
+          this.writeResult(pending.poll(), batchOutput, batchSummary);
+        }
+      }
+
+      while (!pending.isEmpty()) {
+        this.writeResult(pending.poll(), batchOutput, batchSummary);
+      }
+    }
+    catch (IOException iOE) {
+      iOE.printStackTrace();
+    }
+    finally {
+      executorService.shutdownNow();
+    }
+
+    System.err.println(batchSummary.toString());
+    if (this.mainController.getAnalyticCache() != null) {
+      System.err.println(this.mainController.getAnalyticCache().getStatistics().toString());
+    }
+    if (sinkStatistics != null) {
+      System.err.println(sinkStatistics.toString());
+    }
+    this.writeMetrics(arguments.getMetricsFileName());
+  }
+
+  private void writeMetrics(String metricsFileName) {
+    StageMetrics stageMetrics = this.mainController.getStageMetrics();
+    if (!stageMetrics.isRecording()) {
+      return;
+    }
+
+    if ((metricsFileName == null) || (metricsFileName.trim().equals(""))) {
+      System.err.println(stageMetrics.toJson());
+      return;
+    }
+
+    try (FileWriter fileWriter = new FileWriter(metricsFileName.trim())) {
+      fileWriter.write(stageMetrics.toJson());
+      fileWriter.write(System.lineSeparator());
+    }
+    catch (IOException iOE) {
+      iOE.printStackTrace();
+    }
+  }
+
+  private int validateThreadCount(int threadCount) throws IllegalArgumentException {
+    if (threadCount < 1) {
+      throw new IllegalArgumentException("Thread count must be at least 1.");
+    }
+
+    return threadCount;
+  }
+
+  private File validateOutputDirectory(String outputDirectoryName)
+      throws IllegalArgumentException {
+    if ((outputDirectoryName == null) || (outputDirectoryName.trim().equals(""))) {
+      return null;
+    }
+
+    File outputDirectory = new File(outputDirectoryName.trim());
+    if (!outputDirectory.isDirectory() && !outputDirectory.mkdirs()) {
+      throw new IllegalArgumentException("Output directory cannot be created.");
+    }
+
+    return outputDirectory;
+  }
+
+  private BufferedReader openBatchReader(String batchRequest) throws IOException {
+    if (batchRequest.trim().equals("-")) {
+      return new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+    }
+
+    return new BufferedReader(
+        new InputStreamReader(new FileInputStream(batchRequest.trim()), StandardCharsets.UTF_8));
+  }
+
+  private FileOutputStream openSpreadsheetOutput(String outputFileName, File outputDirectory,
+      OutputFormat batchFormat) throws IOException {
+    if ((outputFileName == null) || (outputFileName.trim().equals("")) || (outputDirectory != null)
+        || !batchFormat.isSpreadsheet()) {
+      return null;
+    }
+
+    return new FileOutputStream(new File(outputFileName.trim()));
+  }
+
+  private SpreadsheetWriter openSpreadsheetWriter(FileOutputStream fileOutputStream,
+      OutputFormat batchFormat) {
+    if (fileOutputStream == null) {
+      return null;
+    }
+
+    return new SpreadsheetWriter(new BufferedOutputStream(fileOutputStream),
+        batchFormat == OutputFormat.XLSX);
+  }
+
+  private void writeResult(Future<BatchResult> future, BatchOutput batchOutput,
+      BatchSummary batchSummary) throws IOException {
+    BatchResult batchResult = this.awaitResult(future);
+
+    if (batchResult.errorMessage != null) {
+      batchSummary.failed++;
+      System.err.println("line " + batchResult.lineNumber + ": " + batchResult.errorMessage);
+      return;
+    }
+
+    batchSummary.succeeded++;
+    StageMetrics.Span outputSpan =
+        this.mainController.getStageMetrics().start(StageMetrics.OUTPUT);
+    this.writeResultViews(batchResult, batchOutput);
+    outputSpan.stop();
+  }
+
+  private void writeResultViews(BatchResult batchResult, BatchOutput batchOutput)
+      throws IOException {
+    if ((batchOutput.outputDirectory != null) && batchResult.outputFormat.isSpreadsheet()) {
+      this.writeSpreadsheetToDirectory(batchResult, batchOutput.outputDirectory);
+    }
+    else if (batchOutput.spreadsheetWriter != null) {
+      for (OutputForm view : batchResult.views) {
+        batchOutput.spreadsheetWriter.appendTable("Line " + batchResult.lineNumber, view);
+      }
+    }
+    else {
+      batchOutput.outputSink.write(this.resultFileName(batchResult), batchResult.views);
+    }
+  }
+
+  private String resultFileName(BatchResult batchResult) {
+    return String.format("query-%06d.%s", batchResult.lineNumber,
+        batchResult.outputFormat.getFileExtension());
+  }
+
+  private BatchResult awaitResult(Future<BatchResult> future) {
+    try {
+      return future.get();
+    }
+    catch (InterruptedException iE) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Batch interrupted.", iE);
+    }
+    catch (ExecutionException eE) {
+      throw new IllegalStateException("Batch task failed.", eE.getCause());
+    }
+  }
+
+  private void writeSpreadsheetToDirectory(BatchResult batchResult, File outputDirectory)
+      throws IOException {
+    File file = new File(outputDirectory, this.resultFileName(batchResult));
+
+    try (OutputStream outputStream = new BufferedOutputStream(new FileOutputStream(file))) {
+      SpreadsheetWriter.writeTables(outputStream, batchResult.outputFormat == OutputFormat.XLSX,
+          "Line " + batchResult.lineNumber, batchResult.views);
+    }
+  }
+
+  static String[] tokenizeLine(String line) {
+    List<String> tokens = new ArrayList<>();
+    StringBuilder current = new StringBuilder();
+    boolean quoted = false;
+    boolean inToken = false;
+
+    for (int i = 0; i < line.length(); i++) {
+      char c = line.charAt(i);
+
+      if (c == '"') {
+        quoted = !quoted;
+        inToken = true;
+      }
+      else if (Character.isWhitespace(c) && !quoted) {
+        if (inToken) {
+          tokens.add(current.toString());
+          current.setLength(0);
+          inToken = false;
+        }
+      }
+      else {
+        current.append(c);
+        inToken = true;
+      }
+    }
+
+    if (quoted) {
+      throw new IllegalArgumentException("Unterminated quote.");
+    }
+    if (inToken) {
+      tokens.add(current.toString());
+    }
+
+    return tokens.toArray(new String[tokens.size()]);
+  }
+
+  static Arguments parseLine(String line, String defaultFormat) throws IllegalArgumentException {
+    String[] tokens = tokenizeLine(line);
+    List<String> argumentList = new ArrayList<>();
+
+    if (!containsFormat(tokens)) {
+      argumentList.add("--format");
+      argumentList.add(defaultFormat);
+    }
+    for (String token : tokens) {
+      argumentList.add(token);
+    }
+
+    return MainController.parseArguments(argumentList.toArray(new String[argumentList.size()]));
+  }
+
+  private static boolean containsFormat(String[] tokens) {
+    for (String token : tokens) {
+      if (token.equals("--format") || token.equals("-f")) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  class BatchTask implements Callable<BatchResult> {
+    private final int lineNumber;
+    private final String line;
+    private final String defaultFormat;
+
+    BatchTask(int lineNumber, String line, String defaultFormat) {
+      this.lineNumber = lineNumber;
+      this.line = line;
+      this.defaultFormat = defaultFormat;
+    }
+
+    @Override
+    public BatchResult call() {
+      BatchResult batchResult = new BatchResult();
+      batchResult.lineNumber = this.lineNumber;
+
+      try {
+        StageMetrics.Span querySpan = mainController.getStageMetrics().start(StageMetrics.QUERY);
+        Arguments arguments = parseLine(this.line, this.defaultFormat);
+        batchResult.outputFormat = OutputFormat.getOutputFormat(arguments.getFormatRequest());
+        batchResult.views = mainController.renderQuery(arguments);
+        querySpan.stop();
+      }
+      catch (RuntimeException rE) {
+        batchResult.errorMessage =
+            (rE.getMessage() == null) ? rE.getClass().getSimpleName() : rE.getMessage();
+      }
+
+      return batchResult;
+    }
+  }
+
+  class BatchOutput {
+    final SpreadsheetWriter spreadsheetWriter;
+    final OutputSink outputSink;
+    final File outputDirectory;
+
+    BatchOutput(SpreadsheetWriter spreadsheetWriter, OutputSink outputSink,
+        File outputDirectory) {
+      this.spreadsheetWriter = spreadsheetWriter;
+      this.outputSink = outputSink;
+      this.outputDirectory = outputDirectory;
+    }
+  }
+
+  class BatchResult {
+    int lineNumber = 0;
+    OutputFormat outputFormat = null;
+    List<OutputForm> views = null;
+    String errorMessage = null;
+  }
+
+  class BatchSummary {
+    final long startTime = System.nanoTime();
+    int succeeded = 0;
+    int failed = 0;
+
+    @Override
+    public String toString() {
+      long elapsedNanos = System.nanoTime() - this.startTime;
+      int total = this.succeeded + this.failed;
+      double elapsedSeconds = elapsedNanos / 1_000_000_000.0;
+      double throughput = (elapsedSeconds > 0) ? (total / elapsedSeconds) : 0;
+
+      return String.format("Batch complete: %d queries, %d succeeded, %d failed in %.1f ms"
+          + " (%.1f queries/sec)", total, this.succeeded, this.failed, elapsedNanos / 1_000_000.0,
+          throughput);
+    }
+  }
+}
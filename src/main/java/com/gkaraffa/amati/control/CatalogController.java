@@ -0,0 +1,213 @@
+package com.gkaraffa.amati.control;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.beust.jcommander.ParameterException;
+import com.gkaraffa.amati.catalog.CatalogPayload;
+import com.gkaraffa.amati.catalog.CatalogReader;
+import com.gkaraffa.amati.catalog.CatalogWriter;
+import com.gkaraffa.amati.engine.AmatiEngine;
+import com.gkaraffa.amati.metrics.StageMetrics;
+
+public class CatalogController {
+  private static final int PENDING_PER_THREAD = 4;
+  private static final List<OutputFormat> CATALOG_FORMATS =
+      Arrays.asList(OutputFormat.TXT, OutputFormat.CSV, OutputFormat.BIN);
+
+  private final MainController mainController;
+
+  public CatalogController(MainController mainController) {
+    this.mainController = mainController;
+  }
+
+  public void run(Arguments arguments) throws IllegalArgumentException {
+    if ((arguments.getBuildCatalogFileName() != null) && (arguments.getWorkerCount() > 0)) {
+      CatalogCoordinator catalogCoordinator = new CatalogCoordinator(arguments.getWorkerCount());
+      catalogCoordinator.buildCatalog(arguments.getBuildCatalogFileName().trim(),
+          QuerySpace.enumerateQueries(CATALOG_FORMATS));
+    }
+    else if (arguments.getBuildCatalogFileName() != null) {
+      this.buildCatalog(arguments.getBuildCatalogFileName().trim(), arguments.getThreadCount());
+    }
+    else {
+      this.answerFromCatalog(arguments.getCatalogFileName().trim(), arguments);
+    }
+  }
+
+  String catalogKey(Arguments arguments) throws IllegalArgumentException {
+    if (arguments.getTypeRequest() == null) {
+      throw new IllegalArgumentException("Run type not specified.");
+    }
+
+    AmatiEngine engine = this.mainController.getEngine();
+    String typeRequest = AnalyticCacheKey.normalize(arguments.getTypeRequest()).toUpperCase();
+    String subjectString;
+
+    switch (typeRequest) {
+      case "KEY":
+        subjectString = "";
+        break;
+      case "SCALE":
+        subjectString = engine.canonicalScaleName(arguments.getScaleRequest());
+        break;
+      case "GUITAR":
+        if ((arguments.getTuningRequest() != null) || (arguments.getFretsRequest() != null)) {
+          return null;
+        }
+        subjectString = (arguments.getScaleRequest() == null)
+            ? "CHORD " + engine.canonicalChordName(arguments.getChordRequest())
+            : "SCALE " + engine.canonicalScaleName(arguments.getScaleRequest());
+        break;
+      case "VOICING":
+      case "VOICELEAD":
+      case "CONTAINS":
+      case "MATRIX":
+      case "PROGRESSION":
+      case "DETECT":
+        return null;
+      default:
+        throw new IllegalArgumentException("Unexpected run type.");
+    }
+
+    return typeRequest + "|" + engine.canonicalKeyName(arguments.getKeyRequest()) + "|"
+        + subjectString + "|" + OutputFormat.getOutputFormat(arguments.getFormatRequest()).name();
+  }
+
+  private void buildCatalog(String catalogFileName, int threadCount)
+      throws IllegalArgumentException {
+    if (threadCount < 1) {
+      throw new IllegalArgumentException("Thread count must be at least 1.");
+    }
+
+    long startTime = System.nanoTime();
+    List<String[]> queries = QuerySpace.enumerateQueries(CATALOG_FORMATS);
+    ExecutorService executorService = Executors.newFixedThreadPool(threadCount);
+    int skippedCount = 0;
+    int entryCount = 0;
+
+    try (CatalogWriter catalogWriter = new CatalogWriter(Paths.get(catalogFileName),
+        queries.size())) {
+      Deque<Future<CatalogEntry>> pending = new ArrayDeque<>();
+      int maxPending = threadCount * PENDING_PER_THREAD;
+
+      for (String[] query : queries) {
+        pending.add(executorService.submit(new CatalogTask(query)));
+        if (pending.size() >= maxPending) {
+          skippedCount += this.appendEntry(pending.poll(), catalogWriter);
+        }
+      }
+      while (!pending.isEmpty()) {
+        skippedCount += this.appendEntry(pending.poll(), catalogWriter);
+      }
+
+      catalogWriter.commit();
+      entryCount = catalogWriter.getEntryCount();
+    }
+    catch (IOException iOE) {
+      iOE.printStackTrace();
+    }
+    finally {
+      executorService.shutdownNow();
+    }
+
+    System.err.println(
+        String.format("Catalog built: %d entries, %d combinations skipped in %.1f ms", entryCount,
+            skippedCount, (System.nanoTime() - startTime) / 1_000_000.0));
+  }
+
+  private int appendEntry(Future<CatalogEntry> future, CatalogWriter catalogWriter)
+      throws IOException {
+    CatalogEntry catalogEntry;
+
+    try {
+      catalogEntry = future.get();
+    }
+    catch (InterruptedException iE) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Catalog build interrupted.", iE);
+    }
+    catch (ExecutionException eE) {
+      throw new IllegalStateException("Catalog task failed.", eE.getCause());
+    }
+
+    if (catalogEntry == null) {
+      return 1;
+    }
+
+    catalogWriter.append(catalogEntry.key, catalogEntry.payload);
+    return 0;
+  }
+
+  private void answerFromCatalog(String catalogFileName, Arguments arguments)
+      throws IllegalArgumentException {
+    try (CatalogReader catalogReader = new CatalogReader(Paths.get(catalogFileName))) {
+      String catalogKey = this.catalogKey(arguments);
+      ByteBuffer payload = (catalogKey == null) ? null : catalogReader.lookup(catalogKey);
+
+      if (payload == null) {
+        this.mainController.runQuery(arguments);
+      }
+      else {
+        this.mainController.answerQuery(arguments, CatalogPayload.decode(payload));
+      }
+    }
+    catch (IOException iOE) {
+      iOE.printStackTrace();
+    }
+
+    StageMetrics stageMetrics = this.mainController.getStageMetrics();
+    if (stageMetrics.isRecording()) {
+      stageMetrics.printBreakdown(System.err);
+    }
+  }
+
+  /*
+   * Returns null for a combination the analytics do not support; any other failure is a bug and
+   * aborts the build rather than leaving a silent gap in the catalog.
+   */
+  CatalogEntry renderEntry(String[] query) {
+    try {
+      Arguments arguments = MainController.parseArguments(query);
+
+      return new CatalogEntry(this.catalogKey(arguments),
+          CatalogPayload.encode(this.mainController.renderQuery(arguments)));
+    }
+    catch (IllegalArgumentException | ParameterException rE) {
+      return null;
+    }
+  }
+
+  class CatalogTask implements Callable<CatalogEntry> {
+    private final String[] query;
+
+    CatalogTask(String[] query) {
+      this.query = query;
+    }
+
+    @Override
+    public CatalogEntry call() {
+      return renderEntry(this.query);
+    }
+  }
+
+  static class CatalogEntry {
+    final String key;
+    final byte[] payload;
+
+    CatalogEntry(String key, byte[] payload) {
+      this.key = key;
+      this.payload = payload;
+    }
+  }
+}
@@ -0,0 +1,405 @@
+package com.gkaraffa.amati.control;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import com.gkaraffa.amati.catalog.CatalogWriter;
+import com.gkaraffa.amati.control.CatalogController.CatalogEntry;
+
+/*
+ * Builds a catalog in child JVMs started with --worker and spoken to over their stdin and stdout
+ * (see WorkerProtocol). The query space is cut into fixed-size shards dealt round-robin onto one
+ * deque per worker. Each worker's driver thread takes from the front of its own deque and, once
+ * that is empty, steals from the back of the longest other deque, so a worker that drew cheap
+ * shards picks up the tail of a slow one. Finished shards are appended in shard order, which
+ * keeps the catalog byte-identical to a single-JVM build; a driver only takes shards within
+ * SHARDS_AHEAD_PER_WORKER per worker of the next one to append, so one slow shard cannot make
+ * the rest of the catalog pile up in memory. A worker that dies mid-shard, or goes
+ * FRAME_TIMEOUT_SECONDS without finishing a frame, is replaced and the shard is retried, up to
+ * MAX_ATTEMPTS times.
+ */
+class CatalogCoordinator {
+  private static final int SHARD_SIZE = 32;
+  private static final int MAX_ATTEMPTS = 3;
+  private static final int SHARDS_AHEAD_PER_WORKER = 4;
+  private static final long FRAME_TIMEOUT_SECONDS = 120;
+  private static final long STOP_TIMEOUT_SECONDS = 10;
+
+  private final int workerCount;
+  private final int maxShardsAhead;
+  private final List<Deque<Shard>> shardQueues = new ArrayList<>();
+  private final Map<Integer, List<CatalogEntry>> finishedShards = new HashMap<>();
+  private int nextShardToAppend = 0;
+  private int liveDrivers;
+  private int stolenCount = 0;
+  private int retriedCount = 0;
+  private RuntimeException failure = null;
+
+  CatalogCoordinator(int workerCount) throws IllegalArgumentException {
+    if (workerCount < 1) {
+      throw new IllegalArgumentException("Worker count must be at least 1.");
+    }
+
+    this.workerCount = workerCount;
+    this.maxShardsAhead = workerCount * SHARDS_AHEAD_PER_WORKER;
+  }
+
+  void buildCatalog(String catalogFileName, List<String[]> queries)
+      throws IllegalArgumentException {
+    long startTime = System.nanoTime();
+    int shardCount = this.dealShards(queries);
+    int skippedCount = 0;
+    int entryCount = 0;
+    ScheduledExecutorService watchdog = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread watchdogThread = new Thread(runnable, "amati-worker-watchdog");
+      watchdogThread.setDaemon(true);
+      return watchdogThread;
+    });
+
+    this.liveDrivers = this.workerCount;
+    for (int slot = 0; slot < this.workerCount; slot++) {
+      final int driverSlot = slot;
+      Thread driverThread =
+          new Thread(() -> this.drive(driverSlot, watchdog), "amati-worker-" + slot);
+      driverThread.setDaemon(true);
+      driverThread.start();
+    }
+
+    try (CatalogWriter catalogWriter = new CatalogWriter(Paths.get(catalogFileName),
+        queries.size())) {
+      for (int shardId = 0; shardId < shardCount; shardId++) {
+        for (CatalogEntry catalogEntry : this.awaitShard(shardId)) {
+          if (catalogEntry == null) {
+            skippedCount++;
+          }
+          else {
+            catalogWriter.append(catalogEntry.key, catalogEntry.payload);
+          }
+        }
+      }
+
+      catalogWriter.commit();
+      entryCount = catalogWriter.getEntryCount();
+    }
+    catch (IOException iOE) {
+      iOE.printStackTrace();
+    }
+    finally {
+      this.fail(new IllegalStateException("Catalog build stopped."));
+      watchdog.shutdown();
+    }
+
+    System.err.println(
+        String.format("Catalog built: %d entries, %d combinations skipped in %.1f ms", entryCount,
+            skippedCount, (System.nanoTime() - startTime) / 1_000_000.0));
+    System.err.println(
+        String.format("Catalog workers: %d workers, %d shards, %d stolen, %d retried",
+            this.workerCount, shardCount, this.stolenCount, this.retriedCount));
+  }
+
+  private int dealShards(List<String[]> queries) {
+    for (int slot = 0; slot < this.workerCount; slot++) {
+      this.shardQueues.add(new ArrayDeque<>());
+    }
+
+    int shardId = 0;
+    for (int start = 0; start < queries.size(); start += SHARD_SIZE) {
+      List<String[]> shardQueries =
+          queries.subList(start, Math.min(start + SHARD_SIZE, queries.size()));
+      this.shardQueues.get(shardId % this.workerCount).add(new Shard(shardId, shardQueries));
+      shardId++;
+    }
+
+    return shardId;
+  }
+
+  private synchronized List<CatalogEntry> awaitShard(int shardId) {
+    while (!this.finishedShards.containsKey(shardId)) {
+      if (this.failure != null) {
+        throw this.failure;
+      }
+      if (this.liveDrivers == 0) {
+        throw new IllegalStateException("All catalog workers exited before shard " + shardId);
+      }
+
+      try {
+        this.wait();
+      }
+      catch (InterruptedException iE) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Catalog build interrupted.", iE);
+      }
+    }
+
+    this.nextShardToAppend = shardId + 1;
+    this.notifyAll();
+    return this.finishedShards.remove(shardId);
+  }
+
+  private synchronized Shard nextShard(int slot) {
+    while (this.failure == null) {
+      int shardLimit = this.nextShardToAppend + this.maxShardsAhead;
+      Deque<Shard> ownQueue = this.shardQueues.get(slot);
+      if (!ownQueue.isEmpty() && (ownQueue.peekFirst().shardId < shardLimit)) {
+        return ownQueue.pollFirst();
+      }
+
+      Shard shard = this.stealShard(shardLimit);
+      if (shard != null) {
+        this.stolenCount++;
+        return shard;
+      }
+      if (this.allShardsTaken()) {
+        return null;
+      }
+
+      try {
+        this.wait();
+      }
+      catch (InterruptedException iE) {
+        Thread.currentThread().interrupt();
+        return null;
+      }
+    }
+
+    return null;
+  }
+
+  private boolean allShardsTaken() {
+    for (Deque<Shard> shardQueue : this.shardQueues) {
+      if (!shardQueue.isEmpty()) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  /*
+   * Steals from the back of the longest deque as before, falling back to the front of any deque
+   * when the shards at the back are beyond the run-ahead limit.
+   */
+  private Shard stealShard(int shardLimit) {
+    Deque<Shard> victim = null;
+    for (Deque<Shard> shardQueue : this.shardQueues) {
+      if ((victim == null) || (shardQueue.size() > victim.size())) {
+        victim = shardQueue;
+      }
+    }
+    if (!victim.isEmpty() && (victim.peekLast().shardId < shardLimit)) {
+      return victim.pollLast();
+    }
+
+    for (Deque<Shard> shardQueue : this.shardQueues) {
+      if (!shardQueue.isEmpty() && (shardQueue.peekFirst().shardId < shardLimit)) {
+        return shardQueue.pollFirst();
+      }
+    }
+
+    return null;
+  }
+
+  private synchronized void completeShard(Shard shard, List<CatalogEntry> catalogEntries) {
+    this.finishedShards.put(shard.shardId, catalogEntries);
+    this.notifyAll();
+  }
+
+  private synchronized void retryShard(int slot, Shard shard, IOException iOE) {
+    if (shard.attempts >= MAX_ATTEMPTS) {
+      this.fail(new IllegalStateException(
+          "Catalog shard " + shard.shardId + " failed after " + MAX_ATTEMPTS + " attempts.", iOE));
+      return;
+    }
+
+    System.err.println("Catalog worker " + slot + " failed on shard " + shard.shardId + ": "
+        + iOE.getMessage() + "; retrying");
+    shard.attempts++;
+    this.retriedCount++;
+    this.shardQueues.get(slot).addFirst(shard);
+  }
+
+  private synchronized void fail(RuntimeException rE) {
+    if (this.failure == null) {
+      this.failure = rE;
+    }
+    this.notifyAll();
+  }
+
+  private synchronized void driverExited() {
+    this.liveDrivers--;
+    this.notifyAll();
+  }
+
+  private void drive(int slot, ScheduledExecutorService watchdog) {
+    WorkerProcess workerProcess = null;
+    Shard shard;
+
+    try {
+      while ((shard = this.nextShard(slot)) != null) {
+        try {
+          if (workerProcess == null) {
+            workerProcess = new WorkerProcess(watchdog);
+          }
+          this.completeShard(shard, workerProcess.runShard(shard));
+        }
+        catch (IOException iOE) {
+          if (workerProcess != null) {
+            workerProcess.destroy();
+            workerProcess = null;
+          }
+          this.retryShard(slot, shard, iOE);
+        }
+      }
+
+      if (workerProcess != null) {
+        workerProcess.stop();
+      }
+    }
+    catch (RuntimeException rE) {
+      if (workerProcess != null) {
+        workerProcess.destroy();
+      }
+      this.fail(rE);
+    }
+    finally {
+      this.driverExited();
+    }
+  }
+
+  static List<String> workerCommand() {
+    List<String> command = new ArrayList<>();
+    command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+    for (String jvmArgument : ManagementFactory.getRuntimeMXBean().getInputArguments()) {
+      if (jvmArgument.startsWith("-Xm") || jvmArgument.startsWith("-XX:")) {
+        command.add(jvmArgument);
+      }
+    }
+    command.add("-cp");
+    command.add(System.getProperty("java.class.path"));
+    command.add(MainController.class.getName());
+    command.add("--worker");
+
+    return command;
+  }
+
+  static class Shard {
+    final int shardId;
+    final List<String[]> queries;
+    int attempts = 1;
+
+    Shard(int shardId, List<String[]> queries) {
+      this.shardId = shardId;
+      this.queries = queries;
+    }
+  }
+
+  static class WorkerProcess {
+    private final Process process;
+    private final DataOutputStream out;
+    private final DataInputStream in;
+    private final ScheduledExecutorService watchdog;
+    private volatile boolean timedOut = false;
+
+    WorkerProcess(ScheduledExecutorService watchdog) throws IOException {
+      ProcessBuilder processBuilder = new ProcessBuilder(workerCommand());
+      processBuilder.redirectError(ProcessBuilder.Redirect.INHERIT);
+      processBuilder.directory(new File(System.getProperty("user.dir")));
+      this.process = processBuilder.start();
+      this.watchdog = watchdog;
+      this.out = new DataOutputStream(new BufferedOutputStream(this.process.getOutputStream(),
+          WorkerProtocol.BUFFER_SIZE));
+      this.in = new DataInputStream(new BufferedInputStream(this.process.getInputStream(),
+          WorkerProtocol.BUFFER_SIZE));
+    }
+
+    List<CatalogEntry> runShard(Shard shard) throws IOException {
+      List<CatalogEntry> catalogEntries = new ArrayList<>(shard.queries.size());
+      WorkerProtocol.writeShard(this.out, shard.shardId, shard.queries);
+
+      while (true) {
+        // reads on a pipe cannot time out, so a hung worker is killed and its EOF ends the read
+        ScheduledFuture<?> frameTimeout = this.watchdog.schedule(this::expire,
+            FRAME_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+        try {
+          if (this.readFrame(shard, catalogEntries)) {
+            return catalogEntries;
+          }
+        }
+        catch (IOException iOE) {
+          if (this.timedOut) {
+            throw new IOException("Worker timed out on shard " + shard.shardId, iOE);
+          }
+          throw iOE;
+        }
+        finally {
+          frameTimeout.cancel(false);
+        }
+      }
+    }
+
+    private boolean readFrame(Shard shard, List<CatalogEntry> catalogEntries)
+        throws IOException {
+      int frameType = this.in.read();
+
+      switch (frameType) {
+        case WorkerProtocol.RESULT:
+          catalogEntries.add(WorkerProtocol.readResult(this.in));
+          return false;
+        case WorkerProtocol.DONE:
+          if ((this.in.readInt() != shard.shardId)
+              || (catalogEntries.size() != shard.queries.size())) {
+            throw new IOException("Worker answered shard " + shard.shardId + " out of step");
+          }
+          return true;
+        case -1:
+          throw new EOFException("Worker exited during shard " + shard.shardId);
+        default:
+          throw new IOException("Unexpected worker frame: " + frameType);
+      }
+    }
+
+    private void expire() {
+      this.timedOut = true;
+      this.destroy();
+    }
+
+    void stop() {
+      try {
+        WorkerProtocol.writeStop(this.out);
+        this.out.close();
+        if (!this.process.waitFor(STOP_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+          this.destroy();
+        }
+      }
+      catch (IOException iOE) {
+        this.destroy();
+      }
+      catch (InterruptedException iE) {
+        Thread.currentThread().interrupt();
+        this.destroy();
+      }
+    }
+
+    void destroy() {
+      this.process.destroyForcibly();
+    }
+  }
+}
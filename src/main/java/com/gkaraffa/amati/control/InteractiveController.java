@@ -0,0 +1,255 @@
+package com.gkaraffa.amati.control;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Reads queries from stdin and runs them on the one resident MainController, so view factories,
+ * parsed models and rendered analytics stay warm between commands. A line is either the usual
+ * option syntax (--type scale --key C --scale Dorian) or a shorthand such as "key C",
+ * "scale C dorian", "guitar A minor-pentatonic", "voicing G dominant-seventh" or
+ * "contains C E G Bb"; lines starting with ':' change session settings.
+ */
+public class InteractiveController {
+  private static final String PROMPT = "amati> ";
+
+  private final MainController mainController;
+  private final List<String> history = new ArrayList<>();
+  private String formatRequest = "text";
+  private boolean timingEnabled = false;
+
+  public InteractiveController(MainController mainController) {
+    this.mainController = mainController;
+  }
+
+  public void run(Arguments arguments) throws IllegalArgumentException {
+    this.formatRequest = OutputFormat.getOutputFormat(arguments.getFormatRequest()).name();
+    this.mainController.setAnalyticCache(MainController.createAnalyticCache(arguments));
+    boolean prompting = System.console() != null;
+
+    try (BufferedReader reader =
+        new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))) {
+      String line;
+
+      while (true) {
+        if (prompting) {
+          System.out.print(PROMPT);
+          System.out.flush();
+        }
+
+        line = reader.readLine();
+        if (line == null) {
+          break;
+        }
+
+        String trimmedLine = line.trim();
+        if (trimmedLine.isEmpty() || trimmedLine.startsWith("#")) {
+          continue;
+        }
+        if (!this.execute(trimmedLine)) {
+          break;
+        }
+      }
+    }
+    catch (IOException iOE) {
+      iOE.printStackTrace();
+    }
+  }
+
+  private boolean execute(String line) {
+    if (line.startsWith("!")) {
+      String recalledLine = this.recall(line.substring(1));
+      if (recalledLine == null) {
+        return true;
+      }
+
+      System.err.println(recalledLine);
+      return this.execute(recalledLine);
+    }
+
+    if (line.startsWith(":")) {
+      return this.executeCommand(line.substring(1).trim());
+    }
+
+    history.add(line);
+    long startTime = System.nanoTime();
+
+    try {
+      this.mainController.runQuery(BatchController.parseLine(this.expandShorthand(line),
+          this.formatRequest));
+    }
+    catch (RuntimeException rE) {
+      System.err.println(
+          (rE.getMessage() == null) ? rE.getClass().getSimpleName() : rE.getMessage());
+    }
+
+    if (this.timingEnabled) {
+      System.err.println(
+          String.format("(%.3f ms)", (System.nanoTime() - startTime) / 1_000_000.0));
+    }
+
+    return true;
+  }
+
+  private boolean executeCommand(String command) {
+    String[] words = command.split("\\s+", 2);
+
+    switch (words[0].toLowerCase()) {
+      case "quit":
+      case "exit":
+      case "q":
+        return false;
+      case "format":
+        this.setFormat((words.length > 1) ? words[1] : null);
+        break;
+      case "time":
+        this.timingEnabled = !this.timingEnabled;
+        System.err.println("Timing " + (this.timingEnabled ? "on" : "off"));
+        break;
+      case "history":
+        for (int i = 0; i < history.size(); i++) {
+          System.err.println(String.format("%4d  %s", i + 1, history.get(i)));
+        }
+        break;
+      case "stats":
+        System.err.println((this.mainController.getAnalyticCache() == null) ? "Cache: disabled"
+            : this.mainController.getAnalyticCache().getStatistics().toString());
+        break;
+      case "help":
+        this.displayHelp();
+        break;
+      default:
+        System.err.println("Unknown command :" + words[0] + " (:help lists commands)");
+        break;
+    }
+
+    return true;
+  }
+
+  private void setFormat(String format) {
+    if (format == null) {
+      System.err.println("Format " + this.formatRequest.toLowerCase());
+      return;
+    }
+
+    try {
+      OutputFormat outputFormat = OutputFormat.getOutputFormat(format.trim());
+      this.formatRequest = outputFormat.name();
+      System.err.println("Format " + this.formatRequest.toLowerCase());
+    }
+    catch (IllegalArgumentException iAE) {
+      System.err.println("Unexpected format: " + format.trim());
+    }
+  }
+
+  private String recall(String reference) {
+    String trimmedReference = reference.trim();
+    int index = trimmedReference.equals("!") ? history.size()
+        : trimmedReference.matches("\\d{1,9}") ? Integer.parseInt(trimmedReference) : 0;
+
+    if ((index >= 1) && (index <= history.size())) {
+      return history.get(index - 1);
+    }
+
+    System.err.println("No such history entry: " + reference);
+    return null;
+  }
+
+  String expandShorthand(String line) throws IllegalArgumentException {
+    if (line.startsWith("-")) {
+      return line;
+    }
+
+    String[] words = line.split("\\s+");
+    String type = words[0].toLowerCase();
+
+    switch (type) {
+      case "key":
+        this.expectWords(words, 2, "key <key>");
+        return "--type KEY --key " + words[1];
+      case "scale":
+        this.expectWords(words, 3, "scale <key> <scale>");
+        return "--type SCALE --key " + words[1] + " --scale " + this.joinName(words, 2);
+      case "guitar":
+        this.expectWords(words, 3, "guitar <key> <scale or chord>");
+        return this.expandGuitar(words);
+      case "voicing":
+        this.expectWords(words, 3, "voicing <key> <chord>");
+        return "--type VOICING --key " + words[1] + " --chord " + this.joinName(words, 2);
+      case "contains":
+        this.expectWords(words, 2, "contains <tone> ...");
+        return "--type CONTAINS --tones "
+            + String.join(",", this.tail(words, 1)).replaceAll(",+", ",");
+      default:
+        throw new IllegalArgumentException("Unexpected command: " + words[0]);
+    }
+  }
+
+  private String expandGuitar(String[] words) {
+    String subjectType = words[2].toLowerCase();
+
+    if ((subjectType.equals("scale") || subjectType.equals("chord")) && (words.length > 3)) {
+      return "--type GUITAR --key " + words[1] + " --" + subjectType + " "
+          + this.joinName(words, 3);
+    }
+
+    String name = this.joinName(words, 2);
+    String unquotedName = name.substring(1, name.length() - 1);
+    if (!this.containsIgnoreCase(QuerySpace.SCALE_NAMES, unquotedName)
+        && this.containsIgnoreCase(QuerySpace.CHORD_NAMES, unquotedName)) {
+      return "--type GUITAR --key " + words[1] + " --chord " + name;
+    }
+
+    return "--type GUITAR --key " + words[1] + " --scale " + name;
+  }
+
+  private void expectWords(String[] words, int count, String usage)
+      throws IllegalArgumentException {
+    if (words.length < count) {
+      throw new IllegalArgumentException("Usage: " + usage);
+    }
+  }
+
+  private String joinName(String[] words, int start) {
+    return "\"" + String.join(" ", this.tail(words, start)).replace('-', ' ') + "\"";
+  }
+
+  private List<String> tail(String[] words, int start) {
+    List<String> tail = new ArrayList<>();
+
+    for (int i = start; i < words.length; i++) {
+      tail.add(words[i]);
+    }
+
+    return tail;
+  }
+
+  private boolean containsIgnoreCase(List<String> names, String name) {
+    for (String candidate : names) {
+      if (candidate.equalsIgnoreCase(name)) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  private void displayHelp() {
+    String helpText = "key <key> \t parallel modes of a key \n"
+        + "scale <key> <scale> \t scale analytics, e.g. scale C dorian \n"
+        + "guitar <key> [scale|chord] <name> \t guitar diagram, e.g. guitar A minor-pentatonic \n"
+        + "voicing <key> <chord> \t playable chord voicings \n"
+        + "contains <tone> ... \t keys, scales and chords containing the tones \n"
+        + "--type ... \t any query in the command line syntax \n"
+        + "!n, !! \t repeat history entry n, or the last query \n"
+        + ":format <fmt> \t set the output format for later queries \n"
+        + ":time \t toggle per-command latency \n" + ":history \t list previous queries \n"
+        + ":stats \t analytic cache statistics \n" + ":quit \t leave interactive mode";
+
+    System.err.println(helpText);
+  }
+}
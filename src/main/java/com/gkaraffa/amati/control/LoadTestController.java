@@ -0,0 +1,315 @@
+package com.gkaraffa.amati.control;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.gkaraffa.amati.cache.BoundedLruCache;
+import com.gkaraffa.amati.cache.CacheStatistics;
+import com.gkaraffa.amati.control.QueryMix.LoadQuery;
+import com.gkaraffa.amati.metrics.LatencyHistogram;
+import com.gkaraffa.amati.metrics.StageMetrics;
+import com.gkaraffa.amati.output.DiscardingOutputSink;
+import com.gkaraffa.amati.output.SinkStatistics;
+
+/*
+ * Runs a weighted query mix through MainController.runQuery from several threads at once, the
+ * same path a single command line query takes, with every table written to a discarding sink.
+ * Each worker records into its own histograms, so recording is allocation-free and the workers
+ * contend only on the analytic path being measured; the histograms are merged after the run. GC
+ * counts and times come from the collector MX beans, sampled around the measured phase only.
+ */
+public class LoadTestController {
+  private static final int DEFAULT_DURATION_SECONDS = 10;
+  private static final int QUERY_POOL_SIZE = 4096;
+
+  public void run(Arguments arguments) throws IllegalArgumentException {
+    int threadCount = this.validateThreadCount(arguments.getThreadCount());
+    long requestCount = this.validateRequestCount(arguments.getRequestCount());
+    int durationSeconds = this.validateSeconds(arguments.getDurationSeconds(), "Duration");
+    int warmupSeconds = this.validateSeconds(arguments.getWarmupSeconds(), "Warmup");
+    if ((requestCount == 0) && (durationSeconds == 0)) {
+      durationSeconds = DEFAULT_DURATION_SECONDS;
+    }
+
+    List<LoadQuery> queries = QueryMix.generate(QUERY_POOL_SIZE, arguments.getSeed());
+    DiscardingOutputSink outputSink = new DiscardingOutputSink();
+    MainController mainController = new MainController(outputSink);
+    mainController.setAnalyticCache(MainController.createAnalyticCache(arguments));
+
+    if (warmupSeconds > 0) {
+      this.drive(mainController, queries, threadCount, 0, warmupSeconds, arguments.getSeed());
+    }
+
+    mainController.setStageMetrics(StageMetrics.create(arguments.getMetricsRequest()));
+    long[] gcBefore = this.sampleGarbageCollectors();
+    LoadResult loadResult = this.drive(mainController, queries, threadCount, requestCount,
+        durationSeconds, arguments.getSeed() + 1);
+    long[] gcAfter = this.sampleGarbageCollectors();
+    loadResult.gcCount = gcAfter[0] - gcBefore[0];
+    loadResult.gcMillis = gcAfter[1] - gcBefore[1];
+
+    System.err.println(loadResult.toString());
+    this.writeReport(arguments.getMetricsFileName(), this.toJson(loadResult, threadCount,
+        arguments.getSeed(), outputSink.getStatistics(), mainController));
+  }
+
+  private int validateThreadCount(int threadCount) throws IllegalArgumentException {
+    if (threadCount < 1) {
+      throw new IllegalArgumentException("Thread count must be at least 1.");
+    }
+
+    return threadCount;
+  }
+
+  private long validateRequestCount(long requestCount) throws IllegalArgumentException {
+    if (requestCount < 0) {
+      throw new IllegalArgumentException("Request count cannot be negative.");
+    }
+
+    return requestCount;
+  }
+
+  private int validateSeconds(int seconds, String name) throws IllegalArgumentException {
+    if (seconds < 0) {
+      throw new IllegalArgumentException(name + " cannot be negative.");
+    }
+
+    return seconds;
+  }
+
+  private LoadResult drive(MainController mainController, List<LoadQuery> queries,
+      int threadCount, long requestCount, int durationSeconds, long seed) {
+    AtomicLong remaining = (requestCount > 0) ? new AtomicLong(requestCount) : null;
+    CountDownLatch startGate = new CountDownLatch(1);
+    LoadWorker[] workers = new LoadWorker[threadCount];
+    Thread[] threads = new Thread[threadCount];
+
+    for (int i = 0; i < threadCount; i++) {
+      workers[i] = new LoadWorker(mainController, queries, new SplittableRandom(seed + i),
+          remaining, startGate);
+      threads[i] = new Thread(workers[i], "amati-load-" + i);
+      threads[i].setDaemon(true);
+      threads[i].start();
+    }
+
+    long startTime = System.nanoTime();
+    long deadline = (durationSeconds > 0)
+        ? startTime + TimeUnit.SECONDS.toNanos(durationSeconds)
+        : Long.MAX_VALUE;
+    for (LoadWorker worker : workers) {
+      worker.deadline = deadline;
+    }
+    startGate.countDown();
+
+    for (Thread thread : threads) {
+      try {
+        thread.join();
+      }
+      catch (InterruptedException iE) {
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    LoadResult loadResult = new LoadResult(System.nanoTime() - startTime);
+    for (LoadWorker worker : workers) {
+      loadResult.add(worker);
+    }
+
+    return loadResult;
+  }
+
+  private long[] sampleGarbageCollectors() {
+    long[] sample = new long[2];
+
+    for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+      sample[0] += Math.max(0, collector.getCollectionCount());
+      sample[1] += Math.max(0, collector.getCollectionTime());
+    }
+
+    return sample;
+  }
+
+  private String toJson(LoadResult loadResult, int threadCount, long seed,
+      SinkStatistics sinkStatistics, MainController mainController) {
+    StringBuilder json = new StringBuilder("{");
+    json.append("\"threads\":").append(threadCount).append(",\"seed\":").append(seed)
+        .append(",\"elapsedMs\":").append(format(loadResult.elapsedNanos / 1_000_000.0))
+        .append(",\"requests\":").append(loadResult.latency.getCount())
+        .append(",\"errors\":").append(loadResult.errorCount)
+        .append(",\"throughput\":").append(format(loadResult.getThroughput()))
+        .append(",\"latency\":");
+    this.appendHistogram(json, loadResult.latency);
+
+    json.append(",\"types\":{");
+    for (int typeIndex = 0; typeIndex < QueryMix.TYPES.length; typeIndex++) {
+      json.append((typeIndex == 0) ? "" : ",").append('"').append(QueryMix.TYPES[typeIndex])
+          .append("\":");
+      this.appendHistogram(json, loadResult.typeLatencies[typeIndex]);
+    }
+
+    json.append("},\"gc\":{\"collections\":").append(loadResult.gcCount).append(",\"timeMs\":")
+        .append(loadResult.gcMillis).append('}').append(",\"output\":{\"entries\":")
+        .append(sinkStatistics.getEntryCount()).append(",\"bytes\":")
+        .append(sinkStatistics.getPayloadBytes()).append('}');
+
+    BoundedLruCache<AnalyticCacheKey, AnalyticCacheEntry> cache =
+        mainController.getAnalyticCache();
+    if (cache != null) {
+      CacheStatistics cacheStatistics = cache.getStatistics();
+      json.append(",\"cache\":{\"hits\":").append(cacheStatistics.getHitCount())
+          .append(",\"misses\":").append(cacheStatistics.getMissCount())
+          .append(",\"hitRatio\":").append(format(cacheStatistics.getHitRatio())).append('}');
+    }
+    if (mainController.getStageMetrics().isRecording()) {
+      json.append(",\"stageMetrics\":").append(mainController.getStageMetrics().toJson());
+    }
+
+    return json.append('}').toString();
+  }
+
+  private void appendHistogram(StringBuilder json, LatencyHistogram histogram) {
+    json.append("{\"unit\":\"ns\",\"count\":").append(histogram.getCount())
+        .append(",\"mean\":").append(format(histogram.getMean()))
+        .append(",\"p50\":").append(histogram.getValueAtPercentile(50))
+        .append(",\"p90\":").append(histogram.getValueAtPercentile(90))
+        .append(",\"p99\":").append(histogram.getValueAtPercentile(99))
+        .append(",\"p999\":").append(histogram.getValueAtPercentile(99.9))
+        .append(",\"max\":").append(histogram.getMax()).append('}');
+  }
+
+  private static String format(double value) {
+    return String.format(Locale.ROOT, "%.3f", value);
+  }
+
+  private void writeReport(String reportFileName, String report) {
+    if ((reportFileName == null) || (reportFileName.trim().equals(""))) {
+      System.err.println(report);
+      return;
+    }
+
+    try (FileWriter fileWriter = new FileWriter(reportFileName.trim())) {
+      fileWriter.write(report);
+      fileWriter.write(System.lineSeparator());
+    }
+    catch (IOException iOE) {
+      iOE.printStackTrace();
+    }
+  }
+
+  static class LoadWorker implements Runnable {
+    final LatencyHistogram latency = new LatencyHistogram();
+    final LatencyHistogram[] typeLatencies = new LatencyHistogram[QueryMix.TYPES.length];
+    private final MainController mainController;
+    private final List<LoadQuery> queries;
+    private final SplittableRandom random;
+    private final AtomicLong remaining;
+    private final CountDownLatch startGate;
+    volatile long deadline = Long.MAX_VALUE;
+    long errorCount = 0;
+    String firstError = null;
+
+    LoadWorker(MainController mainController, List<LoadQuery> queries, SplittableRandom random,
+        AtomicLong remaining, CountDownLatch startGate) {
+      this.mainController = mainController;
+      this.queries = queries;
+      this.random = random;
+      this.remaining = remaining;
+      this.startGate = startGate;
+      for (int typeIndex = 0; typeIndex < typeLatencies.length; typeIndex++) {
+        typeLatencies[typeIndex] = new LatencyHistogram();
+      }
+    }
+
+    @Override
+    public void run() {
+      try {
+        startGate.await();
+      }
+      catch (InterruptedException iE) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+
+      long workerDeadline = this.deadline;
+      while (this.hasNext(workerDeadline)) {
+        LoadQuery query = queries.get(random.nextInt(queries.size()));
+        long startTime = System.nanoTime();
+
+        try {
+          mainController.runQuery(query.arguments);
+          long elapsed = System.nanoTime() - startTime;
+          latency.recordValue(elapsed);
+          typeLatencies[query.typeIndex].recordValue(elapsed);
+        }
+        catch (RuntimeException rE) {
+          errorCount++;
+          if (firstError == null) {
+            firstError = (rE.getMessage() == null) ? rE.getClass().getSimpleName()
+                : rE.getMessage();
+          }
+        }
+      }
+    }
+
+    private boolean hasNext(long workerDeadline) {
+      if ((remaining != null) && (remaining.getAndDecrement() <= 0)) {
+        return false;
+      }
+
+      return System.nanoTime() < workerDeadline;
+    }
+  }
+
+  static class LoadResult {
+    final long elapsedNanos;
+    final LatencyHistogram latency = new LatencyHistogram();
+    final LatencyHistogram[] typeLatencies = new LatencyHistogram[QueryMix.TYPES.length];
+    long errorCount = 0;
+    String firstError = null;
+    long gcCount = 0;
+    long gcMillis = 0;
+
+    LoadResult(long elapsedNanos) {
+      this.elapsedNanos = elapsedNanos;
+      for (int typeIndex = 0; typeIndex < typeLatencies.length; typeIndex++) {
+        typeLatencies[typeIndex] = new LatencyHistogram();
+      }
+    }
+
+    void add(LoadWorker worker) {
+      latency.add(worker.latency);
+      for (int typeIndex = 0; typeIndex < typeLatencies.length; typeIndex++) {
+        typeLatencies[typeIndex].add(worker.typeLatencies[typeIndex]);
+      }
+      errorCount += worker.errorCount;
+      if (firstError == null) {
+        firstError = worker.firstError;
+      }
+    }
+
+    double getThroughput() {
+      return (elapsedNanos == 0) ? 0.0 : latency.getCount() / (elapsedNanos / 1_000_000_000.0);
+    }
+
+    @Override
+    public String toString() {
+      return String.format("Load test: %d requests, %d failed in %.1f ms (%.1f requests/sec)%n"
+          + "Latency: p50 %.1f us p90 %.1f us p99 %.1f us p99.9 %.1f us max %.1f us%n"
+          + "GC: %d collections, %d ms%s", latency.getCount(), errorCount,
+          elapsedNanos / 1_000_000.0, this.getThroughput(),
+          latency.getValueAtPercentile(50) / 1_000.0, latency.getValueAtPercentile(90) / 1_000.0,
+          latency.getValueAtPercentile(99) / 1_000.0,
+          latency.getValueAtPercentile(99.9) / 1_000.0, latency.getMax() / 1_000.0, gcCount,
+          gcMillis,
+          (firstError == null) ? "" : System.lineSeparator() + "First failure: " + firstError);
+    }
+  }
+}
@@ -2,39 +2,63 @@ package com.gkaraffa.amati.control;
 
 import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.util.ArrayList;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.util.Collections;
 import java.util.List;
 
 import com.beust.jcommander.JCommander;
-import com.gkaraffa.cremona.helper.ChordHelper;
-import com.gkaraffa.cremona.helper.ScaleHelper;
-import com.gkaraffa.cremona.theoretical.Tone;
-import com.gkaraffa.cremona.theoretical.chord.Chord;
-import com.gkaraffa.cremona.theoretical.scale.DiatonicScale;
-import com.gkaraffa.cremona.theoretical.scale.Scale;
-import com.gkaraffa.guarneri.outputform.CSVOutputFormFactory;
+import com.gkaraffa.amati.cache.BoundedLruCache;
+import com.gkaraffa.amati.detect.KeyDetector;
+import com.gkaraffa.amati.detect.KeyProfiles;
+import com.gkaraffa.amati.detect.NoteEventStreamer;
+import com.gkaraffa.amati.engine.AmatiEngine;
+import com.gkaraffa.amati.engine.AnalyticRequest;
+import com.gkaraffa.amati.index.PitchClasses;
+import com.gkaraffa.amati.matrix.MatrixCsvWriter;
+import com.gkaraffa.amati.matrix.MatrixViewFactory;
+import com.gkaraffa.amati.matrix.RelationshipMatrix;
+import com.gkaraffa.amati.metrics.StageMetrics;
+import com.gkaraffa.amati.output.ChannelOutputWriter;
+import com.gkaraffa.amati.output.DiscardingOutputSink;
+import com.gkaraffa.amati.output.OutputSink;
+import com.gkaraffa.amati.output.OutputSinks;
+import com.gkaraffa.amati.output.SinkStatistics;
+import com.gkaraffa.amati.output.StreamOutputSink;
+import com.gkaraffa.amati.output.SpreadsheetWriter;
+import com.gkaraffa.amati.progression.ProgressionAnalyzer;
+import com.gkaraffa.amati.progression.ProgressionStreamer;
 import com.gkaraffa.guarneri.outputform.OutputForm;
-import com.gkaraffa.guarneri.outputform.OutputFormFactory;
-import com.gkaraffa.guarneri.outputform.TabularTextOutputFormFactory;
-import com.gkaraffa.guarneri.view.ViewFactory;
-import com.gkaraffa.guarneri.view.ViewQuery;
-import com.gkaraffa.guarneri.view.ViewQueryBuilder;
-import com.gkaraffa.guarneri.view.ViewTable;
-import com.gkaraffa.guarneri.view.analytic.key.ParallelModeAnalyticViewFactory;
-import com.gkaraffa.guarneri.view.analytic.scale.IntervalAnalyticViewFactory;
-import com.gkaraffa.guarneri.view.analytic.scale.RomanNumeralAnalyticViewFactory;
-import com.gkaraffa.guarneri.view.analytic.scale.StepPatternAnalyticFactory;
-import com.gkaraffa.guarneri.view.instrument.GuitarViewFactory;
 
 public class MainController {
+  private final AmatiEngine engine = new AmatiEngine();
+  private final ChannelOutputWriter channelOutputWriter = new ChannelOutputWriter();
+  private final DiscardingOutputSink discardingOutputSink;
+  private volatile StageMetrics stageMetrics = StageMetrics.disabled();
+
+  public MainController() {
+    this(null);
+  }
+
+  MainController(DiscardingOutputSink discardingOutputSink) {
+    this.discardingOutputSink = discardingOutputSink;
+  }
 
   public static void main(String[] args) {
     MainController mainController = new MainController();
+    Arguments arguments = parseArguments(args);
+    mainController.run(arguments);
+  }
+
+  public static Arguments parseArguments(String[] args) {
     Arguments arguments = new Arguments();
     JCommander.newBuilder().addObject(arguments).build().parse(args);
-    mainController.run(arguments);
+
+    return arguments;
   }
 
   public void run(Arguments arguments) {
@@ -45,288 +69,498 @@ public class MainController {
         return;
       }
 
-      String typeRequest = this.trimAndValidateType(arguments.getTypeRequest());
-      String formatRequest = this.trimAndValidateFormat(arguments.getFormatRequest());
-      OutputFormFactory viewFactory = this.selectAndCreateOuputFormFactory(formatRequest);
-      List<ViewTable> viewTables = null;
-
-      switch (typeRequest) {
-        case "KEY":
-          viewTables = this.parseAndRenderKeyAnalytics(arguments.getKeyRequest());
-          break;
-        case "SCALE":
-          viewTables = this.parseAndRenderScaleAnalytics(arguments.getKeyRequest(),
-              arguments.getScaleRequest());
-          break;
-        case "GUITAR":
-          viewTables = this.parseAndRenderGuitarAnalytic(arguments.getKeyRequest(),
-              arguments.getScaleRequest(), arguments.getChordRequest());
-          break;
-        default:
-          throw new IllegalArgumentException();
+      this.setStageMetrics(StageMetrics.create(arguments.getMetricsRequest()));
+      if (arguments.getWorkerRequest()) {
+        WorkerController workerController = new WorkerController(this);
+        workerController.run(arguments);
+        return;
+      }
+
+      if ((arguments.getBuildCatalogFileName() != null)
+          || (arguments.getCatalogFileName() != null)) {
+        CatalogController catalogController = new CatalogController(this);
+        catalogController.run(arguments);
+        return;
+      }
+
+      if (arguments.getBatchRequest() != null) {
+        BatchController batchController = new BatchController(this);
+        batchController.run(arguments);
+        return;
+      }
+
+      if (arguments.getWatchManifest() != null) {
+        WatchController watchController = new WatchController(this);
+        watchController.run(arguments);
+        return;
       }
 
-      List<OutputForm> views = this.renderAnalytics(viewTables, viewFactory);
+      if (arguments.getLoadTestRequest()) {
+        LoadTestController loadTestController = new LoadTestController();
+        loadTestController.run(arguments);
+        return;
+      }
 
-      this.createOutput(arguments.getOutputFileName(), views);
+      if (arguments.getServePort() != null) {
+        ServerController serverController = new ServerController(this);
+        serverController.run(arguments);
+        return;
+      }
+
+      if (arguments.getInteractiveRequest()) {
+        InteractiveController interactiveController = new InteractiveController(this);
+        interactiveController.run(arguments);
+        return;
+      }
+
+      this.runQuery(arguments);
+      if (this.stageMetrics.isRecording()) {
+        this.stageMetrics.printBreakdown(System.err);
+      }
     }
     catch (IllegalArgumentException iAE) {
       iAE.printStackTrace();
     }
   }
 
-  private void displayHelp() {
-    String helpText = "Amati - a command line music theory tool\n" + "Build: \n\n"
-        + "--help, -h \t help/options screen \n" + "--type, -t \t analytic type {key, scale} \n"
-        + "--format, -f \t output format {txt, csv} \n"
-        + "--key, -k \t key (required for key, scale, or guitar analytic) \n"
-        + "--scale, -s \t scale (required for scale, or guitar analytic) \n"
-        + "--chord, -c \t chord (for guitar analytic only)"
-        + "--output, -o \t output file path/filename" + "";
-
-    System.out.println(helpText);
-  }
+  public void runQuery(Arguments arguments) throws IllegalArgumentException {
+    OutputFormat outputFormat = trimAndValidateFormat(arguments.getFormatRequest());
+    OutputTarget outputTarget = this.validateOutputTarget(arguments, outputFormat);
 
-  private String trimAndValidateType(String typeRequest) throws IllegalArgumentException {
-    if (typeRequest == null) {
-      throw new IllegalArgumentException("Run type not specified.");
+    StageMetrics.Span querySpan = this.stageMetrics.start(StageMetrics.QUERY);
+    if (this.isStreamedMatrix(arguments, outputFormat)) {
+      this.streamMatrix(arguments, outputTarget);
+      querySpan.stop();
+      return;
     }
-
-    typeRequest = typeRequest.trim().toUpperCase();
-    if (!(typeRequest.equals("KEY") || typeRequest.equals("SCALE")
-        || typeRequest.equals("GUITAR"))) {
-      throw new IllegalArgumentException("Unexpected run type.");
+    if (this.isStreamedType(arguments, "PROGRESSION")) {
+      this.streamProgression(arguments, outputFormat, outputTarget);
+      querySpan.stop();
+      return;
     }
-
-    return typeRequest;
-  }
-
-  private String trimAndValidateFormat(String formatString) throws IllegalArgumentException {
-    if (formatString == null) {
-      throw new IllegalArgumentException("Format not specified.");
-    }
-
-    formatString = formatString.trim().toUpperCase();
-    if (!(formatString.contentEquals("TEXT")) && !(formatString.contentEquals("TXT"))
-        && !(formatString.contentEquals("CSV"))) {
-      throw new IllegalArgumentException("Unexpected format.");
+    if (this.isStreamedType(arguments, "DETECT")) {
+      this.streamDetection(arguments, outputFormat, outputTarget);
+      querySpan.stop();
+      return;
     }
 
-    return formatString;
-  }
+    AmatiEngine.QueryPlan queryPlan = this.engine.plan(toRequest(arguments));
 
-  private OutputFormFactory selectAndCreateOuputFormFactory(String outputFormat) {
-    switch (outputFormat) {
-      case "CSV":
-        return new CSVOutputFormFactory();
-      case "TXT":
-        return new TabularTextOutputFormFactory();
-      default:
-        return new TabularTextOutputFormFactory();
+    if (outputFormat.isSpreadsheet()) {
+      this.createOutput(outputTarget, outputFormat, this.engine.render(queryPlan));
     }
+    else {
+      this.pipeOutput(outputTarget, outputFormat, queryPlan);
+    }
+    querySpan.stop();
   }
 
-  private List<ViewTable> parseAndRenderKeyAnalytics(String keyString)
+  /*
+   * Writes views rendered ahead of time, such as a catalog answer, to the query's output target
+   * exactly as runQuery would have written them.
+   */
+  public void answerQuery(Arguments arguments, List<OutputForm> views)
       throws IllegalArgumentException {
-    List<ViewTable> viewTables = new ArrayList<>();
-    ViewQueryBuilder vQB = new ViewQueryBuilder();
+    OutputFormat outputFormat = trimAndValidateFormat(arguments.getFormatRequest());
+    OutputTarget outputTarget = this.validateOutputTarget(arguments, outputFormat);
 
-    vQB.insertCriteria("Key", this.parseAndValidateKey(keyString));
-    ViewQuery viewQuery = vQB.compileViewQuery();
-    viewTables.add(this.getParallelModeAnalytic(viewQuery));
-
-    return viewTables;
+    StageMetrics.Span querySpan = this.stageMetrics.start(StageMetrics.QUERY);
+    this.createOutput(outputTarget, outputFormat, views);
+    querySpan.stop();
   }
 
-  private List<ViewTable> parseAndRenderScaleAnalytics(String keyString, String scaleString) {
-    List<ViewTable> viewTables = new ArrayList<>();
-    ViewQueryBuilder vQB = new ViewQueryBuilder();
-    Scale scale = this.parseAndValidateScale(keyString, scaleString);
+  private OutputTarget validateOutputTarget(Arguments arguments, OutputFormat outputFormat)
+      throws IllegalArgumentException {
+    String outputFileName = (this.discardingOutputSink != null) ? null
+        : this.trimAndValidateOutputFile(arguments.getOutputFileName(), outputFormat);
+    OutputTarget outputTarget = new OutputTarget(outputFileName,
+        arguments.getOutputDirectoryName(), arguments.getGzipRequest());
+    if (outputTarget.gzip && outputFormat.isSpreadsheet()) {
+      throw new IllegalArgumentException("Spreadsheet formats cannot be gzip compressed.");
+    }
 
-    vQB.insertCriteria("Scale", scale);
-    ViewQuery viewQuery = vQB.compileViewQuery();
+    return outputTarget;
+  }
 
-    viewTables.add(this.getRomanNumeralAnalytic(viewQuery));
-    viewTables.add(this.getIntervalAnalytic(viewQuery));
-    viewTables.add(this.getStepPatternAnalytic(viewQuery));
+  private void pipeOutput(OutputTarget outputTarget, OutputFormat outputFormat,
+      AmatiEngine.QueryPlan queryPlan) throws IllegalArgumentException {
+    SinkStatistics sinkStatistics = null;
+
+    try (OutputSink outputSink = this.openOutput(outputTarget)) {
+      int[] tableNumber = {0};
+      sinkStatistics = outputSink.getStatistics();
+      this.engine.render(queryPlan, outputForm -> {
+        StageMetrics.Span outputSpan = this.stageMetrics.start(StageMetrics.OUTPUT);
+        outputSink.write(tableEntryName(++tableNumber[0], outputFormat),
+            Collections.singletonList(outputForm));
+        outputSpan.stop();
+      });
+    }
+    catch (IOException iOE) {
+      iOE.printStackTrace();
+    }
 
-    return viewTables;
+    this.reportSink(sinkStatistics);
   }
 
-  private String getQueryType(String keyString, String scaleString, String chordString)
-      throws IllegalArgumentException {
-
-    if (keyString.equals("null")) {
-      throw new IllegalArgumentException("Key must be specified for Guitar analytic.");
+  private OutputSink openOutput(OutputTarget outputTarget) throws IOException {
+    if (this.discardingOutputSink != null) {
+      return this.discardingOutputSink;
     }
 
-    String secondSpec = scaleString + chordString;
-    if (secondSpec.equals("nullnull") || !secondSpec.contains("null")) {
-      throw new IllegalArgumentException(
-          "Either a scale, or a chord must be specified for a Guitar analytic.");
-    }
+    return outputTarget.open(this.channelOutputWriter);
+  }
 
-    if (!scaleString.contains("null")) {
-      return "SCALE";
-    }
+  private static String tableEntryName(int tableNumber, OutputFormat outputFormat) {
+    return String.format("table-%03d.%s", tableNumber, outputFormat.getFileExtension());
+  }
 
-    if (!chordString.contains("null")) {
-      return "CHORD";
+  private void reportSink(SinkStatistics sinkStatistics) {
+    if ((sinkStatistics != null) && this.stageMetrics.isRecording()) {
+      System.err.println(sinkStatistics.toString());
     }
+  }
 
-    throw new IllegalArgumentException("Invalid arguments for Guitar analytic.");
+  public AmatiEngine getEngine() {
+    return this.engine;
   }
 
-  private List<ViewTable> parseAndRenderGuitarAnalytic(String keyString, String scaleString,
-      String chordString) throws IllegalArgumentException {
-    String queryType = getQueryType(keyString, scaleString, chordString);
-    ViewQueryBuilder vQB = new ViewQueryBuilder();
-    ViewQuery viewQuery = null;
+  public void setAnalyticCache(
+      BoundedLruCache<AnalyticCacheKey, AnalyticCacheEntry> analyticCache) {
+    this.engine.setAnalyticCache(analyticCache);
+  }
 
-    switch (queryType) {
-      case "CHORD":
-        Chord chord = this.parseAndValidateChord(keyString, chordString);
-        vQB.insertCriteria("ToneGroupObject", chord);
-        break;
-      case "SCALE":
-        Scale scale = this.parseAndValidateScale(keyString, scaleString);
-        vQB.insertCriteria("ToneGroupObject", scale);
-        break;
-      default:
-        throw new IllegalArgumentException("No query parameters specified");
-    }
+  public BoundedLruCache<AnalyticCacheKey, AnalyticCacheEntry> getAnalyticCache() {
+    return this.engine.getAnalyticCache();
+  }
 
-    viewQuery = vQB.compileViewQuery();
+  public void setStageMetrics(StageMetrics stageMetrics) {
+    this.stageMetrics = stageMetrics;
+    this.engine.setStageMetrics(stageMetrics);
+  }
+
+  public StageMetrics getStageMetrics() {
+    return this.stageMetrics;
+  }
 
-    List<ViewTable> viewTables = new ArrayList<>();
-    viewTables.add(this.getGuitarAnalytic(viewQuery));
+  public List<OutputForm> renderQuery(Arguments arguments) throws IllegalArgumentException {
+    return this.engine.render(toRequest(arguments));
+  }
 
-    return viewTables;
+  public static AnalyticRequest toRequest(Arguments arguments) throws IllegalArgumentException {
+    return AnalyticRequest.builder(arguments.getTypeRequest()).key(arguments.getKeyRequest())
+        .scale(arguments.getScaleRequest()).chord(arguments.getChordRequest())
+        .tuning(arguments.getTuningRequest()).frets(arguments.getFretsRequest())
+        .limit(arguments.getLimitRequest()).span(arguments.getSpanRequest())
+        .rootInBass(arguments.getRootInBassRequest()).tones(arguments.getTonesRequest())
+        .progression(arguments.getProgressionRequest()).paths(arguments.getPathsRequest())
+        .outputFormat(trimAndValidateFormat(arguments.getFormatRequest())).build();
   }
 
-  private Tone parseAndValidateKey(String keyString) throws IllegalArgumentException {
-    if (keyString == null) {
-      throw new IllegalArgumentException("Key not specified.");
+  public static BoundedLruCache<AnalyticCacheKey, AnalyticCacheEntry> createAnalyticCache(
+      Arguments arguments) throws IllegalArgumentException {
+    if (arguments.getCacheEntries() == 0) {
+      return null;
     }
 
-    Tone keyTone = Tone.stringToTone(keyString.trim().toUpperCase());
+    return new BoundedLruCache<>(arguments.getCacheEntries(), arguments.getCacheBytes(),
+        AnalyticCacheEntry::getByteCount);
+  }
+
+  private void displayHelp() {
+    String helpText = "Amati - a command line music theory tool\n" + "Build: \n\n"
+        + "--help, -h \t help/options screen \n"
+        + "--type, -t \t analytic type "
+        + "{key, scale, guitar, voicing, voicelead, contains, matrix, progression, detect} \n"
+        + "--format, -f \t output format {txt, csv, bin, xls, xlsx} \n"
+        + "--key, -k \t key (required for key, scale, guitar or voicelead; filters matrix) \n"
+        + "--scale, -s \t scale (required for scale, or guitar analytic) \n"
+        + "--chord, -c \t chord (for guitar analytic only) \n"
+        + "--tuning \t guitar tuning, low to high, e.g. DADGAD or BEADGCF (guitar analytic) \n"
+        + "--frets \t guitar fret count, up to 36 (guitar analytic) \n"
+        + "--limit \t maximum voicings listed (voicing) or tried per chord (voicelead) \n"
+        + "--span \t maximum fret span of a voicing (voicing analytic) \n"
+        + "--rootInBass \t only list voicings with the root lowest (voicing analytic) \n"
+        + "--progression \t chord symbols, e.g. \"C - Am - F - G7\" (voicelead analytic) \n"
+        + "--paths \t best voicing paths listed (voicelead analytic, default 3) \n"
+        + "--tones \t comma separated tones, e.g. C,E,G,Bb (for contains analytic only) \n"
+        + "--input \t chord chart file, e.g. C Am | F G7 (progression analytic, txt or csv) \n"
+        + "\t or note events, e.g. C4 Eb 67, '-' for stdin (detect analytic, txt or csv) \n"
+        + "--window \t notes per key detection window (detect analytic) \n"
+        + "--hop \t notes between key detection windows (detect analytic) \n"
+        + "--top \t key candidates listed per window (detect analytic) \n"
+        + "--output, -o \t output file path/filename \n"
+        + "--gzip \t gzip compress text, csv or bin output (adds .gz to file names) \n"
+        + "--batch, -b \t batch query file, one query per line ('-' for stdin) \n"
+        + "--outputDir, -d \t output directory, one file per table (per query in batch) \n"
+        + "--watch \t re-render a query manifest into --outputDir on change (name: query) \n"
+        + "--serve \t serve analytics over localhost HTTP on the given port \n"
+        + "--loadtest \t run a weighted key/scale/guitar query mix on --threads threads \n"
+        + "--duration \t load test seconds (default 10, or until --requests complete) \n"
+        + "--requests \t load test request count \n"
+        + "--warmup \t load test warmup seconds, not measured \n"
+        + "--seed \t load test query mix seed \n"
+        + "--threads \t batch, server or load test worker thread count \n"
+        + "--cacheEntries \t batch/server analytic cache entry limit (0 disables) \n"
+        + "--cacheBytes \t batch/server analytic cache byte limit \n"
+        + "--buildCatalog \t precompute every analytic into a catalog file \n"
+        + "--workers \t build the catalog in this many worker JVMs instead of threads \n"
+        + "--catalog \t answer the query from a prebuilt catalog file \n"
+        + "--interactive \t read queries from stdin on one warm process (:help lists commands) \n"
+        + "--metrics \t report per-stage timings (stderr, or JSON for batch runs) \n"
+        + "--metricsFile \t write batch stage histograms or the load test report as JSON" + "";
 
-    return keyTone;
+    System.out.println(helpText);
   }
 
-  private Scale parseAndValidateScale(String keyString, String scaleString)
+  private static OutputFormat trimAndValidateFormat(String formatString)
       throws IllegalArgumentException {
-    if (scaleString == null) {
-      throw new IllegalArgumentException("Scale not specified.");
+    if (formatString == null) {
+      throw new IllegalArgumentException("Format not specified.");
     }
 
-    Scale scale = this.parseAndRenderScale(keyString, scaleString);
-
-    return scale;
+    return OutputFormat.getOutputFormat(formatString);
   }
 
-  private Chord parseAndValidateChord(String keyString, String chordString)
+  private String trimAndValidateOutputFile(String outputFileName, OutputFormat outputFormat)
       throws IllegalArgumentException {
-    if (chordString == null) {
-      throw new IllegalArgumentException("Chord not specified.");
-    }
+    if ((outputFileName == null) || (outputFileName.trim().equals(""))) {
+      if (outputFormat.isSpreadsheet()) {
+        throw new IllegalArgumentException("External file must be specified for given format.");
+      }
 
-    Chord chord = this.parseAndRenderChord(keyString, chordString);
+      return null;
+    }
 
-    return chord;
+    return outputFileName.trim();
   }
 
-  private Scale parseAndRenderScale(String keyRequest, String scaleRequest) {
-    ScaleHelper helper = ScaleHelper.getInstance();
-    Scale scaleRendered = helper.getScale(keyRequest, scaleRequest);
+  private boolean isStreamedMatrix(Arguments arguments, OutputFormat outputFormat) {
+    if ((arguments.getTypeRequest() == null) || outputFormat.isSpreadsheet()
+        || !arguments.getTypeRequest().trim().equalsIgnoreCase("MATRIX")) {
+      return false;
+    }
+
+    RelationshipMatrix matrix = RelationshipMatrix.getInstance();
+    int rowCount = matrix.selectRows(this.engine.matrixKeyFilter(arguments.getKeyRequest()),
+        this.engine.matrixScaleFilter(arguments.getScaleRequest())).length;
 
-    return scaleRendered;
+    return (long) rowCount * matrix.size() > MatrixViewFactory.MAX_VIEW_ROWS;
   }
 
-  private Chord parseAndRenderChord(String keyRequest, String chordRequest) {
-    ChordHelper helper = ChordHelper.getInstance();
-    Chord chordRendered = helper.getChord(keyRequest, chordRequest);
+  private void streamMatrix(Arguments arguments, OutputTarget outputTarget) {
+    RelationshipMatrix matrix = RelationshipMatrix.getInstance();
+    int[] rows = matrix.selectRows(this.engine.matrixKeyFilter(arguments.getKeyRequest()),
+        this.engine.matrixScaleFilter(arguments.getScaleRequest()));
+    MatrixCsvWriter matrixCsvWriter = new MatrixCsvWriter(matrix);
 
-    return chordRendered;
+    this.writeStreamed(outputTarget, channel -> matrixCsvWriter.write(channel, rows));
   }
 
-  private List<OutputForm> renderAnalytics(List<ViewTable> modelsRendered,
-      OutputFormFactory viewFactory) {
-    List<OutputForm> analytics = new ArrayList<>();
+  private void writeStreamed(OutputTarget outputTarget,
+      StreamOutputSink.ChannelWriter streamedOutput) throws IllegalArgumentException {
+    if (outputTarget.isDirectory()) {
+      throw new IllegalArgumentException("Streamed analytics write a single output.");
+    }
+
+    StageMetrics.Span outputSpan = this.stageMetrics.start(StageMetrics.OUTPUT);
 
-    for (ViewTable modelTable : modelsRendered) {
-      analytics.add(viewFactory.renderView(modelTable));
+    if (outputTarget.gzip) {
+      this.writeStreamedGzip(outputTarget.outputFileName, streamedOutput);
+    }
+    else if (outputTarget.outputFileName == null) {
+      synchronized (System.out) {
+        try {
+          streamedOutput.write(Channels.newChannel(System.out));
+          System.out.flush();
+        }
+        catch (IOException iOE) {
+          iOE.printStackTrace();
+        }
+      }
+    }
+    else {
+      try (FileOutputStream fileOutputStream =
+          new FileOutputStream(new File(outputTarget.outputFileName));
+          FileChannel fileChannel = fileOutputStream.getChannel()) {
+        streamedOutput.write(fileChannel);
+      }
+      catch (IOException iOE) {
+        iOE.printStackTrace();
+      }
     }
 
-    return analytics;
+    outputSpan.stop();
   }
 
+  private void writeStreamedGzip(String outputFileName,
+      StreamOutputSink.ChannelWriter streamedOutput) {
+    SinkStatistics sinkStatistics = null;
 
-  private ViewTable getParallelModeAnalytic(ViewQuery viewQuery) {
-    ViewFactory viewFactory = new ParallelModeAnalyticViewFactory();
+    try (StreamOutputSink outputSink = OutputSinks.openStream(outputFileName, true)) {
+      sinkStatistics = outputSink.getStatistics();
+      outputSink.write(streamedOutput);
+    }
+    catch (IOException iOE) {
+      iOE.printStackTrace();
+    }
 
-    return viewFactory.createView(viewQuery);
+    this.reportSink(sinkStatistics);
   }
 
-  private ViewTable getRomanNumeralAnalytic(ViewQuery viewQuery) throws IllegalArgumentException {
-    if ((Scale) viewQuery.getCriteria("Scale") instanceof DiatonicScale) {
-      ViewFactory viewFactory = new RomanNumeralAnalyticViewFactory();
-      return viewFactory.createView(viewQuery);
-    }
-    else {
-      throw new IllegalArgumentException("RomanNumeralAnalytic cannot be rendered for this scale");
-    }
+  private boolean isStreamedType(Arguments arguments, String typeRequest) {
+    return (arguments.getTypeRequest() != null)
+        && arguments.getTypeRequest().trim().equalsIgnoreCase(typeRequest);
   }
 
-  private ViewTable getIntervalAnalytic(ViewQuery viewQuery) throws IllegalArgumentException {
-    if ((Scale) viewQuery.getCriteria("Scale") instanceof DiatonicScale) {
-      ViewFactory viewFactory = new IntervalAnalyticViewFactory();
-      return viewFactory.createView(viewQuery);
+  private String validateStreamedInput(String inputFileName, OutputFormat outputFormat)
+      throws IllegalArgumentException {
+    if ((outputFormat != OutputFormat.TXT) && (outputFormat != OutputFormat.CSV)) {
+      throw new IllegalArgumentException("Streamed analytics support txt and csv output.");
     }
-    else {
-      throw new IllegalArgumentException("IntervalAnalytic view cannot be rendered for this scale");
+    if ((inputFileName == null) || inputFileName.trim().equals("")) {
+      throw new IllegalArgumentException("Input file not specified.");
     }
+
+    return inputFileName.trim();
   }
 
-  private ViewTable getGuitarAnalytic(ViewQuery viewQuery) throws IllegalArgumentException {
-    ViewFactory viewFactory = new GuitarViewFactory();
-    return viewFactory.createView(viewQuery);
+  private void streamProgression(Arguments arguments, OutputFormat outputFormat,
+      OutputTarget outputTarget) throws IllegalArgumentException {
+    String inputFileName = this.validateStreamedInput(arguments.getInputFileName(), outputFormat);
+    String keyString = this.engine.canonicalKeyName(arguments.getKeyRequest());
+    String scaleString =
+        (arguments.getScaleRequest() == null) ? "Major" : arguments.getScaleRequest();
+    ProgressionAnalyzer progressionAnalyzer =
+        new ProgressionAnalyzer(PitchClasses.pitchClassOf(keyString),
+            PitchClasses.maskOf(this.engine.parseScale(keyString, scaleString)));
+    ProgressionStreamer progressionStreamer =
+        new ProgressionStreamer(progressionAnalyzer, outputFormat == OutputFormat.CSV);
+
+    this.writeStreamed(outputTarget, channel -> {
+      try (FileInputStream fileInputStream = new FileInputStream(new File(inputFileName));
+          FileChannel inputChannel = fileInputStream.getChannel()) {
+        progressionStreamer.stream(inputChannel, channel);
+      }
+    });
   }
 
-  private ViewTable getStepPatternAnalytic(ViewQuery viewQuery) {
-    ViewFactory viewFactory = new StepPatternAnalyticFactory();
-    return viewFactory.createView(viewQuery);
+  private void streamDetection(Arguments arguments, OutputFormat outputFormat,
+      OutputTarget outputTarget) throws IllegalArgumentException {
+    String inputFileName = this.validateStreamedInput(arguments.getInputFileName(), outputFormat);
+    KeyProfiles keyProfiles = KeyProfiles.getInstance();
+    KeyDetector keyDetector = new KeyDetector(keyProfiles, arguments.getWindowRequest(),
+        arguments.getHopRequest(), arguments.getTopRequest());
+    NoteEventStreamer noteEventStreamer =
+        new NoteEventStreamer(keyDetector, keyProfiles, outputFormat == OutputFormat.CSV);
+
+    this.writeStreamed(outputTarget, channel -> {
+      if (inputFileName.equals("-")) {
+        noteEventStreamer.stream(Channels.newChannel(System.in), channel);
+        return;
+      }
+
+      try (FileInputStream fileInputStream = new FileInputStream(new File(inputFileName));
+          FileChannel inputChannel = fileInputStream.getChannel()) {
+        noteEventStreamer.stream(inputChannel, channel);
+      }
+    });
   }
 
-  private void createOutput(String outputFileName, List<OutputForm> views) {
-    if ((outputFileName == null) || (outputFileName.trim().equals(""))) {
-      this.writeOutputToStdOut(views);
+  public ChannelOutputWriter getChannelOutputWriter() {
+    return this.channelOutputWriter;
+  }
+
+  public void createOutput(String outputFileName, OutputFormat outputFormat,
+      List<OutputForm> views) {
+    this.createOutput(new OutputTarget(outputFileName, null, false), outputFormat, views);
+  }
+
+  void createOutput(OutputTarget outputTarget, OutputFormat outputFormat,
+      List<OutputForm> views) {
+    StageMetrics.Span outputSpan = this.stageMetrics.start(StageMetrics.OUTPUT);
+
+    if (outputFormat.isSpreadsheet() && (this.discardingOutputSink != null)) {
+      this.discardSpreadsheet(outputFormat, views);
+    }
+    else if (outputFormat.isSpreadsheet() && (outputTarget.outputFileName != null)) {
+      this.writeOutputToSpreadsheet(outputTarget.outputFileName, outputFormat, views);
     }
     else {
-      this.writeOutputToFile(outputFileName, views);
+      this.writeOutputToSink(outputTarget, outputFormat, views);
     }
+
+    outputSpan.stop();
   }
 
-  private void writeOutputToStdOut(List<OutputForm> views) {
-    for (OutputForm view : views) {
-      System.out.println(view.toString());
+  private void writeOutputToSink(OutputTarget outputTarget, OutputFormat outputFormat,
+      List<OutputForm> views) {
+    SinkStatistics sinkStatistics = null;
+
+    try (OutputSink outputSink = this.openOutput(outputTarget)) {
+      sinkStatistics = outputSink.getStatistics();
+      if (!outputTarget.isDirectory()) {
+        outputSink.write(tableEntryName(1, outputFormat), views);
+      }
+      else {
+        for (int i = 0; i < views.size(); i++) {
+          outputSink.write(tableEntryName(i + 1, outputFormat),
+              Collections.singletonList(views.get(i)));
+        }
+      }
     }
+    catch (IOException iOE) {
+      iOE.printStackTrace();
+    }
+
+    this.reportSink(sinkStatistics);
   }
 
-  private void writeOutputToFile(String outputFileName, List<OutputForm> views) {
+  private void writeOutputToSpreadsheet(String outputFileName, OutputFormat outputFormat,
+      List<OutputForm> views) {
     File file = new File(outputFileName);
 
     try (FileOutputStream fileOutputStream = new FileOutputStream(file);
-        BufferedOutputStream writer = new BufferedOutputStream(fileOutputStream)) {
+        BufferedOutputStream outputStream = new BufferedOutputStream(fileOutputStream)) {
+      SpreadsheetWriter.writeTables(outputStream, outputFormat == OutputFormat.XLSX, "Table",
+          views);
+    }
+    catch (IOException iOE) {
+      iOE.printStackTrace();
+    }
+  }
 
-      for (OutputForm view : views) {
-        byte[] buffer = view.getByteArray();
-        writer.write(buffer, 0, buffer.length);
-      }
+  private void discardSpreadsheet(OutputFormat outputFormat, List<OutputForm> views) {
+    try (OutputStream outputStream = this.discardingOutputSink.openStream()) {
+      SpreadsheetWriter.writeTables(outputStream, outputFormat == OutputFormat.XLSX, "Table",
+          views);
     }
     catch (IOException iOE) {
       iOE.printStackTrace();
     }
   }
-  
+
+  static class OutputTarget {
+    final String outputFileName;
+    final String outputDirectoryName;
+    final boolean gzip;
+
+    OutputTarget(String outputFileName, String outputDirectoryName, boolean gzip) {
+      this.outputFileName = ((outputFileName == null) || outputFileName.trim().equals("")) ? null
+          : outputFileName.trim();
+      this.outputDirectoryName =
+          ((outputDirectoryName == null) || outputDirectoryName.trim().equals("")) ? null
+              : outputDirectoryName.trim();
+      this.gzip = gzip;
+    }
+
+    boolean isDirectory() {
+      return this.outputDirectoryName != null;
+    }
+
+    OutputSink open(ChannelOutputWriter consoleWriter) throws IOException {
+      return OutputSinks.open(this.outputFileName, this.outputDirectoryName, this.gzip,
+          consoleWriter);
+    }
+  }
 }
@@ -3,12 +3,14 @@ package com.gkaraffa.amati.control;
 import java.util.HashMap;
 
 public enum OutputFormat {
-  TXT(new String[] {"TEXT", "TXT"}),
-  CSV(new String[] {"CSV"}),
-  XLS(new String[] {"XLS"}),
-  XLSX(new String[] {"XLSX"});
+  TXT(new String[] {"TEXT", "TXT"}, false),
+  CSV(new String[] {"CSV"}, false),
+  BIN(new String[] {"BIN", "BINARY"}, false),
+  XLS(new String[] {"XLS"}, true),
+  XLSX(new String[] {"XLSX"}, true);
 
   private final String[] formatTexts;
+  private final boolean spreadsheet;
   private final static HashMap<String, OutputFormat> hashMap = new HashMap<>();
 
   static {
@@ -20,14 +22,23 @@ public enum OutputFormat {
     }
   }
 
-  OutputFormat(String[] texts) {
+  OutputFormat(String[] texts, boolean spreadsheet) {
     this.formatTexts = texts;
+    this.spreadsheet = spreadsheet;
   }
 
   public String[] getFormatTexts() {
     return this.formatTexts;
   }
 
+  public boolean isSpreadsheet() {
+    return this.spreadsheet;
+  }
+
+  public String getFileExtension() {
+    return this.name().toLowerCase();
+  }
+
   public static final OutputFormat getOutputFormat(String inputText)
       throws IllegalArgumentException {
     String analysisText = inputText.trim().toUpperCase();
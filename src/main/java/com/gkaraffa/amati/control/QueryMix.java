@@ -0,0 +1,128 @@
+package com.gkaraffa.amati.control;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/*
+ * Weighted query generator for load tests. Weights follow how often keys, scales and chords come
+ * up in practice, so C, G and D outweigh D# and Gb and the analytic cache sees a realistic share
+ * of hot and cold entries. Scale analytics draw only from the seven-note scales the Roman numeral
+ * and interval views accept. Queries are drawn once from the seed, before any timing starts, so
+ * runs with the same seed send the same queries and argument parsing is not measured.
+ */
+class QueryMix {
+  static final String[] TYPES = {"KEY", "SCALE", "GUITAR"};
+
+  private static final int[] TYPE_WEIGHTS = {2, 5, 5};
+  private static final Map<OutputFormat, Integer> FORMAT_WEIGHTS = formatWeights();
+  private static final int[] KEY_WEIGHTS = {10, 2, 3, 8, 1, 5, 7, 6, 3, 1, 9, 1, 4, 8, 1, 5, 3};
+  private static final int[] SCALE_WEIGHTS = {4, 4, 2, 2, 3, 3, 1, 10, 9, 4, 3, 6, 8, 6};
+  private static final int[] DIATONIC_SCALE_WEIGHTS =
+      {4, 4, 2, 2, 3, 3, 1, 10, 9, 4, 3, 0, 0, 0};
+  private static final int[] CHORD_WEIGHTS = {10, 9, 3, 2, 3, 4, 6, 7, 8, 3, 2, 1, 1, 2, 2};
+  private static final int GUITAR_SCALE_PERCENT = 40;
+
+  private QueryMix() {}
+
+  static List<LoadQuery> generate(int queryCount, long seed) {
+    checkWeights(KEY_WEIGHTS, QuerySpace.KEY_NAMES);
+    checkWeights(SCALE_WEIGHTS, QuerySpace.SCALE_NAMES);
+    checkWeights(DIATONIC_SCALE_WEIGHTS, QuerySpace.SCALE_NAMES);
+    checkWeights(CHORD_WEIGHTS, QuerySpace.CHORD_NAMES);
+
+    SplittableRandom random = new SplittableRandom(seed);
+    OutputFormat[] outputFormats = OutputFormat.values();
+    int[] formatWeights = weightsOf(outputFormats);
+    List<LoadQuery> queries = new ArrayList<>(queryCount);
+
+    for (int i = 0; i < queryCount; i++) {
+      int typeIndex = pick(TYPE_WEIGHTS, random);
+      String key = QuerySpace.KEY_NAMES.get(pick(KEY_WEIGHTS, random));
+      String format = outputFormats[pick(formatWeights, random)].name();
+      String[] args;
+
+      switch (TYPES[typeIndex]) {
+        case "KEY":
+          args = new String[] {"--type", "KEY", "--key", key, "--format", format};
+          break;
+        case "SCALE":
+          args = new String[] {"--type", "SCALE", "--key", key, "--scale",
+              QuerySpace.SCALE_NAMES.get(pick(DIATONIC_SCALE_WEIGHTS, random)), "--format",
+              format};
+          break;
+        default:
+          args = (random.nextInt(100) < GUITAR_SCALE_PERCENT)
+              ? new String[] {"--type", "GUITAR", "--key", key, "--scale",
+                  QuerySpace.SCALE_NAMES.get(pick(SCALE_WEIGHTS, random)), "--format", format}
+              : new String[] {"--type", "GUITAR", "--key", key, "--chord",
+                  QuerySpace.CHORD_NAMES.get(pick(CHORD_WEIGHTS, random)), "--format", format};
+          break;
+      }
+
+      queries.add(new LoadQuery(MainController.parseArguments(args), typeIndex));
+    }
+
+    return queries;
+  }
+
+  private static Map<OutputFormat, Integer> formatWeights() {
+    Map<OutputFormat, Integer> formatWeights = new EnumMap<>(OutputFormat.class);
+
+    formatWeights.put(OutputFormat.TXT, 6);
+    formatWeights.put(OutputFormat.CSV, 3);
+    formatWeights.put(OutputFormat.BIN, 2);
+    formatWeights.put(OutputFormat.XLS, 1);
+    formatWeights.put(OutputFormat.XLSX, 1);
+    return formatWeights;
+  }
+
+  private static int[] weightsOf(OutputFormat[] outputFormats) {
+    int[] weights = new int[outputFormats.length];
+
+    for (int index = 0; index < outputFormats.length; index++) {
+      Integer weight = FORMAT_WEIGHTS.get(outputFormats[index]);
+      if (weight == null) {
+        throw new IllegalStateException("Query mix has no weight for " + outputFormats[index]);
+      }
+      weights[index] = weight;
+    }
+
+    return weights;
+  }
+
+  private static void checkWeights(int[] weights, List<String> names) {
+    if (weights.length != names.size()) {
+      throw new IllegalStateException("Query mix weights do not match " + names);
+    }
+  }
+
+  private static int pick(int[] weights, SplittableRandom random) {
+    int total = 0;
+    for (int weight : weights) {
+      total += weight;
+    }
+
+    int target = random.nextInt(total);
+    for (int index = 0; index < weights.length; index++) {
+      target -= weights[index];
+      if (target < 0) {
+        return index;
+      }
+    }
+
+    return weights.length - 1;
+  }
+
+  static class LoadQuery {
+    final Arguments arguments;
+    final int typeIndex;
+
+    LoadQuery(Arguments arguments, int typeIndex) {
+      this.arguments = arguments;
+      this.typeIndex = typeIndex;
+    }
+  }
+}
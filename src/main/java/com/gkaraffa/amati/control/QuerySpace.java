@@ -0,0 +1,50 @@
+package com.gkaraffa.amati.control;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class QuerySpace {
+  public static final List<String> KEY_NAMES = Collections.unmodifiableList(Arrays.asList("C",
+      "C#", "Db", "D", "D#", "Eb", "E", "F", "F#", "Gb", "G", "G#", "Ab", "A", "A#", "Bb", "B"));
+
+  public static final List<String> SCALE_NAMES = Collections.unmodifiableList(Arrays.asList(
+      "Ionian", "Dorian", "Phrygian", "Lydian", "Mixolydian", "Aeolian", "Locrian", "Major",
+      "Minor", "Harmonic Minor", "Melodic Minor", "Major Pentatonic", "Minor Pentatonic",
+      "Blues"));
+
+  public static final List<String> CHORD_NAMES = Collections.unmodifiableList(Arrays.asList(
+      "Major", "Minor", "Diminished", "Augmented", "Suspended Second", "Suspended Fourth",
+      "Major Seventh", "Minor Seventh", "Dominant Seventh", "Half Diminished Seventh",
+      "Diminished Seventh", "Minor Major Seventh", "Augmented Seventh", "Major Sixth",
+      "Minor Sixth"));
+
+  private QuerySpace() {}
+
+  public static List<String[]> enumerateQueries(List<OutputFormat> outputFormats) {
+    List<String[]> queries = new ArrayList<>();
+
+    for (OutputFormat outputFormat : outputFormats) {
+      String format = outputFormat.name();
+
+      for (String key : KEY_NAMES) {
+        queries.add(new String[] {"--type", "KEY", "--key", key, "--format", format});
+
+        for (String scale : SCALE_NAMES) {
+          queries.add(new String[] {"--type", "SCALE", "--key", key, "--scale", scale,
+              "--format", format});
+          queries.add(new String[] {"--type", "GUITAR", "--key", key, "--scale", scale,
+              "--format", format});
+        }
+
+        for (String chord : CHORD_NAMES) {
+          queries.add(new String[] {"--type", "GUITAR", "--key", key, "--chord", chord,
+              "--format", format});
+        }
+      }
+    }
+
+    return queries;
+  }
+}
@@ -0,0 +1,323 @@
+package com.gkaraffa.amati.control;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import com.beust.jcommander.ParameterException;
+import com.gkaraffa.amati.cache.BoundedLruCache;
+import com.gkaraffa.amati.metrics.StageMetrics;
+import com.gkaraffa.amati.output.SpreadsheetWriter;
+import com.gkaraffa.guarneri.outputform.OutputForm;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+public class ServerController {
+  private static final int QUEUE_CAPACITY = 256;
+  private static final int OVERLOAD_QUEUE_CAPACITY = 1024;
+  private static final int BACKLOG = 128;
+  private static final Set<String> QUERY_PARAMETERS =
+      new HashSet<>(Arrays.asList("type", "key", "scale", "chord", "tuning", "frets", "limit",
+          "span", "tones", "progression", "paths", "format"));
+
+  private final MainController mainController;
+
+  public ServerController(MainController mainController) {
+    this.mainController = mainController;
+  }
+
+  public void run(Arguments arguments) throws IllegalArgumentException {
+    int port = this.validatePort(arguments.getServePort());
+    int threadCount = this.validateThreadCount(arguments.getThreadCount());
+    AdmissionExecutor executor = new AdmissionExecutor(threadCount);
+    CountDownLatch stopLatch = new CountDownLatch(1);
+    this.mainController.setAnalyticCache(MainController.createAnalyticCache(arguments));
+
+    try {
+      HttpServer httpServer =
+          HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), BACKLOG);
+      httpServer.createContext("/health", new HealthHandler());
+      httpServer.createContext("/analytics", new AnalyticsHandler());
+      httpServer.createContext("/stats", new StatsHandler());
+      httpServer.createContext("/metrics", new MetricsHandler());
+      httpServer.setExecutor(executor);
+
+      Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+        httpServer.stop(0);
+        executor.shutdown();
+        stopLatch.countDown();
+      }));
+
+      httpServer.start();
+      System.err.println("Amati serving on http://localhost:" + port + "/analytics");
+      stopLatch.await();
+    }
+    catch (IOException iOE) {
+      iOE.printStackTrace();
+    }
+    catch (InterruptedException iE) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private int validatePort(Integer port) throws IllegalArgumentException {
+    if ((port == null) || (port < 0) || (port > 65535)) {
+      throw new IllegalArgumentException("Port must be between 0 and 65535.");
+    }
+
+    return port;
+  }
+
+  private int validateThreadCount(int threadCount) throws IllegalArgumentException {
+    if (threadCount < 1) {
+      throw new IllegalArgumentException("Thread count must be at least 1.");
+    }
+
+    return threadCount;
+  }
+
+  private Arguments parseQueryString(String queryString) throws IllegalArgumentException {
+    List<String> argumentList = new ArrayList<>();
+
+    if (queryString != null) {
+      for (String pair : queryString.split("&")) {
+        if (pair.isEmpty()) {
+          continue;
+        }
+
+        int separator = pair.indexOf('=');
+        String name = this.decode((separator < 0) ? pair : pair.substring(0, separator));
+        String value = (separator < 0) ? "" : this.decode(pair.substring(separator + 1));
+        if (!QUERY_PARAMETERS.contains(name)) {
+          throw new IllegalArgumentException("Unexpected query parameter: " + name);
+        }
+
+        argumentList.add("--" + name);
+        argumentList.add(value);
+      }
+    }
+
+    return MainController.parseArguments(argumentList.toArray(new String[argumentList.size()]));
+  }
+
+  private String decode(String text) {
+    try {
+      return URLDecoder.decode(text, StandardCharsets.UTF_8.name());
+    }
+    catch (UnsupportedEncodingException uEE) {
+      throw new IllegalStateException(uEE);
+    }
+  }
+
+  private String contentType(OutputFormat outputFormat) {
+    switch (outputFormat) {
+      case CSV:
+        return "text/csv; charset=utf-8";
+      case BIN:
+        return "application/octet-stream";
+      case XLS:
+        return "application/vnd.ms-excel";
+      case XLSX:
+        return "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet";
+      default:
+        return "text/plain; charset=utf-8";
+    }
+  }
+
+  private void sendText(HttpExchange exchange, int status, String text) throws IOException {
+    byte[] buffer = text.getBytes(StandardCharsets.UTF_8);
+
+    exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+    exchange.sendResponseHeaders(status, buffer.length);
+    try (OutputStream outputStream = exchange.getResponseBody()) {
+      outputStream.write(buffer);
+    }
+  }
+
+  private void sendViews(HttpExchange exchange, String contentType, List<OutputForm> views)
+      throws IOException {
+    List<byte[]> buffers = new ArrayList<>(views.size());
+    long contentLength = 0;
+
+    for (OutputForm view : views) {
+      byte[] buffer = view.getByteArray();
+      buffers.add(buffer);
+      contentLength += buffer.length;
+    }
+
+    exchange.getResponseHeaders().set("Content-Type", contentType);
+    exchange.sendResponseHeaders(200, (contentLength == 0) ? -1 : contentLength);
+    try (OutputStream outputStream = exchange.getResponseBody()) {
+      for (byte[] buffer : buffers) {
+        outputStream.write(buffer);
+      }
+    }
+  }
+
+  private void sendSpreadsheet(HttpExchange exchange, String contentType,
+      OutputFormat outputFormat, List<OutputForm> views) throws IOException {
+    ByteArrayOutputStream workbookBytes = new ByteArrayOutputStream();
+    SpreadsheetWriter.writeTables(workbookBytes, outputFormat == OutputFormat.XLSX, "Table",
+        views);
+
+    exchange.getResponseHeaders().set("Content-Type", contentType);
+    exchange.sendResponseHeaders(200, workbookBytes.size());
+    try (OutputStream outputStream = exchange.getResponseBody()) {
+      workbookBytes.writeTo(outputStream);
+    }
+  }
+
+  class HealthHandler implements HttpHandler {
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+      try {
+        sendText(exchange, 200, "OK\n");
+      }
+      finally {
+        exchange.close();
+      }
+    }
+  }
+
+  class StatsHandler implements HttpHandler {
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+      try {
+        BoundedLruCache<AnalyticCacheKey, AnalyticCacheEntry> cache =
+            mainController.getAnalyticCache();
+        sendText(exchange, 200,
+            ((cache == null) ? "Cache: disabled" : cache.getStatistics().toString()) + "\n");
+      }
+      finally {
+        exchange.close();
+      }
+    }
+  }
+
+  class MetricsHandler implements HttpHandler {
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+      try {
+        byte[] buffer = (mainController.getStageMetrics().toJson() + "\n")
+            .getBytes(StandardCharsets.UTF_8);
+
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, buffer.length);
+        try (OutputStream outputStream = exchange.getResponseBody()) {
+          outputStream.write(buffer);
+        }
+      }
+      finally {
+        exchange.close();
+      }
+    }
+  }
+
+  class AnalyticsHandler implements HttpHandler {
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+      try {
+        if (!exchange.getRequestMethod().equals("GET")) {
+          exchange.getResponseHeaders().set("Allow", "GET");
+          sendText(exchange, 405, "Method not allowed.\n");
+          return;
+        }
+
+        if (AdmissionExecutor.isOverloaded()) {
+          exchange.getResponseHeaders().set("Retry-After", "1");
+          sendText(exchange, 503, "Server busy, retry later.\n");
+          return;
+        }
+
+        Arguments arguments = parseQueryString(exchange.getRequestURI().getRawQuery());
+        OutputFormat outputFormat = OutputFormat.getOutputFormat(arguments.getFormatRequest());
+        StageMetrics.Span querySpan = mainController.getStageMetrics().start(StageMetrics.QUERY);
+        List<OutputForm> views = mainController.renderQuery(arguments);
+        querySpan.stop();
+        if (outputFormat.isSpreadsheet()) {
+          sendSpreadsheet(exchange, contentType(outputFormat), outputFormat, views);
+        }
+        else {
+          sendViews(exchange, contentType(outputFormat), views);
+        }
+      }
+      catch (IllegalArgumentException | ParameterException rE) {
+        String message =
+            (rE.getMessage() == null) ? rE.getClass().getSimpleName() : rE.getMessage();
+        sendText(exchange, 400, message + "\n");
+      }
+      catch (RuntimeException rE) {
+        rE.printStackTrace();
+        sendText(exchange, 500, "Internal server error.\n");
+      }
+      finally {
+        exchange.close();
+      }
+    }
+  }
+
+  /*
+   * The HttpServer dispatcher thread hands every exchange to this executor. Exchanges run on the
+   * bounded worker pool; once its queue is full the pool rejects them (AbortPolicy) and they go
+   * to a single overload thread that answers analytics requests with 503 without rendering, so
+   * the dispatcher never runs an analytic itself. If the overload queue is full too, the
+   * rejection reaches HttpServer, which closes the connection.
+   */
+  static class AdmissionExecutor implements Executor {
+    private static final ThreadLocal<Boolean> OVERLOADED = new ThreadLocal<>();
+
+    private final ThreadPoolExecutor workerPool;
+    private final ThreadPoolExecutor overloadPool;
+
+    AdmissionExecutor(int threadCount) {
+      this.workerPool = new ThreadPoolExecutor(threadCount, threadCount, 0L,
+          TimeUnit.MILLISECONDS, new ArrayBlockingQueue<Runnable>(QUEUE_CAPACITY),
+          new ThreadPoolExecutor.AbortPolicy());
+      this.overloadPool = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+          new ArrayBlockingQueue<Runnable>(OVERLOAD_QUEUE_CAPACITY), runnable -> {
+            Thread overloadThread = new Thread(() -> {
+              OVERLOADED.set(Boolean.TRUE);
+              runnable.run();
+            }, "amati-overload");
+            overloadThread.setDaemon(true);
+            return overloadThread;
+          }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    static boolean isOverloaded() {
+      return OVERLOADED.get() != null;
+    }
+
+    @Override
+    public void execute(Runnable exchange) {
+      try {
+        this.workerPool.execute(exchange);
+      }
+      catch (RejectedExecutionException rEE) {
+        this.overloadPool.execute(exchange);
+      }
+    }
+
+    void shutdown() {
+      this.workerPool.shutdown();
+      this.overloadPool.shutdown();
+    }
+  }
+}
@@ -0,0 +1,342 @@
+package com.gkaraffa.amati.control;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+
+import com.gkaraffa.amati.output.SpreadsheetWriter;
+import com.gkaraffa.amati.watch.AtomicFiles;
+import com.gkaraffa.amati.watch.WatchIndex;
+import com.gkaraffa.guarneri.outputform.OutputForm;
+
+/*
+ * Keeps an output directory in step with a batch-style query manifest. A line may start with a
+ * name, as in "dorian: -t scale -k D -s dorian", and its output file is then named after it;
+ * other lines are named after the content hash of their query, so inserting, deleting or moving
+ * lines leaves every other file name alone. The persisted WatchIndex maps each query hash to the
+ * files holding its result: a sync keeps a current file, reuses an indexed one by renaming it
+ * (or copying it when another line still wants it), renders only new or edited queries through a
+ * temp file and a rename, and deletes the files no line produces any more. Editors that save by
+ * rename show up as a create, so the manifest's directory is watched rather than the file, and a
+ * short settle delay folds one save's events into a sync.
+ */
+public class WatchController {
+  private static final long SETTLE_MILLIS = 20;
+  private static final Pattern NAMED_QUERY =
+      Pattern.compile("([A-Za-z0-9][A-Za-z0-9._-]*):\\s*(.*)");
+
+  private final MainController mainController;
+
+  public WatchController(MainController mainController) {
+    this.mainController = mainController;
+  }
+
+  public void run(Arguments arguments) throws IllegalArgumentException {
+    Path manifestPath = Paths.get(arguments.getWatchManifest().trim()).toAbsolutePath();
+    if (!Files.isRegularFile(manifestPath)) {
+      throw new IllegalArgumentException("Watch manifest does not exist.");
+    }
+    Path outputDirectory = this.validateOutputDirectory(arguments.getOutputDirectoryName());
+    String defaultFormat = arguments.getFormatRequest();
+    if (OutputFormat.getOutputFormat(defaultFormat).isSpreadsheet()
+        && arguments.getGzipRequest()) {
+      throw new IllegalArgumentException("Spreadsheet formats cannot be gzip compressed.");
+    }
+    this.mainController.setAnalyticCache(MainController.createAnalyticCache(arguments));
+
+    try (WatchService watchService = FileSystems.getDefault().newWatchService()) {
+      manifestPath.getParent().register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+          StandardWatchEventKinds.ENTRY_MODIFY);
+      WatchIndex watchIndex = WatchIndex.load(outputDirectory);
+      Manifest manifest = new Manifest(manifestPath, outputDirectory, defaultFormat,
+          arguments.getGzipRequest(), watchIndex);
+
+      this.sync(manifest);
+      System.err.println("Watching " + manifestPath + " (Ctrl-C to stop)");
+      this.watch(watchService, manifest);
+    }
+    catch (IOException iOE) {
+      iOE.printStackTrace();
+    }
+  }
+
+  private void watch(WatchService watchService, Manifest manifest) {
+    try {
+      while (true) {
+        boolean changed = this.drainEvents(watchService.take(), manifest.manifestPath);
+
+        WatchKey watchKey;
+        while ((watchKey = watchService.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+          changed |= this.drainEvents(watchKey, manifest.manifestPath);
+        }
+
+        if (changed) {
+          this.resync(manifest);
+        }
+      }
+    }
+    catch (InterruptedException iE) {
+      Thread.currentThread().interrupt();
+    }
+    catch (ClosedWatchServiceException cWSE) {
+      // the watch service was closed under us; nothing left to watch
+    }
+  }
+
+  private boolean drainEvents(WatchKey watchKey, Path manifestPath) {
+    boolean changed = false;
+
+    for (WatchEvent<?> watchEvent : watchKey.pollEvents()) {
+      if ((watchEvent.kind() == StandardWatchEventKinds.OVERFLOW)
+          || manifestPath.getFileName().equals(watchEvent.context())) {
+        changed = true;
+      }
+    }
+
+    if (!watchKey.reset()) {
+      throw new ClosedWatchServiceException();
+    }
+    return changed;
+  }
+
+  private void resync(Manifest manifest) {
+    try {
+      this.sync(manifest);
+    }
+    catch (IOException iOE) {
+      iOE.printStackTrace();
+    }
+  }
+
+  private void sync(Manifest manifest) throws IOException {
+    long startTime = System.nanoTime();
+    List<String> lines;
+
+    try {
+      lines = Files.readAllLines(manifest.manifestPath, StandardCharsets.UTF_8);
+    }
+    catch (NoSuchFileException nSFE) {
+      // mid-save by an editor that deletes before it renames; the create event follows
+      return;
+    }
+
+    SyncSummary syncSummary = new SyncSummary();
+    List<ManifestLine> manifestLines = this.parseLines(manifest, lines, syncSummary);
+    Set<String> fileNames = new HashSet<>();
+    for (ManifestLine manifestLine : manifestLines) {
+      fileNames.add(manifestLine.fileName);
+    }
+
+    for (ManifestLine manifestLine : manifestLines) {
+      try {
+        this.syncLine(manifest, manifestLine, fileNames, syncSummary);
+      }
+      catch (RuntimeException rE) {
+        this.reportFailure(manifestLine.lineNumber, rE, syncSummary);
+      }
+    }
+
+    syncSummary.removed = manifest.watchIndex.retainOnly(fileNames);
+    manifest.watchIndex.save();
+    System.err.println(syncSummary.toString(System.nanoTime() - startTime));
+  }
+
+  private List<ManifestLine> parseLines(Manifest manifest, List<String> lines,
+      SyncSummary syncSummary) {
+    List<ManifestLine> manifestLines = new ArrayList<>();
+    Set<String> outputNames = new HashSet<>();
+
+    for (int lineIndex = 0; lineIndex < lines.size(); lineIndex++) {
+      String line = lines.get(lineIndex).trim();
+      if (line.isEmpty() || line.startsWith("#")) {
+        continue;
+      }
+
+      try {
+        ManifestLine manifestLine = this.parseLine(manifest, lineIndex + 1, line, outputNames);
+        if (manifestLine != null) {
+          manifestLines.add(manifestLine);
+        }
+      }
+      catch (RuntimeException rE) {
+        this.reportFailure(lineIndex + 1, rE, syncSummary);
+      }
+    }
+
+    return manifestLines;
+  }
+
+  private ManifestLine parseLine(Manifest manifest, int lineNumber, String line,
+      Set<String> outputNames) {
+    Matcher namedQuery = NAMED_QUERY.matcher(line);
+    boolean named = namedQuery.matches();
+    String query = named ? namedQuery.group(2) : line;
+    Arguments arguments = BatchController.parseLine(query, manifest.defaultFormat);
+    OutputFormat outputFormat = OutputFormat.getOutputFormat(arguments.getFormatRequest());
+    if (outputFormat.isSpreadsheet() && manifest.gzip) {
+      throw new IllegalArgumentException("Spreadsheet formats cannot be gzip compressed.");
+    }
+
+    long queryHash = WatchIndex.hash(manifest.defaultFormat + "|" + manifest.gzip + "|" + query);
+    String outputName = named ? namedQuery.group(1) : "query-" + WatchIndex.toHex(queryHash);
+    if (!outputNames.add(outputName)) {
+      if (!named) {
+        // a repeated unnamed query has the same identity and shares the first one's output
+        return null;
+      }
+      throw new IllegalArgumentException("Duplicate output name: " + outputName);
+    }
+    String fileName = outputName + "." + outputFormat.getFileExtension()
+        + (manifest.gzip ? ".gz" : "");
+
+    return new ManifestLine(lineNumber, query, queryHash, arguments, outputFormat, fileName);
+  }
+
+  private void syncLine(Manifest manifest, ManifestLine manifestLine, Set<String> fileNames,
+      SyncSummary syncSummary) throws IOException {
+    WatchIndex watchIndex = manifest.watchIndex;
+    if (watchIndex.isCurrent(manifestLine.fileName, manifestLine.queryHash)) {
+      syncSummary.unchanged++;
+      return;
+    }
+
+    String existingFileName = watchIndex.outputOf(manifestLine.queryHash);
+    if (existingFileName == null) {
+      this.render(manifest, manifestLine.arguments, manifestLine.outputFormat,
+          manifestLine.fileName);
+      watchIndex.put(manifestLine.fileName, manifestLine.queryHash, manifestLine.query);
+      syncSummary.rendered++;
+      return;
+    }
+
+    Path existingFile = manifest.outputDirectory.resolve(existingFileName);
+    Path targetFile = manifest.outputDirectory.resolve(manifestLine.fileName);
+    if (fileNames.contains(existingFileName)) {
+      AtomicFiles.copy(existingFile, targetFile);
+      watchIndex.put(manifestLine.fileName, manifestLine.queryHash, manifestLine.query);
+    }
+    else {
+      AtomicFiles.move(existingFile, targetFile);
+      watchIndex.move(existingFileName, manifestLine.fileName, manifestLine.queryHash,
+          manifestLine.query);
+    }
+    syncSummary.reused++;
+  }
+
+  private void reportFailure(int lineNumber, RuntimeException rE, SyncSummary syncSummary) {
+    syncSummary.failed++;
+    System.err.println("line " + lineNumber + ": "
+        + ((rE.getMessage() == null) ? rE.getClass().getSimpleName() : rE.getMessage()));
+  }
+
+  private void render(Manifest manifest, Arguments arguments, OutputFormat outputFormat,
+      String fileName) throws IOException {
+    List<OutputForm> views = this.mainController.renderQuery(arguments);
+
+    AtomicFiles.write(manifest.outputDirectory.resolve(fileName), outputStream -> {
+      if (outputFormat.isSpreadsheet()) {
+        SpreadsheetWriter.writeTables(outputStream, outputFormat == OutputFormat.XLSX, "Query",
+            views);
+        return;
+      }
+
+      if (!manifest.gzip) {
+        this.writeViews(outputStream, views);
+        return;
+      }
+
+      GZIPOutputStream gzipStream = new GZIPOutputStream(outputStream);
+      this.writeViews(gzipStream, views);
+      gzipStream.finish();
+    });
+  }
+
+  private void writeViews(OutputStream outputStream, List<OutputForm> views) throws IOException {
+    for (OutputForm view : views) {
+      outputStream.write(view.getByteArray());
+    }
+  }
+
+  private Path validateOutputDirectory(String outputDirectoryName)
+      throws IllegalArgumentException {
+    if ((outputDirectoryName == null) || (outputDirectoryName.trim().equals(""))) {
+      throw new IllegalArgumentException("Output directory must be specified for watch mode.");
+    }
+
+    Path outputDirectory = Paths.get(outputDirectoryName.trim());
+    if (!Files.isDirectory(outputDirectory) && !outputDirectory.toFile().mkdirs()) {
+      throw new IllegalArgumentException("Output directory cannot be created.");
+    }
+
+    return outputDirectory;
+  }
+
+  static class Manifest {
+    final Path manifestPath;
+    final Path outputDirectory;
+    final String defaultFormat;
+    final boolean gzip;
+    final WatchIndex watchIndex;
+
+    Manifest(Path manifestPath, Path outputDirectory, String defaultFormat, boolean gzip,
+        WatchIndex watchIndex) {
+      this.manifestPath = manifestPath;
+      this.outputDirectory = outputDirectory;
+      this.defaultFormat = defaultFormat;
+      this.gzip = gzip;
+      this.watchIndex = watchIndex;
+    }
+  }
+
+  static class ManifestLine {
+    final int lineNumber;
+    final String query;
+    final long queryHash;
+    final Arguments arguments;
+    final OutputFormat outputFormat;
+    final String fileName;
+
+    ManifestLine(int lineNumber, String query, long queryHash, Arguments arguments,
+        OutputFormat outputFormat, String fileName) {
+      this.lineNumber = lineNumber;
+      this.query = query;
+      this.queryHash = queryHash;
+      this.arguments = arguments;
+      this.outputFormat = outputFormat;
+      this.fileName = fileName;
+    }
+  }
+
+  static class SyncSummary {
+    int rendered = 0;
+    int reused = 0;
+    int unchanged = 0;
+    int removed = 0;
+    int failed = 0;
+
+    String toString(long elapsedNanos) {
+      return String.format(
+          "Watch sync: %d rendered, %d reused, %d unchanged, %d removed, %d failed in %.1f ms",
+          this.rendered, this.reused, this.unchanged, this.removed, this.failed,
+          elapsedNanos / 1_000_000.0);
+    }
+  }
+}
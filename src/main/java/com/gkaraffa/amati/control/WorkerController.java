@@ -0,0 +1,54 @@
+package com.gkaraffa.amati.control;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/*
+ * Child side of a multi-process catalog build. The coordinator owns this JVM's stdin and stdout,
+ * so System.out is pointed at stderr before any query runs and a stray print cannot corrupt a
+ * frame.
+ */
+public class WorkerController {
+  private final MainController mainController;
+
+  public WorkerController(MainController mainController) {
+    this.mainController = mainController;
+  }
+
+  public void run(Arguments arguments) throws IllegalArgumentException {
+    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+        new FileOutputStream(FileDescriptor.out), WorkerProtocol.BUFFER_SIZE));
+    System.setOut(System.err);
+    CatalogController catalogController = new CatalogController(this.mainController);
+
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+        new FileInputStream(FileDescriptor.in), WorkerProtocol.BUFFER_SIZE))) {
+      int frameType;
+
+      while ((frameType = in.read()) == WorkerProtocol.SHARD) {
+        int shardId = in.readInt();
+        for (String[] query : WorkerProtocol.readQueries(in)) {
+          WorkerProtocol.writeResult(out, catalogController.renderEntry(query));
+        }
+        WorkerProtocol.writeDone(out, shardId);
+      }
+
+      if ((frameType != WorkerProtocol.STOP) && (frameType != -1)) {
+        throw new IllegalStateException("Unexpected worker frame: " + frameType);
+      }
+    }
+    catch (EOFException eOFE) {
+      // the coordinator went away mid-frame; nothing is left to answer
+    }
+    catch (IOException iOE) {
+      iOE.printStackTrace();
+    }
+  }
+}
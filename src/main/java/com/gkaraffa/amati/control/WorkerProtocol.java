@@ -0,0 +1,89 @@
+package com.gkaraffa.amati.control;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.gkaraffa.amati.control.CatalogController.CatalogEntry;
+
+/*
+ * Frames exchanged between the catalog coordinator and its worker JVMs over each worker's stdin
+ * and stdout. Every frame starts with a one-byte type. The coordinator sends SHARD (shard id,
+ * query count, then each query's argument count and arguments) and finally STOP; the worker
+ * answers every query of a shard in order with RESULT (present flag, catalog key, payload length,
+ * payload) and closes the shard with DONE and its id. Strings are DataOutputStream's modified
+ * UTF-8.
+ */
+final class WorkerProtocol {
+  static final int SHARD = 1;
+  static final int STOP = 2;
+  static final int RESULT = 3;
+  static final int DONE = 4;
+  static final int BUFFER_SIZE = 64 * 1024;
+
+  private WorkerProtocol() {}
+
+  static void writeShard(DataOutputStream out, int shardId, List<String[]> queries)
+      throws IOException {
+    out.writeByte(SHARD);
+    out.writeInt(shardId);
+    out.writeInt(queries.size());
+    for (String[] query : queries) {
+      out.writeShort(query.length);
+      for (String argument : query) {
+        out.writeUTF(argument);
+      }
+    }
+    out.flush();
+  }
+
+  static List<String[]> readQueries(DataInputStream in) throws IOException {
+    int queryCount = in.readInt();
+    List<String[]> queries = new ArrayList<>(queryCount);
+
+    for (int i = 0; i < queryCount; i++) {
+      String[] query = new String[in.readUnsignedShort()];
+      for (int j = 0; j < query.length; j++) {
+        query[j] = in.readUTF();
+      }
+      queries.add(query);
+    }
+
+    return queries;
+  }
+
+  static void writeStop(DataOutputStream out) throws IOException {
+    out.writeByte(STOP);
+    out.flush();
+  }
+
+  static void writeResult(DataOutputStream out, CatalogEntry catalogEntry) throws IOException {
+    out.writeByte(RESULT);
+    out.writeBoolean(catalogEntry != null);
+    if (catalogEntry != null) {
+      out.writeUTF(catalogEntry.key);
+      out.writeInt(catalogEntry.payload.length);
+      out.write(catalogEntry.payload);
+    }
+  }
+
+  static CatalogEntry readResult(DataInputStream in) throws IOException {
+    if (!in.readBoolean()) {
+      return null;
+    }
+
+    String key = in.readUTF();
+    byte[] payload = new byte[in.readInt()];
+    in.readFully(payload);
+
+    return new CatalogEntry(key, payload);
+  }
+
+  static void writeDone(DataOutputStream out, int shardId) throws IOException {
+    out.writeByte(DONE);
+    out.writeInt(shardId);
+    out.flush();
+  }
+}
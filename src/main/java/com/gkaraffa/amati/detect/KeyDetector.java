@@ -0,0 +1,135 @@
+package com.gkaraffa.amati.detect;
+
+import com.gkaraffa.amati.index.PitchClasses;
+
+/*
+ * Sliding-window key estimation. Notes enter a ring of pitch classes and an int[12] histogram;
+ * once the window is full a ranking is due every hop notes. Each candidate's dot product with the
+ * histogram is kept in fixed point and, at ranking time, moved only by the pitch classes whose
+ * counts changed since the previous ranking. The best few are kept by insertion into fixed
+ * arrays, so nothing is allocated per note or per window.
+ */
+public class KeyDetector {
+  public static final int DEFAULT_WINDOW = 32;
+  public static final int DEFAULT_HOP = 8;
+  public static final int DEFAULT_TOP = 3;
+  public static final int MAX_WINDOW = 1 << 20;
+
+  private final KeyProfiles keyProfiles;
+  private final int window;
+  private final int hop;
+  private final int[] ring;
+  private final int[] histogram = new int[PitchClasses.PITCH_CLASS_COUNT];
+  private final int[] rankedHistogram = new int[PitchClasses.PITCH_CLASS_COUNT];
+  private final long[] scores;
+  private final int[] topCandidates;
+  private final double[] topScores;
+  private long sumOfSquares = 0;
+  private int slot = 0;
+  private long noteCount = 0;
+  private long lastRanked = 0;
+  private int rankedCount = 0;
+
+  public KeyDetector(KeyProfiles keyProfiles, int window, int hop, int top)
+      throws IllegalArgumentException {
+    if ((window < 1) || (window > MAX_WINDOW)) {
+      throw new IllegalArgumentException("Window must be between 1 and " + MAX_WINDOW + ".");
+    }
+    if ((hop < 1) || (hop > window)) {
+      throw new IllegalArgumentException("Hop must be between 1 and the window size.");
+    }
+    if ((top < 1) || (top > keyProfiles.getCandidateCount())) {
+      throw new IllegalArgumentException(
+          "Top must be between 1 and " + keyProfiles.getCandidateCount() + ".");
+    }
+
+    this.keyProfiles = keyProfiles;
+    this.window = window;
+    this.hop = hop;
+    this.ring = new int[window];
+    this.scores = new long[keyProfiles.getCandidateCount()];
+    this.topCandidates = new int[top];
+    this.topScores = new double[top];
+  }
+
+  public boolean accept(int pitchClass) {
+    if (noteCount >= window) {
+      int leaving = ring[slot];
+      sumOfSquares -= 2L * histogram[leaving] - 1;
+      histogram[leaving]--;
+    }
+    ring[slot] = pitchClass;
+    sumOfSquares += 2L * histogram[pitchClass] + 1;
+    histogram[pitchClass]++;
+    slot = (slot + 1 == window) ? 0 : slot + 1;
+    noteCount++;
+
+    return (noteCount >= window) && ((noteCount - window) % hop == 0);
+  }
+
+  public boolean hasUnrankedTail() {
+    return (noteCount > 0) && (noteCount < window);
+  }
+
+  public void rank() {
+    long size = Math.min(noteCount, window);
+    double spread = Math.sqrt(sumOfSquares - (double) size * size / histogram.length)
+        * KeyProfiles.WEIGHT_SCALE;
+
+    for (int pitchClass = 0; pitchClass < histogram.length; pitchClass++) {
+      if (histogram[pitchClass] != rankedHistogram[pitchClass]) {
+        keyProfiles.accumulate(scores, pitchClass,
+            histogram[pitchClass] - rankedHistogram[pitchClass]);
+        rankedHistogram[pitchClass] = histogram[pitchClass];
+      }
+    }
+
+    double scale = (spread == 0) ? 0 : 1 / spread;
+    rankedCount = 0;
+    for (int candidate = 0; candidate < scores.length; candidate++) {
+      this.offer(candidate, scores[candidate] * scale);
+    }
+    lastRanked = noteCount;
+  }
+
+  private void offer(int candidate, double score) {
+    int position = rankedCount;
+    if ((position == topScores.length) && (score <= topScores[position - 1])) {
+      return;
+    }
+    if (position == topScores.length) {
+      position--;
+    }
+    else {
+      rankedCount++;
+    }
+
+    while ((position > 0) && (topScores[position - 1] < score)) {
+      topScores[position] = topScores[position - 1];
+      topCandidates[position] = topCandidates[position - 1];
+      position--;
+    }
+    topScores[position] = score;
+    topCandidates[position] = candidate;
+  }
+
+  public long getFirstNote() {
+    return lastRanked - Math.min(lastRanked, window) + 1;
+  }
+
+  public long getLastNote() {
+    return lastRanked;
+  }
+
+  public int getRankedCount() {
+    return rankedCount;
+  }
+
+  public int getCandidate(int rank) {
+    return topCandidates[rank];
+  }
+
+  public double getScore(int rank) {
+    return topScores[rank];
+  }
+}
@@ -0,0 +1,166 @@
+package com.gkaraffa.amati.detect;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import com.gkaraffa.amati.control.QuerySpace;
+import com.gkaraffa.amati.index.PitchClasses;
+import com.gkaraffa.cremona.helper.ScaleHelper;
+
+/*
+ * Krumhansl-Kessler probe-tone profiles for every tonic and diatonic mode. Modes with a minor
+ * third start from the minor profile, the rest from the major one, and each degree the mode
+ * alters swaps its weight with the degree it replaces. Profiles are normalised to zero mean and
+ * unit length and stored as fixed-point weights laid out pitch class first, so a change in one
+ * pitch class's count moves every candidate's score in one pass over a contiguous run. Tonics
+ * are labelled with the key name whose major signature has the fewest accidentals (Bb, not A#).
+ */
+public final class KeyProfiles {
+  public static final List<String> MODE_NAMES = Collections.unmodifiableList(Arrays.asList(
+      "Ionian", "Dorian", "Phrygian", "Lydian", "Mixolydian", "Aeolian", "Locrian"));
+
+  private static final double[] MAJOR_PROFILE =
+      {6.35, 2.23, 3.48, 2.33, 4.38, 4.09, 2.52, 5.19, 2.39, 3.66, 2.29, 2.88};
+  private static final double[] MINOR_PROFILE =
+      {6.33, 2.68, 3.52, 5.38, 2.60, 3.53, 2.54, 4.75, 3.98, 2.69, 3.34, 3.17};
+  private static final int[] MAJOR_STEPS = {0, 2, 4, 5, 7, 9, 11};
+  private static final int[] MINOR_STEPS = {0, 2, 3, 5, 7, 8, 10};
+  private static final int MINOR_THIRD = 3;
+  private static final int[] LETTER_FIFTHS = {3, 5, 0, 2, 4, -1, 1};
+  public static final double WEIGHT_SCALE = 1 << 24;
+
+  private final int[] weights;
+  private final byte[][] labels;
+
+  /*
+   * Takes one pitch-class mask per entry of MODE_NAMES, each relative to a tonic of C.
+   */
+  KeyProfiles(int[] modeMasks) throws IllegalArgumentException {
+    if (modeMasks.length != MODE_NAMES.size()) {
+      throw new IllegalArgumentException("Expected " + MODE_NAMES.size() + " mode masks.");
+    }
+
+    int candidateCount = PitchClasses.PITCH_CLASS_COUNT * MODE_NAMES.size();
+    String[] tonicNames = tonicNames();
+    this.weights = new int[PitchClasses.PITCH_CLASS_COUNT * candidateCount];
+    this.labels = new byte[candidateCount][];
+
+    for (int mode = 0; mode < MODE_NAMES.size(); mode++) {
+      String modeName = MODE_NAMES.get(mode);
+      double[] modeProfile = modeProfile(modeMasks[mode]);
+
+      for (int tonic = 0; tonic < PitchClasses.PITCH_CLASS_COUNT; tonic++) {
+        int candidate = tonic * MODE_NAMES.size() + mode;
+        for (int pitchClass = 0; pitchClass < PitchClasses.PITCH_CLASS_COUNT; pitchClass++) {
+          weights[pitchClass * candidateCount + candidate] = (int) Math.round(WEIGHT_SCALE
+              * modeProfile[Math.floorMod(pitchClass - tonic, PitchClasses.PITCH_CLASS_COUNT)]);
+        }
+        labels[candidate] =
+            (tonicNames[tonic] + " " + modeName).getBytes(StandardCharsets.UTF_8);
+      }
+    }
+  }
+
+  public static KeyProfiles getInstance() {
+    return Holder.INSTANCE;
+  }
+
+  private static int[] modeMasks() {
+    int[] modeMasks = new int[MODE_NAMES.size()];
+
+    for (int mode = 0; mode < MODE_NAMES.size(); mode++) {
+      modeMasks[mode] =
+          PitchClasses.maskOf(ScaleHelper.getInstance().getScale("C", MODE_NAMES.get(mode)));
+    }
+
+    return modeMasks;
+  }
+
+  private static String[] tonicNames() {
+    String[] tonicNames = new String[PitchClasses.PITCH_CLASS_COUNT];
+    int[] accidentals = new int[PitchClasses.PITCH_CLASS_COUNT];
+
+    for (String keyName : QuerySpace.KEY_NAMES) {
+      int pitchClass = PitchClasses.pitchClassOf(keyName);
+      int signature = Math.abs(fifthsOf(keyName));
+
+      if ((tonicNames[pitchClass] == null) || (signature < accidentals[pitchClass])) {
+        tonicNames[pitchClass] = keyName;
+        accidentals[pitchClass] = signature;
+      }
+    }
+
+    return tonicNames;
+  }
+
+  /*
+   * Position of a spelled key on the circle of fifths, which is also its major key signature:
+   * positive for sharps, negative for flats.
+   */
+  private static int fifthsOf(String keyName) {
+    int fifths = LETTER_FIFTHS[keyName.charAt(0) - 'A'];
+
+    for (int i = 1; i < keyName.length(); i++) {
+      fifths += (keyName.charAt(i) == '#') ? 7 : -7;
+    }
+
+    return fifths;
+  }
+
+  private static double[] modeProfile(int modeMask) {
+    boolean minor = (modeMask & (1 << MINOR_THIRD)) != 0;
+    double[] profile = (minor ? MINOR_PROFILE : MAJOR_PROFILE).clone();
+    int[] baseSteps = minor ? MINOR_STEPS : MAJOR_STEPS;
+    int degree = 0;
+
+    for (int step = 0; step < PitchClasses.PITCH_CLASS_COUNT; step++) {
+      if ((modeMask & (1 << step)) == 0) {
+        continue;
+      }
+      if ((degree < baseSteps.length) && (baseSteps[degree] != step)) {
+        double weight = profile[step];
+        profile[step] = profile[baseSteps[degree]];
+        profile[baseSteps[degree]] = weight;
+      }
+      degree++;
+    }
+
+    double mean = 0;
+    for (double weight : profile) {
+      mean += weight / profile.length;
+    }
+    double norm = 0;
+    for (int i = 0; i < profile.length; i++) {
+      profile[i] -= mean;
+      norm += profile[i] * profile[i];
+    }
+    norm = Math.sqrt(norm);
+    for (int i = 0; i < profile.length; i++) {
+      profile[i] /= norm;
+    }
+
+    return profile;
+  }
+
+  public int getCandidateCount() {
+    return labels.length;
+  }
+
+  public void accumulate(long[] scores, int pitchClass, int countChange) {
+    int offset = pitchClass * scores.length;
+
+    for (int candidate = 0; candidate < scores.length; candidate++) {
+      scores[candidate] += (long) countChange * weights[offset + candidate];
+    }
+  }
+
+  public byte[] getLabel(int candidate) {
+    return labels[candidate];
+  }
+
+  private static class Holder {
+    private static final KeyProfiles INSTANCE = new KeyProfiles(modeMasks());
+  }
+}
@@ -0,0 +1,232 @@
+package com.gkaraffa.amati.detect;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+import com.gkaraffa.amati.index.PitchClasses;
+
+/*
+ * Reads note events (names such as C, F#4, Bb3 or MIDI numbers) separated by whitespace or
+ * commas and feeds their pitch classes to a KeyDetector. Input and output each go through one
+ * reusable direct buffer and tokens are decoded from the bytes in place, so the per-note path
+ * does not allocate. Text output is one line per window; CSV output is one row per candidate.
+ */
+public class NoteEventStreamer {
+  private static final int BUFFER_SIZE = 1024 * 1024;
+  private static final int MAX_TOKEN_LENGTH = 16;
+  private static final int MAX_MIDI_NOTE = 127;
+  private static final int[] LETTER_PITCH_CLASSES = {9, 11, 0, 2, 4, 5, 7};
+  private static final byte[] CSV_HEADER = "First Note,Last Note,Rank,Key,Mode,Correlation\n"
+      .getBytes(StandardCharsets.UTF_8);
+
+  private final KeyDetector keyDetector;
+  private final boolean csv;
+  private final byte[][] labels;
+  private final ByteBuffer input = ByteBuffer.allocateDirect(BUFFER_SIZE);
+  private final ByteBuffer output = ByteBuffer.allocateDirect(BUFFER_SIZE);
+  private long lineNumber;
+
+  public NoteEventStreamer(KeyDetector keyDetector, KeyProfiles keyProfiles, boolean csv) {
+    this.keyDetector = keyDetector;
+    this.csv = csv;
+    this.labels = new byte[keyProfiles.getCandidateCount()][];
+
+    for (int candidate = 0; candidate < labels.length; candidate++) {
+      labels[candidate] = keyProfiles.getLabel(candidate).clone();
+      if (csv) {
+        for (int i = 0; i < labels[candidate].length; i++) {
+          labels[candidate][i] = (labels[candidate][i] == ' ') ? (byte) ',' : labels[candidate][i];
+        }
+      }
+    }
+  }
+
+  public void stream(ReadableByteChannel source, WritableByteChannel sink) throws IOException {
+    input.clear();
+    output.clear();
+    lineNumber = 1;
+    if (csv) {
+      output.put(CSV_HEADER);
+    }
+
+    boolean endOfInput = false;
+    while (!endOfInput) {
+      endOfInput = source.read(input) < 0;
+      input.flip();
+      this.scan(endOfInput, sink);
+      input.compact();
+    }
+
+    if (keyDetector.hasUnrankedTail()) {
+      keyDetector.rank();
+      this.writeRanking(sink);
+    }
+    this.drain(sink);
+  }
+
+  private void scan(boolean endOfInput, WritableByteChannel sink) throws IOException {
+    int limit = input.limit();
+    int i = input.position();
+
+    while (i < limit) {
+      byte b = input.get(i);
+      if (isDelimiter(b)) {
+        if (b == '\n') {
+          lineNumber++;
+        }
+        i++;
+        continue;
+      }
+
+      int tokenEnd = i + 1;
+      while ((tokenEnd < limit) && !isDelimiter(input.get(tokenEnd))) {
+        tokenEnd++;
+      }
+      if ((tokenEnd == limit) && !endOfInput) {
+        if (tokenEnd - i > MAX_TOKEN_LENGTH) {
+          throw new IllegalArgumentException("Unexpected note event on line " + lineNumber);
+        }
+        break;
+      }
+
+      if (keyDetector.accept(this.pitchClassOf(i, tokenEnd))) {
+        keyDetector.rank();
+        this.writeRanking(sink);
+      }
+      i = tokenEnd;
+    }
+
+    input.position(i);
+  }
+
+  private int pitchClassOf(int start, int end) throws IllegalArgumentException {
+    byte first = input.get(start);
+
+    if ((first >= '0') && (first <= '9')) {
+      int midiNote = 0;
+      for (int i = start; i < end; i++) {
+        byte digit = input.get(i);
+        if ((digit < '0') || (digit > '9') || (midiNote > MAX_MIDI_NOTE)) {
+          throw new IllegalArgumentException("Unexpected note event on line " + lineNumber);
+        }
+        midiNote = midiNote * 10 + (digit - '0');
+      }
+      if (midiNote > MAX_MIDI_NOTE) {
+        throw new IllegalArgumentException("Unexpected note event on line " + lineNumber);
+      }
+
+      return midiNote % PitchClasses.PITCH_CLASS_COUNT;
+    }
+
+    int letter = (first | 0x20) - 'a';
+    if ((letter < 0) || (letter >= LETTER_PITCH_CLASSES.length)) {
+      throw new IllegalArgumentException("Unexpected note event on line " + lineNumber);
+    }
+
+    int pitchClass = LETTER_PITCH_CLASSES[letter];
+    int i = start + 1;
+    for (; i < end; i++) {
+      byte accidental = input.get(i);
+      if (accidental == '#') {
+        pitchClass++;
+      }
+      else if (accidental == 'b') {
+        pitchClass--;
+      }
+      else if (accidental == 'x') {
+        pitchClass += 2;
+      }
+      else {
+        break;
+      }
+    }
+    if ((i < end) && (input.get(i) == '-')) {
+      i++;
+    }
+    for (; i < end; i++) {
+      if ((input.get(i) < '0') || (input.get(i) > '9')) {
+        throw new IllegalArgumentException("Unexpected note event on line " + lineNumber);
+      }
+    }
+
+    return Math.floorMod(pitchClass, PitchClasses.PITCH_CLASS_COUNT);
+  }
+
+  private void writeRanking(WritableByteChannel sink) throws IOException {
+    for (int rank = 0; rank < keyDetector.getRankedCount(); rank++) {
+      byte[] label = labels[keyDetector.getCandidate(rank)];
+      this.reserve(sink, label.length + 64);
+
+      if (csv) {
+        this.putLong(keyDetector.getFirstNote());
+        output.put((byte) ',');
+        this.putLong(keyDetector.getLastNote());
+        output.put((byte) ',');
+        this.putLong(rank + 1);
+        output.put((byte) ',');
+        output.put(label);
+        output.put((byte) ',');
+        this.putScore(keyDetector.getScore(rank));
+        output.put((byte) '\n');
+        continue;
+      }
+
+      if (rank == 0) {
+        this.putLong(keyDetector.getFirstNote());
+        output.put((byte) '-');
+        this.putLong(keyDetector.getLastNote());
+      }
+      output.put((byte) '\t');
+      output.put(label);
+      output.put((byte) ' ');
+      this.putScore(keyDetector.getScore(rank));
+    }
+
+    if (!csv) {
+      this.reserve(sink, 1);
+      output.put((byte) '\n');
+    }
+  }
+
+  private static boolean isDelimiter(byte b) {
+    return (b == ' ') || (b == '\t') || (b == '\r') || (b == '\n') || (b == ',');
+  }
+
+  private void putScore(double score) {
+    long thousandths = Math.round(score * 1000);
+    if (thousandths < 0) {
+      output.put((byte) '-');
+      thousandths = -thousandths;
+    }
+
+    this.putLong(thousandths / 1000);
+    output.put((byte) '.');
+    output.put((byte) ('0' + (thousandths / 100) % 10));
+    output.put((byte) ('0' + (thousandths / 10) % 10));
+    output.put((byte) ('0' + thousandths % 10));
+  }
+
+  private void putLong(long value) {
+    if (value >= 10) {
+      this.putLong(value / 10);
+    }
+    output.put((byte) ('0' + (value % 10)));
+  }
+
+  private void reserve(WritableByteChannel sink, int byteCount) throws IOException {
+    if (output.remaining() < byteCount) {
+      this.drain(sink);
+    }
+  }
+
+  private void drain(WritableByteChannel sink) throws IOException {
+    output.flip();
+    while (output.hasRemaining()) {
+      sink.write(output);
+    }
+    output.clear();
+  }
+}
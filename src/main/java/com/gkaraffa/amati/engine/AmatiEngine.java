@@ -0,0 +1,812 @@
+package com.gkaraffa.amati.engine;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+
+import com.gkaraffa.amati.cache.BoundedLruCache;
+import com.gkaraffa.amati.control.Analytic;
+import com.gkaraffa.amati.control.AnalyticCacheEntry;
+import com.gkaraffa.amati.control.AnalyticCacheKey;
+import com.gkaraffa.amati.control.AnalyticRegistry;
+import com.gkaraffa.amati.control.OutputFormat;
+import com.gkaraffa.amati.fretboard.Fretboard;
+import com.gkaraffa.amati.fretboard.FretboardViewFactory;
+import com.gkaraffa.amati.fretboard.Tuning;
+import com.gkaraffa.amati.fretboard.VoiceLeadingViewFactory;
+import com.gkaraffa.amati.fretboard.VoicingConstraints;
+import com.gkaraffa.amati.fretboard.VoicingViewFactory;
+import com.gkaraffa.amati.index.PitchClassSetViewFactory;
+import com.gkaraffa.amati.index.PitchClasses;
+import com.gkaraffa.amati.matrix.MatrixViewFactory;
+import com.gkaraffa.amati.metrics.StageMetrics;
+import com.gkaraffa.amati.names.CanonicalNames;
+import com.gkaraffa.amati.output.BinaryOutputFormFactory;
+import com.gkaraffa.amati.output.ChannelOutputWriter;
+import com.gkaraffa.amati.output.SpreadsheetWriter;
+import com.gkaraffa.amati.progression.ChordSymbols;
+import com.gkaraffa.amati.progression.ProgressionAnalyzer;
+import com.gkaraffa.cremona.helper.ChordHelper;
+import com.gkaraffa.cremona.helper.ScaleHelper;
+import com.gkaraffa.cremona.theoretical.Tone;
+import com.gkaraffa.cremona.theoretical.ToneGroupObject;
+import com.gkaraffa.cremona.theoretical.chord.Chord;
+import com.gkaraffa.cremona.theoretical.scale.Scale;
+import com.gkaraffa.guarneri.outputform.CSVOutputFormFactory;
+import com.gkaraffa.guarneri.outputform.OutputForm;
+import com.gkaraffa.guarneri.outputform.OutputFormFactory;
+import com.gkaraffa.guarneri.outputform.TabularTextOutputFormFactory;
+import com.gkaraffa.guarneri.view.ViewQuery;
+import com.gkaraffa.guarneri.view.ViewQueryBuilder;
+import com.gkaraffa.guarneri.view.ViewTable;
+
+/*
+ * The analytics behind the command line, callable in process. The engine keeps no per-call state:
+ * names resolve through the shared CanonicalNames tables, view factories are created once and
+ * shared through the AnalyticRegistry, and every call plans its own tasks and output form factory,
+ * so one engine serves any number of threads. Nothing is printed; an invalid request throws
+ * IllegalArgumentException to the caller.
+ */
+public class AmatiEngine {
+  private static final int DEFAULT_FRET_COUNT = 24;
+  private static final int MAX_REMEMBERED_MODELS = 4096;
+  private static final Map<Analytic, String> VIEW_STAGES = viewStages();
+
+  private final AnalyticRegistry analyticRegistry = AnalyticRegistry.getInstance();
+  private final ConcurrentMap<String, Scale> scaleModels = new ConcurrentHashMap<>();
+  private final ConcurrentMap<String, Chord> chordModels = new ConcurrentHashMap<>();
+  private volatile BoundedLruCache<AnalyticCacheKey, AnalyticCacheEntry> analyticCache = null;
+  private volatile StageMetrics stageMetrics = StageMetrics.disabled();
+  private final RenderPipeline renderPipeline = new RenderPipeline(this);
+
+  public void setAnalyticCache(
+      BoundedLruCache<AnalyticCacheKey, AnalyticCacheEntry> analyticCache) {
+    this.analyticCache = analyticCache;
+  }
+
+  public BoundedLruCache<AnalyticCacheKey, AnalyticCacheEntry> getAnalyticCache() {
+    return this.analyticCache;
+  }
+
+  public void setStageMetrics(StageMetrics stageMetrics) {
+    this.stageMetrics = stageMetrics;
+  }
+
+  public StageMetrics getStageMetrics() {
+    return this.stageMetrics;
+  }
+
+  public Tone parseKey(String keyString) throws IllegalArgumentException {
+    CanonicalNames names = CanonicalNames.getInstance();
+
+    return names.getTone(names.parseKey(this.require(keyString, "Key not specified.")));
+  }
+
+  public Scale parseScale(String keyString, String scaleString)
+      throws IllegalArgumentException {
+    CanonicalNames names = CanonicalNames.getInstance();
+    int key = names.parseKey(this.require(keyString, "Key not specified."));
+    int scale = names.findScale(this.require(scaleString, "Scale not specified."));
+    Scale scaleRendered = (scale >= 0) ? names.getScale(key, scale)
+        : this.parseAndRenderUnlistedScale(names.getKeyName(key), scaleString.trim());
+
+    if (scaleRendered == null) {
+      throw new IllegalArgumentException(CanonicalNames.errorMessage("scale", scaleString, scale));
+    }
+
+    return scaleRendered;
+  }
+
+  public Chord parseChord(String keyString, String chordString)
+      throws IllegalArgumentException {
+    CanonicalNames names = CanonicalNames.getInstance();
+    int key = names.parseKey(this.require(keyString, "Key not specified."));
+    int chord = names.findChord(this.require(chordString, "Chord not specified."));
+    Chord chordRendered = (chord >= 0) ? names.getChord(key, chord)
+        : this.parseAndRenderUnlistedChord(names.getKeyName(key), chordString.trim());
+
+    if (chordRendered == null) {
+      throw new IllegalArgumentException(CanonicalNames.errorMessage("chord", chordString, chord));
+    }
+
+    return chordRendered;
+  }
+
+  public String canonicalKeyName(String keyString) throws IllegalArgumentException {
+    CanonicalNames names = CanonicalNames.getInstance();
+
+    return names.getKeyName(names.parseKey(this.require(keyString, "Key not specified.")));
+  }
+
+  public String canonicalScaleName(String scaleString) throws IllegalArgumentException {
+    CanonicalNames names = CanonicalNames.getInstance();
+    int scale = names.findScale(this.require(scaleString, "Scale not specified."));
+
+    return (scale >= 0) ? names.getScaleName(scale) : scaleString.trim();
+  }
+
+  public String canonicalChordName(String chordString) throws IllegalArgumentException {
+    CanonicalNames names = CanonicalNames.getInstance();
+    int chord = names.findChord(this.require(chordString, "Chord not specified."));
+
+    return (chord >= 0) ? names.getChordName(chord) : chordString.trim();
+  }
+
+  public List<ViewTable> keyAnalytics(Tone key) throws IllegalArgumentException {
+    ViewQueryBuilder vQB = new ViewQueryBuilder();
+    vQB.insertCriteria("Key", this.requireModel(key, "Key not specified."));
+
+    return this.createViews("KEY", vQB.compileViewQuery());
+  }
+
+  public List<ViewTable> scaleAnalytics(Tone key, String scaleString)
+      throws IllegalArgumentException {
+    return this.scaleAnalytics(
+        this.parseScale(this.requireModel(key, "Key not specified.").toString(), scaleString));
+  }
+
+  public List<ViewTable> scaleAnalytics(Scale scale) throws IllegalArgumentException {
+    ViewQueryBuilder vQB = new ViewQueryBuilder();
+    vQB.insertCriteria("Scale", this.requireModel(scale, "Scale not specified."));
+
+    return this.createViews("SCALE", vQB.compileViewQuery());
+  }
+
+  public List<ViewTable> guitar(ToneGroupObject toneGroupObject)
+      throws IllegalArgumentException {
+    return this.guitar(toneGroupObject, null);
+  }
+
+  public List<ViewTable> guitar(ToneGroupObject toneGroupObject, Fretboard fretboard)
+      throws IllegalArgumentException {
+    ViewQueryBuilder vQB = new ViewQueryBuilder();
+    vQB.insertCriteria("ToneGroupObject",
+        this.requireModel(toneGroupObject, "Either a scale, or a chord must be specified."));
+    if (fretboard != null) {
+      vQB.insertCriteria(FretboardViewFactory.FRETBOARD_CRITERIA, fretboard);
+    }
+
+    return this.createViews((fretboard == null) ? "GUITAR" : "FRETBOARD",
+        vQB.compileViewQuery());
+  }
+
+  public void validate(AnalyticRequest request) throws IllegalArgumentException {
+    this.planQuery(request);
+  }
+
+  /*
+   * Plans a request once, so a caller can reject it before opening any output and then render the
+   * same plan without parsing the request again.
+   */
+  public QueryPlan plan(AnalyticRequest request) throws IllegalArgumentException {
+    return new QueryPlan(this.planQuery(request));
+  }
+
+  public List<ViewTable> query(AnalyticRequest request) throws IllegalArgumentException {
+    List<ViewTable> viewTables = new ArrayList<>();
+
+    for (AnalyticTask task : this.planQuery(request)) {
+      AnalyticCacheEntry cacheEntry = this.cachedEntry(task);
+      viewTables.add((cacheEntry == null) ? this.buildView(task) : cacheEntry.getViewTable());
+    }
+
+    return viewTables;
+  }
+
+  public List<OutputForm> render(AnalyticRequest request) throws IllegalArgumentException {
+    return this.render(this.plan(request));
+  }
+
+  public List<OutputForm> render(QueryPlan queryPlan) throws IllegalArgumentException {
+    List<OutputForm> views = new ArrayList<>();
+
+    try {
+      this.render(queryPlan, views::add);
+    }
+    catch (IOException iOE) {
+      throw new UncheckedIOException(iOE);
+    }
+
+    return views;
+  }
+
+  public void render(AnalyticRequest request, RenderPipeline.ViewSink viewSink)
+      throws IllegalArgumentException, IOException {
+    this.render(this.plan(request), viewSink);
+  }
+
+  public void render(QueryPlan queryPlan, RenderPipeline.ViewSink viewSink)
+      throws IllegalArgumentException, IOException {
+    if (queryPlan.tasks.size() > 1) {
+      this.renderPipeline.run(queryPlan.tasks, viewSink);
+      return;
+    }
+
+    for (OutputForm outputForm : this.renderTasks(queryPlan.tasks)) {
+      viewSink.write(outputForm);
+    }
+  }
+
+  public void write(AnalyticRequest request, WritableByteChannel channel)
+      throws IllegalArgumentException, IOException {
+    List<OutputForm> views = this.render(request);
+
+    if (request.getOutputFormat().isSpreadsheet()) {
+      ByteArrayOutputStream workbookBytes = new ByteArrayOutputStream();
+      SpreadsheetWriter.writeTables(workbookBytes,
+          request.getOutputFormat() == OutputFormat.XLSX, "Table", views);
+      this.writeFully(channel, ByteBuffer.wrap(workbookBytes.toByteArray()));
+    }
+    else if (channel instanceof GatheringByteChannel) {
+      ChannelOutputWriter.writeBytes((GatheringByteChannel) channel, views);
+    }
+    else {
+      for (OutputForm view : views) {
+        this.writeFully(channel, ByteBuffer.wrap(view.getByteArray()));
+      }
+    }
+  }
+
+  public CompletableFuture<List<ViewTable>> queryAsync(AnalyticRequest request) {
+    return this.queryAsync(request, ForkJoinPool.commonPool());
+  }
+
+  public CompletableFuture<List<ViewTable>> queryAsync(AnalyticRequest request,
+      Executor executor) {
+    return CompletableFuture.supplyAsync(() -> this.query(request), executor);
+  }
+
+  public CompletableFuture<List<OutputForm>> renderAsync(AnalyticRequest request) {
+    return this.renderAsync(request, ForkJoinPool.commonPool());
+  }
+
+  public CompletableFuture<List<OutputForm>> renderAsync(AnalyticRequest request,
+      Executor executor) {
+    return CompletableFuture.supplyAsync(() -> this.render(request), executor);
+  }
+
+  public CompletableFuture<Void> writeAsync(AnalyticRequest request, WritableByteChannel channel,
+      Executor executor) {
+    return CompletableFuture.runAsync(() -> {
+      try {
+        this.write(request, channel);
+      }
+      catch (IOException iOE) {
+        throw new UncheckedIOException(iOE);
+      }
+    }, executor);
+  }
+
+  private void writeFully(WritableByteChannel channel, ByteBuffer source) throws IOException {
+    while (source.hasRemaining()) {
+      channel.write(source);
+    }
+  }
+
+  private List<ViewTable> createViews(String typeRequest, ViewQuery viewQuery)
+      throws IllegalArgumentException {
+    List<ViewTable> viewTables = new ArrayList<>();
+
+    for (Analytic analytic : this.analyticRegistry.getAnalytics(typeRequest)) {
+      viewTables.add(this.analyticRegistry.createView(analytic, viewQuery));
+    }
+
+    return viewTables;
+  }
+
+  private List<OutputForm> renderTasks(List<AnalyticTask> tasks)
+      throws IllegalArgumentException {
+    List<OutputForm> views = new ArrayList<>();
+
+    for (AnalyticTask task : tasks) {
+      OutputForm outputForm = this.cachedView(task);
+      views.add((outputForm == null) ? this.renderView(task, this.buildView(task)) : outputForm);
+    }
+
+    return views;
+  }
+
+  List<AnalyticTask> planQuery(AnalyticRequest request) throws IllegalArgumentException {
+    String typeRequest = this.validateType(request.getType());
+    OutputFormat outputFormat = request.getOutputFormat();
+    RenderContext renderContext = new RenderContext(typeRequest, outputFormat,
+        this.selectAndCreateOuputFormFactory(outputFormat));
+
+    switch (typeRequest) {
+      case "KEY":
+        return this.parseAndPlanKeyAnalytics(request.getKey(), renderContext);
+      case "SCALE":
+        return this.parseAndPlanScaleAnalytics(request.getKey(), request.getScale(),
+            renderContext);
+      case "GUITAR":
+        return this.parseAndPlanGuitarAnalytic(request.getKey(), request.getScale(),
+            request.getChord(),
+            this.parseAndValidateFretboard(request.getTuning(), request.getFrets()),
+            renderContext);
+      case "VOICING":
+        return this.parseAndPlanVoicingAnalytic(request, renderContext);
+      case "VOICELEAD":
+        return this.parseAndPlanVoiceLeadAnalytic(request, renderContext);
+      case "MATRIX":
+        return this.parseAndPlanMatrixAnalytic(request.getKey(), request.getScale(),
+            renderContext);
+      case "CONTAINS":
+        return this.parseAndPlanContainsAnalytic(request.getTones(), renderContext);
+      case "PROGRESSION":
+      case "DETECT":
+        throw new IllegalArgumentException(
+            "Streamed analytics read from --input and run as a single query.");
+      default:
+        throw new IllegalArgumentException("Unexpected run type.");
+    }
+  }
+
+  private String validateType(String typeRequest) throws IllegalArgumentException {
+    if (typeRequest == null) {
+      throw new IllegalArgumentException("Run type not specified.");
+    }
+
+    return typeRequest;
+  }
+
+  private OutputFormFactory selectAndCreateOuputFormFactory(OutputFormat outputFormat) {
+    switch (outputFormat) {
+      case CSV:
+      case XLS:
+      case XLSX:
+        return new CSVOutputFormFactory();
+      case BIN:
+        return new BinaryOutputFormFactory();
+      case TXT:
+        return new TabularTextOutputFormFactory();
+      default:
+        return new TabularTextOutputFormFactory();
+    }
+  }
+
+  private List<AnalyticTask> parseAndPlanKeyAnalytics(String keyRequest,
+      RenderContext renderContext) throws IllegalArgumentException {
+    String keyString = this.canonicalKeyName(keyRequest);
+    List<AnalyticTask> tasks = new ArrayList<>();
+    LazyViewQuery viewQuery = new LazyViewQuery(() -> {
+      ViewQueryBuilder vQB = new ViewQueryBuilder();
+      vQB.insertCriteria("Key", this.parseKey(keyString));
+      return vQB.compileViewQuery();
+    });
+
+    for (Analytic analytic : this.analyticRegistry.getAnalytics("KEY")) {
+      tasks.add(new AnalyticTask(renderContext.cacheKey(keyString, null, analytic), analytic,
+          viewQuery, renderContext));
+    }
+
+    return tasks;
+  }
+
+  private List<AnalyticTask> parseAndPlanScaleAnalytics(String keyRequest, String scaleRequest,
+      RenderContext renderContext) throws IllegalArgumentException {
+    String keyString = this.canonicalKeyName(keyRequest);
+    String scaleString = this.canonicalScaleName(scaleRequest);
+    List<AnalyticTask> tasks = new ArrayList<>();
+    LazyViewQuery viewQuery = new LazyViewQuery(() -> {
+      ViewQueryBuilder vQB = new ViewQueryBuilder();
+      vQB.insertCriteria("Scale", this.parseScale(keyString, scaleString));
+      return vQB.compileViewQuery();
+    });
+
+    for (Analytic analytic : this.analyticRegistry.getAnalytics("SCALE")) {
+      tasks.add(new AnalyticTask(renderContext.cacheKey(keyString, scaleString, analytic),
+          analytic, viewQuery, renderContext));
+    }
+
+    return tasks;
+  }
+
+  private String getQueryType(String keyString, String scaleString, String chordString)
+      throws IllegalArgumentException {
+    if (keyString == null) {
+      throw new IllegalArgumentException("Key must be specified for Guitar analytic.");
+    }
+    if ((scaleString == null) == (chordString == null)) {
+      throw new IllegalArgumentException(
+          "Either a scale, or a chord must be specified for a Guitar analytic.");
+    }
+
+    return (scaleString != null) ? "SCALE" : "CHORD";
+  }
+
+  private Fretboard parseAndValidateFretboard(String tuningString, Integer fretCount)
+      throws IllegalArgumentException {
+    if ((tuningString == null) && (fretCount == null)) {
+      return null;
+    }
+
+    Tuning tuning = (tuningString == null) ? Tuning.STANDARD : Tuning.parse(tuningString);
+
+    return new Fretboard(tuning, (fretCount == null) ? DEFAULT_FRET_COUNT : fretCount);
+  }
+
+  private List<AnalyticTask> parseAndPlanGuitarAnalytic(String keyRequest, String scaleRequest,
+      String chordRequest, Fretboard fretboard, RenderContext renderContext)
+      throws IllegalArgumentException {
+    String queryType = getQueryType(keyRequest, scaleRequest, chordRequest);
+    String keyString = this.canonicalKeyName(keyRequest);
+    String scaleString = (scaleRequest == null) ? null : this.canonicalScaleName(scaleRequest);
+    String chordString = (chordRequest == null) ? null : this.canonicalChordName(chordRequest);
+    String subjectString = null;
+    LazyViewQuery viewQuery = null;
+
+    switch (queryType) {
+      case "CHORD":
+        subjectString = "CHORD " + chordString;
+        viewQuery = new LazyViewQuery(() -> {
+          ViewQueryBuilder vQB = new ViewQueryBuilder();
+          Chord chord = this.parseChord(keyString, chordString);
+          vQB.insertCriteria("ToneGroupObject", chord);
+          if (fretboard != null) {
+            vQB.insertCriteria(FretboardViewFactory.FRETBOARD_CRITERIA, fretboard);
+          }
+          return vQB.compileViewQuery();
+        });
+        break;
+      case "SCALE":
+        subjectString = "SCALE " + scaleString;
+        viewQuery = new LazyViewQuery(() -> {
+          ViewQueryBuilder vQB = new ViewQueryBuilder();
+          Scale scale = this.parseScale(keyString, scaleString);
+          vQB.insertCriteria("ToneGroupObject", scale);
+          if (fretboard != null) {
+            vQB.insertCriteria(FretboardViewFactory.FRETBOARD_CRITERIA, fretboard);
+          }
+          return vQB.compileViewQuery();
+        });
+        break;
+      default:
+        throw new IllegalArgumentException("No query parameters specified");
+    }
+
+    String analyticType = "GUITAR";
+    if (fretboard != null) {
+      analyticType = "FRETBOARD";
+      subjectString = subjectString + " " + fretboard.getTuning().getName() + " "
+          + fretboard.getFretCount();
+    }
+
+    List<AnalyticTask> tasks = new ArrayList<>();
+    for (Analytic analytic : this.analyticRegistry.getAnalytics(analyticType)) {
+      tasks.add(new AnalyticTask(renderContext.cacheKey(keyString, subjectString, analytic),
+          analytic, viewQuery, renderContext));
+    }
+
+    return tasks;
+  }
+
+  private List<AnalyticTask> parseAndPlanVoicingAnalytic(AnalyticRequest request,
+      RenderContext renderContext) throws IllegalArgumentException {
+    if ((request.getKey() == null) || (request.getChord() == null)) {
+      throw new IllegalArgumentException("Key and chord must be specified for Voicing analytic.");
+    }
+
+    String keyString = this.canonicalKeyName(request.getKey());
+    String chordString = this.canonicalChordName(request.getChord());
+
+    Fretboard requestedFretboard =
+        this.parseAndValidateFretboard(request.getTuning(), request.getFrets());
+    Fretboard fretboard = (requestedFretboard == null)
+        ? new Fretboard(Tuning.STANDARD, DEFAULT_FRET_COUNT)
+        : requestedFretboard;
+    VoicingConstraints constraints =
+        new VoicingConstraints(request.getLimit(), request.getSpan(), request.isRootInBass());
+    String subjectString = "CHORD " + chordString + " " + fretboard.getTuning().getName() + " "
+        + fretboard.getFretCount() + " " + constraints.toString();
+    LazyViewQuery viewQuery = new LazyViewQuery(() -> {
+      ViewQueryBuilder vQB = new ViewQueryBuilder();
+      vQB.insertCriteria("ToneGroupObject", this.parseChord(keyString, chordString));
+      vQB.insertCriteria(FretboardViewFactory.FRETBOARD_CRITERIA, fretboard);
+      vQB.insertCriteria(VoicingViewFactory.CONSTRAINTS_CRITERIA, constraints);
+      return vQB.compileViewQuery();
+    });
+
+    List<AnalyticTask> tasks = new ArrayList<>();
+    for (Analytic analytic : this.analyticRegistry.getAnalytics("VOICING")) {
+      tasks.add(new AnalyticTask(renderContext.cacheKey(keyString, subjectString, analytic),
+          analytic, viewQuery, renderContext));
+    }
+
+    return tasks;
+  }
+
+  private List<AnalyticTask> parseAndPlanVoiceLeadAnalytic(AnalyticRequest request,
+      RenderContext renderContext) throws IllegalArgumentException {
+    if ((request.getKey() == null) || (request.getProgression() == null)) {
+      throw new IllegalArgumentException(
+          "Key and progression must be specified for Voice leading analytic.");
+    }
+    if ((request.getPaths() < 1) || (request.getPaths() > VoiceLeadingViewFactory.MAX_PATHS)) {
+      throw new IllegalArgumentException(
+          "Paths must be between 1 and " + VoiceLeadingViewFactory.MAX_PATHS + ".");
+    }
+
+    String keyString = this.canonicalKeyName(request.getKey());
+    String scaleString =
+        this.canonicalScaleName((request.getScale() == null) ? "Major" : request.getScale());
+    String[] symbols = ChordSymbols.split(request.getProgression());
+    String[][] chordNames = new String[symbols.length][];
+    for (int step = 0; step < symbols.length; step++) {
+      String[] parsedSymbol = ChordSymbols.parse(symbols[step]);
+      chordNames[step] = new String[] {this.canonicalKeyName(parsedSymbol[0]),
+          this.canonicalChordName(parsedSymbol[1])};
+    }
+
+    Fretboard requestedFretboard =
+        this.parseAndValidateFretboard(request.getTuning(), request.getFrets());
+    Fretboard fretboard = (requestedFretboard == null)
+        ? new Fretboard(Tuning.STANDARD, DEFAULT_FRET_COUNT)
+        : requestedFretboard;
+    VoicingConstraints constraints =
+        new VoicingConstraints(request.getLimit(), request.getSpan(), request.isRootInBass());
+    String subjectString = "PROGRESSION " + scaleString + " " + String.join(" ", symbols) + " "
+        + fretboard.getTuning().getName() + " " + fretboard.getFretCount() + " "
+        + constraints.toString() + " " + request.getPaths();
+    LazyViewQuery viewQuery = new LazyViewQuery(() -> {
+      ToneGroupObject[] progression = new ToneGroupObject[symbols.length];
+      String[] numerals = new String[symbols.length];
+      ProgressionAnalyzer progressionAnalyzer = new ProgressionAnalyzer(
+          PitchClasses.pitchClassOf(keyString),
+          PitchClasses.maskOf(this.parseScale(keyString, scaleString)));
+      for (int step = 0; step < symbols.length; step++) {
+        progression[step] = this.parseChord(chordNames[step][0], chordNames[step][1]);
+        ByteBuffer symbolBytes = ByteBuffer.wrap(symbols[step].getBytes(StandardCharsets.UTF_8));
+        numerals[step] = new String(progressionAnalyzer
+            .analyze(symbolBytes, 0, symbolBytes.limit()).getNumeral(), StandardCharsets.UTF_8);
+      }
+
+      ViewQueryBuilder vQB = new ViewQueryBuilder();
+      vQB.insertCriteria(VoiceLeadingViewFactory.PROGRESSION_CRITERIA, progression);
+      vQB.insertCriteria(VoiceLeadingViewFactory.SYMBOLS_CRITERIA, symbols);
+      vQB.insertCriteria(VoiceLeadingViewFactory.NUMERALS_CRITERIA, numerals);
+      vQB.insertCriteria(VoiceLeadingViewFactory.PATHS_CRITERIA, request.getPaths());
+      vQB.insertCriteria(FretboardViewFactory.FRETBOARD_CRITERIA, fretboard);
+      vQB.insertCriteria(VoicingViewFactory.CONSTRAINTS_CRITERIA, constraints);
+      return vQB.compileViewQuery();
+    });
+
+    List<AnalyticTask> tasks = new ArrayList<>();
+    for (Analytic analytic : this.analyticRegistry.getAnalytics("VOICELEAD")) {
+      tasks.add(new AnalyticTask(renderContext.cacheKey(keyString, subjectString, analytic),
+          analytic, viewQuery, renderContext));
+    }
+
+    return tasks;
+  }
+
+  private List<AnalyticTask> parseAndPlanMatrixAnalytic(String keyString, String scaleString,
+      RenderContext renderContext) throws IllegalArgumentException {
+    String keyFilter = this.matrixKeyFilter(keyString);
+    String scaleFilter = this.matrixScaleFilter(scaleString);
+    LazyViewQuery viewQuery = new LazyViewQuery(() -> {
+      ViewQueryBuilder vQB = new ViewQueryBuilder();
+      vQB.insertCriteria(MatrixViewFactory.KEY_CRITERIA, keyFilter);
+      vQB.insertCriteria(MatrixViewFactory.SCALE_CRITERIA, scaleFilter);
+      return vQB.compileViewQuery();
+    });
+
+    List<AnalyticTask> tasks = new ArrayList<>();
+    for (Analytic analytic : this.analyticRegistry.getAnalytics("MATRIX")) {
+      tasks.add(new AnalyticTask(renderContext.cacheKey(keyFilter, scaleFilter, analytic),
+          analytic, viewQuery, renderContext));
+    }
+
+    return tasks;
+  }
+
+  public String matrixKeyFilter(String filterString) {
+    return (filterString == null) ? null : this.canonicalKeyName(filterString);
+  }
+
+  public String matrixScaleFilter(String filterString) {
+    return (filterString == null) ? null : this.canonicalScaleName(filterString);
+  }
+
+  private List<AnalyticTask> parseAndPlanContainsAnalytic(String tonesString,
+      RenderContext renderContext) throws IllegalArgumentException {
+    int pitchClassMask = PitchClasses.parseMask(tonesString);
+    String subjectString = PitchClasses.toString(pitchClassMask);
+    LazyViewQuery viewQuery = new LazyViewQuery(() -> {
+      ViewQueryBuilder vQB = new ViewQueryBuilder();
+      vQB.insertCriteria(PitchClassSetViewFactory.CRITERIA, pitchClassMask);
+      return vQB.compileViewQuery();
+    });
+
+    List<AnalyticTask> tasks = new ArrayList<>();
+    for (Analytic analytic : this.analyticRegistry.getAnalytics("CONTAINS")) {
+      tasks.add(new AnalyticTask(renderContext.cacheKey("", subjectString, analytic),
+          analytic, viewQuery, renderContext));
+    }
+
+    return tasks;
+  }
+
+  private String require(String request, String message) throws IllegalArgumentException {
+    if (request == null) {
+      throw new IllegalArgumentException(message);
+    }
+
+    return request;
+  }
+
+  private <T> T requireModel(T model, String message) throws IllegalArgumentException {
+    if (model == null) {
+      throw new IllegalArgumentException(message);
+    }
+
+    return model;
+  }
+
+  private Scale parseAndRenderUnlistedScale(String keyName, String scaleName) {
+    try {
+      return this.parseAndRenderScale(keyName, scaleName);
+    }
+    catch (RuntimeException rE) {
+      return null;
+    }
+  }
+
+  private Chord parseAndRenderUnlistedChord(String keyName, String chordName) {
+    try {
+      return this.parseAndRenderChord(keyName, chordName);
+    }
+    catch (RuntimeException rE) {
+      return null;
+    }
+  }
+
+  private Scale parseAndRenderScale(String keyRequest, String scaleRequest) {
+    String modelKey = keyRequest + "|" + AnalyticCacheKey.normalize(scaleRequest);
+    Scale scaleRendered = this.scaleModels.get(modelKey);
+
+    if (scaleRendered == null) {
+      ScaleHelper helper = ScaleHelper.getInstance();
+      scaleRendered = helper.getScale(keyRequest, scaleRequest);
+      this.rememberModel(this.scaleModels, modelKey, scaleRendered);
+    }
+
+    return scaleRendered;
+  }
+
+  private Chord parseAndRenderChord(String keyRequest, String chordRequest) {
+    String modelKey = keyRequest + "|" + AnalyticCacheKey.normalize(chordRequest);
+    Chord chordRendered = this.chordModels.get(modelKey);
+
+    if (chordRendered == null) {
+      ChordHelper helper = ChordHelper.getInstance();
+      chordRendered = helper.getChord(keyRequest, chordRequest);
+      this.rememberModel(this.chordModels, modelKey, chordRendered);
+    }
+
+    return chordRendered;
+  }
+
+  private <T> void rememberModel(ConcurrentMap<String, T> models, String modelKey, T model) {
+    if ((model != null) && (models.size() < MAX_REMEMBERED_MODELS)) {
+      models.putIfAbsent(modelKey, model);
+    }
+  }
+
+  private AnalyticCacheEntry cachedEntry(AnalyticTask task) {
+    BoundedLruCache<AnalyticCacheKey, AnalyticCacheEntry> cache = this.analyticCache;
+
+    return (cache == null) ? null : cache.get(task.cacheKey);
+  }
+
+  OutputForm cachedView(AnalyticTask task) {
+    AnalyticCacheEntry cacheEntry = this.cachedEntry(task);
+
+    return (cacheEntry == null) ? null : cacheEntry.getOutputForm();
+  }
+
+  private static Map<Analytic, String> viewStages() {
+    Map<Analytic, String> viewStages = new EnumMap<>(Analytic.class);
+
+    for (Analytic analytic : Analytic.values()) {
+      viewStages.put(analytic, StageMetrics.VIEW + analytic.name());
+    }
+
+    return viewStages;
+  }
+
+  ViewTable buildView(AnalyticTask task) throws IllegalArgumentException {
+    ViewQuery query = task.viewQuery.get();
+    StageMetrics.Span viewSpan = this.stageMetrics.start(VIEW_STAGES.get(task.analytic));
+    ViewTable viewTable = this.analyticRegistry.createView(task.analytic, query);
+    viewSpan.stop();
+
+    return viewTable;
+  }
+
+  OutputForm renderView(AnalyticTask task, ViewTable viewTable) {
+    StageMetrics.Span renderSpan = this.stageMetrics.start(StageMetrics.RENDER);
+    OutputForm outputForm = task.renderContext.outputFormFactory.renderView(viewTable);
+    renderSpan.stop();
+
+    BoundedLruCache<AnalyticCacheKey, AnalyticCacheEntry> cache = this.analyticCache;
+    if (cache != null) {
+      cache.put(task.cacheKey, new AnalyticCacheEntry(viewTable, outputForm));
+    }
+
+    return outputForm;
+  }
+
+  public static class QueryPlan {
+    private final List<AnalyticTask> tasks;
+
+    QueryPlan(List<AnalyticTask> tasks) {
+      this.tasks = tasks;
+    }
+  }
+
+  class RenderContext {
+    final String typeRequest;
+    final OutputFormat outputFormat;
+    final OutputFormFactory outputFormFactory;
+
+    RenderContext(String typeRequest, OutputFormat outputFormat,
+        OutputFormFactory outputFormFactory) {
+      this.typeRequest = typeRequest;
+      this.outputFormat = outputFormat;
+      this.outputFormFactory = outputFormFactory;
+    }
+
+    AnalyticCacheKey cacheKey(String keyString, String subjectString, Analytic analytic) {
+      return new AnalyticCacheKey(typeRequest, keyString, subjectString, analytic, outputFormat);
+    }
+  }
+
+  class AnalyticTask {
+    final AnalyticCacheKey cacheKey;
+    final Analytic analytic;
+    final LazyViewQuery viewQuery;
+    final RenderContext renderContext;
+
+    AnalyticTask(AnalyticCacheKey cacheKey, Analytic analytic, LazyViewQuery viewQuery,
+        RenderContext renderContext) {
+      this.cacheKey = cacheKey;
+      this.analytic = analytic;
+      this.viewQuery = viewQuery;
+      this.renderContext = renderContext;
+    }
+  }
+
+  class LazyViewQuery implements Supplier<ViewQuery> {
+    private final Supplier<ViewQuery> viewQuerySupplier;
+    private ViewQuery viewQuery = null;
+
+    LazyViewQuery(Supplier<ViewQuery> viewQuerySupplier) {
+      this.viewQuerySupplier = viewQuerySupplier;
+    }
+
+    @Override
+    public ViewQuery get() {
+      if (viewQuery == null) {
+        StageMetrics.Span parseSpan = stageMetrics.start(StageMetrics.PARSE);
+        viewQuery = viewQuerySupplier.get();
+        parseSpan.stop();
+      }
+
+      return viewQuery;
+    }
+  }
+}
@@ -0,0 +1,192 @@
+package com.gkaraffa.amati.engine;
+
+import com.gkaraffa.amati.control.OutputFormat;
+import com.gkaraffa.amati.fretboard.VoiceLeadingViewFactory;
+import com.gkaraffa.amati.fretboard.VoicingConstraints;
+
+public final class AnalyticRequest {
+  private final String type;
+  private final String key;
+  private final String scale;
+  private final String chord;
+  private final String tuning;
+  private final Integer frets;
+  private final int limit;
+  private final int span;
+  private final boolean rootInBass;
+  private final String tones;
+  private final String progression;
+  private final int paths;
+  private final OutputFormat outputFormat;
+
+  private AnalyticRequest(Builder builder) {
+    this.type = builder.type;
+    this.key = builder.key;
+    this.scale = builder.scale;
+    this.chord = builder.chord;
+    this.tuning = builder.tuning;
+    this.frets = builder.frets;
+    this.limit = builder.limit;
+    this.span = builder.span;
+    this.rootInBass = builder.rootInBass;
+    this.tones = builder.tones;
+    this.progression = builder.progression;
+    this.paths = builder.paths;
+    this.outputFormat = builder.outputFormat;
+  }
+
+  public static Builder builder(String type) {
+    return new Builder().type(type);
+  }
+
+  public Builder toBuilder() {
+    return new Builder().type(type).key(key).scale(scale).chord(chord).tuning(tuning)
+        .frets(frets).limit(limit).span(span).rootInBass(rootInBass).tones(tones)
+        .progression(progression).paths(paths).outputFormat(outputFormat);
+  }
+
+  public String getType() {
+    return type;
+  }
+
+  public String getKey() {
+    return key;
+  }
+
+  public String getScale() {
+    return scale;
+  }
+
+  public String getChord() {
+    return chord;
+  }
+
+  public String getTuning() {
+    return tuning;
+  }
+
+  public Integer getFrets() {
+    return frets;
+  }
+
+  public int getLimit() {
+    return limit;
+  }
+
+  public int getSpan() {
+    return span;
+  }
+
+  public boolean isRootInBass() {
+    return rootInBass;
+  }
+
+  public String getTones() {
+    return tones;
+  }
+
+  public String getProgression() {
+    return progression;
+  }
+
+  public int getPaths() {
+    return paths;
+  }
+
+  public OutputFormat getOutputFormat() {
+    return outputFormat;
+  }
+
+  @Override
+  public String toString() {
+    return type + "/" + key + "/" + scale + "/" + chord + "/" + outputFormat;
+  }
+
+  public static final class Builder {
+    private String type;
+    private String key;
+    private String scale;
+    private String chord;
+    private String tuning;
+    private Integer frets;
+    private int limit = VoicingConstraints.DEFAULT_LIMIT;
+    private int span = VoicingConstraints.DEFAULT_SPAN;
+    private boolean rootInBass = false;
+    private String tones;
+    private String progression;
+    private int paths = VoiceLeadingViewFactory.DEFAULT_PATHS;
+    private OutputFormat outputFormat = OutputFormat.TXT;
+
+    private Builder() {
+    }
+
+    public Builder type(String type) {
+      this.type = (type == null) ? null : type.trim().toUpperCase();
+      return this;
+    }
+
+    public Builder key(String key) {
+      this.key = key;
+      return this;
+    }
+
+    public Builder scale(String scale) {
+      this.scale = scale;
+      return this;
+    }
+
+    public Builder chord(String chord) {
+      this.chord = chord;
+      return this;
+    }
+
+    public Builder tuning(String tuning) {
+      this.tuning = tuning;
+      return this;
+    }
+
+    public Builder frets(Integer frets) {
+      this.frets = frets;
+      return this;
+    }
+
+    public Builder limit(int limit) {
+      this.limit = limit;
+      return this;
+    }
+
+    public Builder span(int span) {
+      this.span = span;
+      return this;
+    }
+
+    public Builder rootInBass(boolean rootInBass) {
+      this.rootInBass = rootInBass;
+      return this;
+    }
+
+    public Builder tones(String tones) {
+      this.tones = tones;
+      return this;
+    }
+
+    public Builder progression(String progression) {
+      this.progression = progression;
+      return this;
+    }
+
+    public Builder paths(int paths) {
+      this.paths = paths;
+      return this;
+    }
+
+    public Builder outputFormat(OutputFormat outputFormat) {
+      this.outputFormat = (outputFormat == null) ? OutputFormat.TXT : outputFormat;
+      return this;
+    }
+
+    public AnalyticRequest build() {
+      return new AnalyticRequest(this);
+    }
+  }
+}
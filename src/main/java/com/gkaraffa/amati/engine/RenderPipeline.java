@@ -0,0 +1,203 @@
+package com.gkaraffa.amati.engine;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.gkaraffa.amati.engine.AmatiEngine.AnalyticTask;
+import com.gkaraffa.guarneri.outputform.OutputForm;
+import com.gkaraffa.guarneri.view.ViewTable;
+
+/*
+ * Three stages joined by bounded queues: the calling thread builds each view table, a render
+ * thread formats tables as they arrive, and a writer thread hands each form to the sink. Every
+ * stage is a single thread and the queues are FIFO, so output order is the task order without
+ * any sequencing, the first table is written while later ones are still being built, and at
+ * most a queue's worth of tables is held in memory at once. The stages run on a cached pool of
+ * daemon threads owned by the pipeline, so repeated and concurrent runs reuse idle stage threads
+ * instead of starting two new ones per call.
+ */
+public class RenderPipeline {
+  private static final int DEFAULT_CAPACITY = 4;
+  private static final PipelineItem END = new PipelineItem(null, null, null);
+
+  private final AmatiEngine engine;
+  private final int capacity;
+  private final ExecutorService stageExecutor = Executors.newCachedThreadPool(stageThreads());
+
+  public RenderPipeline(AmatiEngine engine) {
+    this(engine, DEFAULT_CAPACITY);
+  }
+
+  public RenderPipeline(AmatiEngine engine, int capacity) {
+    this.engine = engine;
+    this.capacity = capacity;
+  }
+
+  public interface ViewSink {
+    void write(OutputForm outputForm) throws IOException;
+  }
+
+  private static ThreadFactory stageThreads() {
+    AtomicInteger threadNumber = new AtomicInteger();
+
+    return runnable -> {
+      Thread thread = new Thread(runnable, "amati-stage-" + threadNumber.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    };
+  }
+
+  public void run(List<AnalyticTask> tasks, ViewSink viewSink) throws IOException {
+    BlockingQueue<PipelineItem> renderQueue = new ArrayBlockingQueue<>(this.capacity);
+    BlockingQueue<PipelineItem> writeQueue = new ArrayBlockingQueue<>(this.capacity);
+    AtomicReference<Throwable> failure = new AtomicReference<>();
+    Future<?> renderStage =
+        this.stageExecutor.submit(() -> this.render(renderQueue, writeQueue, failure));
+    Future<?> writeStage =
+        this.stageExecutor.submit(() -> this.write(writeQueue, viewSink, failure));
+
+    try {
+      for (AnalyticTask task : tasks) {
+        if (failure.get() != null) {
+          break;
+        }
+
+        OutputForm outputForm = this.engine.cachedView(task);
+        ViewTable viewTable = (outputForm == null) ? this.engine.buildView(task) : null;
+        this.offer(renderQueue, new PipelineItem(task, viewTable, outputForm), failure);
+      }
+    }
+    catch (RuntimeException rE) {
+      failure.compareAndSet(null, rE);
+    }
+    finally {
+      this.offer(renderQueue, END, null);
+      this.join(renderStage, failure);
+      this.join(writeStage, failure);
+    }
+
+    this.rethrow(failure.get());
+  }
+
+  private void render(BlockingQueue<PipelineItem> renderQueue,
+      BlockingQueue<PipelineItem> writeQueue, AtomicReference<Throwable> failure) {
+    try {
+      PipelineItem item;
+
+      while ((item = renderQueue.take()) != END) {
+        if (failure.get() != null) {
+          continue;
+        }
+
+        OutputForm outputForm = (item.outputForm != null) ? item.outputForm
+            : this.engine.renderView(item.task, item.viewTable);
+        this.offer(writeQueue, new PipelineItem(item.task, null, outputForm), failure);
+      }
+    }
+    catch (InterruptedException iE) {
+      failure.compareAndSet(null, iE);
+    }
+    catch (RuntimeException rE) {
+      failure.compareAndSet(null, rE);
+      this.drain(renderQueue);
+    }
+    finally {
+      this.offer(writeQueue, END, null);
+    }
+  }
+
+  private void write(BlockingQueue<PipelineItem> writeQueue, ViewSink viewSink,
+      AtomicReference<Throwable> failure) {
+    try {
+      PipelineItem item;
+
+      while ((item = writeQueue.take()) != END) {
+        if (failure.get() == null) {
+          viewSink.write(item.outputForm);
+        }
+      }
+    }
+    catch (InterruptedException iE) {
+      failure.compareAndSet(null, iE);
+    }
+    catch (IOException iOE) {
+      failure.compareAndSet(null, iOE);
+      this.drain(writeQueue);
+    }
+    catch (RuntimeException rE) {
+      failure.compareAndSet(null, rE);
+      this.drain(writeQueue);
+    }
+  }
+
+  private void drain(BlockingQueue<PipelineItem> queue) {
+    try {
+      while (queue.take() != END) {
+        continue;
+      }
+    }
+    catch (InterruptedException iE) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void offer(BlockingQueue<PipelineItem> queue, PipelineItem item,
+      AtomicReference<Throwable> failure) {
+    try {
+      queue.put(item);
+    }
+    catch (InterruptedException iE) {
+      Thread.currentThread().interrupt();
+      if (failure != null) {
+        failure.compareAndSet(null, iE);
+      }
+    }
+  }
+
+  private void join(Future<?> stage, AtomicReference<Throwable> failure) {
+    try {
+      stage.get();
+    }
+    catch (InterruptedException iE) {
+      Thread.currentThread().interrupt();
+    }
+    catch (ExecutionException eE) {
+      failure.compareAndSet(null, eE.getCause());
+    }
+  }
+
+  private void rethrow(Throwable throwable) throws IOException {
+    if (throwable == null) {
+      return;
+    }
+    if (throwable instanceof IOException) {
+      throw (IOException) throwable;
+    }
+    if (throwable instanceof RuntimeException) {
+      throw (RuntimeException) throwable;
+    }
+
+    throw new IllegalStateException("Render pipeline interrupted.", throwable);
+  }
+
+  static class PipelineItem {
+    final AnalyticTask task;
+    final ViewTable viewTable;
+    final OutputForm outputForm;
+
+    PipelineItem(AnalyticTask task, ViewTable viewTable, OutputForm outputForm) {
+      this.task = task;
+      this.viewTable = viewTable;
+      this.outputForm = outputForm;
+    }
+  }
+}
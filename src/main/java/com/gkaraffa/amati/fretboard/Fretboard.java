@@ -0,0 +1,59 @@
+package com.gkaraffa.amati.fretboard;
+
+import com.gkaraffa.amati.index.PitchClasses;
+
+/*
+ * Each string is a long with bit f set when fret f sounds a pitch class of the query. The
+ * pitch-class mask is rotated to the string's open pitch class, repeated every twelve bits and
+ * clipped to the neck, so a whole string is a handful of shifts and ANDs whatever the tuning,
+ * string count or fret count.
+ */
+public class Fretboard {
+  public static final int MAX_FRETS = 36;
+  public static final int MAX_STRINGS = 12;
+
+  private final Tuning tuning;
+  private final int fretCount;
+  private final long fretRange;
+
+  public Fretboard(Tuning tuning, int fretCount) throws IllegalArgumentException {
+    if ((fretCount < 1) || (fretCount > MAX_FRETS)) {
+      throw new IllegalArgumentException("Frets must be between 1 and " + MAX_FRETS + ".");
+    }
+
+    this.tuning = tuning;
+    this.fretCount = fretCount;
+    this.fretRange = (1L << (fretCount + 1)) - 1;
+  }
+
+  public Tuning getTuning() {
+    return tuning;
+  }
+
+  public int getFretCount() {
+    return fretCount;
+  }
+
+  public long[] positions(int pitchClassMask) {
+    long[] strings = new long[tuning.getStringCount()];
+
+    for (int string = 0; string < strings.length; string++) {
+      strings[string] = this.stringPositions(pitchClassMask, tuning.getOpenPitchClass(string));
+    }
+
+    return strings;
+  }
+
+  public long stringPositions(int pitchClassMask, int openPitchClass) {
+    long pattern = PitchClasses.transpose(pitchClassMask, -openPitchClass);
+
+    pattern |= pattern << 12;
+    pattern |= pattern << 24;
+
+    return pattern & fretRange;
+  }
+
+  public static int pitchClassAt(int openPitchClass, int fret) {
+    return (openPitchClass + fret) % PitchClasses.PITCH_CLASS_COUNT;
+  }
+}
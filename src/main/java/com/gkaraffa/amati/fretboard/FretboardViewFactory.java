@@ -0,0 +1,63 @@
+package com.gkaraffa.amati.fretboard;
+
+import com.gkaraffa.amati.index.PitchClasses;
+import com.gkaraffa.amati.view.ViewTableAssembler;
+import com.gkaraffa.cremona.theoretical.ToneGroupObject;
+import com.gkaraffa.guarneri.view.ViewFactory;
+import com.gkaraffa.guarneri.view.ViewQuery;
+import com.gkaraffa.guarneri.view.ViewTable;
+
+public class FretboardViewFactory implements ViewFactory {
+  public static final String TONE_GROUP_CRITERIA = "ToneGroupObject";
+  public static final String FRETBOARD_CRITERIA = "Fretboard";
+
+  @Override
+  public ViewTable createView(ViewQuery viewQuery) throws IllegalArgumentException {
+    Object toneGroupCriteria = viewQuery.getCriteria(TONE_GROUP_CRITERIA);
+    Object fretboardCriteria = viewQuery.getCriteria(FRETBOARD_CRITERIA);
+    if (!(toneGroupCriteria instanceof ToneGroupObject)
+        || !(fretboardCriteria instanceof Fretboard)) {
+      throw new IllegalArgumentException("Invalid arguments for Guitar analytic.");
+    }
+
+    ToneGroupObject toneGroupObject = (ToneGroupObject) toneGroupCriteria;
+    Fretboard fretboard = (Fretboard) fretboardCriteria;
+    int pitchClassMask = PitchClasses.maskOf(toneGroupObject);
+    int rootPitchClass = VoicingViewFactory.rootPitchClass(toneGroupObject);
+
+    return this.assembleTable(fretboard, fretboard.positions(pitchClassMask), rootPitchClass,
+        PitchClasses.spellingsOf(toneGroupObject));
+  }
+
+  private ViewTable assembleTable(Fretboard fretboard, long[] positions, int rootPitchClass,
+      String[] spellings) {
+    Tuning tuning = fretboard.getTuning();
+    int fretCount = fretboard.getFretCount();
+    String[] headers = new String[fretCount + 2];
+    headers[0] = "String";
+    for (int fret = 0; fret <= fretCount; fret++) {
+      headers[fret + 1] = Integer.toString(fret);
+    }
+
+    ViewTableAssembler assembler = new ViewTableAssembler(headers);
+    for (int string = tuning.getStringCount() - 1; string >= 0; string--) {
+      String[] cells = new String[fretCount + 2];
+      int openPitchClass = tuning.getOpenPitchClass(string);
+      cells[0] = tuning.getStringName(string);
+
+      for (int fret = 0; fret <= fretCount; fret++) {
+        cells[fret + 1] = "";
+      }
+      for (long bits = positions[string]; bits != 0; bits &= bits - 1) {
+        int fret = Long.numberOfTrailingZeros(bits);
+        int pitchClass = Fretboard.pitchClassAt(openPitchClass, fret);
+        String toneName = spellings[pitchClass];
+        cells[fret + 1] = (pitchClass == rootPitchClass) ? "(" + toneName + ")" : toneName;
+      }
+
+      assembler.addRow(cells);
+    }
+
+    return assembler.assemble();
+  }
+}
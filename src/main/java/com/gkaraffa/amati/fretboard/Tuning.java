@@ -0,0 +1,89 @@
+package com.gkaraffa.amati.fretboard;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.gkaraffa.amati.index.PitchClasses;
+
+/*
+ * Open-string pitch classes listed from the lowest string to the highest, parsed from note
+ * strings such as EADGBE, DADGAD, BEADGCF or C#F#BEG#C#, or from a comma separated list. In a
+ * note string b is a flat only after an upper-case letter, so EbAbDbGbBbEb is flattened while
+ * eadgbe is six strings.
+ */
+public class Tuning {
+  public static final Tuning STANDARD = parse("EADGBE");
+
+  private final String name;
+  private final String[] stringNames;
+  private final int[] openPitchClasses;
+
+  private Tuning(String name, String[] stringNames, int[] openPitchClasses) {
+    this.name = name;
+    this.stringNames = stringNames;
+    this.openPitchClasses = openPitchClasses;
+  }
+
+  public static Tuning parse(String tuningString) throws IllegalArgumentException {
+    if ((tuningString == null) || tuningString.trim().isEmpty()) {
+      throw new IllegalArgumentException("Tuning not specified.");
+    }
+
+    String trimmedTuning = tuningString.trim();
+    List<String> names = trimmedTuning.contains(",")
+        ? Arrays.asList(trimmedTuning.split(","))
+        : splitNoteString(trimmedTuning);
+    if (names.isEmpty() || (names.size() > Fretboard.MAX_STRINGS)) {
+      throw new IllegalArgumentException(
+          "Tuning must have between 1 and " + Fretboard.MAX_STRINGS + " strings.");
+    }
+
+    String[] stringNames = new String[names.size()];
+    int[] openPitchClasses = new int[names.size()];
+    for (int i = 0; i < stringNames.length; i++) {
+      String stringName = names.get(i).trim();
+      openPitchClasses[i] = PitchClasses.pitchClassOf(stringName);
+      stringNames[i] = stringName.substring(0, 1).toUpperCase() + stringName.substring(1);
+    }
+
+    return new Tuning(String.join(trimmedTuning.contains(",") ? "," : "", stringNames),
+        stringNames, openPitchClasses);
+  }
+
+  private static List<String> splitNoteString(String noteString)
+      throws IllegalArgumentException {
+    List<String> names = new ArrayList<>();
+    int start = 0;
+
+    while (start < noteString.length()) {
+      boolean flatsAllowed = Character.isUpperCase(noteString.charAt(start));
+      int end = start + 1;
+      while ((end < noteString.length()) && ((noteString.charAt(end) == '#')
+          || (flatsAllowed && (noteString.charAt(end) == 'b')))) {
+        end++;
+      }
+
+      names.add(noteString.substring(start, end));
+      start = end;
+    }
+
+    return names;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public int getStringCount() {
+    return openPitchClasses.length;
+  }
+
+  public String getStringName(int string) {
+    return stringNames[string];
+  }
+
+  public int getOpenPitchClass(int string) {
+    return openPitchClasses[string];
+  }
+}
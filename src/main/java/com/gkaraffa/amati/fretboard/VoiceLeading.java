@@ -0,0 +1,217 @@
+package com.gkaraffa.amati.fretboard;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Chooses one voicing per chord so that a whole progression is as easy to play as possible. A
+ * path costs the score of every voicing on it plus, between neighbouring chords, how far each
+ * string moves: a string that keeps sounding costs its fret distance, which is also that voice's
+ * movement in semitones, and a string that starts or stops sounding costs VOICE_CHANGE_COST. The
+ * search is a k-best Viterbi: each candidate keeps its pathCount cheapest paths, with back
+ * pointers into the previous chord, in flat int arrays indexed by candidate * pathCount + rank,
+ * and a step costs candidates squared times pathCount additions.
+ */
+public class VoiceLeading {
+  public static final int VOICE_CHANGE_COST = 3;
+
+  private final int stringCount;
+  private final int pathCount;
+  private final List<List<Voicing>> candidates;
+  private final int[][] frets;
+  private final int[][] scores;
+
+  public VoiceLeading(List<List<Voicing>> candidates, int stringCount, int pathCount)
+      throws IllegalArgumentException {
+    if (candidates.isEmpty()) {
+      throw new IllegalArgumentException("Progression must contain at least one chord.");
+    }
+    if (pathCount < 1) {
+      throw new IllegalArgumentException("Path count must be at least 1.");
+    }
+
+    this.stringCount = stringCount;
+    this.pathCount = pathCount;
+    this.candidates = candidates;
+    this.frets = new int[candidates.size()][];
+    this.scores = new int[candidates.size()][];
+
+    for (int step = 0; step < candidates.size(); step++) {
+      List<Voicing> voicings = candidates.get(step);
+      if (voicings.isEmpty()) {
+        throw new IllegalArgumentException("No voicing found for chord " + (step + 1) + ".");
+      }
+
+      this.frets[step] = new int[voicings.size() * stringCount];
+      this.scores[step] = new int[voicings.size()];
+      for (int candidate = 0; candidate < voicings.size(); candidate++) {
+        Voicing voicing = voicings.get(candidate);
+        for (int string = 0; string < stringCount; string++) {
+          this.frets[step][(candidate * stringCount) + string] = voicing.getFret(string);
+        }
+        this.scores[step][candidate] = voicing.getScore();
+      }
+    }
+  }
+
+  public List<Path> solve() {
+    int stepCount = this.candidates.size();
+    int[][] costs = new int[stepCount][];
+    int[][] previousCandidates = new int[stepCount][];
+    int[][] previousRanks = new int[stepCount][];
+    int[][] rankCounts = new int[stepCount][];
+
+    for (int step = 0; step < stepCount; step++) {
+      int candidateCount = this.scores[step].length;
+      costs[step] = new int[candidateCount * this.pathCount];
+      previousCandidates[step] = new int[candidateCount * this.pathCount];
+      previousRanks[step] = new int[candidateCount * this.pathCount];
+      rankCounts[step] = new int[candidateCount];
+    }
+
+    for (int candidate = 0; candidate < this.scores[0].length; candidate++) {
+      costs[0][candidate * this.pathCount] = this.scores[0][candidate];
+      rankCounts[0][candidate] = 1;
+    }
+
+    for (int step = 1; step < stepCount; step++) {
+      int[] previousCosts = costs[step - 1];
+      int[] previousRankCounts = rankCounts[step - 1];
+
+      for (int candidate = 0; candidate < this.scores[step].length; candidate++) {
+        int offset = candidate * this.pathCount;
+        for (int previous = 0; previous < previousRankCounts.length; previous++) {
+          int stepCost = this.transition(step - 1, previous, step, candidate)
+              + this.scores[step][candidate];
+          for (int rank = 0; rank < previousRankCounts[previous]; rank++) {
+            rankCounts[step][candidate] = this.insert(costs[step], previousCandidates[step],
+                previousRanks[step], offset, rankCounts[step][candidate],
+                previousCosts[(previous * this.pathCount) + rank] + stepCost, previous, rank);
+          }
+        }
+      }
+    }
+
+    return this.collectPaths(costs[stepCount - 1], rankCounts[stepCount - 1],
+        previousCandidates, previousRanks);
+  }
+
+  private int transition(int fromStep, int fromCandidate, int toStep, int toCandidate) {
+    int[] fromFrets = this.frets[fromStep];
+    int[] toFrets = this.frets[toStep];
+    int fromOffset = fromCandidate * this.stringCount;
+    int toOffset = toCandidate * this.stringCount;
+    int cost = 0;
+
+    for (int string = 0; string < this.stringCount; string++) {
+      int fromFret = fromFrets[fromOffset + string];
+      int toFret = toFrets[toOffset + string];
+
+      if ((fromFret == Voicing.MUTED) != (toFret == Voicing.MUTED)) {
+        cost += VOICE_CHANGE_COST;
+      }
+      else if (fromFret != Voicing.MUTED) {
+        cost += Math.abs(fromFret - toFret);
+      }
+    }
+
+    return cost;
+  }
+
+  /*
+   * Keeps the ranks at offset sorted by cost; a tie goes to the entry inserted first, which makes
+   * the paths independent of anything but candidate order.
+   */
+  private int insert(int[] costs, int[] previousCandidates, int[] previousRanks, int offset,
+      int count, int cost, int previousCandidate, int previousRank) {
+    if ((count == this.pathCount) && (cost >= costs[offset + count - 1])) {
+      return count;
+    }
+
+    int position = Math.min(count, this.pathCount - 1);
+    while ((position > 0) && (cost < costs[offset + position - 1])) {
+      costs[offset + position] = costs[offset + position - 1];
+      previousCandidates[offset + position] = previousCandidates[offset + position - 1];
+      previousRanks[offset + position] = previousRanks[offset + position - 1];
+      position--;
+    }
+
+    costs[offset + position] = cost;
+    previousCandidates[offset + position] = previousCandidate;
+    previousRanks[offset + position] = previousRank;
+    return Math.min(count + 1, this.pathCount);
+  }
+
+  private List<Path> collectPaths(int[] lastCosts, int[] lastRankCounts,
+      int[][] previousCandidates, int[][] previousRanks) {
+    int[] bestCosts = new int[this.pathCount];
+    int[] bestCandidates = new int[this.pathCount];
+    int[] bestRanks = new int[this.pathCount];
+    int bestCount = 0;
+
+    for (int candidate = 0; candidate < lastRankCounts.length; candidate++) {
+      for (int rank = 0; rank < lastRankCounts[candidate]; rank++) {
+        bestCount = this.insert(bestCosts, bestCandidates, bestRanks, 0, bestCount,
+            lastCosts[(candidate * this.pathCount) + rank], candidate, rank);
+      }
+    }
+
+    List<Path> paths = new ArrayList<>(bestCount);
+    for (int best = 0; best < bestCount; best++) {
+      paths.add(this.tracePath(bestCosts[best], bestCandidates[best], bestRanks[best],
+          previousCandidates, previousRanks));
+    }
+
+    return paths;
+  }
+
+  private Path tracePath(int cost, int lastCandidate, int lastRank, int[][] previousCandidates,
+      int[][] previousRanks) {
+    int stepCount = this.candidates.size();
+    int[] chosen = new int[stepCount];
+    int candidate = lastCandidate;
+    int rank = lastRank;
+
+    for (int step = stepCount - 1; step >= 0; step--) {
+      chosen[step] = candidate;
+      int index = (candidate * this.pathCount) + rank;
+      candidate = previousCandidates[step][index];
+      rank = previousRanks[step][index];
+    }
+
+    List<Voicing> voicings = new ArrayList<>(stepCount);
+    int movement = 0;
+    for (int step = 0; step < stepCount; step++) {
+      voicings.add(this.candidates.get(step).get(chosen[step]));
+      if (step > 0) {
+        movement += this.transition(step - 1, chosen[step - 1], step, chosen[step]);
+      }
+    }
+
+    return new Path(voicings, movement, cost);
+  }
+
+  public static class Path {
+    private final List<Voicing> voicings;
+    private final int movement;
+    private final int cost;
+
+    Path(List<Voicing> voicings, int movement, int cost) {
+      this.voicings = voicings;
+      this.movement = movement;
+      this.cost = cost;
+    }
+
+    public List<Voicing> getVoicings() {
+      return voicings;
+    }
+
+    public int getMovement() {
+      return movement;
+    }
+
+    public int getCost() {
+      return cost;
+    }
+  }
+}
@@ -0,0 +1,113 @@
+package com.gkaraffa.amati.fretboard;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.gkaraffa.amati.index.PitchClasses;
+import com.gkaraffa.amati.view.ViewTableAssembler;
+import com.gkaraffa.cremona.theoretical.ToneGroupObject;
+import com.gkaraffa.guarneri.view.ViewFactory;
+import com.gkaraffa.guarneri.view.ViewQuery;
+import com.gkaraffa.guarneri.view.ViewTable;
+
+public class VoiceLeadingViewFactory implements ViewFactory {
+  public static final String PROGRESSION_CRITERIA = "Progression";
+  public static final String SYMBOLS_CRITERIA = "ProgressionSymbols";
+  public static final String NUMERALS_CRITERIA = "ProgressionNumerals";
+  public static final String PATHS_CRITERIA = "VoiceLeadingPaths";
+  public static final int DEFAULT_PATHS = 3;
+  public static final int MAX_PATHS = 10;
+
+  @Override
+  public ViewTable createView(ViewQuery viewQuery) throws IllegalArgumentException {
+    Object progressionCriteria = viewQuery.getCriteria(PROGRESSION_CRITERIA);
+    Object symbolsCriteria = viewQuery.getCriteria(SYMBOLS_CRITERIA);
+    Object numeralsCriteria = viewQuery.getCriteria(NUMERALS_CRITERIA);
+    Object pathsCriteria = viewQuery.getCriteria(PATHS_CRITERIA);
+    Object fretboardCriteria = viewQuery.getCriteria(FretboardViewFactory.FRETBOARD_CRITERIA);
+    Object constraintsCriteria = viewQuery.getCriteria(VoicingViewFactory.CONSTRAINTS_CRITERIA);
+    if (!(progressionCriteria instanceof ToneGroupObject[])
+        || !(symbolsCriteria instanceof String[]) || !(numeralsCriteria instanceof String[])
+        || !(pathsCriteria instanceof Integer) || !(fretboardCriteria instanceof Fretboard)
+        || !(constraintsCriteria instanceof VoicingConstraints)) {
+      throw new IllegalArgumentException("Invalid arguments for Voice leading analytic.");
+    }
+
+    ToneGroupObject[] progression = (ToneGroupObject[]) progressionCriteria;
+    Fretboard fretboard = (Fretboard) fretboardCriteria;
+    List<List<Voicing>> candidates = this.searchCandidates(progression, fretboard,
+        (VoicingConstraints) constraintsCriteria, (String[]) symbolsCriteria);
+    List<VoiceLeading.Path> paths = new VoiceLeading(candidates,
+        fretboard.getTuning().getStringCount(), (Integer) pathsCriteria).solve();
+
+    return this.assembleTable((String[]) symbolsCriteria, (String[]) numeralsCriteria, paths);
+  }
+
+  private List<List<Voicing>> searchCandidates(ToneGroupObject[] progression, Fretboard fretboard,
+      VoicingConstraints constraints, String[] symbols) throws IllegalArgumentException {
+    Map<Long, List<Voicing>> searched = new HashMap<>();
+    List<List<Voicing>> candidates = new ArrayList<>(progression.length);
+
+    for (int step = 0; step < progression.length; step++) {
+      int chordMask = PitchClasses.maskOf(progression[step]);
+      int rootPitchClass = VoicingViewFactory.rootPitchClass(progression[step]);
+      long searchKey = ((long) chordMask << 8) | (rootPitchClass & 0xFF);
+      List<Voicing> voicings = searched.get(searchKey);
+
+      if (voicings == null) {
+        voicings =
+            new VoicingSearch(fretboard, chordMask, rootPitchClass, constraints).search();
+        if (voicings.isEmpty()) {
+          throw new IllegalArgumentException("No voicing of " + symbols[step] + " fits the "
+              + fretboard.getTuning().getName() + " fretboard.");
+        }
+        searched.put(searchKey, voicings);
+      }
+      candidates.add(voicings);
+    }
+
+    return candidates;
+  }
+
+  private ViewTable assembleTable(String[] symbols, String[] numerals,
+      List<VoiceLeading.Path> paths) {
+    String[] headers = new String[3 + paths.size()];
+    headers[0] = "Step";
+    headers[1] = "Chord";
+    headers[2] = "Numeral";
+    for (int path = 0; path < paths.size(); path++) {
+      headers[3 + path] = "Path " + (path + 1);
+    }
+
+    ViewTableAssembler assembler = new ViewTableAssembler(headers);
+    for (int step = 0; step < symbols.length; step++) {
+      String[] row = new String[headers.length];
+      row[0] = Integer.toString(step + 1);
+      row[1] = symbols[step];
+      row[2] = numerals[step];
+      for (int path = 0; path < paths.size(); path++) {
+        row[3 + path] = paths.get(path).getVoicings().get(step).toString();
+      }
+      assembler.addRow(row);
+    }
+
+    String[] movementRow = new String[headers.length];
+    String[] costRow = new String[headers.length];
+    movementRow[0] = "";
+    movementRow[1] = "Movement";
+    movementRow[2] = "";
+    costRow[0] = "";
+    costRow[1] = "Cost";
+    costRow[2] = "";
+    for (int path = 0; path < paths.size(); path++) {
+      movementRow[3 + path] = Integer.toString(paths.get(path).getMovement());
+      costRow[3 + path] = Integer.toString(paths.get(path).getCost());
+    }
+    assembler.addRow(movementRow);
+    assembler.addRow(costRow);
+
+    return assembler.assemble();
+  }
+}
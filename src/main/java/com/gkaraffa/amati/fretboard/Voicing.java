@@ -0,0 +1,76 @@
+package com.gkaraffa.amati.fretboard;
+
+/*
+ * One fret per string, lowest string first, with MUTED for a string that is not played.
+ */
+public class Voicing {
+  public static final int MUTED = -1;
+
+  private final int[] frets;
+  private final int score;
+
+  public Voicing(int[] frets, int score) {
+    this.frets = frets;
+    this.score = score;
+  }
+
+  public int getStringCount() {
+    return frets.length;
+  }
+
+  public int getFret(int string) {
+    return frets[string];
+  }
+
+  public int[] getFrets() {
+    return frets.clone();
+  }
+
+  public int getScore() {
+    return score;
+  }
+
+  public int getSpan() {
+    int lowest = Integer.MAX_VALUE;
+    int highest = 0;
+
+    for (int fret : frets) {
+      if (fret > 0) {
+        lowest = Math.min(lowest, fret);
+        highest = Math.max(highest, fret);
+      }
+    }
+
+    return (highest == 0) ? 0 : highest - lowest + 1;
+  }
+
+  public static int compare(Voicing left, Voicing right) {
+    if (left.score != right.score) {
+      return Integer.compare(left.score, right.score);
+    }
+
+    for (int string = 0; string < left.frets.length; string++) {
+      if (left.frets[string] != right.frets[string]) {
+        return Integer.compare(left.frets[string], right.frets[string]);
+      }
+    }
+
+    return 0;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder builder = new StringBuilder();
+    boolean separated = false;
+
+    for (int fret : frets) {
+      separated |= fret > 9;
+    }
+    for (int string = 0; string < frets.length; string++) {
+      builder.append((separated && (string > 0)) ? "-" : "")
+          .append((frets[string] == MUTED) ? "x" : Integer.toString(frets[string]));
+    }
+
+    return builder.toString();
+  }
+}
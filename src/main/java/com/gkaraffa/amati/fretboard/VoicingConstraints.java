@@ -0,0 +1,42 @@
+package com.gkaraffa.amati.fretboard;
+
+public class VoicingConstraints {
+  public static final int DEFAULT_LIMIT = 20;
+  public static final int DEFAULT_SPAN = 4;
+  public static final int MAX_SPAN = 8;
+
+  private final int limit;
+  private final int maxSpan;
+  private final boolean rootInBass;
+
+  public VoicingConstraints(int limit, int maxSpan, boolean rootInBass)
+      throws IllegalArgumentException {
+    if (limit < 1) {
+      throw new IllegalArgumentException("Limit must be at least 1.");
+    }
+    if ((maxSpan < 1) || (maxSpan > MAX_SPAN)) {
+      throw new IllegalArgumentException("Span must be between 1 and " + MAX_SPAN + ".");
+    }
+
+    this.limit = limit;
+    this.maxSpan = maxSpan;
+    this.rootInBass = rootInBass;
+  }
+
+  public int getLimit() {
+    return limit;
+  }
+
+  public int getMaxSpan() {
+    return maxSpan;
+  }
+
+  public boolean isRootInBass() {
+    return rootInBass;
+  }
+
+  @Override
+  public String toString() {
+    return limit + "/" + maxSpan + (rootInBass ? "/ROOT" : "");
+  }
+}
@@ -0,0 +1,223 @@
+package com.gkaraffa.amati.fretboard;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/*
+ * Finds every voicing that plays at most one note per string, covers every chord tone and keeps
+ * its fretted notes inside the span. The neck is split by the lowest fretted fret: window w owns
+ * the voicings whose lowest fretted note is on fret w (window 0 owns all-open voicings), so the
+ * windows are disjoint and are searched in parallel on a ForkJoinPool. Within a window the
+ * candidates for a string are the string's fretboard bits clipped to the window, and a branch is
+ * dropped as soon as the strings left cannot cover the missing chord tones. Each window keeps only
+ * its best voicings, so the result size is bounded by the limit rather than the search space.
+ * Fretted notes on the lowest fret may share one barre finger, provided no open string sounds
+ * above the barre's lowest string, so F 1-3-3-2-1-1 needs four fingers rather than six.
+ */
+public class VoicingSearch {
+  private static final int WINDOWS_PER_TASK = 2;
+  private static final int MAX_FINGERS = 4;
+  private static final int INVERSION_PENALTY = 3;
+
+  private final Fretboard fretboard;
+  private final int chordMask;
+  private final int rootPitchClass;
+  private final VoicingConstraints constraints;
+  private final long[] positions;
+
+  public VoicingSearch(Fretboard fretboard, int chordMask, int rootPitchClass,
+      VoicingConstraints constraints) {
+    this.fretboard = fretboard;
+    this.chordMask = chordMask;
+    this.rootPitchClass = rootPitchClass;
+    this.constraints = constraints;
+    this.positions = fretboard.positions(chordMask);
+  }
+
+  public List<Voicing> search() {
+    return this.search(ForkJoinPool.commonPool());
+  }
+
+  public List<Voicing> search(ForkJoinPool forkJoinPool) {
+    List<Voicing> voicings =
+        forkJoinPool.invoke(new WindowTask(0, fretboard.getFretCount() + 1));
+    voicings.sort(Voicing::compare);
+
+    return voicings;
+  }
+
+  List<Voicing> searchWindow(int window) {
+    PriorityQueue<Voicing> best =
+        new PriorityQueue<>(constraints.getLimit() + 1, (left, right) -> Voicing.compare(right,
+            left));
+    long windowBits = (window == 0)
+        ? 1L
+        : 1L | (((1L << constraints.getMaxSpan()) - 1) << window);
+    int[] frets = new int[positions.length];
+
+    this.searchString(0, window, windowBits, 0, frets, best);
+
+    List<Voicing> voicings = new ArrayList<>(best);
+    return voicings;
+  }
+
+  private void searchString(int string, int window, long windowBits, int coveredMask, int[] frets,
+      PriorityQueue<Voicing> best) {
+    int missingCount = Integer.bitCount(chordMask & ~coveredMask);
+    if (missingCount > positions.length - string) {
+      return;
+    }
+
+    if (string == positions.length) {
+      this.offer(window, frets, best);
+      return;
+    }
+
+    int openPitchClass = fretboard.getTuning().getOpenPitchClass(string);
+    for (long bits = positions[string] & windowBits; bits != 0; bits &= bits - 1) {
+      int fret = Long.numberOfTrailingZeros(bits);
+      int pitchClass = Fretboard.pitchClassAt(openPitchClass, fret);
+
+      if (constraints.isRootInBass() && (pitchClass != rootPitchClass)
+          && this.isBass(string, frets)) {
+        continue;
+      }
+
+      frets[string] = fret;
+      this.searchString(string + 1, window, windowBits, coveredMask | (1 << pitchClass), frets,
+          best);
+    }
+
+    frets[string] = Voicing.MUTED;
+    this.searchString(string + 1, window, windowBits, coveredMask, frets, best);
+  }
+
+  private boolean isBass(int string, int[] frets) {
+    for (int lower = 0; lower < string; lower++) {
+      if (frets[lower] != Voicing.MUTED) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  private int barreFingers(int[] frets, int barreFret) {
+    int barreString = -1;
+    int fingers = 1;
+
+    for (int string = 0; string < frets.length; string++) {
+      if (frets[string] == barreFret) {
+        barreString = (barreString < 0) ? string : barreString;
+      }
+      else if (frets[string] > barreFret) {
+        fingers++;
+      }
+      else if ((frets[string] == 0) && (barreString >= 0)) {
+        return Integer.MAX_VALUE;
+      }
+    }
+
+    return fingers;
+  }
+
+  private void offer(int window, int[] frets, PriorityQueue<Voicing> best) {
+    int lowest = Integer.MAX_VALUE;
+    int fingers = 0;
+    int open = 0;
+    int muted = 0;
+    int interiorMuted = 0;
+    int firstSounding = -1;
+    int lastSounding = -1;
+
+    for (int string = 0; string < frets.length; string++) {
+      if (frets[string] == Voicing.MUTED) {
+        muted++;
+        continue;
+      }
+
+      firstSounding = (firstSounding < 0) ? string : firstSounding;
+      lastSounding = string;
+      if (frets[string] > 0) {
+        fingers++;
+        lowest = Math.min(lowest, frets[string]);
+      }
+      else {
+        open++;
+      }
+    }
+
+    if (fingers > MAX_FINGERS) {
+      fingers = this.barreFingers(frets, lowest);
+    }
+    if ((fingers > MAX_FINGERS) || (window > 0 && lowest != window)) {
+      return;
+    }
+    for (int string = firstSounding + 1; string < lastSounding; string++) {
+      interiorMuted += (frets[string] == Voicing.MUTED) ? 1 : 0;
+    }
+
+    int highest = window;
+    for (int fret : frets) {
+      highest = Math.max(highest, fret);
+    }
+
+    int bassPitchClass = Fretboard.pitchClassAt(
+        fretboard.getTuning().getOpenPitchClass(firstSounding), frets[firstSounding]);
+    int score = ((window == 0) ? 0 : highest - window) + fingers + (muted * 2)
+        + (interiorMuted * 6) + (window / 2) + (open * (window / 4))
+        + ((bassPitchClass == rootPitchClass) ? 0 : INVERSION_PENALTY);
+    if ((best.size() >= constraints.getLimit()) && (score >= best.peek().getScore())) {
+      return;
+    }
+
+    best.offer(new Voicing(frets.clone(), score));
+    if (best.size() > constraints.getLimit()) {
+      best.poll();
+    }
+  }
+
+  class WindowTask extends RecursiveTask<List<Voicing>> {
+    private static final long serialVersionUID = 1L;
+
+    private final int firstWindow;
+    private final int lastWindow;
+
+    WindowTask(int firstWindow, int lastWindow) {
+      this.firstWindow = firstWindow;
+      this.lastWindow = lastWindow;
+    }
+
+    @Override
+    protected List<Voicing> compute() {
+      if (lastWindow - firstWindow <= WINDOWS_PER_TASK) {
+        List<Voicing> voicings = new ArrayList<>();
+        for (int window = firstWindow; window < lastWindow; window++) {
+          voicings.addAll(searchWindow(window));
+        }
+
+        return this.trim(voicings);
+      }
+
+      int middle = (firstWindow + lastWindow) >>> 1;
+      WindowTask lowerTask = new WindowTask(firstWindow, middle);
+      lowerTask.fork();
+      List<Voicing> voicings = new WindowTask(middle, lastWindow).compute();
+      voicings.addAll(lowerTask.join());
+
+      return this.trim(voicings);
+    }
+
+    private List<Voicing> trim(List<Voicing> voicings) {
+      if (voicings.size() <= constraints.getLimit()) {
+        return voicings;
+      }
+
+      voicings.sort(Voicing::compare);
+      return new ArrayList<>(voicings.subList(0, constraints.getLimit()));
+    }
+  }
+}
@@ -0,0 +1,63 @@
+package com.gkaraffa.amati.fretboard;
+
+import java.util.Iterator;
+import java.util.List;
+
+import com.gkaraffa.amati.index.PitchClasses;
+import com.gkaraffa.amati.view.ViewTableAssembler;
+import com.gkaraffa.cremona.theoretical.Tone;
+import com.gkaraffa.cremona.theoretical.ToneGroupObject;
+import com.gkaraffa.guarneri.view.ViewFactory;
+import com.gkaraffa.guarneri.view.ViewQuery;
+import com.gkaraffa.guarneri.view.ViewTable;
+
+public class VoicingViewFactory implements ViewFactory {
+  public static final String CONSTRAINTS_CRITERIA = "VoicingConstraints";
+
+  @Override
+  public ViewTable createView(ViewQuery viewQuery) throws IllegalArgumentException {
+    Object toneGroupCriteria = viewQuery.getCriteria(FretboardViewFactory.TONE_GROUP_CRITERIA);
+    Object fretboardCriteria = viewQuery.getCriteria(FretboardViewFactory.FRETBOARD_CRITERIA);
+    Object constraintsCriteria = viewQuery.getCriteria(CONSTRAINTS_CRITERIA);
+    if (!(toneGroupCriteria instanceof ToneGroupObject)
+        || !(fretboardCriteria instanceof Fretboard)
+        || !(constraintsCriteria instanceof VoicingConstraints)) {
+      throw new IllegalArgumentException("Invalid arguments for Voicing analytic.");
+    }
+
+    ToneGroupObject toneGroupObject = (ToneGroupObject) toneGroupCriteria;
+    Fretboard fretboard = (Fretboard) fretboardCriteria;
+    int rootPitchClass = rootPitchClass(toneGroupObject);
+    List<Voicing> voicings = new VoicingSearch(fretboard, PitchClasses.maskOf(toneGroupObject),
+        rootPitchClass, (VoicingConstraints) constraintsCriteria).search();
+
+    return this.assembleTable(fretboard.getTuning(), voicings,
+        PitchClasses.spellingsOf(toneGroupObject));
+  }
+
+  static int rootPitchClass(ToneGroupObject toneGroupObject) {
+    Iterator<Tone> tones = toneGroupObject.getToneCollection().getTones().iterator();
+
+    return tones.hasNext() ? PitchClasses.pitchClassOf(tones.next()) : -1;
+  }
+
+  private ViewTable assembleTable(Tuning tuning, List<Voicing> voicings, String[] spellings) {
+    ViewTableAssembler assembler =
+        new ViewTableAssembler("Rank", "Frets", "Tones", "Span", "Score");
+    int rank = 1;
+
+    for (Voicing voicing : voicings) {
+      StringBuilder tones = new StringBuilder();
+      for (int string = 0; string < voicing.getStringCount(); string++) {
+        int fret = voicing.getFret(string);
+        tones.append((string == 0) ? "" : " ").append((fret == Voicing.MUTED) ? "x"
+            : spellings[Fretboard.pitchClassAt(tuning.getOpenPitchClass(string), fret)]);
+      }
+
+      assembler.addRow(Integer.toString(rank++), voicing.toString(), tones.toString(),
+          Integer.toString(voicing.getSpan()), Integer.toString(voicing.getScore()));
+    }
+
+    return assembler.assemble();
+  }
+}
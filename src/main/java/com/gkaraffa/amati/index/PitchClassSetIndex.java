@@ -0,0 +1,164 @@
+package com.gkaraffa.amati.index;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.gkaraffa.amati.control.QuerySpace;
+import com.gkaraffa.cremona.helper.ChordHelper;
+import com.gkaraffa.cremona.helper.ScaleHelper;
+
+/*
+ * Every key/scale and key/chord is stored as a 12-bit pitch-class mask, and every pitch class
+ * keeps a posting bitmap of the entries that contain it. A query ANDs the postings of its pitch
+ * classes, so "which entries contain C, E, G and Bb" is four passes over a few longs. Each scale
+ * and chord is taken from cremona once, in C, and transposed to the other keys by rotating its
+ * mask.
+ */
+public class PitchClassSetIndex {
+  public static final String SCALE = "Scale";
+  public static final String CHORD = "Chord";
+
+  private final List<String> keyNames = new ArrayList<>();
+  private final List<String> kinds = new ArrayList<>();
+  private final List<String> names = new ArrayList<>();
+  private final int[] masks;
+  private final long[][] postings;
+  private int entryCount = 0;
+
+  public PitchClassSetIndex(int capacity) {
+    this.masks = new int[capacity];
+    this.postings = new long[PitchClasses.PITCH_CLASS_COUNT][(capacity + 63) >>> 6];
+  }
+
+  public static PitchClassSetIndex getInstance() {
+    return Holder.INSTANCE;
+  }
+
+  static PitchClassSetIndex buildFromCremona() {
+    List<String> keys = QuerySpace.KEY_NAMES;
+    PitchClassSetIndex index = new PitchClassSetIndex(
+        keys.size() * (QuerySpace.SCALE_NAMES.size() + QuerySpace.CHORD_NAMES.size()));
+    int[] scaleMasks = new int[QuerySpace.SCALE_NAMES.size()];
+    int[] chordMasks = new int[QuerySpace.CHORD_NAMES.size()];
+
+    for (int i = 0; i < scaleMasks.length; i++) {
+      scaleMasks[i] = maskInC(SCALE, QuerySpace.SCALE_NAMES.get(i));
+    }
+    for (int i = 0; i < chordMasks.length; i++) {
+      chordMasks[i] = maskInC(CHORD, QuerySpace.CHORD_NAMES.get(i));
+    }
+
+    for (String key : keys) {
+      int root = PitchClasses.pitchClassOf(key);
+
+      for (int i = 0; i < scaleMasks.length; i++) {
+        if (scaleMasks[i] != 0) {
+          index.add(key, SCALE, QuerySpace.SCALE_NAMES.get(i),
+              PitchClasses.transpose(scaleMasks[i], root));
+        }
+      }
+      for (int i = 0; i < chordMasks.length; i++) {
+        if (chordMasks[i] != 0) {
+          index.add(key, CHORD, QuerySpace.CHORD_NAMES.get(i),
+              PitchClasses.transpose(chordMasks[i], root));
+        }
+      }
+    }
+
+    return index;
+  }
+
+  private static int maskInC(String kind, String name) {
+    try {
+      if (kind.equals(SCALE)) {
+        return PitchClasses.maskOf(ScaleHelper.getInstance().getScale("C", name));
+      }
+
+      return PitchClasses.maskOf(ChordHelper.getInstance().getChord("C", name));
+    }
+    catch (IllegalArgumentException iAE) {
+      // a name this cremona build does not know is left out of the index
+      return 0;
+    }
+  }
+
+  public void add(String keyName, String kind, String name, int mask)
+      throws IllegalArgumentException {
+    if (entryCount == masks.length) {
+      throw new IllegalArgumentException("Index capacity exceeded.");
+    }
+
+    int entry = entryCount++;
+    keyNames.add(keyName);
+    kinds.add(kind);
+    names.add(name);
+    masks[entry] = mask & PitchClasses.FULL_MASK;
+
+    for (int pitchClass = 0; pitchClass < PitchClasses.PITCH_CLASS_COUNT; pitchClass++) {
+      if ((mask & (1 << pitchClass)) != 0) {
+        postings[pitchClass][entry >>> 6] |= 1L << entry;
+      }
+    }
+  }
+
+  public int[] findContaining(int queryMask) {
+    int wordCount = (entryCount + 63) >>> 6;
+    long[] matches = new long[wordCount];
+    int matchCount = 0;
+
+    for (int word = 0; word < wordCount; word++) {
+      long bits = (word == wordCount - 1) && ((entryCount & 63) != 0)
+          ? (1L << (entryCount & 63)) - 1
+          : -1L;
+
+      for (int pitchClass = 0; (pitchClass < PitchClasses.PITCH_CLASS_COUNT) && (bits != 0);
+          pitchClass++) {
+        if ((queryMask & (1 << pitchClass)) != 0) {
+          bits &= postings[pitchClass][word];
+        }
+      }
+
+      matches[word] = bits;
+      matchCount += Long.bitCount(bits);
+    }
+
+    int[] entries = new int[matchCount];
+    int position = 0;
+    for (int word = 0; word < wordCount; word++) {
+      for (long bits = matches[word]; bits != 0; bits &= bits - 1) {
+        entries[position++] = (word << 6) + Long.numberOfTrailingZeros(bits);
+      }
+    }
+
+    return entries;
+  }
+
+  public int getEntryCount() {
+    return entryCount;
+  }
+
+  public String getKeyName(int entry) {
+    return keyNames.get(entry);
+  }
+
+  public String getKind(int entry) {
+    return kinds.get(entry);
+  }
+
+  public String getName(int entry) {
+    return names.get(entry);
+  }
+
+  public int getMask(int entry) {
+    return masks[entry];
+  }
+
+  public String getTones(int entry) {
+    return PitchClasses.toString(masks[entry],
+        PitchClasses.spellingsIn(keyNames.get(entry), masks[entry]));
+  }
+
+  static class Holder {
+    static final PitchClassSetIndex INSTANCE = buildFromCremona();
+  }
+}
@@ -0,0 +1,37 @@
+package com.gkaraffa.amati.index;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+import com.gkaraffa.amati.view.ViewTableAssembler;
+import com.gkaraffa.guarneri.view.ViewFactory;
+import com.gkaraffa.guarneri.view.ViewQuery;
+import com.gkaraffa.guarneri.view.ViewTable;
+
+public class PitchClassSetViewFactory implements ViewFactory {
+  public static final String CRITERIA = "PitchClassMask";
+
+  @Override
+  public ViewTable createView(ViewQuery viewQuery) throws IllegalArgumentException {
+    Object criteria = viewQuery.getCriteria(CRITERIA);
+    if (!(criteria instanceof Integer)) {
+      throw new IllegalArgumentException("Tones not specified.");
+    }
+
+    int queryMask = (Integer) criteria;
+    PitchClassSetIndex index = PitchClassSetIndex.getInstance();
+    Integer[] entries = Arrays.stream(index.findContaining(queryMask)).boxed()
+        .sorted(Comparator.comparingInt(entry -> Integer.bitCount(index.getMask(entry))))
+        .toArray(Integer[]::new);
+    ViewTableAssembler assembler =
+        new ViewTableAssembler("Key", "Type", "Name", "Tones", "Extra Tones");
+
+    for (int entry : entries) {
+      int mask = index.getMask(entry);
+      assembler.addRow(index.getKeyName(entry), index.getKind(entry), index.getName(entry),
+          index.getTones(entry), Integer.toString(Integer.bitCount(mask & ~queryMask)));
+    }
+
+    return assembler.assemble();
+  }
+}
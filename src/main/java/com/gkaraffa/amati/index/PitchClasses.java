@@ -0,0 +1,183 @@
+package com.gkaraffa.amati.index;
+
+import com.gkaraffa.cremona.theoretical.Tone;
+import com.gkaraffa.cremona.theoretical.ToneGroupObject;
+
+/*
+ * Maps spelled tone names (C, F#, Bb, Cx, Ebb) onto pitch classes 0-11 and pitch-class sets onto
+ * 12-bit masks, bit n set for pitch class n with C = 0. After the letter a flat may be b or B,
+ * since tones built from upper-cased canonical names print as BB or EB.
+ */
+public final class PitchClasses {
+  public static final int PITCH_CLASS_COUNT = 12;
+  public static final int FULL_MASK = (1 << PITCH_CLASS_COUNT) - 1;
+
+  private static final int[] NATURAL_PITCH_CLASSES = {9, 11, 0, 2, 4, 5, 7};
+  private static final String[] SHARP_NAMES =
+      {"C", "C#", "D", "D#", "E", "F", "F#", "G", "G#", "A", "A#", "B"};
+  private static final String LETTERS = "CDEFGAB";
+  private static final int[] LETTER_PITCH_CLASSES = {0, 2, 4, 5, 7, 9, 11};
+  private static final String[] ACCIDENTALS = {"bb", "b", "", "#", "x"};
+  // letters above the key for each interval in sets other than seven-note scales
+  private static final int[] INTERVAL_LETTERS = {0, 1, 1, 2, 2, 3, 4, 4, 4, 5, 6, 6};
+
+  private PitchClasses() {}
+
+  public static int pitchClassOf(String toneName) throws IllegalArgumentException {
+    String trimmedName = (toneName == null) ? "" : toneName.trim();
+    if (trimmedName.isEmpty()) {
+      throw new IllegalArgumentException("Tone not specified.");
+    }
+
+    char letter = Character.toUpperCase(trimmedName.charAt(0));
+    if ((letter < 'A') || (letter > 'G')) {
+      throw new IllegalArgumentException("Unexpected tone: " + trimmedName);
+    }
+
+    int pitchClass = NATURAL_PITCH_CLASSES[letter - 'A'];
+    for (int i = 1; i < trimmedName.length(); i++) {
+      switch (trimmedName.charAt(i)) {
+        case '#':
+        case '\u266F':
+          pitchClass++;
+          break;
+        case 'x':
+          pitchClass += 2;
+          break;
+        case 'b':
+        case 'B':
+        case '\u266D':
+          pitchClass--;
+          break;
+        default:
+          throw new IllegalArgumentException("Unexpected tone: " + trimmedName);
+      }
+    }
+
+    return Math.floorMod(pitchClass, PITCH_CLASS_COUNT);
+  }
+
+  public static int pitchClassOf(Tone tone) throws IllegalArgumentException {
+    return pitchClassOf(tone.toString());
+  }
+
+  public static int maskOf(ToneGroupObject toneGroupObject) throws IllegalArgumentException {
+    int mask = 0;
+
+    for (Tone tone : toneGroupObject.getToneCollection().getTones()) {
+      mask |= 1 << pitchClassOf(tone);
+    }
+
+    return mask;
+  }
+
+  public static int parseMask(String toneList) throws IllegalArgumentException {
+    if ((toneList == null) || toneList.trim().isEmpty()) {
+      throw new IllegalArgumentException("Tones not specified.");
+    }
+
+    int mask = 0;
+    for (String toneName : toneList.split(",")) {
+      mask |= 1 << pitchClassOf(toneName);
+    }
+
+    return mask;
+  }
+
+  public static int transpose(int mask, int semitones) {
+    int shift = Math.floorMod(semitones, PITCH_CLASS_COUNT);
+
+    return ((mask << shift) | (mask >>> (PITCH_CLASS_COUNT - shift))) & FULL_MASK;
+  }
+
+  public static String nameOf(int pitchClass) {
+    return SHARP_NAMES[Math.floorMod(pitchClass, PITCH_CLASS_COUNT)];
+  }
+
+  /*
+   * Names for all twelve pitch classes that keep the group's own spelling, so an Eb scale shows
+   * Eb and Bb rather than D# and A#. Pitch classes outside the group fall back to nameOf.
+   */
+  public static String[] spellingsOf(ToneGroupObject toneGroupObject)
+      throws IllegalArgumentException {
+    String[] spellings = SHARP_NAMES.clone();
+
+    for (Tone tone : toneGroupObject.getToneCollection().getTones()) {
+      String toneName = tone.toString().trim();
+      spellings[pitchClassOf(toneName)] =
+          toneName.substring(0, 1).toUpperCase() + toneName.substring(1).replace('B', 'b');
+    }
+
+    return spellings;
+  }
+
+  /*
+   * Letter of a spelled tone name, counted from C = 0 to B = 6.
+   */
+  public static int letterOf(String toneName) throws IllegalArgumentException {
+    int letter = (toneName == null) || toneName.trim().isEmpty() ? -1
+        : LETTERS.indexOf(Character.toUpperCase(toneName.trim().charAt(0)));
+    if (letter < 0) {
+      throw new IllegalArgumentException("Unexpected tone: " + toneName);
+    }
+
+    return letter;
+  }
+
+  /*
+   * Spells a pitch class on the given letter, falling back to nameOf when that would take more
+   * than a double sharp or double flat.
+   */
+  public static String spell(int letter, int pitchClass) {
+    int letterIndex = Math.floorMod(letter, LETTERS.length());
+    int alteration = Math.floorMod(pitchClass - LETTER_PITCH_CLASSES[letterIndex] + 6,
+        PITCH_CLASS_COUNT) - 6;
+
+    if (Math.abs(alteration) > 2) {
+      return nameOf(pitchClass);
+    }
+
+    return LETTERS.charAt(letterIndex) + ACCIDENTALS[alteration + 2];
+  }
+
+  /*
+   * Names for all twelve pitch classes spelled from a key: a seven-note scale takes one letter
+   * per degree, so Bb major is Bb C D Eb F G A; other sets take the usual letter for each interval
+   * above the key (minor third, flat five, minor seventh). Pitch classes outside the mask fall
+   * back to nameOf.
+   */
+  public static String[] spellingsIn(String keyName, int mask) throws IllegalArgumentException {
+    String[] spellings = SHARP_NAMES.clone();
+    int root = pitchClassOf(keyName);
+    int keyLetter = letterOf(keyName);
+    boolean heptatonic = Integer.bitCount(mask & FULL_MASK) == 7;
+    int degree = 0;
+
+    for (int interval = 0; interval < PITCH_CLASS_COUNT; interval++) {
+      int pitchClass = (root + interval) % PITCH_CLASS_COUNT;
+      if ((mask & (1 << pitchClass)) != 0) {
+        int letter = heptatonic ? degree : INTERVAL_LETTERS[interval];
+        spellings[pitchClass] = spell(keyLetter + letter, pitchClass);
+        degree++;
+      }
+    }
+
+    return spellings;
+  }
+
+  public static String toString(int mask) {
+    return toString(mask, SHARP_NAMES);
+  }
+
+  public static String toString(int mask, String[] spellings) {
+    StringBuilder builder = new StringBuilder();
+
+    for (int pitchClass = 0; pitchClass < PITCH_CLASS_COUNT; pitchClass++) {
+      if ((mask & (1 << pitchClass)) != 0) {
+        builder.append((builder.length() == 0) ? "" : " ").append(spellings[pitchClass]);
+      }
+    }
+
+    return builder.toString();
+  }
+}
@@ -0,0 +1,55 @@
+package com.gkaraffa.amati.matrix;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.stream.IntStream;
+
+/*
+ * Streams the matrix as CSV without holding it: rows are rendered in parallel a block at a time
+ * and each block is written in row order before the next one starts.
+ */
+public class MatrixCsvWriter {
+  private static final int ROWS_PER_BLOCK = 64;
+
+  private final RelationshipMatrix matrix;
+
+  public MatrixCsvWriter(RelationshipMatrix matrix) {
+    this.matrix = matrix;
+  }
+
+  public long write(WritableByteChannel channel, int[] rows) throws IOException {
+    long written = this.writeBytes(channel,
+        (String.join(",", RelationshipMatrix.HEADERS) + "\n").getBytes(StandardCharsets.UTF_8));
+
+    for (int start = 0; start < rows.length; start += ROWS_PER_BLOCK) {
+      byte[][] block = IntStream.range(start, Math.min(start + ROWS_PER_BLOCK, rows.length))
+          .parallel().mapToObj(position -> this.renderRow(rows[position]))
+          .toArray(byte[][]::new);
+
+      for (byte[] rowBytes : block) {
+        written += this.writeBytes(channel, rowBytes);
+      }
+    }
+
+    return written;
+  }
+
+  private byte[] renderRow(int row) {
+    StringBuilder csv = new StringBuilder(matrix.size() * 64);
+    matrix.appendCsvRow(row, csv);
+
+    return csv.toString().getBytes(StandardCharsets.UTF_8);
+  }
+
+  private long writeBytes(WritableByteChannel channel, byte[] bytes) throws IOException {
+    ByteBuffer buffer = ByteBuffer.wrap(bytes);
+
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+
+    return bytes.length;
+  }
+}
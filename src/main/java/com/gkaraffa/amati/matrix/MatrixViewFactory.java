@@ -0,0 +1,32 @@
+package com.gkaraffa.amati.matrix;
+
+import com.gkaraffa.amati.view.ViewTableAssembler;
+import com.gkaraffa.guarneri.view.ViewFactory;
+import com.gkaraffa.guarneri.view.ViewQuery;
+import com.gkaraffa.guarneri.view.ViewTable;
+
+public class MatrixViewFactory implements ViewFactory {
+  public static final String KEY_CRITERIA = "MatrixKey";
+  public static final String SCALE_CRITERIA = "MatrixScale";
+  public static final int MAX_VIEW_ROWS = 20_000;
+
+  @Override
+  public ViewTable createView(ViewQuery viewQuery) throws IllegalArgumentException {
+    RelationshipMatrix matrix = RelationshipMatrix.getInstance();
+    int[] rows = matrix.selectRows((String) viewQuery.getCriteria(KEY_CRITERIA),
+        (String) viewQuery.getCriteria(SCALE_CRITERIA));
+    if ((long) rows.length * matrix.size() > MAX_VIEW_ROWS) {
+      throw new IllegalArgumentException(
+          "Matrix too large for a table; use csv or txt output, or filter by key or scale.");
+    }
+
+    ViewTableAssembler assembler = new ViewTableAssembler(RelationshipMatrix.HEADERS);
+    for (int row : rows) {
+      for (int column = 0; column < matrix.size(); column++) {
+        assembler.addRow(matrix.cells(row, column));
+      }
+    }
+
+    return assembler.assemble();
+  }
+}
@@ -0,0 +1,168 @@
+package com.gkaraffa.amati.matrix;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.gkaraffa.amati.index.PitchClassSetIndex;
+import com.gkaraffa.amati.index.PitchClasses;
+
+/*
+ * Every key/scale is reduced to a 12-bit pitch-class mask and a 48-bit mask of the triads built
+ * on its degrees (bit root * 4 + quality), so a pair's shared tones, changed tones and pivot
+ * chords are popcounts of ANDs rather than walks over tone collections. Pivot chord roots are
+ * named with the from-row's spellings, so a Bb major row lists Bb rather than A#.
+ */
+public class RelationshipMatrix {
+  public static final String[] HEADERS = {"From Key", "From Scale", "To Key", "To Scale",
+      "Shared Tones", "Changed Tones", "Tonic Distance", "Pivot Chords"};
+
+  private static final String[] QUALITY_SUFFIXES = {"", "m", "dim", "aug"};
+
+  private final String[] keyNames;
+  private final String[] scaleNames;
+  private final int[] masks;
+  private final int[] tonics;
+  private final long[] triadMasks;
+  private final String[][] spellings;
+
+  public RelationshipMatrix(PitchClassSetIndex index) {
+    List<Integer> scaleEntries = new ArrayList<>();
+    for (int entry = 0; entry < index.getEntryCount(); entry++) {
+      if (index.getKind(entry).equals(PitchClassSetIndex.SCALE)) {
+        scaleEntries.add(entry);
+      }
+    }
+
+    int size = scaleEntries.size();
+    this.keyNames = new String[size];
+    this.scaleNames = new String[size];
+    this.masks = new int[size];
+    this.tonics = new int[size];
+    this.triadMasks = new long[size];
+    this.spellings = new String[size][];
+
+    for (int row = 0; row < size; row++) {
+      int entry = scaleEntries.get(row);
+      keyNames[row] = index.getKeyName(entry);
+      scaleNames[row] = index.getName(entry);
+      masks[row] = index.getMask(entry);
+      tonics[row] = PitchClasses.pitchClassOf(keyNames[row]);
+      triadMasks[row] = triadMask(masks[row], tonics[row]);
+      spellings[row] = PitchClasses.spellingsIn(keyNames[row], masks[row]);
+    }
+  }
+
+  public static RelationshipMatrix getInstance() {
+    return Holder.INSTANCE;
+  }
+
+  static long triadMask(int mask, int tonic) {
+    int[] degrees = new int[Integer.bitCount(mask)];
+    int degreeCount = 0;
+
+    for (int step = 0; step < PitchClasses.PITCH_CLASS_COUNT; step++) {
+      int pitchClass = (tonic + step) % PitchClasses.PITCH_CLASS_COUNT;
+      if ((mask & (1 << pitchClass)) != 0) {
+        degrees[degreeCount++] = pitchClass;
+      }
+    }
+
+    long triads = 0;
+    for (int degree = 0; degree < degreeCount; degree++) {
+      int root = degrees[degree];
+      int third = Math.floorMod(degrees[(degree + 2) % degreeCount] - root, 12);
+      int fifth = Math.floorMod(degrees[(degree + 4) % degreeCount] - root, 12);
+      int quality = triadQuality(third, fifth);
+
+      if (quality >= 0) {
+        triads |= 1L << ((root * 4) + quality);
+      }
+    }
+
+    return triads;
+  }
+
+  private static int triadQuality(int third, int fifth) {
+    if ((third == 4) && (fifth == 7)) {
+      return 0;
+    }
+    if ((third == 3) && (fifth == 7)) {
+      return 1;
+    }
+    if ((third == 3) && (fifth == 6)) {
+      return 2;
+    }
+    if ((third == 4) && (fifth == 8)) {
+      return 3;
+    }
+
+    return -1;
+  }
+
+  public int size() {
+    return masks.length;
+  }
+
+  public String getKeyName(int row) {
+    return keyNames[row];
+  }
+
+  public String getScaleName(int row) {
+    return scaleNames[row];
+  }
+
+  public int[] selectRows(String keyFilter, String scaleFilter) {
+    int[] rows = new int[masks.length];
+    int rowCount = 0;
+
+    for (int row = 0; row < masks.length; row++) {
+      if (((keyFilter == null) || keyNames[row].equalsIgnoreCase(keyFilter))
+          && ((scaleFilter == null) || scaleNames[row].equalsIgnoreCase(scaleFilter))) {
+        rows[rowCount++] = row;
+      }
+    }
+
+    int[] selectedRows = new int[rowCount];
+    System.arraycopy(rows, 0, selectedRows, 0, rowCount);
+    return selectedRows;
+  }
+
+  public String[] cells(int row, int column) {
+    int shared = Integer.bitCount(masks[row] & masks[column]);
+    int changed = Integer.bitCount(masks[column] & ~masks[row]);
+    int tonicInterval = Math.abs(tonics[row] - tonics[column]);
+
+    return new String[] {keyNames[row], scaleNames[row], keyNames[column], scaleNames[column],
+        Integer.toString(shared), Integer.toString(changed),
+        Integer.toString(Math.min(tonicInterval, PitchClasses.PITCH_CLASS_COUNT - tonicInterval)),
+        pivotChords(triadMasks[row] & triadMasks[column], spellings[row])};
+  }
+
+  public void appendCsvRow(int row, StringBuilder csv) {
+    for (int column = 0; column < masks.length; column++) {
+      String[] cells = this.cells(row, column);
+
+      for (int i = 0; i < cells.length; i++) {
+        csv.append((i == 0) ? "" : ",").append(cells[i]);
+      }
+      csv.append('\n');
+    }
+  }
+
+  static String pivotChords(long triads, String[] spellings) {
+    StringBuilder builder = new StringBuilder();
+
+    for (long bits = triads; bits != 0; bits &= bits - 1) {
+      int bit = Long.numberOfTrailingZeros(bits);
+      builder.append((builder.length() == 0) ? "" : " ").append(spellings[bit / 4])
+          .append(QUALITY_SUFFIXES[bit % 4]);
+    }
+
+    return builder.toString();
+  }
+
+  static class Holder {
+    static final RelationshipMatrix INSTANCE =
+        new RelationshipMatrix(PitchClassSetIndex.getInstance());
+  }
+}
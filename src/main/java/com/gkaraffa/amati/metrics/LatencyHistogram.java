@@ -0,0 +1,114 @@
+package com.gkaraffa.amati.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+
+/*
+ * Log-linear histogram of non-negative long values: exact below 32, then 16 linear sub-buckets
+ * per power of two, which bounds the relative error of any reported percentile to about 6%.
+ * Recording is lock-free and allocation-free.
+ */
+public class LatencyHistogram {
+  private static final int LINEAR_LIMIT = 32;
+  private static final int SUB_BUCKETS = 16;
+  private static final int SUB_BUCKET_BITS = 4;
+  private static final int BUCKET_COUNT = LINEAR_LIMIT + ((63 - 5) * SUB_BUCKETS);
+
+  private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+  private final AtomicLong count = new AtomicLong();
+  private final AtomicLong sum = new AtomicLong();
+  private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+  public void recordValue(long value) {
+    long boundedValue = (value < 0) ? 0 : value;
+
+    buckets.incrementAndGet(bucketIndex(boundedValue));
+    count.incrementAndGet();
+    sum.addAndGet(boundedValue);
+    max.accumulate(boundedValue);
+  }
+
+  static int bucketIndex(long value) {
+    if (value < LINEAR_LIMIT) {
+      return (int) value;
+    }
+
+    int exponent = 63 - Long.numberOfLeadingZeros(value);
+    int shift = exponent - SUB_BUCKET_BITS;
+    int subBucket = (int) (value >>> shift) - SUB_BUCKETS;
+
+    return LINEAR_LIMIT + ((exponent - 5) * SUB_BUCKETS) + subBucket;
+  }
+
+  static long bucketUpperBound(int index) {
+    if (index < LINEAR_LIMIT) {
+      return index;
+    }
+
+    int offset = index - LINEAR_LIMIT;
+    int exponent = (offset / SUB_BUCKETS) + 5;
+    long mantissa = (offset % SUB_BUCKETS) + SUB_BUCKETS;
+    int shift = exponent - SUB_BUCKET_BITS;
+
+    return ((mantissa + 1) << shift) - 1;
+  }
+
+  public long getCount() {
+    return count.get();
+  }
+
+  public long getSum() {
+    return sum.get();
+  }
+
+  public long getMax() {
+    return max.get();
+  }
+
+  public double getMean() {
+    long currentCount = count.get();
+
+    return (currentCount == 0) ? 0.0 : (double) sum.get() / currentCount;
+  }
+
+  public long getValueAtPercentile(double percentile) {
+    long totalCount = count.get();
+    if (totalCount == 0) {
+      return 0;
+    }
+
+    long targetCount = Math.max(1, (long) Math.ceil((percentile / 100.0) * totalCount));
+    long cumulativeCount = 0;
+
+    for (int index = 0; index < BUCKET_COUNT; index++) {
+      cumulativeCount += buckets.get(index);
+      if (cumulativeCount >= targetCount) {
+        return Math.min(bucketUpperBound(index), max.get());
+      }
+    }
+
+    return max.get();
+  }
+
+  public void add(LatencyHistogram other) {
+    for (int index = 0; index < BUCKET_COUNT; index++) {
+      long bucketCount = other.buckets.get(index);
+      if (bucketCount != 0) {
+        buckets.addAndGet(index, bucketCount);
+      }
+    }
+    count.addAndGet(other.count.get());
+    sum.addAndGet(other.sum.get());
+    max.accumulate(other.max.get());
+  }
+
+  public void reset() {
+    for (int index = 0; index < BUCKET_COUNT; index++) {
+      buckets.set(index, 0);
+    }
+    count.set(0);
+    sum.set(0);
+    max.reset();
+  }
+}
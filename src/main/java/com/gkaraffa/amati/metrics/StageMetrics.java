@@ -0,0 +1,267 @@
+package com.gkaraffa.amati.metrics;
+
+import java.io.PrintStream;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/*
+ * Times the stages of a query. The disabled instance hands out one shared no-op span, so an
+ * uninstrumented run pays a virtual call per stage and nothing else. The recording instance keeps
+ * a cumulative nanosecond histogram per stage and, when a flight recording has the Amati stage
+ * event enabled, emits a JFR event for the same span. JFR classes are only touched once metrics
+ * are requested, either with --metrics or, for JFR events alone, with -Damati.jfr=true, and only
+ * by reflection: the event type is defined at run time through jdk.jfr.EventFactory, so the
+ * sources still compile against the Java 8 API and run on JVMs without JFR.
+ */
+public abstract class StageMetrics {
+  public static final String PARSE = "parse";
+  public static final String VIEW = "view.";
+  public static final String RENDER = "render";
+  public static final String OUTPUT = "output";
+  public static final String QUERY = "query";
+
+  private static final String JFR_PROPERTY = "amati.jfr";
+  private static final StageMetrics DISABLED = new DisabledStageMetrics();
+
+  public static StageMetrics disabled() {
+    return DISABLED;
+  }
+
+  public static StageMetrics create(boolean histogramsEnabled) {
+    if (!histogramsEnabled && !Boolean.getBoolean(JFR_PROPERTY)) {
+      return DISABLED;
+    }
+
+    return new RecordingStageMetrics(histogramsEnabled, isJfrAvailable());
+  }
+
+  private static boolean isJfrAvailable() {
+    return JfrSpan.EVENT_FACTORY != null;
+  }
+
+  public abstract Span start(String stage);
+
+  public abstract boolean isRecording();
+
+  public abstract Map<String, LatencyHistogram> getHistograms();
+
+  public void printBreakdown(PrintStream printStream) {
+    Map<String, LatencyHistogram> histograms = this.getHistograms();
+    if (histograms.isEmpty()) {
+      return;
+    }
+
+    printStream.println(String.format("%-24s %8s %12s %12s %12s", "stage", "count", "total ms",
+        "p50 us", "max us"));
+    for (Map.Entry<String, LatencyHistogram> entry : histograms.entrySet()) {
+      LatencyHistogram histogram = entry.getValue();
+      printStream.println(String.format("%-24s %8d %12.3f %12.1f %12.1f", entry.getKey(),
+          histogram.getCount(), histogram.getSum() / 1_000_000.0,
+          histogram.getValueAtPercentile(50) / 1_000.0, histogram.getMax() / 1_000.0));
+    }
+  }
+
+  public String toJson() {
+    StringBuilder json = new StringBuilder("{\"unit\":\"ns\",\"stages\":{");
+    boolean first = true;
+
+    for (Map.Entry<String, LatencyHistogram> entry : this.getHistograms().entrySet()) {
+      LatencyHistogram histogram = entry.getValue();
+      json.append(first ? "" : ",").append('"').append(entry.getKey()).append("\":{")
+          .append("\"count\":").append(histogram.getCount())
+          .append(",\"p50\":").append(histogram.getValueAtPercentile(50))
+          .append(",\"p99\":").append(histogram.getValueAtPercentile(99))
+          .append(",\"max\":").append(histogram.getMax())
+          .append(",\"total\":").append(histogram.getSum()).append('}');
+      first = false;
+    }
+
+    return json.append("}}").toString();
+  }
+
+  public interface Span {
+    void stop();
+  }
+
+  static class DisabledStageMetrics extends StageMetrics {
+    private static final Span NO_SPAN = () -> {
+    };
+
+    @Override
+    public Span start(String stage) {
+      return NO_SPAN;
+    }
+
+    @Override
+    public boolean isRecording() {
+      return false;
+    }
+
+    @Override
+    public Map<String, LatencyHistogram> getHistograms() {
+      return new TreeMap<>();
+    }
+  }
+
+  static class RecordingStageMetrics extends StageMetrics {
+    private final boolean histogramsEnabled;
+    private final boolean jfrEnabled;
+    private final ConcurrentMap<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+
+    RecordingStageMetrics(boolean histogramsEnabled, boolean jfrEnabled) {
+      this.histogramsEnabled = histogramsEnabled;
+      this.jfrEnabled = jfrEnabled;
+    }
+
+    @Override
+    public Span start(String stage) {
+      return new RecordingSpan(stage, this.histogramsEnabled ? this.histogram(stage) : null,
+          this.jfrEnabled ? JfrSpan.begin(stage) : null);
+    }
+
+    @Override
+    public boolean isRecording() {
+      return this.histogramsEnabled;
+    }
+
+    @Override
+    public Map<String, LatencyHistogram> getHistograms() {
+      return new TreeMap<>(histograms);
+    }
+
+    private LatencyHistogram histogram(String stage) {
+      LatencyHistogram histogram = histograms.get(stage);
+
+      if (histogram == null) {
+        histogram = histograms.computeIfAbsent(stage, name -> new LatencyHistogram());
+      }
+
+      return histogram;
+    }
+  }
+
+  static class RecordingSpan implements Span {
+    private final LatencyHistogram histogram;
+    private final Object jfrEvent;
+    private final long startNanos = System.nanoTime();
+
+    RecordingSpan(String stage, LatencyHistogram histogram, Object jfrEvent) {
+      this.histogram = histogram;
+      this.jfrEvent = jfrEvent;
+    }
+
+    @Override
+    public void stop() {
+      if (histogram != null) {
+        histogram.recordValue(System.nanoTime() - startNanos);
+      }
+      if (jfrEvent != null) {
+        JfrSpan.commit(jfrEvent);
+      }
+    }
+  }
+
+  static final class JfrSpan {
+    private static final Object EVENT_FACTORY;
+    private static final Method NEW_EVENT;
+    private static final Method IS_ENABLED;
+    private static final Method SET;
+    private static final Method BEGIN;
+    private static final Method END;
+    private static final Method SHOULD_COMMIT;
+    private static final Method COMMIT;
+
+    static {
+      Object eventFactory = null;
+      Method[] methods = new Method[7];
+
+      try {
+        Class<?> flightRecorder = Class.forName("jdk.jfr.FlightRecorder");
+        if ((Boolean) flightRecorder.getMethod("isAvailable").invoke(null)) {
+          eventFactory = createEventFactory();
+          Class<?> event = Class.forName("jdk.jfr.Event");
+          methods[0] = eventFactory.getClass().getMethod("newEvent");
+          methods[1] = event.getMethod("isEnabled");
+          methods[2] = event.getMethod("set", int.class, Object.class);
+          methods[3] = event.getMethod("begin");
+          methods[4] = event.getMethod("end");
+          methods[5] = event.getMethod("shouldCommit");
+          methods[6] = event.getMethod("commit");
+        }
+      }
+      catch (ReflectiveOperationException | LinkageError | RuntimeException eE) {
+        eventFactory = null;
+      }
+
+      EVENT_FACTORY = eventFactory;
+      NEW_EVENT = methods[0];
+      IS_ENABLED = methods[1];
+      SET = methods[2];
+      BEGIN = methods[3];
+      END = methods[4];
+      SHOULD_COMMIT = methods[5];
+      COMMIT = methods[6];
+    }
+
+    private JfrSpan() {}
+
+    private static Object createEventFactory() throws ReflectiveOperationException {
+      Class<?> annotationElement = Class.forName("jdk.jfr.AnnotationElement");
+      Class<?> valueDescriptor = Class.forName("jdk.jfr.ValueDescriptor");
+      Constructor<?> annotation = annotationElement.getConstructor(Class.class, Object.class);
+
+      List<Object> eventAnnotations = new ArrayList<>();
+      eventAnnotations.add(annotation.newInstance(Class.forName("jdk.jfr.Name"),
+          "com.gkaraffa.amati.Stage"));
+      eventAnnotations.add(annotation.newInstance(Class.forName("jdk.jfr.Label"), "Amati Stage"));
+      eventAnnotations.add(annotation.newInstance(Class.forName("jdk.jfr.Category"),
+          new String[] {"Amati"}));
+      eventAnnotations.add(annotation.newInstance(Class.forName("jdk.jfr.Description"),
+          "One stage of an Amati query: parsing, view construction, rendering or output"));
+      eventAnnotations.add(annotation.newInstance(Class.forName("jdk.jfr.StackTrace"), false));
+
+      List<Object> fields = new ArrayList<>();
+      fields.add(valueDescriptor.getConstructor(Class.class, String.class, List.class)
+          .newInstance(String.class, "stage", Collections.singletonList(
+              annotation.newInstance(Class.forName("jdk.jfr.Label"), "Stage"))));
+
+      return Class.forName("jdk.jfr.EventFactory").getMethod("create", List.class, List.class)
+          .invoke(null, eventAnnotations, fields);
+    }
+
+    static Object begin(String stage) {
+      try {
+        Object stageEvent = NEW_EVENT.invoke(EVENT_FACTORY);
+        if (!(Boolean) IS_ENABLED.invoke(stageEvent)) {
+          return null;
+        }
+
+        SET.invoke(stageEvent, 0, stage);
+        BEGIN.invoke(stageEvent);
+        return stageEvent;
+      }
+      catch (ReflectiveOperationException rOE) {
+        return null;
+      }
+    }
+
+    static void commit(Object stageEvent) {
+      try {
+        END.invoke(stageEvent);
+        if ((Boolean) SHOULD_COMMIT.invoke(stageEvent)) {
+          COMMIT.invoke(stageEvent);
+        }
+      }
+      catch (ReflectiveOperationException rOE) {
+        // a failed commit only loses this span's event
+      }
+    }
+  }
+}
@@ -0,0 +1,180 @@
+package com.gkaraffa.amati.names;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import com.gkaraffa.amati.control.QuerySpace;
+import com.gkaraffa.amati.index.PitchClasses;
+import com.gkaraffa.cremona.helper.ChordHelper;
+import com.gkaraffa.cremona.helper.ScaleHelper;
+import com.gkaraffa.cremona.theoretical.Tone;
+import com.gkaraffa.cremona.theoretical.chord.Chord;
+import com.gkaraffa.cremona.theoretical.scale.Scale;
+
+/*
+ * Resolves key, scale and chord names, aliases and enharmonic spellings included, to indexes into
+ * the QuerySpace name lists, and interns the Tone, Scale and Chord built for each index so every
+ * query for C Dorian shares one Scale. Keys without their own QuerySpace entry (E#, Cb, Dbb) map
+ * to the entry with the same pitch class. Tones, scales and chords are built through cremona the
+ * first time they are asked for.
+ */
+public final class CanonicalNames {
+  private static final String[] LETTERS = {"C", "D", "E", "F", "G", "A", "B"};
+  private static final String[] ACCIDENTALS = {"", "#", "b", "##", "x", "bb"};
+  private static final String[][] SCALE_ALIASES = {{"Natural Minor", "Minor"},
+      {"Jazz Minor", "Melodic Minor"}, {"Pentatonic Major", "Major Pentatonic"},
+      {"Pentatonic Minor", "Minor Pentatonic"}, {"Blues Scale", "Blues"}};
+  private static final String[][] CHORD_ALIASES = {{"Maj", "Major"}, {"Min", "Minor"},
+      {"Dim", "Diminished"}, {"Aug", "Augmented"}, {"Sus2", "Suspended Second"},
+      {"Sus4", "Suspended Fourth"}, {"Maj7", "Major Seventh"}, {"Min7", "Minor Seventh"},
+      {"Dom7", "Dominant Seventh"}, {"Dominant", "Dominant Seventh"},
+      {"Half Diminished", "Half Diminished Seventh"}, {"m7b5", "Half Diminished Seventh"},
+      {"Dim7", "Diminished Seventh"}, {"MinMaj7", "Minor Major Seventh"},
+      {"Aug7", "Augmented Seventh"}, {"Maj6", "Major Sixth"}, {"Min6", "Minor Sixth"}};
+
+  private final List<String> keyNames = QuerySpace.KEY_NAMES;
+  private final List<String> scaleNames = QuerySpace.SCALE_NAMES;
+  private final List<String> chordNames = QuerySpace.CHORD_NAMES;
+  private final NameTrie keyTrie = new NameTrie();
+  private final NameTrie scaleTrie = new NameTrie();
+  private final NameTrie chordTrie = new NameTrie();
+  private final AtomicReferenceArray<Tone> tones = new AtomicReferenceArray<>(keyNames.size());
+  private final AtomicReferenceArray<Scale> scales =
+      new AtomicReferenceArray<>(keyNames.size() * scaleNames.size());
+  private final AtomicReferenceArray<Chord> chords =
+      new AtomicReferenceArray<>(keyNames.size() * chordNames.size());
+
+  private CanonicalNames() {
+    for (int key = 0; key < keyNames.size(); key++) {
+      keyTrie.insert(keyNames.get(key), key);
+    }
+    for (String letter : LETTERS) {
+      for (String accidental : ACCIDENTALS) {
+        String spelling = letter + accidental;
+        if (keyTrie.find(spelling) < 0) {
+          keyTrie.insert(spelling, this.firstKeyWithPitchClass(spelling));
+        }
+      }
+    }
+
+    for (int scale = 0; scale < scaleNames.size(); scale++) {
+      scaleTrie.insert(scaleNames.get(scale), scale);
+    }
+    for (String[] alias : SCALE_ALIASES) {
+      scaleTrie.insert(alias[0], scaleNames.indexOf(alias[1]));
+    }
+
+    for (int chord = 0; chord < chordNames.size(); chord++) {
+      chordTrie.insert(chordNames.get(chord), chord);
+    }
+    for (String[] alias : CHORD_ALIASES) {
+      chordTrie.insert(alias[0], chordNames.indexOf(alias[1]));
+    }
+  }
+
+  public static CanonicalNames getInstance() {
+    return Holder.INSTANCE;
+  }
+
+  private int firstKeyWithPitchClass(String spelling) {
+    int pitchClass = PitchClasses.pitchClassOf(spelling);
+
+    for (int key = 0; key < keyNames.size(); key++) {
+      if (PitchClasses.pitchClassOf(keyNames.get(key)) == pitchClass) {
+        return key;
+      }
+    }
+
+    throw new IllegalStateException("No key for " + spelling);
+  }
+
+  public int findKey(CharSequence text) {
+    return keyTrie.find(text);
+  }
+
+  public int findScale(CharSequence text) {
+    return scaleTrie.find(text);
+  }
+
+  public int findChord(CharSequence text) {
+    return chordTrie.find(text);
+  }
+
+  public int parseKey(CharSequence text) throws IllegalArgumentException {
+    return resolved("key", text, keyTrie.find(text));
+  }
+
+  public int parseScale(CharSequence text) throws IllegalArgumentException {
+    return resolved("scale", text, scaleTrie.find(text));
+  }
+
+  public int parseChord(CharSequence text) throws IllegalArgumentException {
+    return resolved("chord", text, chordTrie.find(text));
+  }
+
+  private static int resolved(String kind, CharSequence text, int found)
+      throws IllegalArgumentException {
+    if (found >= 0) {
+      return found;
+    }
+
+    throw new IllegalArgumentException(errorMessage(kind, text, found));
+  }
+
+  public static String errorMessage(String kind, CharSequence text, int found) {
+    return "Unexpected " + kind + " \"" + text + "\" at position " + (-found - 1) + ".";
+  }
+
+  public String getKeyName(int key) {
+    return keyNames.get(key);
+  }
+
+  public String getScaleName(int scale) {
+    return scaleNames.get(scale);
+  }
+
+  public String getChordName(int chord) {
+    return chordNames.get(chord);
+  }
+
+  public Tone getTone(int key) {
+    Tone interned = tones.get(key);
+
+    if (interned == null) {
+      tones.compareAndSet(key, null, Tone.stringToTone(keyNames.get(key).toUpperCase()));
+      interned = tones.get(key);
+    }
+
+    return interned;
+  }
+
+  public Scale getScale(int key, int scale) {
+    int slot = key * scaleNames.size() + scale;
+    Scale interned = scales.get(slot);
+
+    if (interned == null) {
+      Scale built = ScaleHelper.getInstance().getScale(keyNames.get(key), scaleNames.get(scale));
+      scales.compareAndSet(slot, null, built);
+      interned = scales.get(slot);
+    }
+
+    return interned;
+  }
+
+  public Chord getChord(int key, int chord) {
+    int slot = key * chordNames.size() + chord;
+    Chord interned = chords.get(slot);
+
+    if (interned == null) {
+      Chord built = ChordHelper.getInstance().getChord(keyNames.get(key), chordNames.get(chord));
+      chords.compareAndSet(slot, null, built);
+      interned = chords.get(slot);
+    }
+
+    return interned;
+  }
+
+  private static class Holder {
+    private static final CanonicalNames INSTANCE = new CanonicalNames();
+  }
+}
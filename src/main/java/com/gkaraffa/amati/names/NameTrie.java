@@ -0,0 +1,119 @@
+package com.gkaraffa.amati.names;
+
+import java.util.Arrays;
+
+/*
+ * Case-insensitive trie over a small symbol alphabet, held in one int array of child slots. Word
+ * separators (space, underscore, hyphen) are skipped on both insert and lookup, so "Harmonic
+ * Minor", "harmonic_minor" and "HARMONICMINOR" are one name. Lookups walk a CharSequence in place
+ * and report a miss as the offset where matching stopped, so neither outcome allocates.
+ */
+final class NameTrie {
+  static final int SKIP = -2;
+  static final int INVALID = -1;
+  private static final int ALPHABET = 26 + 10 + 5;
+  private static final int NO_VALUE = -1;
+
+  private int[] children = new int[ALPHABET * 64];
+  private int[] values = new int[64];
+  private int nodeCount = 1;
+
+  NameTrie() {
+    Arrays.fill(values, NO_VALUE);
+  }
+
+  static int symbolOf(char c) {
+    if ((c >= 'a') && (c <= 'z')) {
+      return c - 'a';
+    }
+    if ((c >= 'A') && (c <= 'Z')) {
+      return c - 'A';
+    }
+    if ((c >= '0') && (c <= '9')) {
+      return 26 + (c - '0');
+    }
+
+    switch (c) {
+      case ' ':
+      case '\t':
+      case '_':
+      case '-':
+        return SKIP;
+      case '#':
+      case '\u266F':
+        return 36;
+      case '\u266D':
+        return 'b' - 'a';
+      case '+':
+        return 37;
+      case '(':
+        return 38;
+      case ')':
+        return 39;
+      case '/':
+        return 40;
+      default:
+        return INVALID;
+    }
+  }
+
+  void insert(String name, int value) throws IllegalArgumentException {
+    int node = 0;
+
+    for (int i = 0; i < name.length(); i++) {
+      int symbol = symbolOf(name.charAt(i));
+      if (symbol == SKIP) {
+        continue;
+      }
+      if (symbol == INVALID) {
+        throw new IllegalArgumentException("Unexpected character in name: " + name);
+      }
+
+      int slot = node * ALPHABET + symbol;
+      if (children[slot] == 0) {
+        int child = this.newNode();
+        children[slot] = child;
+      }
+      node = children[slot];
+    }
+
+    if ((values[node] != NO_VALUE) && (values[node] != value)) {
+      throw new IllegalArgumentException("Conflicting name: " + name);
+    }
+    values[node] = value;
+  }
+
+  private int newNode() {
+    if (nodeCount * ALPHABET >= children.length) {
+      children = Arrays.copyOf(children, children.length * 2);
+      int oldLength = values.length;
+      values = Arrays.copyOf(values, oldLength * 2);
+      Arrays.fill(values, oldLength, values.length, NO_VALUE);
+    }
+
+    return nodeCount++;
+  }
+
+  /*
+   * Returns the value stored for the text, or -(offset + 1) where offset is the index of the
+   * first character that no stored name continues with (the text's length if the text is a
+   * strict prefix of a name).
+   */
+  int find(CharSequence text) {
+    int node = 0;
+    int length = text.length();
+
+    for (int i = 0; i < length; i++) {
+      int symbol = symbolOf(text.charAt(i));
+      if (symbol == SKIP) {
+        continue;
+      }
+      if ((symbol == INVALID) || (children[node * ALPHABET + symbol] == 0)) {
+        return -(i + 1);
+      }
+      node = children[node * ALPHABET + symbol];
+    }
+
+    return (values[node] == NO_VALUE) ? -(length + 1) : values[node];
+  }
+}
@@ -0,0 +1,120 @@
+package com.gkaraffa.amati.output;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.gkaraffa.guarneri.outputform.OutputForm;
+
+/*
+ * Hands entries to a single writer thread through a bounded queue, so the thread producing them
+ * only blocks when the queue is full; that wait is recorded as producer wait in the statistics.
+ * Entries are written in the order they were queued. A write failure, checked or not, is rethrown
+ * to the producer on its next write or on close, and later entries are discarded.
+ */
+public class AsyncOutputSink implements OutputSink {
+  public static final int DEFAULT_CAPACITY = 16;
+  private static final Entry END = new Entry(null, null);
+
+  private final OutputSink delegate;
+  private final BlockingQueue<Entry> queue;
+  private final AtomicReference<IOException> failure = new AtomicReference<>();
+  private final Thread writerThread;
+
+  public AsyncOutputSink(OutputSink delegate) {
+    this(delegate, DEFAULT_CAPACITY);
+  }
+
+  public AsyncOutputSink(OutputSink delegate, int capacity) {
+    this.delegate = delegate;
+    this.queue = new ArrayBlockingQueue<>(capacity);
+    this.writerThread = new Thread(this::drain, "amati-sink");
+    this.writerThread.setDaemon(true);
+    this.writerThread.start();
+  }
+
+  @Override
+  public void write(String entryName, List<OutputForm> views) throws IOException {
+    this.rethrow();
+
+    long startTime = System.nanoTime();
+    this.put(new Entry(entryName, views));
+    delegate.getStatistics().recordQueueWait(System.nanoTime() - startTime);
+  }
+
+  private void drain() {
+    try {
+      Entry entry;
+
+      while ((entry = queue.take()) != END) {
+        if (failure.get() != null) {
+          continue;
+        }
+
+        try {
+          delegate.write(entry.entryName, entry.views);
+        }
+        catch (IOException iOE) {
+          failure.compareAndSet(null, iOE);
+        }
+        catch (RuntimeException | Error rE) {
+          // keep taking entries so a producer blocked on a full queue or on END is released
+          failure.compareAndSet(null, new IOException("Output sink failed.", rE));
+        }
+      }
+    }
+    catch (InterruptedException iE) {
+      failure.compareAndSet(null, new IOException("Output sink interrupted.", iE));
+    }
+  }
+
+  private void put(Entry entry) throws IOException {
+    try {
+      queue.put(entry);
+    }
+    catch (InterruptedException iE) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Output sink interrupted.", iE);
+    }
+  }
+
+  private void rethrow() throws IOException {
+    IOException iOE = failure.get();
+    if (iOE != null) {
+      throw iOE;
+    }
+  }
+
+  @Override
+  public SinkStatistics getStatistics() {
+    return delegate.getStatistics();
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      this.put(END);
+      writerThread.join();
+    }
+    catch (InterruptedException iE) {
+      Thread.currentThread().interrupt();
+    }
+    finally {
+      delegate.close();
+    }
+
+    this.rethrow();
+  }
+
+  static class Entry {
+    final String entryName;
+    final List<OutputForm> views;
+
+    Entry(String entryName, List<OutputForm> views) {
+      this.entryName = entryName;
+      this.views = views;
+    }
+  }
+}
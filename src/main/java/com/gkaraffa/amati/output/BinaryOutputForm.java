@@ -0,0 +1,23 @@
+package com.gkaraffa.amati.output;
+
+import java.util.Base64;
+
+import com.gkaraffa.guarneri.outputform.OutputForm;
+
+public class BinaryOutputForm implements OutputForm {
+  private final byte[] table;
+
+  public BinaryOutputForm(byte[] table) {
+    this.table = table;
+  }
+
+  @Override
+  public byte[] getByteArray() {
+    return this.table;
+  }
+
+  @Override
+  public String toString() {
+    return Base64.getEncoder().encodeToString(this.table);
+  }
+}
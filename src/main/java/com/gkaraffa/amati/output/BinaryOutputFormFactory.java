@@ -0,0 +1,114 @@
+package com.gkaraffa.amati.output;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.gkaraffa.guarneri.outputform.CSVOutputFormFactory;
+import com.gkaraffa.guarneri.outputform.OutputForm;
+import com.gkaraffa.guarneri.outputform.OutputFormFactory;
+import com.gkaraffa.guarneri.view.ViewTable;
+
+/*
+ * Encodes a view table in the BinaryTableFormat layout. The table is read back from its CSV
+ * rendering, so the binary cells are exactly the cells every other format shows; the first row
+ * becomes the column names.
+ */
+public class BinaryOutputFormFactory implements OutputFormFactory {
+  private final CSVOutputFormFactory csvOutputFormFactory = new CSVOutputFormFactory();
+
+  @Override
+  public OutputForm renderView(ViewTable viewTable) {
+    return new BinaryOutputForm(encode(this.csvOutputFormFactory.renderView(viewTable)));
+  }
+
+  public static byte[] encode(OutputForm csvForm) {
+    List<List<String>> rows = new ArrayList<>();
+
+    for (List<String> record : SpreadsheetWriter.parseCsvRecords(csvForm.toString())) {
+      if ((record.size() > 1) || !record.get(0).isEmpty()) {
+        rows.add(record);
+      }
+    }
+
+    List<String> columnNames = rows.isEmpty() ? new ArrayList<>() : rows.remove(0);
+    return encode(columnNames, rows);
+  }
+
+  public static byte[] encode(List<String> columnNames, List<List<String>> rows) {
+    int columnCount = columnNames.size();
+    int rowCount = rows.size();
+    Map<String, Integer> stringIds = new HashMap<>();
+    List<byte[]> strings = new ArrayList<>();
+    int[] columnIds = new int[columnCount];
+    int[] cellIds = new int[columnCount * rowCount];
+    int stringDataLength = 0;
+
+    for (int column = 0; column < columnCount; column++) {
+      columnIds[column] = intern(columnNames.get(column), stringIds, strings);
+    }
+    for (int row = 0; row < rowCount; row++) {
+      List<String> cells = rows.get(row);
+      for (int column = 0; column < columnCount; column++) {
+        String cell = (column < cells.size()) ? cells.get(column) : "";
+        cellIds[(column * rowCount) + row] = intern(cell, stringIds, strings);
+      }
+    }
+    for (byte[] string : strings) {
+      stringDataLength += string.length;
+    }
+
+    int cellWidth = (strings.size() <= BinaryTableFormat.MAX_SHORT_ID + 1) ? Short.BYTES
+        : Integer.BYTES;
+    int tableLength = BinaryTableFormat.HEADER_SIZE + (columnCount * Integer.BYTES)
+        + ((strings.size() + 1) * Integer.BYTES)
+        + BinaryTableFormat.align(cellIds.length * cellWidth)
+        + BinaryTableFormat.align(stringDataLength);
+    ByteBuffer buffer = ByteBuffer.allocate(tableLength);
+
+    buffer.putInt(BinaryTableFormat.MAGIC).putInt(BinaryTableFormat.VERSION).putInt(tableLength)
+        .putInt(columnCount).putInt(rowCount).putInt(strings.size()).putInt(stringDataLength)
+        .putInt(cellWidth);
+    for (int columnId : columnIds) {
+      buffer.putInt(columnId);
+    }
+
+    int offset = 0;
+    for (byte[] string : strings) {
+      buffer.putInt(offset);
+      offset += string.length;
+    }
+    buffer.putInt(offset);
+
+    for (int cellId : cellIds) {
+      if (cellWidth == Short.BYTES) {
+        buffer.putShort((short) cellId);
+      }
+      else {
+        buffer.putInt(cellId);
+      }
+    }
+    buffer.position(buffer.position() + BinaryTableFormat.align(cellIds.length * cellWidth)
+        - (cellIds.length * cellWidth));
+    for (byte[] string : strings) {
+      buffer.put(string);
+    }
+
+    return buffer.array();
+  }
+
+  private static int intern(String text, Map<String, Integer> stringIds, List<byte[]> strings) {
+    Integer stringId = stringIds.get(text);
+
+    if (stringId == null) {
+      stringId = strings.size();
+      stringIds.put(text, stringId);
+      strings.add(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    return stringId;
+  }
+}
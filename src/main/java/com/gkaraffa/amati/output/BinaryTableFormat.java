@@ -0,0 +1,39 @@
+package com.gkaraffa.amati.output;
+
+/*
+ * One table, big-endian, every section 4-byte aligned:
+ *
+ *   header      magic, version, table length, column count, row count, string count,
+ *               string data length, cell width (8 ints)
+ *   columns     column count ints: string ids of the column names
+ *   strings     string count + 1 ints: byte offsets of each string into the string data
+ *   cells       column count blocks of row count ids, each cell width (2 or 4) bytes, by column,
+ *               then padding to a multiple of 4
+ *   data        string data length bytes of UTF-8, then padding to a multiple of 4
+ *
+ * Every distinct cell text is stored once, so a cell is one id, two bytes wide whenever the
+ * dictionary has fewer than 65536 strings, and a column can be scanned or compared by id without
+ * decoding. Tables are self-delimiting through the table length and may
+ * be concatenated.
+ */
+public final class BinaryTableFormat {
+  public static final int MAGIC = 0x414D5442;
+  public static final int VERSION = 1;
+  public static final int HEADER_SIZE = 8 * Integer.BYTES;
+  public static final int MAX_SHORT_ID = 0xFFFF;
+
+  static final int MAGIC_OFFSET = 0;
+  static final int VERSION_OFFSET = 4;
+  static final int TABLE_LENGTH_OFFSET = 8;
+  static final int COLUMN_COUNT_OFFSET = 12;
+  static final int ROW_COUNT_OFFSET = 16;
+  static final int STRING_COUNT_OFFSET = 20;
+  static final int STRING_DATA_LENGTH_OFFSET = 24;
+  static final int CELL_WIDTH_OFFSET = 28;
+
+  private BinaryTableFormat() {}
+
+  static int align(int length) {
+    return (length + 3) & ~3;
+  }
+}
@@ -0,0 +1,168 @@
+package com.gkaraffa.amati.output;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Random access over one BinaryTableFormat table in a heap or mapped buffer. Nothing is copied
+ * or decoded up front: a cell is two int reads, and its text is only decoded when asked for.
+ * The constructor checks that every section the header describes lies inside the table, and each
+ * string lookup checks its id and offsets, so a corrupt table is rejected with an
+ * IllegalArgumentException instead of reading past its own end.
+ */
+public class BinaryTableReader {
+  private final ByteBuffer buffer;
+  private final int tableLength;
+  private final int columnCount;
+  private final int rowCount;
+  private final int stringCount;
+  private final int stringDataLength;
+  private final int cellWidth;
+  private final int columnsOffset;
+  private final int stringOffsetsOffset;
+  private final int cellsOffset;
+  private final int stringDataOffset;
+
+  public BinaryTableReader(ByteBuffer buffer) throws IllegalArgumentException {
+    this(buffer, buffer.position());
+  }
+
+  public BinaryTableReader(ByteBuffer buffer, int base) throws IllegalArgumentException {
+    this.buffer = buffer.duplicate().order(ByteOrder.BIG_ENDIAN);
+
+    if ((this.buffer.limit() - base < BinaryTableFormat.HEADER_SIZE)
+        || (this.buffer.getInt(base + BinaryTableFormat.MAGIC_OFFSET) != BinaryTableFormat.MAGIC)) {
+      throw new IllegalArgumentException("Not an Amati binary table.");
+    }
+    if (this.buffer.getInt(base + BinaryTableFormat.VERSION_OFFSET) != BinaryTableFormat.VERSION) {
+      throw new IllegalArgumentException("Unsupported binary table version.");
+    }
+
+    this.tableLength = this.buffer.getInt(base + BinaryTableFormat.TABLE_LENGTH_OFFSET);
+    this.columnCount = this.buffer.getInt(base + BinaryTableFormat.COLUMN_COUNT_OFFSET);
+    this.rowCount = this.buffer.getInt(base + BinaryTableFormat.ROW_COUNT_OFFSET);
+    this.stringCount = this.buffer.getInt(base + BinaryTableFormat.STRING_COUNT_OFFSET);
+    this.stringDataLength = this.buffer.getInt(base + BinaryTableFormat.STRING_DATA_LENGTH_OFFSET);
+    this.cellWidth = this.buffer.getInt(base + BinaryTableFormat.CELL_WIDTH_OFFSET);
+    if (tableLength < BinaryTableFormat.HEADER_SIZE) {
+      throw new IllegalArgumentException("Corrupt binary table length.");
+    }
+    if (base + (long) tableLength > this.buffer.limit()) {
+      throw new IllegalArgumentException("Truncated binary table.");
+    }
+    if ((columnCount < 0) || (rowCount < 0) || (stringCount < 0) || (stringDataLength < 0)
+        || ((cellWidth != Short.BYTES) && (cellWidth != Integer.BYTES))) {
+      throw new IllegalArgumentException("Corrupt binary table header.");
+    }
+
+    long stringOffsetsStart = BinaryTableFormat.HEADER_SIZE + ((long) columnCount * Integer.BYTES);
+    long cellsStart = stringOffsetsStart + (((long) stringCount + 1) * Integer.BYTES);
+    long stringDataStart = cellsStart + alignLong((long) columnCount * rowCount * cellWidth);
+    if (stringDataStart + stringDataLength > tableLength) {
+      throw new IllegalArgumentException("Corrupt binary table layout.");
+    }
+
+    this.columnsOffset = base + BinaryTableFormat.HEADER_SIZE;
+    this.stringOffsetsOffset = base + (int) stringOffsetsStart;
+    this.cellsOffset = base + (int) cellsStart;
+    this.stringDataOffset = base + (int) stringDataStart;
+  }
+
+  private static long alignLong(long length) {
+    return (length + 3) & ~3L;
+  }
+
+  public static List<BinaryTableReader> readAll(ByteBuffer buffer)
+      throws IllegalArgumentException {
+    List<BinaryTableReader> readers = new ArrayList<>();
+    int position = buffer.position();
+
+    while (position < buffer.limit()) {
+      BinaryTableReader reader = new BinaryTableReader(buffer, position);
+      readers.add(reader);
+      position += reader.getTableLength();
+    }
+
+    return readers;
+  }
+
+  public int getTableLength() {
+    return tableLength;
+  }
+
+  public int getColumnCount() {
+    return columnCount;
+  }
+
+  public int getRowCount() {
+    return rowCount;
+  }
+
+  public String getColumnName(int column) {
+    return this.getString(buffer.getInt(columnsOffset + (this.checkColumn(column) * 4)));
+  }
+
+  public int getColumnIndex(String columnName) {
+    for (int column = 0; column < columnCount; column++) {
+      if (this.getColumnName(column).equals(columnName)) {
+        return column;
+      }
+    }
+
+    return -1;
+  }
+
+  public int getCellId(int row, int column) throws IndexOutOfBoundsException {
+    if ((row < 0) || (row >= rowCount)) {
+      throw new IndexOutOfBoundsException("Row " + row + " of " + rowCount);
+    }
+
+    int cellOffset = cellsOffset + (((this.checkColumn(column) * rowCount) + row) * cellWidth);
+
+    return (cellWidth == Short.BYTES)
+        ? (buffer.getShort(cellOffset) & BinaryTableFormat.MAX_SHORT_ID)
+        : buffer.getInt(cellOffset);
+  }
+
+  public String getCell(int row, int column) throws IndexOutOfBoundsException {
+    return this.getString(this.getCellId(row, column));
+  }
+
+  public ByteBuffer getCellBytes(int row, int column) throws IndexOutOfBoundsException {
+    return this.getStringBytes(this.getCellId(row, column));
+  }
+
+  public ByteBuffer getStringBytes(int stringId) throws IllegalArgumentException {
+    if ((stringId < 0) || (stringId >= stringCount)) {
+      throw new IllegalArgumentException("Corrupt binary table string id: " + stringId);
+    }
+
+    int start = buffer.getInt(stringOffsetsOffset + (stringId * 4));
+    int end = buffer.getInt(stringOffsetsOffset + ((stringId + 1) * 4));
+    if ((start < 0) || (start > end) || (end > stringDataLength)) {
+      throw new IllegalArgumentException("Corrupt binary table string offsets.");
+    }
+
+    ByteBuffer slice = buffer.duplicate();
+
+    slice.limit(stringDataOffset + end).position(stringDataOffset + start);
+    return slice.slice();
+  }
+
+  public String getString(int stringId) throws IllegalArgumentException {
+    ByteBuffer bytes = this.getStringBytes(stringId);
+
+    return StandardCharsets.UTF_8.decode(bytes).toString();
+  }
+
+  private int checkColumn(int column) throws IndexOutOfBoundsException {
+    if ((column < 0) || (column >= columnCount)) {
+      throw new IndexOutOfBoundsException("Column " + column + " of " + columnCount);
+    }
+
+    return column;
+  }
+}
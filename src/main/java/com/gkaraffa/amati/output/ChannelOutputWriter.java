@@ -0,0 +1,127 @@
+package com.gkaraffa.amati.output;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.List;
+
+import com.gkaraffa.guarneri.outputform.OutputForm;
+
+/*
+ * Text output is encoded from the rendered form straight into one reusable direct buffer with
+ * the charset and line separator PrintStream.println would use, so stdout stays byte-for-byte
+ * identical without an intermediate byte[] per table. Binary tables are copied through as raw
+ * bytes with no separator. File output hands the rendered byte arrays to a single gathering write
+ * instead of copying them through a BufferedOutputStream.
+ */
+public class ChannelOutputWriter {
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+  private final CharsetEncoder encoder;
+  private final CharBuffer lineSeparator = CharBuffer.wrap(System.lineSeparator());
+
+  public ChannelOutputWriter() {
+    this(stdoutCharset());
+  }
+
+  public ChannelOutputWriter(Charset charset) {
+    this.encoder = charset.newEncoder().onMalformedInput(CodingErrorAction.REPLACE)
+        .onUnmappableCharacter(CodingErrorAction.REPLACE);
+  }
+
+  private static Charset stdoutCharset() {
+    String encoding =
+        System.getProperty("stdout.encoding", System.getProperty("sun.stdout.encoding"));
+
+    try {
+      return (encoding == null) ? Charset.defaultCharset() : Charset.forName(encoding);
+    }
+    catch (IllegalArgumentException iAE) {
+      return Charset.defaultCharset();
+    }
+  }
+
+  public void writeToStdOut(List<OutputForm> views) throws IOException {
+    PrintStream stdOut = System.out;
+
+    synchronized (stdOut) {
+      this.writeLines(Channels.newChannel(stdOut), views);
+      stdOut.flush();
+    }
+  }
+
+  public synchronized void writeLines(WritableByteChannel channel, List<OutputForm> views)
+      throws IOException {
+    buffer.clear();
+
+    for (OutputForm view : views) {
+      if (view instanceof BinaryOutputForm) {
+        this.drain(channel);
+        this.writeFully(channel, ByteBuffer.wrap(view.getByteArray()));
+        continue;
+      }
+
+      this.encode(channel, CharBuffer.wrap(view.toString()));
+      lineSeparator.rewind();
+      this.encode(channel, lineSeparator);
+    }
+
+    this.drain(channel);
+  }
+
+  public static long writeBytes(GatheringByteChannel channel, List<OutputForm> views)
+      throws IOException {
+    ByteBuffer[] buffers = new ByteBuffer[views.size()];
+    long remaining = 0;
+
+    for (int i = 0; i < buffers.length; i++) {
+      buffers[i] = ByteBuffer.wrap(views.get(i).getByteArray());
+      remaining += buffers[i].remaining();
+    }
+
+    long written = 0;
+    while (written < remaining) {
+      written += channel.write(buffers);
+    }
+
+    return written;
+  }
+
+  private void encode(WritableByteChannel channel, CharBuffer characters) throws IOException {
+    encoder.reset();
+
+    while (true) {
+      CoderResult coderResult = encoder.encode(characters, buffer, true);
+      if (coderResult.isOverflow()) {
+        this.drain(channel);
+        continue;
+      }
+      break;
+    }
+
+    while (encoder.flush(buffer).isOverflow()) {
+      this.drain(channel);
+    }
+  }
+
+  private void drain(WritableByteChannel channel) throws IOException {
+    buffer.flip();
+    this.writeFully(channel, buffer);
+    buffer.clear();
+  }
+
+  private void writeFully(WritableByteChannel channel, ByteBuffer source) throws IOException {
+    while (source.hasRemaining()) {
+      channel.write(source);
+    }
+  }
+}
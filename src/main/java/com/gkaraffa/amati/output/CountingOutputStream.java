@@ -0,0 +1,27 @@
+package com.gkaraffa.amati.output;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.function.LongConsumer;
+
+class CountingOutputStream extends FilterOutputStream {
+  private final LongConsumer counter;
+
+  CountingOutputStream(OutputStream outputStream, LongConsumer counter) {
+    super(outputStream);
+    this.counter = counter;
+  }
+
+  @Override
+  public void write(int b) throws IOException {
+    out.write(b);
+    counter.accept(1);
+  }
+
+  @Override
+  public void write(byte[] b, int off, int len) throws IOException {
+    out.write(b, off, len);
+    counter.accept(len);
+  }
+}
@@ -0,0 +1,51 @@
+package com.gkaraffa.amati.output;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import com.gkaraffa.guarneri.outputform.OutputForm;
+
+public class DirectoryOutputSink implements OutputSink {
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private final File outputDirectory;
+  private final boolean gzip;
+  private final SinkStatistics sinkStatistics = new SinkStatistics();
+
+  public DirectoryOutputSink(File outputDirectory, boolean gzip) {
+    this.outputDirectory = outputDirectory;
+    this.gzip = gzip;
+  }
+
+  @Override
+  public void write(String entryName, List<OutputForm> views) throws IOException {
+    File file = new File(outputDirectory, gzip ? entryName + ".gz" : entryName);
+    long startTime = System.nanoTime();
+
+    try (OutputStream fileStream = new CountingOutputStream(
+        new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE),
+        sinkStatistics::addStoredBytes);
+        OutputStream payloadStream = new CountingOutputStream(
+            gzip ? new GZIPOutputStream(fileStream, BUFFER_SIZE) : fileStream,
+            sinkStatistics::addPayloadBytes)) {
+      for (OutputForm view : views) {
+        payloadStream.write(view.getByteArray());
+      }
+    }
+
+    sinkStatistics.recordEntry(System.nanoTime() - startTime);
+  }
+
+  @Override
+  public SinkStatistics getStatistics() {
+    return sinkStatistics;
+  }
+
+  @Override
+  public void close() {}
+}
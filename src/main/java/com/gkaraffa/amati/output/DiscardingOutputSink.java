@@ -0,0 +1,57 @@
+package com.gkaraffa.amati.output;
+
+import java.io.OutputStream;
+import java.util.List;
+
+import com.gkaraffa.guarneri.outputform.OutputForm;
+
+/*
+ * Counts and drops everything written to it, for load tests that want the full query path up to
+ * the rendered bytes without measuring a terminal or a disk. One instance is shared by every
+ * query, so closing it does nothing.
+ */
+public class DiscardingOutputSink implements OutputSink {
+  private final SinkStatistics sinkStatistics = new SinkStatistics();
+
+  @Override
+  public void write(String entryName, List<OutputForm> views) {
+    long startTime = System.nanoTime();
+    long byteCount = 0;
+
+    for (OutputForm view : views) {
+      byteCount += view.getByteArray().length;
+    }
+
+    sinkStatistics.addPayloadBytes(byteCount);
+    sinkStatistics.recordEntry(System.nanoTime() - startTime);
+  }
+
+  public OutputStream openStream() {
+    return new CountingOutputStream(new DiscardingOutputStream(),
+        sinkStatistics::addPayloadBytes) {
+      @Override
+      public void close() {
+        sinkStatistics.recordEntry(0);
+      }
+    };
+  }
+
+  @Override
+  public SinkStatistics getStatistics() {
+    return sinkStatistics;
+  }
+
+  @Override
+  public void close() {
+  }
+
+  static class DiscardingOutputStream extends OutputStream {
+    @Override
+    public void write(int b) {
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+    }
+  }
+}
@@ -0,0 +1,17 @@
+package com.gkaraffa.amati.output;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+
+import com.gkaraffa.guarneri.outputform.OutputForm;
+
+/*
+ * Destination for rendered views. Each write is one entry: a query's or a table's forms, named
+ * with the file name a directory sink would give it. Sinks that write one stream ignore the name.
+ */
+public interface OutputSink extends Closeable {
+  void write(String entryName, List<OutputForm> views) throws IOException;
+
+  SinkStatistics getStatistics();
+}
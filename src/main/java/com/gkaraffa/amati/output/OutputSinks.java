@@ -0,0 +1,52 @@
+package com.gkaraffa.amati.output;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+public final class OutputSinks {
+  private OutputSinks() {}
+
+  public static OutputSink open(String outputFileName, String outputDirectoryName, boolean gzip,
+      ChannelOutputWriter consoleWriter) throws IllegalArgumentException, IOException {
+    boolean toFile = (outputFileName != null) && !outputFileName.trim().equals("");
+    boolean toDirectory = (outputDirectoryName != null) && !outputDirectoryName.trim().equals("");
+
+    if (toFile && toDirectory) {
+      throw new IllegalArgumentException("Specify either an output file or a directory.");
+    }
+    if (toDirectory) {
+      File outputDirectory = new File(outputDirectoryName.trim());
+      if (!outputDirectory.isDirectory() && !outputDirectory.mkdirs()) {
+        throw new IllegalArgumentException("Output directory cannot be created.");
+      }
+
+      return new DirectoryOutputSink(outputDirectory, gzip);
+    }
+    if (toFile) {
+      return openStream(outputFileName, gzip);
+    }
+
+    return new StreamOutputSink(System.out, consoleWriter, gzip);
+  }
+
+  public static StreamOutputSink openStream(String outputFileName, boolean gzip)
+      throws IOException {
+    if ((outputFileName == null) || outputFileName.trim().equals("")) {
+      return new StreamOutputSink(System.out, null, gzip);
+    }
+
+    String fileName = outputFileName.trim();
+    if (gzip && !fileName.endsWith(".gz")) {
+      fileName += ".gz";
+    }
+
+    return new StreamOutputSink(new FileOutputStream(new File(fileName)).getChannel(), gzip);
+  }
+
+  public static OutputSink openAsync(String outputFileName, String outputDirectoryName,
+      boolean gzip, ChannelOutputWriter consoleWriter)
+      throws IllegalArgumentException, IOException {
+    return new AsyncOutputSink(open(outputFileName, outputDirectoryName, gzip, consoleWriter));
+  }
+}
@@ -0,0 +1,59 @@
+package com.gkaraffa.amati.output;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.gkaraffa.amati.metrics.LatencyHistogram;
+
+public class SinkStatistics {
+  private final AtomicLong entryCount = new AtomicLong();
+  private final AtomicLong payloadBytes = new AtomicLong();
+  private final AtomicLong storedBytes = new AtomicLong();
+  private final LatencyHistogram flushLatency = new LatencyHistogram();
+  private final LatencyHistogram queueWait = new LatencyHistogram();
+
+  void recordEntry(long flushNanos) {
+    entryCount.incrementAndGet();
+    flushLatency.recordValue(flushNanos);
+  }
+
+  void addPayloadBytes(long byteCount) {
+    payloadBytes.addAndGet(byteCount);
+  }
+
+  void addStoredBytes(long byteCount) {
+    storedBytes.addAndGet(byteCount);
+  }
+
+  void recordQueueWait(long waitNanos) {
+    queueWait.recordValue(waitNanos);
+  }
+
+  public long getEntryCount() {
+    return entryCount.get();
+  }
+
+  public long getPayloadBytes() {
+    return payloadBytes.get();
+  }
+
+  public long getStoredBytes() {
+    return storedBytes.get();
+  }
+
+  public LatencyHistogram getFlushLatency() {
+    return flushLatency;
+  }
+
+  public LatencyHistogram getQueueWait() {
+    return queueWait;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("Sink: %d entries, %d bytes written (%d stored), flush p50 %.1f us"
+        + " p99 %.1f us max %.1f us, producer waited %.3f ms", entryCount.get(),
+        payloadBytes.get(), storedBytes.get(), flushLatency.getValueAtPercentile(50) / 1_000.0,
+        flushLatency.getValueAtPercentile(99) / 1_000.0, flushLatency.getMax() / 1_000.0,
+        queueWait.getSum() / 1_000_000.0);
+  }
+}
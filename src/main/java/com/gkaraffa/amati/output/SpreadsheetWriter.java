@@ -0,0 +1,193 @@
+package com.gkaraffa.amati.output;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.util.WorkbookUtil;
+import org.apache.poi.xssf.streaming.GZIPSheetDataWriter;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.apache.poi.xssf.streaming.SheetDataWriter;
+
+import com.gkaraffa.guarneri.outputform.OutputForm;
+
+/*
+ * Writes CSV-rendered view tables into a workbook, one sheet per table. XLSX goes through
+ * SXSSFWorkbook so only the last ROW_WINDOW rows of the current sheet stay on the heap and the
+ * rest spill to compressed temporary files; XLS has no streaming writer and is built in memory.
+ * Each streamed sheet's temp file writer, a descriptor plus a native Deflater, is closed as soon
+ * as its table is complete, so a batch export with thousands of sheets holds one open at a time.
+ */
+public class SpreadsheetWriter implements Closeable {
+  private static final int ROW_WINDOW = 100;
+  private static final Pattern NUMERIC = Pattern.compile("-?\\d+(\\.\\d+)?");
+
+  private final OutputStream outputStream;
+  private final Workbook workbook;
+  private int sheetCount = 0;
+
+  public SpreadsheetWriter(OutputStream outputStream, boolean streaming) {
+    this.outputStream = outputStream;
+
+    if (streaming) {
+      this.workbook = new SheetReleasingWorkbook(ROW_WINDOW);
+    }
+    else {
+      this.workbook = new HSSFWorkbook();
+    }
+  }
+
+  public static void writeTables(OutputStream outputStream, boolean streaming, String sheetName,
+      List<OutputForm> views) throws IOException {
+    try (SpreadsheetWriter spreadsheetWriter = new SpreadsheetWriter(outputStream, streaming)) {
+      for (OutputForm view : views) {
+        spreadsheetWriter.appendTable(sheetName, view);
+      }
+    }
+  }
+
+  public void appendTable(String sheetName, OutputForm csvForm) throws IOException {
+    sheetCount++;
+    Sheet sheet = workbook.createSheet(this.uniqueSheetName(sheetName));
+    List<List<String>> records = parseCsvRecords(csvForm.toString());
+
+    for (int rowIndex = 0; rowIndex < records.size(); rowIndex++) {
+      Row row = sheet.createRow(rowIndex);
+      List<String> cells = records.get(rowIndex);
+
+      for (int columnIndex = 0; columnIndex < cells.size(); columnIndex++) {
+        Cell cell = row.createCell(columnIndex);
+        String value = cells.get(columnIndex);
+
+        if (NUMERIC.matcher(value).matches()) {
+          cell.setCellValue(Double.parseDouble(value));
+        }
+        else {
+          cell.setCellValue(value);
+        }
+      }
+    }
+
+    if (sheet instanceof SXSSFSheet) {
+      // flushes the remaining rows and closes the sheet's writer; the stream itself is not needed
+      ((SXSSFSheet) sheet).getWorksheetXMLInputStream().close();
+    }
+  }
+
+  private String uniqueSheetName(String sheetName) {
+    String prefix = sheetCount + " ";
+    String safeName = WorkbookUtil.createSafeSheetName(sheetName);
+    int maxLength = 31 - prefix.length();
+
+    return prefix + ((safeName.length() > maxLength) ? safeName.substring(0, maxLength) : safeName);
+  }
+
+  /*
+   * Splits CSV text into records, reading quoted cells across line breaks. A blank line is a
+   * record of one empty cell; the line break ending the text does not start another record.
+   */
+  public static List<List<String>> parseCsvRecords(String text) {
+    List<List<String>> records = new ArrayList<>();
+    List<String> cells = new ArrayList<>();
+    StringBuilder current = new StringBuilder();
+    boolean quoted = false;
+
+    for (int i = 0; i < text.length(); i++) {
+      char c = text.charAt(i);
+
+      if (quoted) {
+        if ((c == '"') && (i + 1 < text.length()) && (text.charAt(i + 1) == '"')) {
+          current.append('"');
+          i++;
+        }
+        else if (c == '"') {
+          quoted = false;
+        }
+        else {
+          current.append(c);
+        }
+      }
+      else if (c == '"') {
+        quoted = true;
+      }
+      else if (c == ',') {
+        cells.add(current.toString().trim());
+        current.setLength(0);
+      }
+      else if ((c == '\r') && (i + 1 < text.length()) && (text.charAt(i + 1) == '\n')) {
+        continue;
+      }
+      else if (c == '\n') {
+        cells.add(current.toString().trim());
+        current.setLength(0);
+        records.add(cells);
+        cells = new ArrayList<>();
+      }
+      else {
+        current.append(c);
+      }
+    }
+
+    if (!cells.isEmpty() || (current.length() > 0) || quoted) {
+      cells.add(current.toString().trim());
+      records.add(cells);
+    }
+
+    return records;
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      workbook.write(outputStream);
+      outputStream.flush();
+    }
+    finally {
+      if (workbook instanceof SXSSFWorkbook) {
+        ((SXSSFWorkbook) workbook).dispose();
+      }
+      workbook.close();
+    }
+  }
+
+  static class SheetReleasingWorkbook extends SXSSFWorkbook {
+    SheetReleasingWorkbook(int rowWindow) {
+      super(rowWindow);
+      this.setCompressTempFiles(true);
+    }
+
+    @Override
+    protected SheetDataWriter createSheetDataWriter() throws IOException {
+      return new ReleasableSheetDataWriter();
+    }
+  }
+
+  /*
+   * SXSSFWorkbook closes each sheet's writer again when it writes the workbook, and a second
+   * close of the underlying BufferedWriter would fail on its flush.
+   */
+  static class ReleasableSheetDataWriter extends GZIPSheetDataWriter {
+    private boolean closed = false;
+
+    ReleasableSheetDataWriter() throws IOException {
+      super();
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (!closed) {
+        closed = true;
+        super.close();
+      }
+    }
+  }
+}
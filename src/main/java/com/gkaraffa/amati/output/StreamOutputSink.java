@@ -0,0 +1,127 @@
+package com.gkaraffa.amati.output;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import com.gkaraffa.guarneri.outputform.OutputForm;
+
+/*
+ * Writes every entry to one stream, optionally gzip-compressed. Console output is encoded by
+ * ChannelOutputWriter straight into the stream's channel; an uncompressed file gets the forms' raw
+ * bytes in one gathering write on its FileChannel. Only gzip goes through a buffered stream, as
+ * the compressor needs one. Each entry is flushed to the stream's owner, and that flush is what
+ * the latency histogram times. Streamed analytics write straight to the sink's channel as one
+ * entry.
+ */
+public class StreamOutputSink implements OutputSink {
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private final OutputStream target;
+  private final FileChannel fileChannel;
+  private final ChannelOutputWriter consoleWriter;
+  private final GZIPOutputStream gzipStream;
+  private final OutputStream payloadStream;
+  private final WritableByteChannel payloadChannel;
+  private final SinkStatistics sinkStatistics = new SinkStatistics();
+
+  public StreamOutputSink(OutputStream target, ChannelOutputWriter consoleWriter, boolean gzip)
+      throws IOException {
+    this(target, null, consoleWriter, gzip);
+  }
+
+  public StreamOutputSink(FileChannel fileChannel, boolean gzip) throws IOException {
+    this(Channels.newOutputStream(fileChannel), gzip ? null : fileChannel, null, gzip);
+  }
+
+  private StreamOutputSink(OutputStream target, FileChannel fileChannel,
+      ChannelOutputWriter consoleWriter, boolean gzip) throws IOException {
+    this.target = target;
+    this.fileChannel = fileChannel;
+    this.consoleWriter = consoleWriter;
+
+    if (gzip) {
+      OutputStream storedStream = new CountingOutputStream(
+          new BufferedOutputStream(target, BUFFER_SIZE), sinkStatistics::addStoredBytes);
+      this.gzipStream = new GZIPOutputStream(storedStream, BUFFER_SIZE);
+      this.payloadStream = new CountingOutputStream(gzipStream, sinkStatistics::addPayloadBytes);
+    }
+    else {
+      this.gzipStream = null;
+      this.payloadStream = new CountingOutputStream(
+          new CountingOutputStream(target, sinkStatistics::addStoredBytes),
+          sinkStatistics::addPayloadBytes);
+    }
+    this.payloadChannel = (fileChannel != null) ? fileChannel : Channels.newChannel(payloadStream);
+  }
+
+  @Override
+  public void write(String entryName, List<OutputForm> views) throws IOException {
+    long startTime = System.nanoTime();
+
+    if (consoleWriter != null) {
+      synchronized (System.out) {
+        consoleWriter.writeLines(payloadChannel, views);
+        payloadStream.flush();
+      }
+    }
+    else if (fileChannel != null) {
+      this.addFileBytes(ChannelOutputWriter.writeBytes(fileChannel, views));
+    }
+    else {
+      for (OutputForm view : views) {
+        payloadStream.write(view.getByteArray());
+      }
+      payloadStream.flush();
+    }
+
+    sinkStatistics.recordEntry(System.nanoTime() - startTime);
+  }
+
+  public void write(ChannelWriter channelWriter) throws IOException {
+    long startTime = System.nanoTime();
+
+    if (fileChannel != null) {
+      long startPosition = fileChannel.position();
+      channelWriter.write(fileChannel);
+      this.addFileBytes(fileChannel.position() - startPosition);
+    }
+    else {
+      channelWriter.write(payloadChannel);
+      payloadStream.flush();
+    }
+
+    sinkStatistics.recordEntry(System.nanoTime() - startTime);
+  }
+
+  private void addFileBytes(long byteCount) {
+    sinkStatistics.addPayloadBytes(byteCount);
+    sinkStatistics.addStoredBytes(byteCount);
+  }
+
+  @Override
+  public SinkStatistics getStatistics() {
+    return sinkStatistics;
+  }
+
+  public interface ChannelWriter {
+    void write(WritableByteChannel channel) throws IOException;
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (gzipStream != null) {
+      gzipStream.finish();
+    }
+    payloadStream.flush();
+
+    if (target != System.out) {
+      target.close();
+    }
+  }
+}
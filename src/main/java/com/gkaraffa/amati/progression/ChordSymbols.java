@@ -0,0 +1,80 @@
+package com.gkaraffa.amati.progression;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Splits lead-sheet chord symbols (C, Am, Bb7, F#m7b5, Ebmaj7/G) into a root tone name and one of
+ * the chord names ChordHelper knows. A slash bass is ignored. A progression is a run of symbols
+ * separated by spaces, commas, bars or free-standing dashes (C - Am | F, G7).
+ */
+public final class ChordSymbols {
+  private static final Map<String, String> SUFFIXES = new HashMap<>();
+
+  static {
+    register("Major", "", "maj", "M");
+    register("Minor", "m", "min", "-");
+    register("Diminished", "dim", "o", "\u00B0");
+    register("Augmented", "aug", "+");
+    register("Suspended Second", "sus2");
+    register("Suspended Fourth", "sus4", "sus");
+    register("Major Seventh", "maj7", "M7", "\u0394", "\u03947");
+    register("Minor Seventh", "m7", "min7", "-7");
+    register("Dominant Seventh", "7", "dom7");
+    register("Half Diminished Seventh", "m7b5", "min7b5", "-7b5", "\u00F8", "\u00F87");
+    register("Diminished Seventh", "dim7", "o7", "\u00B07");
+    register("Minor Major Seventh", "mMaj7", "mM7", "m(maj7)", "minmaj7", "-maj7");
+    register("Augmented Seventh", "aug7", "+7", "7#5");
+    register("Major Sixth", "6", "maj6");
+    register("Minor Sixth", "m6", "min6", "-6");
+  }
+
+  private ChordSymbols() {}
+
+  private static void register(String chordName, String... suffixes) {
+    for (String suffix : suffixes) {
+      SUFFIXES.put(suffix, chordName);
+    }
+  }
+
+  public static String[] split(String progression) throws IllegalArgumentException {
+    List<String> symbols = new ArrayList<>();
+
+    for (String token : progression.trim().split("[\\s,|]+")) {
+      if (!token.isEmpty() && !token.equals("-")) {
+        symbols.add(token);
+      }
+    }
+    if (symbols.isEmpty()) {
+      throw new IllegalArgumentException("Progression must contain at least one chord.");
+    }
+
+    return symbols.toArray(new String[symbols.size()]);
+  }
+
+  public static String[] parse(String symbol) throws IllegalArgumentException {
+    int slash = symbol.indexOf('/');
+    String chordSymbol = (slash > 0) ? symbol.substring(0, slash) : symbol;
+    if (chordSymbol.isEmpty() || (Character.toUpperCase(chordSymbol.charAt(0)) < 'A')
+        || (Character.toUpperCase(chordSymbol.charAt(0)) > 'G')) {
+      throw new IllegalArgumentException("Unexpected chord symbol: " + symbol);
+    }
+
+    int rootEnd = 1;
+    while ((rootEnd < chordSymbol.length())
+        && ((chordSymbol.charAt(rootEnd) == '#') || (chordSymbol.charAt(rootEnd) == 'b'))) {
+      rootEnd++;
+    }
+
+    String chordName = SUFFIXES.get(chordSymbol.substring(rootEnd));
+    if (chordName == null) {
+      throw new IllegalArgumentException("Unexpected chord symbol: " + symbol);
+    }
+
+    return new String[] {
+        Character.toUpperCase(chordSymbol.charAt(0)) + chordSymbol.substring(1, rootEnd),
+        chordName};
+  }
+}
@@ -0,0 +1,166 @@
+package com.gkaraffa.amati.progression;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.gkaraffa.amati.index.PitchClasses;
+import com.gkaraffa.cremona.helper.ChordHelper;
+
+/*
+ * Roman-numeral analysis of chord symbols against one diatonic scale. Symbols are looked up by
+ * their raw bytes in an open-addressed table that holds the encoded numeral, so a symbol seen
+ * before costs a hash and a compare with no allocation; a new symbol is parsed and resolved
+ * through ChordHelper once. The table is bounded, and symbols beyond it are resolved every time.
+ */
+public class ProgressionAnalyzer {
+  private static final int TABLE_SIZE = 1 << 14;
+  private static final int MAX_ENTRIES = TABLE_SIZE / 2;
+  private static final String[] NUMERALS = {"I", "II", "III", "IV", "V", "VI", "VII"};
+  private static final Map<String, String[]> QUALITIES = new HashMap<>();
+
+  static {
+    QUALITIES.put("Major", new String[] {"U", ""});
+    QUALITIES.put("Minor", new String[] {"L", ""});
+    QUALITIES.put("Diminished", new String[] {"L", "\u00B0"});
+    QUALITIES.put("Augmented", new String[] {"U", "+"});
+    QUALITIES.put("Suspended Second", new String[] {"U", "sus2"});
+    QUALITIES.put("Suspended Fourth", new String[] {"U", "sus4"});
+    QUALITIES.put("Major Seventh", new String[] {"U", "maj7"});
+    QUALITIES.put("Minor Seventh", new String[] {"L", "7"});
+    QUALITIES.put("Dominant Seventh", new String[] {"U", "7"});
+    QUALITIES.put("Half Diminished Seventh", new String[] {"L", "\u00F87"});
+    QUALITIES.put("Diminished Seventh", new String[] {"L", "\u00B07"});
+    QUALITIES.put("Minor Major Seventh", new String[] {"L", "maj7"});
+    QUALITIES.put("Augmented Seventh", new String[] {"U", "+7"});
+    QUALITIES.put("Major Sixth", new String[] {"U", "6"});
+    QUALITIES.put("Minor Sixth", new String[] {"L", "6"});
+  }
+
+  public static final byte[] UNKNOWN = "?".getBytes(StandardCharsets.UTF_8);
+
+  private final int scaleMask;
+  private final int[] degreeOfPitchClass = new int[PitchClasses.PITCH_CLASS_COUNT];
+  private final byte[][] keys = new byte[TABLE_SIZE][];
+  private final Analysis[] analyses = new Analysis[TABLE_SIZE];
+  private int entryCount = 0;
+
+  public ProgressionAnalyzer(int tonic, int scaleMask) {
+    this.scaleMask = scaleMask;
+    Arrays.fill(degreeOfPitchClass, -1);
+
+    int degree = 0;
+    for (int step = 0; step < PitchClasses.PITCH_CLASS_COUNT; step++) {
+      int pitchClass = (tonic + step) % PitchClasses.PITCH_CLASS_COUNT;
+      if ((scaleMask & (1 << pitchClass)) != 0) {
+        degreeOfPitchClass[pitchClass] = degree++;
+      }
+    }
+    if (degree != NUMERALS.length) {
+      throw new IllegalArgumentException("Progression analysis requires a diatonic scale.");
+    }
+  }
+
+  public Analysis analyze(ByteBuffer source, int start, int end) {
+    int hash = 0x811C9DC5;
+    for (int i = start; i < end; i++) {
+      hash = (hash ^ (source.get(i) & 0xFF)) * 0x01000193;
+    }
+
+    int slot = hash & (TABLE_SIZE - 1);
+    while (keys[slot] != null) {
+      if (this.matches(keys[slot], source, start, end)) {
+        return analyses[slot];
+      }
+      slot = (slot + 1) & (TABLE_SIZE - 1);
+    }
+
+    byte[] symbolBytes = new byte[end - start];
+    for (int i = start; i < end; i++) {
+      symbolBytes[i - start] = source.get(i);
+    }
+
+    Analysis analysis = this.resolve(new String(symbolBytes, StandardCharsets.UTF_8));
+    if (entryCount < MAX_ENTRIES) {
+      keys[slot] = symbolBytes;
+      analyses[slot] = analysis;
+      entryCount++;
+    }
+
+    return analysis;
+  }
+
+  private boolean matches(byte[] key, ByteBuffer source, int start, int end) {
+    if (key.length != end - start) {
+      return false;
+    }
+
+    for (int i = 0; i < key.length; i++) {
+      if (key[i] != source.get(start + i)) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  Analysis resolve(String symbol) {
+    try {
+      String[] parsedSymbol = ChordSymbols.parse(symbol);
+      int chordMask =
+          PitchClasses.maskOf(ChordHelper.getInstance().getChord(parsedSymbol[0], parsedSymbol[1]));
+      int root = PitchClasses.pitchClassOf(parsedSymbol[0]);
+      String[] quality = QUALITIES.get(parsedSymbol[1]);
+      String numeral = this.degreeNumeral(root);
+
+      if (quality[0].equals("L")) {
+        numeral = numeral.toLowerCase();
+      }
+
+      return new Analysis(symbol, (numeral + quality[1]).getBytes(StandardCharsets.UTF_8),
+          (chordMask & ~scaleMask) == 0);
+    }
+    catch (RuntimeException rE) {
+      return new Analysis(symbol, UNKNOWN, false);
+    }
+  }
+
+  private String degreeNumeral(int root) {
+    if (degreeOfPitchClass[root] >= 0) {
+      return NUMERALS[degreeOfPitchClass[root]];
+    }
+
+    int above = degreeOfPitchClass[(root + 1) % PitchClasses.PITCH_CLASS_COUNT];
+    if (above >= 0) {
+      return "b" + NUMERALS[above];
+    }
+
+    return "#" + NUMERALS[degreeOfPitchClass[(root + 11) % PitchClasses.PITCH_CLASS_COUNT]];
+  }
+
+  public static class Analysis {
+    private final String symbol;
+    private final byte[] numeral;
+    private final boolean diatonic;
+
+    Analysis(String symbol, byte[] numeral, boolean diatonic) {
+      this.symbol = symbol;
+      this.numeral = numeral;
+      this.diatonic = diatonic;
+    }
+
+    public String getSymbol() {
+      return symbol;
+    }
+
+    public byte[] getNumeral() {
+      return numeral;
+    }
+
+    public boolean isDiatonic() {
+      return diatonic;
+    }
+  }
+}
@@ -0,0 +1,162 @@
+package com.gkaraffa.amati.progression;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/*
+ * Streams a chord chart through a ProgressionAnalyzer. The input is mapped a window at a time and
+ * the analysis is encoded into one reusable output buffer, so heap use does not grow with the
+ * file. Text output mirrors the input with each chord symbol replaced by its numeral; CSV output
+ * lists one chord per row.
+ */
+public class ProgressionStreamer {
+  private static final long WINDOW_SIZE = 64L * 1024 * 1024;
+  private static final int BUFFER_SIZE = 64 * 1024;
+  private static final int MAX_SYMBOL_LENGTH = 64;
+  private static final int MAX_ROW_LENGTH = 64 + MAX_SYMBOL_LENGTH;
+  private static final byte[] CSV_HEADER =
+      "Line,Position,Chord,Numeral,Diatonic\n".getBytes(StandardCharsets.UTF_8);
+  private static final byte[] TRUE = "true".getBytes(StandardCharsets.UTF_8);
+  private static final byte[] FALSE = "false".getBytes(StandardCharsets.UTF_8);
+
+  private final ProgressionAnalyzer analyzer;
+  private final boolean csv;
+  private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+  private long lineNumber;
+  private int position;
+  private long chordCount;
+
+  public ProgressionStreamer(ProgressionAnalyzer analyzer, boolean csv) {
+    this.analyzer = analyzer;
+    this.csv = csv;
+  }
+
+  public long stream(FileChannel input, WritableByteChannel output) throws IOException {
+    long fileSize = input.size();
+    long windowStart = 0;
+    buffer.clear();
+    lineNumber = 1;
+    position = 0;
+    chordCount = 0;
+
+    if (csv) {
+      buffer.put(CSV_HEADER);
+    }
+
+    while (windowStart < fileSize) {
+      long windowLength = Math.min(WINDOW_SIZE, fileSize - windowStart);
+      boolean lastWindow = windowStart + windowLength == fileSize;
+      MappedByteBuffer window =
+          input.map(FileChannel.MapMode.READ_ONLY, windowStart, windowLength);
+      int consumed = this.scan(window, (int) windowLength, lastWindow, output);
+
+      windowStart += consumed;
+    }
+
+    this.drain(output);
+    return chordCount;
+  }
+
+  private int scan(ByteBuffer window, int length, boolean lastWindow, WritableByteChannel output)
+      throws IOException {
+    int i = 0;
+
+    while (i < length) {
+      byte b = window.get(i);
+      if (isDelimiter(b)) {
+        if (!csv) {
+          this.reserve(output, 1);
+          buffer.put(b);
+        }
+        if (b == '\n') {
+          lineNumber++;
+          position = 0;
+        }
+        i++;
+        continue;
+      }
+
+      int tokenEnd = i + 1;
+      while ((tokenEnd < length) && !isDelimiter(window.get(tokenEnd))) {
+        tokenEnd++;
+      }
+      if (tokenEnd - i > MAX_SYMBOL_LENGTH) {
+        throw new IllegalArgumentException("Chord symbol too long on line " + lineNumber);
+      }
+      if ((tokenEnd == length) && !lastWindow) {
+        return i;
+      }
+
+      if ((tokenEnd - i == 1) && (b == '-')) {
+        // a free-standing dash separates chords, as in ChordSymbols.split
+        if (!csv) {
+          this.reserve(output, 1);
+          buffer.put(b);
+        }
+      }
+      else {
+        this.writeChord(window, i, tokenEnd, output);
+      }
+      i = tokenEnd;
+    }
+
+    return length;
+  }
+
+  private void writeChord(ByteBuffer window, int start, int end, WritableByteChannel output)
+      throws IOException {
+    ProgressionAnalyzer.Analysis analysis = analyzer.analyze(window, start, end);
+    byte[] numeral = analysis.getNumeral();
+    position++;
+    chordCount++;
+
+    if (!csv) {
+      this.reserve(output, numeral.length);
+      buffer.put(numeral);
+      return;
+    }
+
+    this.reserve(output, MAX_ROW_LENGTH);
+    this.putLong(lineNumber);
+    buffer.put((byte) ',');
+    this.putLong(position);
+    buffer.put((byte) ',');
+    for (int i = start; i < end; i++) {
+      buffer.put(window.get(i));
+    }
+    buffer.put((byte) ',');
+    buffer.put(numeral);
+    buffer.put((byte) ',');
+    buffer.put(analysis.isDiatonic() ? TRUE : FALSE);
+    buffer.put((byte) '\n');
+  }
+
+  private static boolean isDelimiter(byte b) {
+    return (b == ' ') || (b == '\t') || (b == '\r') || (b == '\n') || (b == '|') || (b == ',');
+  }
+
+  private void putLong(long value) {
+    if (value >= 10) {
+      this.putLong(value / 10);
+    }
+    buffer.put((byte) ('0' + (value % 10)));
+  }
+
+  private void reserve(WritableByteChannel output, int byteCount) throws IOException {
+    if (buffer.remaining() < byteCount) {
+      this.drain(output);
+    }
+  }
+
+  private void drain(WritableByteChannel output) throws IOException {
+    buffer.flip();
+    while (buffer.hasRemaining()) {
+      output.write(buffer);
+    }
+    buffer.clear();
+  }
+}
@@ -0,0 +1,41 @@
+package com.gkaraffa.amati.view;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.gkaraffa.guarneri.view.ViewCell;
+import com.gkaraffa.guarneri.view.ViewRow;
+import com.gkaraffa.guarneri.view.ViewTable;
+
+public class ViewTableAssembler {
+  private final List<ViewRow> viewRows = new ArrayList<>();
+  private final int columnCount;
+
+  public ViewTableAssembler(String... headers) {
+    this.columnCount = headers.length;
+    this.addRow(headers);
+  }
+
+  public ViewTableAssembler addRow(String... values) throws IllegalArgumentException {
+    if (values.length != this.columnCount) {
+      throw new IllegalArgumentException(
+          "Expected " + this.columnCount + " values, found " + values.length + ".");
+    }
+
+    List<ViewCell> viewCells = new ArrayList<>(values.length);
+    for (String value : values) {
+      viewCells.add(new ViewCell(value));
+    }
+    viewRows.add(new ViewRow(viewCells));
+
+    return this;
+  }
+
+  public int getRowCount() {
+    return viewRows.size() - 1;
+  }
+
+  public ViewTable assemble() {
+    return new ViewTable(new ArrayList<>(viewRows));
+  }
+}
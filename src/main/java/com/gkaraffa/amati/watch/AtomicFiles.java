@@ -0,0 +1,59 @@
+package com.gkaraffa.amati.watch;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/*
+ * Replaces a file by writing a hidden sibling and renaming it over the target, so a reader such
+ * as a docs site build never sees a half-written table. The sibling lives in the same directory
+ * to keep the rename on one file system. An existing output is reused the same way: copied
+ * through a sibling, or renamed when nothing else needs it.
+ */
+public final class AtomicFiles {
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private AtomicFiles() {}
+
+  public static void write(Path target, ContentWriter contentWriter) throws IOException {
+    Path tempFile = target.resolveSibling("." + target.getFileName() + ".tmp");
+    boolean moved = false;
+
+    try {
+      try (OutputStream outputStream =
+          new BufferedOutputStream(Files.newOutputStream(tempFile), BUFFER_SIZE)) {
+        contentWriter.write(outputStream);
+      }
+      move(tempFile, target);
+      moved = true;
+    }
+    finally {
+      // whatever stopped the write, checked or not, must not leave the sibling behind
+      if (!moved) {
+        Files.deleteIfExists(tempFile);
+      }
+    }
+  }
+
+  public static void copy(Path source, Path target) throws IOException {
+    write(target, outputStream -> Files.copy(source, outputStream));
+  }
+
+  public static void move(Path source, Path target) throws IOException {
+    try {
+      Files.move(source, target, StandardCopyOption.ATOMIC_MOVE,
+          StandardCopyOption.REPLACE_EXISTING);
+    }
+    catch (AtomicMoveNotSupportedException aMNSE) {
+      Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+
+  public interface ContentWriter {
+    void write(OutputStream outputStream) throws IOException;
+  }
+}
@@ -0,0 +1,209 @@
+package com.gkaraffa.amati.watch;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/*
+ * Persisted map from the content hash of a query to the output files holding its rendered result,
+ * kept beside the outputs as one "hash, file, query" tab-separated line per file. A query whose
+ * hash is indexed is never rendered again while one of its files exists: a new line or a renamed
+ * output reuses that file. The index is only a cache: an unreadable line or a missing output file
+ * just means the query is rendered again. A version 2 index, keyed by file, is read and rewritten.
+ */
+public class WatchIndex {
+  public static final String FILE_NAME = ".amati-watch.index";
+  private static final String HEADER = "# amati watch index 3";
+  private static final String HEADER_V2 = "# amati watch index 2";
+  private static final String HEADER_V1 = "# amati watch index 1";
+
+  private final Path outputDirectory;
+  private final Map<Long, IndexEntry> entries = new LinkedHashMap<>();
+  private boolean modified = false;
+
+  private WatchIndex(Path outputDirectory) {
+    this.outputDirectory = outputDirectory;
+  }
+
+  public static WatchIndex load(Path outputDirectory) throws IOException {
+    WatchIndex watchIndex = new WatchIndex(outputDirectory);
+
+    try (BufferedReader reader = Files.newBufferedReader(outputDirectory.resolve(FILE_NAME),
+        StandardCharsets.UTF_8)) {
+      String header = reader.readLine();
+      boolean fileFirst = HEADER_V2.equals(header);
+      if (!HEADER.equals(header) && !HEADER_V1.equals(header) && !fileFirst) {
+        return watchIndex;
+      }
+
+      String line;
+      while ((line = reader.readLine()) != null) {
+        String[] fields = line.split("\t", 3);
+        if (fields.length == 3) {
+          watchIndex.readEntry(fileFirst ? fields[1] : fields[0],
+              fileFirst ? fields[0] : fields[1], fields[2]);
+        }
+      }
+      watchIndex.modified |= !HEADER.equals(header);
+    }
+    catch (NoSuchFileException nSFE) {
+      // first run against this directory
+    }
+
+    return watchIndex;
+  }
+
+  private void readEntry(String hashField, String fileName, String query) {
+    if (fileName.startsWith(".") || fileName.contains("/") || fileName.contains("\\")) {
+      this.modified = true;
+      return;
+    }
+
+    try {
+      long hash = Long.parseUnsignedLong(hashField, 16);
+      this.entries.computeIfAbsent(hash, key -> new IndexEntry(query)).fileNames.add(fileName);
+    }
+    catch (NumberFormatException nFE) {
+      this.modified = true;
+    }
+  }
+
+  public static long hash(String text) {
+    long hash = 0xcbf29ce484222325L;
+
+    for (byte textByte : text.getBytes(StandardCharsets.UTF_8)) {
+      hash ^= (textByte & 0xff);
+      hash *= 0x100000001b3L;
+    }
+
+    return hash;
+  }
+
+  public static String toHex(long hash) {
+    return String.format("%016x", hash);
+  }
+
+  public boolean isCurrent(String fileName, long hash) {
+    IndexEntry indexEntry = this.entries.get(hash);
+
+    return (indexEntry != null) && indexEntry.fileNames.contains(fileName)
+        && Files.isRegularFile(this.outputDirectory.resolve(fileName));
+  }
+
+  /*
+   * An existing output file already holding the result of the query with this hash, or null when
+   * the query has to be rendered.
+   */
+  public String outputOf(long hash) {
+    IndexEntry indexEntry = this.entries.get(hash);
+    if (indexEntry == null) {
+      return null;
+    }
+
+    for (String fileName : indexEntry.fileNames) {
+      if (Files.isRegularFile(this.outputDirectory.resolve(fileName))) {
+        return fileName;
+      }
+    }
+
+    return null;
+  }
+
+  /*
+   * Records that fileName now holds the result of the query with this hash. Whatever the file held
+   * before is forgotten, so a later lookup never reuses overwritten content.
+   */
+  public void put(String fileName, long hash, String query) {
+    this.forget(fileName);
+    this.entries.computeIfAbsent(hash, key -> new IndexEntry(query)).fileNames.add(fileName);
+    this.modified = true;
+  }
+
+  /*
+   * Records that an output file was renamed, so its query's result is found under the new name.
+   */
+  public void move(String fromFileName, String toFileName, long hash, String query) {
+    this.forget(fromFileName);
+    this.put(toFileName, hash, query);
+  }
+
+  private void forget(String fileName) {
+    for (Iterator<IndexEntry> iterator = this.entries.values().iterator();
+        iterator.hasNext();) {
+      IndexEntry indexEntry = iterator.next();
+      if (indexEntry.fileNames.remove(fileName) && indexEntry.fileNames.isEmpty()) {
+        iterator.remove();
+      }
+    }
+  }
+
+  public int retainOnly(Set<String> fileNames) throws IOException {
+    int removedCount = 0;
+
+    for (Iterator<IndexEntry> entryIterator = this.entries.values().iterator();
+        entryIterator.hasNext();) {
+      IndexEntry indexEntry = entryIterator.next();
+      for (Iterator<String> fileIterator = indexEntry.fileNames.iterator();
+          fileIterator.hasNext();) {
+        String fileName = fileIterator.next();
+        if (!fileNames.contains(fileName)) {
+          Files.deleteIfExists(this.outputDirectory.resolve(fileName));
+          fileIterator.remove();
+          removedCount++;
+        }
+      }
+      if (indexEntry.fileNames.isEmpty()) {
+        entryIterator.remove();
+      }
+    }
+
+    if (removedCount > 0) {
+      this.modified = true;
+    }
+    return removedCount;
+  }
+
+  public void save() throws IOException {
+    if (!this.modified) {
+      return;
+    }
+
+    AtomicFiles.write(this.outputDirectory.resolve(FILE_NAME), outputStream -> {
+      BufferedWriter writer = new BufferedWriter(
+          new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+      writer.write(HEADER);
+      writer.newLine();
+      for (Map.Entry<Long, IndexEntry> entry : this.entries.entrySet()) {
+        for (String fileName : entry.getValue().fileNames) {
+          writer.write(toHex(entry.getKey()) + "\t" + fileName + "\t" + entry.getValue().query);
+          writer.newLine();
+        }
+      }
+      writer.flush();
+    });
+    this.modified = false;
+  }
+
+  public int size() {
+    return this.entries.size();
+  }
+
+  static class IndexEntry {
+    final String query;
+    final Set<String> fileNames = new LinkedHashSet<>();
+
+    IndexEntry(String query) {
+      this.query = query;
+    }
+  }
+}
@@ -1,3 +1,10 @@
 #! /bin/sh -
 
-java -cp ./amati-1.1.0-jar-with-dependencies.jar com.gkaraffa.amati.control.MainController "$@"
\ No newline at end of file
+JAR=./amati-1.1.0-jar-with-dependencies.jar
+JSA=./amati.jsa
+
+if [ -f "$JSA" ]; then
+  exec java -XX:SharedArchiveFile="$JSA" -Xshare:auto -cp "$JAR" com.gkaraffa.amati.control.MainController "$@"
+fi
+
+exec java -cp "$JAR" com.gkaraffa.amati.control.MainController "$@"
@@ -0,0 +1,165 @@
+package com.gkaraffa.amati.catalog;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import com.gkaraffa.amati.output.BinaryOutputForm;
+import com.gkaraffa.amati.output.BinaryOutputFormFactory;
+import com.gkaraffa.guarneri.outputform.OutputForm;
+
+import junit.framework.TestCase;
+
+public class CatalogFormatTest extends TestCase {
+  private Path directory;
+  private Path catalogPath;
+
+  @Override
+  protected void setUp() throws IOException {
+    this.directory = Files.createTempDirectory("amati-catalog");
+    this.catalogPath = directory.resolve("amati.catalog");
+  }
+
+  @Override
+  protected void tearDown() throws IOException {
+    File[] files = directory.toFile().listFiles();
+    if (files != null) {
+      for (File file : files) {
+        Files.delete(file.toPath());
+      }
+    }
+    Files.delete(directory);
+  }
+
+  public void testWriteAndLookup() throws IOException {
+    int entryCount = 500;
+
+    try (CatalogWriter catalogWriter = new CatalogWriter(catalogPath, entryCount)) {
+      for (int entry = 0; entry < entryCount; entry++) {
+        catalogWriter.append("SCALE|C|" + entry, payloadOf(entry));
+      }
+      assertEquals(entryCount, catalogWriter.getEntryCount());
+      catalogWriter.commit();
+    }
+
+    try (CatalogReader catalogReader = new CatalogReader(catalogPath)) {
+      assertEquals(entryCount, catalogReader.getEntryCount());
+      for (int entry = 0; entry < entryCount; entry++) {
+        assertEquals(ByteBuffer.wrap(payloadOf(entry)), catalogReader.lookup("SCALE|C|" + entry));
+      }
+      assertNull(catalogReader.lookup("SCALE|C|" + entryCount));
+      assertNull(catalogReader.lookup(""));
+    }
+  }
+
+  public void testEmptyPayload() throws IOException {
+    try (CatalogWriter catalogWriter = new CatalogWriter(catalogPath, 1)) {
+      catalogWriter.append("KEY|C", new byte[0]);
+      catalogWriter.commit();
+    }
+
+    try (CatalogReader catalogReader = new CatalogReader(catalogPath)) {
+      assertEquals(0, catalogReader.lookup("KEY|C").remaining());
+    }
+  }
+
+  public void testRejectsDuplicateKey() throws IOException {
+    try (CatalogWriter catalogWriter = new CatalogWriter(catalogPath, 2)) {
+      catalogWriter.append("KEY|C", payloadOf(1));
+      try {
+        catalogWriter.append("KEY|C", payloadOf(2));
+        fail("Expected IllegalArgumentException");
+      }
+      catch (IllegalArgumentException iAE) {
+        // expected
+      }
+    }
+  }
+
+  public void testRejectsEntriesOverLimit() throws IOException {
+    try (CatalogWriter catalogWriter = new CatalogWriter(catalogPath, 1)) {
+      catalogWriter.append("KEY|C", payloadOf(1));
+      try {
+        catalogWriter.append("KEY|D", payloadOf(2));
+        fail("Expected IllegalArgumentException");
+      }
+      catch (IllegalArgumentException iAE) {
+        // expected
+      }
+    }
+  }
+
+  public void testCloseWithoutCommitKeepsPreviousCatalog() throws IOException {
+    try (CatalogWriter catalogWriter = new CatalogWriter(catalogPath, 1)) {
+      catalogWriter.append("KEY|C", payloadOf(1));
+      catalogWriter.commit();
+    }
+    try (CatalogWriter catalogWriter = new CatalogWriter(catalogPath, 1)) {
+      catalogWriter.append("KEY|D", payloadOf(2));
+    }
+
+    assertEquals(1, directory.toFile().list().length);
+    try (CatalogReader catalogReader = new CatalogReader(catalogPath)) {
+      assertEquals(ByteBuffer.wrap(payloadOf(1)), catalogReader.lookup("KEY|C"));
+      assertNull(catalogReader.lookup("KEY|D"));
+    }
+  }
+
+  public void testRejectsForeignFile() throws IOException {
+    Files.write(catalogPath, "not a catalog, but long enough".getBytes(StandardCharsets.UTF_8));
+
+    try {
+      new CatalogReader(catalogPath).close();
+      fail("Expected IllegalArgumentException");
+    }
+    catch (IllegalArgumentException iAE) {
+      // expected
+    }
+  }
+
+  public void testPayloadRoundTrip() {
+    byte[] table = BinaryOutputFormFactory.encode(Arrays.asList("Degree", "Chord"),
+        Arrays.asList(Arrays.asList("I", "C major"), Arrays.asList("V", "G major")));
+    List<OutputForm> views = Arrays.asList(
+        new CatalogPayload.StoredTextForm("I  C major\n".getBytes(StandardCharsets.UTF_8),
+            "I  C major\u266F"),
+        new BinaryOutputForm(table));
+
+    List<OutputForm> decoded = CatalogPayload.decode(ByteBuffer.wrap(CatalogPayload.encode(views)));
+
+    assertEquals(2, decoded.size());
+    assertFalse(decoded.get(0) instanceof BinaryOutputForm);
+    assertTrue(Arrays.equals(views.get(0).getByteArray(), decoded.get(0).getByteArray()));
+    assertEquals("I  C major\u266F", decoded.get(0).toString());
+    assertTrue(decoded.get(1) instanceof BinaryOutputForm);
+    assertTrue(Arrays.equals(table, decoded.get(1).getByteArray()));
+  }
+
+  public void testPayloadRejectsCorruptBytes() {
+    byte[] payload = CatalogPayload.encode(Arrays.<OutputForm>asList(
+        new CatalogPayload.StoredTextForm(new byte[] {1, 2, 3}, "text")));
+
+    assertCorrupt(Arrays.copyOf(payload, payload.length - 1));
+    assertCorrupt(new byte[] {0, 0, 0, 1, 7, 0, 0, 0, 0});
+    assertCorrupt(new byte[] {(byte) 0xFF, 0, 0, 0});
+  }
+
+  private static void assertCorrupt(byte[] payload) {
+    try {
+      CatalogPayload.decode(ByteBuffer.wrap(payload));
+      fail("Expected IllegalArgumentException");
+    }
+    catch (IllegalArgumentException iAE) {
+      // expected
+    }
+  }
+
+  private static byte[] payloadOf(int entry) {
+    return ("payload " + entry).getBytes(StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,195 @@
+package com.gkaraffa.amati.detect;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+public class KeyDetectorTest extends TestCase {
+  private static final double[] MAJOR_PROFILE =
+      {6.35, 2.23, 3.48, 2.33, 4.38, 4.09, 2.52, 5.19, 2.39, 3.66, 2.29, 2.88};
+  private static final double[] MINOR_PROFILE =
+      {6.33, 2.68, 3.52, 5.38, 2.60, 3.53, 2.54, 4.75, 3.98, 2.69, 3.34, 3.17};
+  private static final int IONIAN = KeyProfiles.MODE_NAMES.indexOf("Ionian");
+  private static final int AEOLIAN = KeyProfiles.MODE_NAMES.indexOf("Aeolian");
+  // Ionian through Locrian on C, bit n set for pitch class n
+  private static final int[] MODE_MASKS = {0xAB5, 0x6AD, 0x5AB, 0xAD5, 0x6B5, 0x5AD, 0x56B};
+  private static final int[] C_MAJOR_MELODY = {0, 4, 7, 4, 5, 2, 11, 0, 9, 7, 5, 4, 2, 0, 7, 0};
+  private static final int[] A_MINOR_MELODY = {9, 0, 4, 0, 11, 2, 8, 9, 4, 5, 0, 11, 9, 4, 9, 9};
+
+  private final KeyProfiles keyProfiles = new KeyProfiles(MODE_MASKS);
+
+  public void testLabelsUseConventionalKeyNames() {
+    assertEquals("C Ionian", new String(keyProfiles.getLabel(candidateOf(0, IONIAN))));
+    assertEquals("Db Ionian", new String(keyProfiles.getLabel(candidateOf(1, IONIAN))));
+    assertEquals("Eb Aeolian", new String(keyProfiles.getLabel(candidateOf(3, AEOLIAN))));
+    assertEquals("F# Ionian", new String(keyProfiles.getLabel(candidateOf(6, IONIAN))));
+    assertEquals("Ab Dorian", new String(keyProfiles.getLabel(candidateOf(8, 1))));
+    assertEquals("Bb Ionian", new String(keyProfiles.getLabel(candidateOf(10, IONIAN))));
+  }
+
+  public void testDetectsMajorKey() {
+    KeyDetector keyDetector = this.detectorFor(C_MAJOR_MELODY, 3);
+
+    assertEquals(candidateOf(0, IONIAN), keyDetector.getCandidate(0));
+    assertEquals("C Ionian", new String(keyProfiles.getLabel(keyDetector.getCandidate(0))));
+  }
+
+  public void testDetectsMinorKey() {
+    KeyDetector keyDetector = this.detectorFor(A_MINOR_MELODY, 3);
+
+    assertEquals(candidateOf(9, AEOLIAN), keyDetector.getCandidate(0));
+    assertEquals("A Aeolian", new String(keyProfiles.getLabel(keyDetector.getCandidate(0))));
+  }
+
+  public void testScoresAreProfileCorrelations() {
+    KeyDetector keyDetector =
+        this.detectorFor(C_MAJOR_MELODY, keyProfiles.getCandidateCount());
+    int[] histogram = histogramOf(C_MAJOR_MELODY, 0, C_MAJOR_MELODY.length);
+
+    assertEquals(keyProfiles.getCandidateCount(), keyDetector.getRankedCount());
+    for (int rank = 0; rank < keyDetector.getRankedCount(); rank++) {
+      int candidate = keyDetector.getCandidate(rank);
+      int tonic = candidate / KeyProfiles.MODE_NAMES.size();
+      int mode = candidate % KeyProfiles.MODE_NAMES.size();
+
+      if (rank > 0) {
+        assertTrue(keyDetector.getScore(rank) <= keyDetector.getScore(rank - 1));
+      }
+      if (mode == IONIAN) {
+        assertEquals(correlation(histogram, MAJOR_PROFILE, tonic), keyDetector.getScore(rank),
+            1e-6);
+      }
+      else if (mode == AEOLIAN) {
+        assertEquals(correlation(histogram, MINOR_PROFILE, tonic), keyDetector.getScore(rank),
+            1e-6);
+      }
+    }
+  }
+
+  public void testSlidingRankingMatchesFreshWindow() {
+    Random random = new Random(11);
+    int window = 16;
+    int hop = 3;
+    int top = 5;
+    int[] notes = new int[500];
+    for (int note = 0; note < notes.length; note++) {
+      notes[note] = (random.nextInt(3) == 0) ? random.nextInt(12) : C_MAJOR_MELODY[note % 16];
+    }
+
+    KeyDetector sliding = new KeyDetector(keyProfiles, window, hop, top);
+    int rankings = 0;
+    for (int note = 0; note < notes.length; note++) {
+      if (!sliding.accept(notes[note])) {
+        continue;
+      }
+      sliding.rank();
+      rankings++;
+
+      KeyDetector fresh = new KeyDetector(keyProfiles, window, hop, top);
+      for (int windowNote = note + 1 - window; windowNote <= note; windowNote++) {
+        fresh.accept(notes[windowNote]);
+      }
+      fresh.rank();
+
+      assertEquals(note + 2 - window, sliding.getFirstNote());
+      assertEquals(note + 1, sliding.getLastNote());
+      assertEquals(fresh.getRankedCount(), sliding.getRankedCount());
+      for (int rank = 0; rank < top; rank++) {
+        assertEquals(fresh.getCandidate(rank), sliding.getCandidate(rank));
+        assertEquals(fresh.getScore(rank), sliding.getScore(rank), 0);
+      }
+    }
+
+    assertEquals(1 + (notes.length - window) / hop, rankings);
+  }
+
+  public void testRanksShortTail() {
+    KeyDetector keyDetector = new KeyDetector(keyProfiles, 32, 8, 1);
+    for (int note : C_MAJOR_MELODY) {
+      assertFalse(keyDetector.accept(note));
+    }
+
+    assertTrue(keyDetector.hasUnrankedTail());
+    keyDetector.rank();
+    assertEquals(candidateOf(0, IONIAN), keyDetector.getCandidate(0));
+    assertEquals(1, keyDetector.getFirstNote());
+    assertEquals(C_MAJOR_MELODY.length, keyDetector.getLastNote());
+  }
+
+  public void testRejectsWrongModeCount() {
+    try {
+      new KeyProfiles(new int[] {0xAB5});
+      fail("Expected IllegalArgumentException");
+    }
+    catch (IllegalArgumentException iAE) {
+      // expected
+    }
+  }
+
+  public void testRejectsInvalidSizes() {
+    assertRejected(0, 1, 1);
+    assertRejected(8, 9, 1);
+    assertRejected(8, 0, 1);
+    assertRejected(8, 8, 0);
+    assertRejected(8, 8, keyProfiles.getCandidateCount() + 1);
+  }
+
+  private KeyDetector detectorFor(int[] notes, int top) {
+    KeyDetector keyDetector = new KeyDetector(keyProfiles, notes.length, 1, top);
+    boolean due = false;
+
+    for (int note : notes) {
+      due = keyDetector.accept(note);
+    }
+    assertTrue(due);
+    keyDetector.rank();
+
+    return keyDetector;
+  }
+
+  private void assertRejected(int window, int hop, int top) {
+    try {
+      new KeyDetector(keyProfiles, window, hop, top);
+      fail("Expected IllegalArgumentException");
+    }
+    catch (IllegalArgumentException iAE) {
+      // expected
+    }
+  }
+
+  private static int candidateOf(int tonic, int mode) {
+    return tonic * KeyProfiles.MODE_NAMES.size() + mode;
+  }
+
+  private static int[] histogramOf(int[] notes, int from, int to) {
+    int[] histogram = new int[12];
+
+    for (int note = from; note < to; note++) {
+      histogram[notes[note]]++;
+    }
+
+    return histogram;
+  }
+
+  private static double correlation(int[] histogram, double[] profile, int tonic) {
+    double histogramMean = 0;
+    double profileMean = 0;
+    for (int pitchClass = 0; pitchClass < 12; pitchClass++) {
+      histogramMean += histogram[pitchClass] / 12.0;
+      profileMean += profile[pitchClass] / 12.0;
+    }
+
+    double covariance = 0;
+    double histogramVariance = 0;
+    double profileVariance = 0;
+    for (int pitchClass = 0; pitchClass < 12; pitchClass++) {
+      double x = histogram[pitchClass] - histogramMean;
+      double y = profile[Math.floorMod(pitchClass - tonic, 12)] - profileMean;
+      covariance += x * y;
+      histogramVariance += x * x;
+      profileVariance += y * y;
+    }
+
+    return covariance / Math.sqrt(histogramVariance * profileVariance);
+  }
+}
@@ -0,0 +1,155 @@
+package com.gkaraffa.amati.fretboard;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+public class VoiceLeadingTest extends TestCase {
+  private static final int M = Voicing.MUTED;
+
+  public void testKnownBestPath() {
+    Voicing cOpen = new Voicing(new int[] {M, 3, 2, 0, 1, 0}, 0);
+    Voicing cBarre = new Voicing(new int[] {M, 3, 5, 5, 5, 3}, 1);
+    Voicing gOpen = new Voicing(new int[] {3, 2, 0, 0, 0, 3}, 0);
+    Voicing gBarre = new Voicing(new int[] {M, M, 5, 4, 3, 3}, 2);
+    List<List<Voicing>> candidates =
+        Arrays.asList(Arrays.asList(cOpen, cBarre), Arrays.asList(gOpen, gBarre));
+
+    List<VoiceLeading.Path> paths = new VoiceLeading(candidates, 6, 4).solve();
+
+    assertEquals(4, paths.size());
+    // cBarre to gBarre: string 1 stops sounding (3), then 0 + 1 + 2 + 0 frets, plus scores 1 + 2
+    assertEquals(Arrays.asList(cBarre, gBarre), paths.get(0).getVoicings());
+    assertEquals(6, paths.get(0).getMovement());
+    assertEquals(9, paths.get(0).getCost());
+    // cOpen to gOpen: string 0 starts sounding (3), then 1 + 2 + 0 + 1 + 3 frets
+    assertEquals(Arrays.asList(cOpen, gOpen), paths.get(1).getVoicings());
+    assertEquals(10, paths.get(1).getMovement());
+    assertEquals(10, paths.get(1).getCost());
+    assertEquals(Arrays.asList(cOpen, gBarre), paths.get(2).getVoicings());
+    assertEquals(17, paths.get(2).getCost());
+    assertEquals(Arrays.asList(cBarre, gOpen), paths.get(3).getVoicings());
+    assertEquals(20, paths.get(3).getCost());
+  }
+
+  public void testSingleChordRanksByScore() {
+    Voicing first = new Voicing(new int[] {0, 2, 2}, 5);
+    Voicing second = new Voicing(new int[] {M, 2, 2}, 1);
+    Voicing third = new Voicing(new int[] {5, 7, 7}, 3);
+
+    List<VoiceLeading.Path> paths = new VoiceLeading(
+        Collections.singletonList(Arrays.asList(first, second, third)), 3, 2).solve();
+
+    assertEquals(2, paths.size());
+    assertSame(second, paths.get(0).getVoicings().get(0));
+    assertSame(third, paths.get(1).getVoicings().get(0));
+    assertEquals(0, paths.get(0).getMovement());
+  }
+
+  public void testKBestMatchesExhaustiveSearch() {
+    Random random = new Random(7);
+
+    for (int trial = 0; trial < 50; trial++) {
+      int stringCount = 2 + random.nextInt(5);
+      int stepCount = 1 + random.nextInt(5);
+      int pathCount = 1 + random.nextInt(6);
+      List<List<Voicing>> candidates = new ArrayList<>();
+      for (int step = 0; step < stepCount; step++) {
+        List<Voicing> voicings = new ArrayList<>();
+        int voicingCount = 1 + random.nextInt(4);
+        for (int candidate = 0; candidate < voicingCount; candidate++) {
+          int[] frets = new int[stringCount];
+          for (int string = 0; string < stringCount; string++) {
+            frets[string] = random.nextInt(4) == 0 ? M : random.nextInt(8);
+          }
+          voicings.add(new Voicing(frets, random.nextInt(10)));
+        }
+        candidates.add(voicings);
+      }
+
+      List<Integer> expectedCosts = exhaustiveCosts(candidates, stringCount);
+      List<VoiceLeading.Path> paths = new VoiceLeading(candidates, stringCount, pathCount).solve();
+
+      assertEquals(Math.min(pathCount, expectedCosts.size()), paths.size());
+      for (int rank = 0; rank < paths.size(); rank++) {
+        VoiceLeading.Path path = paths.get(rank);
+        assertEquals(expectedCosts.get(rank).intValue(), path.getCost());
+        assertEquals(pathCost(path.getVoicings(), stringCount), path.getCost());
+        assertEquals(path.getCost() - scoreOf(path.getVoicings()), path.getMovement());
+      }
+    }
+  }
+
+  public void testRejectsEmptyInput() {
+    try {
+      new VoiceLeading(Collections.<List<Voicing>>emptyList(), 6, 1);
+      fail("Expected IllegalArgumentException");
+    }
+    catch (IllegalArgumentException iAE) {
+      // expected
+    }
+    try {
+      new VoiceLeading(Collections.singletonList(Collections.<Voicing>emptyList()), 6, 1);
+      fail("Expected IllegalArgumentException");
+    }
+    catch (IllegalArgumentException iAE) {
+      // expected
+    }
+  }
+
+  private static List<Integer> exhaustiveCosts(List<List<Voicing>> candidates, int stringCount) {
+    List<Integer> costs = new ArrayList<>();
+    collectCosts(candidates, stringCount, new ArrayList<>(), costs);
+    Collections.sort(costs);
+
+    return costs;
+  }
+
+  private static void collectCosts(List<List<Voicing>> candidates, int stringCount,
+      List<Voicing> prefix, List<Integer> costs) {
+    if (prefix.size() == candidates.size()) {
+      costs.add(pathCost(prefix, stringCount));
+      return;
+    }
+
+    for (Voicing voicing : candidates.get(prefix.size())) {
+      prefix.add(voicing);
+      collectCosts(candidates, stringCount, prefix, costs);
+      prefix.remove(prefix.size() - 1);
+    }
+  }
+
+  private static int pathCost(List<Voicing> voicings, int stringCount) {
+    int cost = scoreOf(voicings);
+
+    for (int step = 1; step < voicings.size(); step++) {
+      for (int string = 0; string < stringCount; string++) {
+        int fromFret = voicings.get(step - 1).getFret(string);
+        int toFret = voicings.get(step).getFret(string);
+
+        if ((fromFret == M) != (toFret == M)) {
+          cost += VoiceLeading.VOICE_CHANGE_COST;
+        }
+        else if (fromFret != M) {
+          cost += Math.abs(fromFret - toFret);
+        }
+      }
+    }
+
+    return cost;
+  }
+
+  private static int scoreOf(List<Voicing> voicings) {
+    int score = 0;
+
+    for (Voicing voicing : voicings) {
+      score += voicing.getScore();
+    }
+
+    return score;
+  }
+}
@@ -0,0 +1,85 @@
+package com.gkaraffa.amati.names;
+
+import junit.framework.TestCase;
+
+public class NameTrieTest extends TestCase {
+  private NameTrie nameTrie;
+
+  @Override
+  protected void setUp() {
+    this.nameTrie = new NameTrie();
+    nameTrie.insert("Harmonic Minor", 1);
+    nameTrie.insert("Harmonic Major", 2);
+    nameTrie.insert("Minor", 3);
+    nameTrie.insert("Dom7(b9)", 4);
+    nameTrie.insert("Maj7#11", 5);
+    nameTrie.insert("Aug+", 6);
+  }
+
+  public void testFindsStoredNames() {
+    assertEquals(1, nameTrie.find("Harmonic Minor"));
+    assertEquals(2, nameTrie.find("Harmonic Major"));
+    assertEquals(3, nameTrie.find("Minor"));
+    assertEquals(4, nameTrie.find("Dom7(b9)"));
+    assertEquals(5, nameTrie.find("Maj7#11"));
+    assertEquals(6, nameTrie.find("Aug+"));
+  }
+
+  public void testIgnoresCaseAndSeparators() {
+    assertEquals(1, nameTrie.find("harmonic_minor"));
+    assertEquals(1, nameTrie.find("HARMONICMINOR"));
+    assertEquals(1, nameTrie.find(" harmonic-\tminor "));
+    assertEquals(4, nameTrie.find(new StringBuilder("DOM7(B9)")));
+  }
+
+  public void testAcceptsMusicalAccidentals() {
+    assertEquals(4, nameTrie.find("Dom7(\u266D9)"));
+    assertEquals(5, nameTrie.find("Maj7\u266F11"));
+  }
+
+  public void testReportsMissOffset() {
+    assertEquals(-(9 + 1), nameTrie.find("Harmonic Dorian"));
+    assertEquals(-(0 + 1), nameTrie.find("Lydian"));
+    assertEquals(-(3 + 1), nameTrie.find("Min?r"));
+    assertEquals(-("Harmonic".length() + 1), nameTrie.find("Harmonic"));
+    assertEquals(-("Minor".length() + 1), nameTrie.find("Minor7"));
+    assertEquals(-(0 + 1), nameTrie.find(""));
+  }
+
+  public void testReinsertingSameValueIsAllowed() {
+    nameTrie.insert("harmonic minor", 1);
+
+    assertEquals(1, nameTrie.find("Harmonic Minor"));
+  }
+
+  public void testRejectsConflictingName() {
+    try {
+      nameTrie.insert("HARMONIC_MINOR", 7);
+      fail("Expected IllegalArgumentException");
+    }
+    catch (IllegalArgumentException iAE) {
+      // expected
+    }
+  }
+
+  public void testRejectsUnexpectedCharacter() {
+    try {
+      nameTrie.insert("Minor!", 8);
+      fail("Expected IllegalArgumentException");
+    }
+    catch (IllegalArgumentException iAE) {
+      // expected
+    }
+  }
+
+  public void testGrowsPastInitialCapacity() {
+    NameTrie largeTrie = new NameTrie();
+
+    for (int value = 0; value < 1000; value++) {
+      largeTrie.insert("name" + value, value);
+    }
+    for (int value = 0; value < 1000; value++) {
+      assertEquals(value, largeTrie.find("NAME " + value));
+    }
+  }
+}
@@ -0,0 +1,217 @@
+package com.gkaraffa.amati.output;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+public class BinaryTableReaderTest extends TestCase {
+  private static final List<String> COLUMNS = Arrays.asList("Degree", "Chord", "Tone");
+
+  private static List<List<String>> rows() {
+    List<List<String>> rows = new ArrayList<>();
+    rows.add(Arrays.asList("I", "C major", "C"));
+    rows.add(Arrays.asList("ii", "D minor", "D"));
+    rows.add(Arrays.asList("iii", "E minor", "E"));
+    rows.add(Arrays.asList("IV", "F major", "F\u266F"));
+    rows.add(Arrays.asList("V", ""));
+    return rows;
+  }
+
+  public void testRoundTrip() {
+    byte[] table = BinaryOutputFormFactory.encode(COLUMNS, rows());
+    BinaryTableReader reader = new BinaryTableReader(ByteBuffer.wrap(table));
+
+    assertEquals(table.length, reader.getTableLength());
+    assertEquals(0, table.length % 4);
+    assertEquals(3, reader.getColumnCount());
+    assertEquals(5, reader.getRowCount());
+    for (int column = 0; column < COLUMNS.size(); column++) {
+      assertEquals(COLUMNS.get(column), reader.getColumnName(column));
+      assertEquals(column, reader.getColumnIndex(COLUMNS.get(column)));
+    }
+    assertEquals(-1, reader.getColumnIndex("Missing"));
+
+    List<List<String>> rows = rows();
+    for (int row = 0; row < rows.size(); row++) {
+      List<String> cells = rows.get(row);
+      for (int column = 0; column < COLUMNS.size(); column++) {
+        String expected = (column < cells.size()) ? cells.get(column) : "";
+        assertEquals(expected, reader.getCell(row, column));
+      }
+    }
+    assertEquals("F\u266F", reader.getCell(3, 2));
+    assertEquals(reader.getCellId(4, 1), reader.getCellId(4, 2));
+  }
+
+  public void testCellBytesAreUtf8() {
+    BinaryTableReader reader =
+        new BinaryTableReader(ByteBuffer.wrap(BinaryOutputFormFactory.encode(COLUMNS, rows())));
+    ByteBuffer cellBytes = reader.getCellBytes(3, 2);
+
+    assertEquals(4, cellBytes.remaining());
+    assertEquals('F', cellBytes.get(0));
+  }
+
+  public void testReadsAtBaseOffset() {
+    byte[] table = BinaryOutputFormFactory.encode(COLUMNS, rows());
+    ByteBuffer buffer = ByteBuffer.allocate(table.length + 8);
+    buffer.position(8);
+    buffer.put(table);
+    buffer.position(8);
+
+    BinaryTableReader reader = new BinaryTableReader(buffer);
+    assertEquals("E minor", reader.getCell(2, 1));
+  }
+
+  public void testReadAllConcatenatedTables() {
+    byte[] first = BinaryOutputFormFactory.encode(COLUMNS, rows());
+    byte[] second = BinaryOutputFormFactory.encode(Collections.singletonList("Only"),
+        Collections.singletonList(Collections.singletonList("one")));
+    ByteBuffer buffer = ByteBuffer.allocate(first.length + second.length);
+    buffer.put(first).put(second).flip();
+
+    List<BinaryTableReader> readers = BinaryTableReader.readAll(buffer);
+    assertEquals(2, readers.size());
+    assertEquals("C major", readers.get(0).getCell(0, 1));
+    assertEquals("Only", readers.get(1).getColumnName(0));
+    assertEquals("one", readers.get(1).getCell(0, 0));
+  }
+
+  public void testEncodesFromCsv() {
+    BinaryOutputForm csvForm = new BinaryOutputForm(new byte[0]) {
+      @Override
+      public String toString() {
+        return "Degree,Chord\r\nI,\"C major, triad\"\r\n\r\nV,\"G \"\"dominant\"\"\"\r\n";
+      }
+    };
+    BinaryTableReader reader =
+        new BinaryTableReader(ByteBuffer.wrap(BinaryOutputFormFactory.encode(csvForm)));
+
+    assertEquals(2, reader.getRowCount());
+    assertEquals("Chord", reader.getColumnName(1));
+    assertEquals("C major, triad", reader.getCell(0, 1));
+    assertEquals("G \"dominant\"", reader.getCell(1, 1));
+  }
+
+  public void testWideCellIds() {
+    List<List<String>> rows = new ArrayList<>();
+    for (int row = 0; row <= BinaryTableFormat.MAX_SHORT_ID + 1; row++) {
+      rows.add(Collections.singletonList(Integer.toString(row)));
+    }
+    BinaryTableReader reader = new BinaryTableReader(
+        ByteBuffer.wrap(BinaryOutputFormFactory.encode(Collections.singletonList("N"), rows)));
+
+    assertEquals(rows.size(), reader.getRowCount());
+    assertEquals("0", reader.getCell(0, 0));
+    assertEquals(Integer.toString(BinaryTableFormat.MAX_SHORT_ID + 1),
+        reader.getCell(rows.size() - 1, 0));
+  }
+
+  public void testRejectsOutOfRangeCells() {
+    BinaryTableReader reader =
+        new BinaryTableReader(ByteBuffer.wrap(BinaryOutputFormFactory.encode(COLUMNS, rows())));
+
+    try {
+      reader.getCell(5, 0);
+      fail("Expected IndexOutOfBoundsException");
+    }
+    catch (IndexOutOfBoundsException iOOBE) {
+      // expected
+    }
+    try {
+      reader.getCell(0, -1);
+      fail("Expected IndexOutOfBoundsException");
+    }
+    catch (IndexOutOfBoundsException iOOBE) {
+      // expected
+    }
+  }
+
+  public void testRejectsForeignBytes() {
+    assertRejected(new byte[BinaryTableFormat.HEADER_SIZE]);
+    assertRejected(new byte[4]);
+  }
+
+  public void testRejectsUnsupportedVersion() {
+    byte[] table = BinaryOutputFormFactory.encode(COLUMNS, rows());
+    ByteBuffer.wrap(table).putInt(BinaryTableFormat.VERSION_OFFSET, BinaryTableFormat.VERSION + 1);
+
+    assertRejected(table);
+  }
+
+  public void testRejectsTruncatedTable() {
+    byte[] table = BinaryOutputFormFactory.encode(COLUMNS, rows());
+
+    assertRejected(Arrays.copyOf(table, table.length - 4));
+  }
+
+  public void testRejectsTableLengthShorterThanHeader() {
+    for (int tableLength : new int[] {0, -1, BinaryTableFormat.HEADER_SIZE - 1}) {
+      byte[] table = BinaryOutputFormFactory.encode(COLUMNS, rows());
+      ByteBuffer.wrap(table).putInt(BinaryTableFormat.TABLE_LENGTH_OFFSET, tableLength);
+
+      assertRejected(table);
+      try {
+        BinaryTableReader.readAll(ByteBuffer.wrap(table));
+        fail("Expected IllegalArgumentException for table length " + tableLength);
+      }
+      catch (IllegalArgumentException iAE) {
+        // expected
+      }
+    }
+  }
+
+  public void testRejectsLayoutOutsideTable() {
+    int[][] corruptions = {
+        {BinaryTableFormat.CELL_WIDTH_OFFSET, 3},
+        {BinaryTableFormat.COLUMN_COUNT_OFFSET, -1},
+        {BinaryTableFormat.ROW_COUNT_OFFSET, 1000},
+        {BinaryTableFormat.STRING_COUNT_OFFSET, Integer.MAX_VALUE},
+        {BinaryTableFormat.STRING_DATA_LENGTH_OFFSET, 1 << 20}};
+
+    for (int[] corruption : corruptions) {
+      byte[] table = BinaryOutputFormFactory.encode(COLUMNS, rows());
+      ByteBuffer.wrap(table).putInt(corruption[0], corruption[1]);
+
+      assertRejected(table);
+    }
+  }
+
+  public void testRejectsOutOfRangeStrings() {
+    byte[] table = BinaryOutputFormFactory.encode(COLUMNS, rows());
+    BinaryTableReader reader = new BinaryTableReader(ByteBuffer.wrap(table));
+    int stringCount = ByteBuffer.wrap(table).getInt(BinaryTableFormat.STRING_COUNT_OFFSET);
+
+    assertRejectedString(reader, -1);
+    assertRejectedString(reader, stringCount);
+
+    int lastOffset = BinaryTableFormat.HEADER_SIZE + (COLUMNS.size() * Integer.BYTES)
+        + (stringCount * Integer.BYTES);
+    ByteBuffer.wrap(table).putInt(lastOffset, Integer.MAX_VALUE);
+    assertRejectedString(new BinaryTableReader(ByteBuffer.wrap(table)), stringCount - 1);
+  }
+
+  private static void assertRejectedString(BinaryTableReader reader, int stringId) {
+    try {
+      reader.getString(stringId);
+      fail("Expected IllegalArgumentException for string " + stringId);
+    }
+    catch (IllegalArgumentException iAE) {
+      // expected
+    }
+  }
+
+  private static void assertRejected(byte[] table) {
+    try {
+      new BinaryTableReader(ByteBuffer.wrap(table));
+      fail("Expected IllegalArgumentException");
+    }
+    catch (IllegalArgumentException iAE) {
+      // expected
+    }
+  }
+}